@@ -0,0 +1,90 @@
+package uniandes.dpoo.gasolinera.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import uniandes.dpoo.gasolinera.logica.Empleado;
+import uniandes.dpoo.gasolinera.logica.Gasolinera;
+import uniandes.dpoo.gasolinera.logica.RegistroTiposGasolina;
+import uniandes.dpoo.gasolinera.logica.TablaSurtidores;
+import uniandes.dpoo.gasolinera.logica.TipoGasolina;
+
+/**
+ * Esta clase construye las gasolineras que usan los benchmarks.
+ *
+ * Las gasolineras se construyen directamente sobre una TablaSurtidores, sin pasar por el sorteo de empleados del constructor de Gasolinera, para que preparar una
+ * gasolinera de un millón de surtidores no se demore más que el benchmark. Los valores aleatorios salen siempre de la misma semilla, así que dos ejecuciones
+ * miden exactamente la misma gasolinera.
+ */
+public class GeneradorGasolineras
+{
+    /**
+     * La semilla de los valores aleatorios
+     */
+    private static final long SEMILLA = 42;
+
+    /**
+     * Construye una lista de tipos de gasolina llamados tipo0, tipo1, ...
+     * @param cantidadTipos La cantidad de tipos de gasolina
+     * @param galonesPorTipo La cantidad de galones disponibles de cada tipo
+     * @return La lista con los tipos de gasolina
+     */
+    public static List<TipoGasolina> generarTipos( int cantidadTipos, double galonesPorTipo )
+    {
+        List<TipoGasolina> tipos = new ArrayList<TipoGasolina>( );
+        for( int i = 0; i < cantidadTipos; i++ )
+        {
+            tipos.add( new TipoGasolina( "tipo" + i, 10000 + 1000 * i, galonesPorTipo ) );
+        }
+        return tipos;
+    }
+
+    /**
+     * Construye un arreglo con los nombres empleado0, empleado1, ...
+     * @param cantidadEmpleados La cantidad de nombres
+     * @return El arreglo con los nombres
+     */
+    public static String[] generarNombresEmpleados( int cantidadEmpleados )
+    {
+        String[] nombres = new String[cantidadEmpleados];
+        for( int i = 0; i < cantidadEmpleados; i++ )
+        {
+            nombres[ i ] = "empleado" + i;
+        }
+        return nombres;
+    }
+
+    /**
+     * Construye una gasolinera donde ya se han hecho ventas: cada surtidor tiene un empleado y una cantidad de galones vendidos aleatorios, y cada empleado tiene
+     * una cantidad de dinero aleatoria
+     * @param cantidadSurtidores La cantidad de surtidores
+     * @param cantidadTipos La cantidad de tipos de gasolina
+     * @param cantidadEmpleados La cantidad de empleados
+     * @return La gasolinera construida
+     */
+    public static Gasolinera generar( int cantidadSurtidores, int cantidadTipos, int cantidadEmpleados )
+    {
+        Random aleatorio = new Random( SEMILLA );
+        RegistroTiposGasolina tipos = new RegistroTiposGasolina( generarTipos( cantidadTipos, 1000000 ) );
+
+        List<Empleado> empleados = new ArrayList<Empleado>( );
+        for( String nombre : generarNombresEmpleados( cantidadEmpleados ) )
+        {
+            Empleado empleado = new Empleado( nombre );
+            empleado.agregarDinero( aleatorio.nextInt( 1000000 ) );
+            empleados.add( empleado );
+        }
+
+        TablaSurtidores surtidores = new TablaSurtidores( tipos, cantidadSurtidores );
+        for( int i = 0; i < cantidadSurtidores; i++ )
+        {
+            int numero = surtidores.agregarSurtidor( empleados.get( aleatorio.nextInt( cantidadEmpleados ) ) );
+            for( int t = 0; t < cantidadTipos; t++ )
+            {
+                surtidores.cambiarMicrogalonesVendidos( numero, t, aleatorio.nextInt( 500000000 ) );
+            }
+        }
+        return new Gasolinera( surtidores, empleados );
+    }
+}
@@ -0,0 +1,85 @@
+package uniandes.dpoo.gasolinera.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uniandes.dpoo.gasolinera.logica.Gasolinera;
+
+/**
+ * Mide cuánto cuestan las métricas de la gasolinera (ver MetricasGasolinera) en cada venta.
+ *
+ * El escenario "apagadas" es el camino de todas las ventas cuando nadie activó las métricas; debe costar lo mismo que la venta sin instrumentar, que se puede
+ * comparar con VentasBenchmark.UnHilo en una versión anterior del código. El escenario "encendidas" muestra el costo de contar la venta y medir su latencia, y el
+ * escenario "recientes" el de acumular la venta en los anillos por minuto y por hora (ver VentasRecientes).
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@Threads( 1 )
+public class MetricasBenchmark
+{
+    /**
+     * La cantidad de surtidores de la gasolinera
+     */
+    private static final int CANTIDAD_SURTIDORES = 64;
+
+    /**
+     * La cantidad de tipos de gasolina
+     */
+    private static final int CANTIDAD_TIPOS = 3;
+
+    @Param( { "apagadas", "encendidas", "recientes" } )
+    public String metricas;
+
+    private Gasolinera gasolinera;
+
+    private int surtidor;
+
+    private int tipo;
+
+    @Setup( Level.Trial )
+    public void preparar( )
+    {
+        gasolinera = new Gasolinera( CANTIDAD_SURTIDORES, GeneradorGasolineras.generarTipos( CANTIDAD_TIPOS, 1e12 ), GeneradorGasolineras.generarNombresEmpleados( 8 ) );
+        if( metricas.equals( "encendidas" ) )
+        {
+            gasolinera.activarMetricas( );
+        }
+        else if( metricas.equals( "recientes" ) )
+        {
+            gasolinera.activarVentasRecientes( );
+        }
+    }
+
+    @Benchmark
+    public int venderPorCantidad( )
+    {
+        surtidor = surtidor + 1 == CANTIDAD_SURTIDORES ? 0 : surtidor + 1;
+        tipo = tipo + 1 == CANTIDAD_TIPOS ? 0 : tipo + 1;
+        return gasolinera.venderGasolinaPorCantidad( tipo, 0.5, surtidor );
+    }
+
+    @Benchmark
+    public int venderPorPrecio( )
+    {
+        surtidor = surtidor + 1 == CANTIDAD_SURTIDORES ? 0 : surtidor + 1;
+        tipo = tipo + 1 == CANTIDAD_TIPOS ? 0 : tipo + 1;
+        return gasolinera.venderGasolinaPorPrecio( tipo, 5000, surtidor );
+    }
+}
@@ -0,0 +1,98 @@
+package uniandes.dpoo.gasolinera.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uniandes.dpoo.gasolinera.logica.Gasolinera;
+
+/**
+ * Mide Gasolinera.cargarEstado y Gasolinera.guardarEstado (o guardarEstadoBinario) con gasolineras de 10 a un millón de surtidores, en los dos formatos de archivo.
+ *
+ * Antes de medir se genera una gasolinera con GeneradorGasolineras y se guarda en un archivo temporal, que es el que se carga en cada operación. Los guardados se
+ * hacen sobre otro archivo temporal. Los archivos se borran al terminar.
+ *
+ * Las gasolineras grandes necesitan bastante memoria, por eso cada ejecución usa -Xmx2g.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 2, time = 2 )
+@Measurement( iterations = 3, time = 2 )
+@Fork( value = 1, jvmArgsAppend = { "-Xmx2g" } )
+public class PersistenciaBenchmark
+{
+    /**
+     * La cantidad de tipos de gasolina de las gasolineras generadas
+     */
+    private static final int CANTIDAD_TIPOS = 5;
+
+    /**
+     * La cantidad de empleados de las gasolineras generadas
+     */
+    private static final int CANTIDAD_EMPLEADOS = 50;
+
+    @Param( { "10", "1000", "100000", "1000000" } )
+    public int cantidadSurtidores;
+
+    @Param( { "texto", "binario" } )
+    public String formato;
+
+    private Gasolinera gasolinera;
+
+    private File archivoCarga;
+
+    private File archivoGuardado;
+
+    @Setup( Level.Trial )
+    public void preparar( ) throws IOException
+    {
+        String extension = formato.equals( "binario" ) ? ".gasb" : ".gas";
+        gasolinera = GeneradorGasolineras.generar( cantidadSurtidores, CANTIDAD_TIPOS, CANTIDAD_EMPLEADOS );
+        archivoCarga = File.createTempFile( "gasolinera", extension );
+        archivoGuardado = File.createTempFile( "gasolinera", extension );
+        guardar( archivoCarga );
+    }
+
+    @TearDown( Level.Trial )
+    public void limpiar( )
+    {
+        archivoCarga.delete( );
+        archivoGuardado.delete( );
+    }
+
+    private void guardar( File archivo ) throws IOException
+    {
+        if( formato.equals( "binario" ) )
+            gasolinera.guardarEstadoBinario( archivo );
+        else
+            gasolinera.guardarEstado( archivo );
+    }
+
+    @Benchmark
+    public Gasolinera cargarEstado( ) throws IOException
+    {
+        return Gasolinera.cargarEstado( archivoCarga );
+    }
+
+    @Benchmark
+    public long guardarEstado( ) throws IOException
+    {
+        guardar( archivoGuardado );
+        return archivoGuardado.length( );
+    }
+}
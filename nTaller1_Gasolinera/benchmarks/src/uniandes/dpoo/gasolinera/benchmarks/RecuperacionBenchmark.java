@@ -0,0 +1,101 @@
+package uniandes.dpoo.gasolinera.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uniandes.dpoo.gasolinera.logica.Gasolinera;
+import uniandes.dpoo.gasolinera.persistencia.DiarioVentas;
+import uniandes.dpoo.gasolinera.persistencia.RecuperacionParalela;
+
+/**
+ * Mide cuánto tarda recuperar una gasolinera después de una falla: cargar el último archivo guardado y reproducir encima el diario de ventas, venta por venta con
+ * DiarioVentas.reproducir o en paralelo con RecuperacionParalela.
+ *
+ * Antes de medir se genera una gasolinera con GeneradorGasolineras, se guarda en un archivo temporal y se registran en un diario las ventas aleatorias (siempre con
+ * la misma semilla). Cada operación carga el archivo y reproduce el diario completo, así que el tiempo incluye la carga, que es igual en los dos casos.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 2, time = 2 )
+@Measurement( iterations = 3, time = 2 )
+@Fork( value = 1, jvmArgsAppend = { "-Xmx2g" } )
+public class RecuperacionBenchmark
+{
+    /**
+     * La cantidad de tipos de gasolina de las gasolineras generadas
+     */
+    private static final int CANTIDAD_TIPOS = 5;
+
+    /**
+     * La cantidad de empleados de las gasolineras generadas
+     */
+    private static final int CANTIDAD_EMPLEADOS = 50;
+
+    @Param( { "100", "10000" } )
+    public int cantidadSurtidores;
+
+    @Param( { "100000", "1000000" } )
+    public int cantidadVentas;
+
+    private File archivoEstado;
+
+    private File archivoDiario;
+
+    @Setup( Level.Trial )
+    public void preparar( ) throws IOException
+    {
+        Gasolinera gasolinera = GeneradorGasolineras.generar( cantidadSurtidores, CANTIDAD_TIPOS, CANTIDAD_EMPLEADOS );
+        archivoEstado = File.createTempFile( "gasolinera", ".gasb" );
+        archivoDiario = File.createTempFile( "gasolinera", ".diario" );
+        archivoDiario.delete( );
+        gasolinera.guardarEstadoBinario( archivoEstado );
+
+        Random aleatorio = new Random( 42 );
+        gasolinera.activarDiario( archivoDiario, 4096, 0 );
+        for( int i = 0; i < cantidadVentas; i++ )
+        {
+            gasolinera.venderGasolinaPorCantidad( aleatorio.nextInt( CANTIDAD_TIPOS ), 0.1 + aleatorio.nextInt( 200 ) / 100.0, aleatorio.nextInt( cantidadSurtidores ) );
+        }
+        gasolinera.desactivarDiario( );
+    }
+
+    @TearDown( Level.Trial )
+    public void limpiar( )
+    {
+        archivoEstado.delete( );
+        archivoDiario.delete( );
+    }
+
+    @Benchmark
+    public Gasolinera reproducirVentaPorVenta( ) throws IOException
+    {
+        Gasolinera gasolinera = Gasolinera.cargarEstado( archivoEstado );
+        DiarioVentas.reproducir( archivoDiario, gasolinera );
+        return gasolinera;
+    }
+
+    @Benchmark
+    public Gasolinera reproducirEnParalelo( ) throws IOException
+    {
+        Gasolinera gasolinera = Gasolinera.cargarEstado( archivoEstado );
+        RecuperacionParalela.reproducir( archivoDiario, gasolinera );
+        return gasolinera;
+    }
+}
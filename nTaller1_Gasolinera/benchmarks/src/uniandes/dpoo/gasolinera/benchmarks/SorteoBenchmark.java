@@ -0,0 +1,108 @@
+package uniandes.dpoo.gasolinera.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uniandes.dpoo.gasolinera.logica.Empleado;
+import uniandes.dpoo.gasolinera.utils.EstrategiaAsignacion;
+import uniandes.dpoo.gasolinera.utils.Sorteo;
+
+/**
+ * Mide Sorteo.seleccionarAlAzar de dos formas:
+ * <ul>
+ * <li>seleccionar: con el arreglo de opciones ya construido.</li>
+ * <li>seleccionarCopiando: copiando primero los empleados de un mapa a un arreglo, como lo hace el constructor de Gasolinera para cada surtidor.</li>
+ * </ul>
+ * La diferencia entre las dos muestra cuánto cuesta la copia a medida que crece la cantidad de empleados.
+ *
+ * También mide las estrategias de asignación (ver EstrategiaAsignacion) repartiendo CANTIDAD_SURTIDORES surtidores entre los empleados, que es lo que hace ahora el
+ * constructor de Gasolinera una sola vez en lugar de sortear y copiar para cada surtidor.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class SorteoBenchmark
+{
+    /**
+     * La cantidad de surtidores que se reparten en los benchmarks de las estrategias
+     */
+    private static final int CANTIDAD_SURTIDORES = 10000;
+
+    @Param( { "3", "50", "1000" } )
+    public int cantidadEmpleados;
+
+    private Map<String, Empleado> empleados;
+
+    private Empleado[] opciones;
+
+    private EstrategiaAsignacion alAzar;
+
+    private EstrategiaAsignacion rotando;
+
+    private EstrategiaAsignacion menosCargado;
+
+    @Setup( Level.Trial )
+    public void preparar( )
+    {
+        empleados = new HashMap<String, Empleado>( );
+        for( String nombre : GeneradorGasolineras.generarNombresEmpleados( cantidadEmpleados ) )
+        {
+            empleados.put( nombre, new Empleado( nombre ) );
+        }
+        opciones = empleados.values( ).toArray( new Empleado[0] );
+        alAzar = Sorteo.alAzar( 42 );
+        rotando = Sorteo.rotando( );
+        menosCargado = Sorteo.menosCargado( );
+    }
+
+    @Benchmark
+    public Empleado seleccionar( )
+    {
+        return Sorteo.seleccionarAlAzar( opciones );
+    }
+
+    @Benchmark
+    public Empleado seleccionarCopiando( )
+    {
+        return Sorteo.seleccionarAlAzar( empleados.values( ).toArray( new Empleado[]{} ) );
+    }
+
+    @Benchmark
+    @OperationsPerInvocation( CANTIDAD_SURTIDORES )
+    public int[] asignarAlAzar( )
+    {
+        return alAzar.asignar( CANTIDAD_SURTIDORES, new int[cantidadEmpleados] );
+    }
+
+    @Benchmark
+    @OperationsPerInvocation( CANTIDAD_SURTIDORES )
+    public int[] asignarRotando( )
+    {
+        return rotando.asignar( CANTIDAD_SURTIDORES, new int[cantidadEmpleados] );
+    }
+
+    @Benchmark
+    @OperationsPerInvocation( CANTIDAD_SURTIDORES )
+    public int[] asignarMenosCargado( )
+    {
+        return menosCargado.asignar( CANTIDAD_SURTIDORES, new int[cantidadEmpleados] );
+    }
+}
@@ -0,0 +1,73 @@
+package uniandes.dpoo.gasolinera.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uniandes.dpoo.gasolinera.logica.Empleado;
+import uniandes.dpoo.gasolinera.logica.RegistroTiposGasolina;
+import uniandes.dpoo.gasolinera.logica.Surtidor;
+
+/**
+ * Mide Surtidor.venderGasolina, que sólo registra los galones entregados en la fila del surtidor y calcula el precio, sin tocar el inventario ni el dinero del
+ * empleado. Cada hilo tiene su propio surtidor.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class SurtidorBenchmark
+{
+    /**
+     * La cantidad de tipos de gasolina
+     */
+    private static final int CANTIDAD_TIPOS = 3;
+
+    private Surtidor surtidor;
+
+    private String[] nombresTipos;
+
+    private int tipo;
+
+    @Setup( Level.Trial )
+    public void preparar( )
+    {
+        RegistroTiposGasolina tipos = new RegistroTiposGasolina( GeneradorGasolineras.generarTipos( CANTIDAD_TIPOS, 1000000 ) );
+        surtidor = new Surtidor( tipos, new Empleado( "empleado" ) );
+        nombresTipos = new String[CANTIDAD_TIPOS];
+        for( int t = 0; t < CANTIDAD_TIPOS; t++ )
+        {
+            nombresTipos[ t ] = "tipo" + t;
+        }
+    }
+
+    private int siguienteTipo( )
+    {
+        tipo = tipo + 1 == CANTIDAD_TIPOS ? 0 : tipo + 1;
+        return tipo;
+    }
+
+    @Benchmark
+    public int venderGasolina( )
+    {
+        return surtidor.venderGasolina( nombresTipos[ siguienteTipo( ) ], 0.5 );
+    }
+
+    @Benchmark
+    public int venderGasolinaConIdentificador( )
+    {
+        return surtidor.venderGasolina( siguienteTipo( ), 0.5 );
+    }
+}
@@ -0,0 +1,152 @@
+package uniandes.dpoo.gasolinera.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uniandes.dpoo.gasolinera.logica.Gasolinera;
+
+/**
+ * Mide las ventas de la gasolinera: venderGasolinaPorCantidad y venderGasolinaPorPrecio, buscando el tipo por nombre y por identificador.
+ *
+ * Hay dos escenarios:
+ * <ul>
+ * <li>normal: hay tanta gasolina que ninguna venta se queda corta.</li>
+ * <li>faltante: no queda gasolina, así que todas las ventas toman el camino en el que la gasolina no alcanza.</li>
+ * </ul>
+ *
+ * Esta clase es abstracta: los benchmarks se ejecutan en las subclases, que sólo cambian la cantidad de hilos que venden al mismo tiempo. Todos los hilos venden
+ * en la misma gasolinera, cada uno recorriendo los surtidores desde un punto distinto.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public abstract class VentasBenchmark
+{
+    /**
+     * La cantidad de surtidores de la gasolinera
+     */
+    private static final int CANTIDAD_SURTIDORES = 64;
+
+    /**
+     * La cantidad de tipos de gasolina
+     */
+    private static final int CANTIDAD_TIPOS = 3;
+
+    /**
+     * Los galones disponibles de cada tipo en el escenario normal. Alcanzan para todas las ventas de una ejecución
+     */
+    private static final double GALONES_NORMAL = 1e12;
+
+    @Param( { "normal", "faltante" } )
+    public String escenario;
+
+    private Gasolinera gasolinera;
+
+    private String[] nombresTipos;
+
+    /**
+     * Los surtidores y tipos de gasolina que usa cada hilo
+     */
+    @State( Scope.Thread )
+    public static class Hilo
+    {
+        private static final AtomicInteger siguiente = new AtomicInteger( );
+
+        private int surtidor;
+
+        private int tipo;
+
+        @Setup( Level.Trial )
+        public void preparar( )
+        {
+            int numero = siguiente.getAndIncrement( );
+            surtidor = numero * 7 % CANTIDAD_SURTIDORES;
+            tipo = numero % CANTIDAD_TIPOS;
+        }
+
+        int siguienteSurtidor( )
+        {
+            surtidor = surtidor + 1 == CANTIDAD_SURTIDORES ? 0 : surtidor + 1;
+            return surtidor;
+        }
+
+        int siguienteTipo( )
+        {
+            tipo = tipo + 1 == CANTIDAD_TIPOS ? 0 : tipo + 1;
+            return tipo;
+        }
+    }
+
+    @Setup( Level.Trial )
+    public void preparar( )
+    {
+        double galones = escenario.equals( "normal" ) ? GALONES_NORMAL : 0;
+        gasolinera = new Gasolinera( CANTIDAD_SURTIDORES, GeneradorGasolineras.generarTipos( CANTIDAD_TIPOS, galones ), GeneradorGasolineras.generarNombresEmpleados( 8 ) );
+        nombresTipos = new String[CANTIDAD_TIPOS];
+        for( int t = 0; t < CANTIDAD_TIPOS; t++ )
+        {
+            nombresTipos[ t ] = "tipo" + t;
+        }
+    }
+
+    @Benchmark
+    public int venderPorCantidad( Hilo hilo )
+    {
+        return gasolinera.venderGasolinaPorCantidad( nombresTipos[ hilo.siguienteTipo( ) ], 0.5, hilo.siguienteSurtidor( ) );
+    }
+
+    @Benchmark
+    public int venderPorCantidadConIdentificador( Hilo hilo )
+    {
+        return gasolinera.venderGasolinaPorCantidad( hilo.siguienteTipo( ), 0.5, hilo.siguienteSurtidor( ) );
+    }
+
+    @Benchmark
+    public int venderPorPrecio( Hilo hilo )
+    {
+        return gasolinera.venderGasolinaPorPrecio( nombresTipos[ hilo.siguienteTipo( ) ], 5000, hilo.siguienteSurtidor( ) );
+    }
+
+    @Benchmark
+    public int venderPorPrecioConIdentificador( Hilo hilo )
+    {
+        return gasolinera.venderGasolinaPorPrecio( hilo.siguienteTipo( ), 5000, hilo.siguienteSurtidor( ) );
+    }
+
+    @Threads( 1 )
+    public static class UnHilo extends VentasBenchmark
+    {
+    }
+
+    @Threads( 2 )
+    public static class DosHilos extends VentasBenchmark
+    {
+    }
+
+    @Threads( 4 )
+    public static class CuatroHilos extends VentasBenchmark
+    {
+    }
+
+    @Threads( Threads.MAX )
+    public static class TodosLosHilos extends VentasBenchmark
+    {
+    }
+}
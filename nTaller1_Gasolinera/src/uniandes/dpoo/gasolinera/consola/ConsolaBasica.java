@@ -135,28 +135,28 @@ public abstract class ConsolaBasica
             opciones[ pos ] = iterator.next( ).toString( );
         }
 
-        System.out.println( "Seleccione una de las siguientes opciones:" );
-        for( int i = 1; i <= opciones.length; i++ )
+        // Se vuelven a mostrar las opciones hasta que el usuario escoja una válida
+        while( true )
         {
-            System.out.println( " " + i + ". " + opciones[ i - 1 ] );
-        }
+            System.out.println( "Seleccione una de las siguientes opciones:" );
+            for( int i = 1; i <= opciones.length; i++ )
+            {
+                System.out.println( " " + i + ". " + opciones[ i - 1 ] );
+            }
 
-        String opcion = pedirCadenaAlUsuario( "\nEscriba el número que corresponde a la opción deseada" );
-        try
-        {
-            int opcionSeleccionada = Integer.parseInt( opcion );
-            if( opcionSeleccionada > 0 && opcionSeleccionada <= opciones.length )
-                return opciones[ opcionSeleccionada - 1 ];
-            else
+            String opcion = pedirCadenaAlUsuario( "\nEscriba el número que corresponde a la opción deseada" );
+            try
             {
-                System.out.println( "Esa no es una opción válida. Digite solamente números entre 1 y " + opciones.length );
-                return pedirOpcionAlUsuario( coleccionOpciones );
+                int opcionSeleccionada = Integer.parseInt( opcion );
+                if( opcionSeleccionada > 0 && opcionSeleccionada <= opciones.length )
+                    return opciones[ opcionSeleccionada - 1 ];
+                else
+                    System.out.println( "Esa no es una opción válida. Digite solamente números entre 1 y " + opciones.length );
+            }
+            catch( NumberFormatException nfe )
+            {
+                System.out.println( "Esa no es una opción válida. Digite solamente números." );
             }
-        }
-        catch( NumberFormatException nfe )
-        {
-            System.out.println( "Esa no es una opción válida. Digite solamente números." );
-            return pedirOpcionAlUsuario( coleccionOpciones );
         }
     }
 
@@ -168,30 +168,30 @@ public abstract class ConsolaBasica
      */
     protected int mostrarMenu( String nombreMenu, String[] opciones )
     {
-        System.out.println( "\n---------------------" );
-        System.out.println( nombreMenu );
-        System.out.println( "---------------------" );
-
-        for( int i = 1; i <= opciones.length; i++ )
+        // Se vuelve a mostrar el menú hasta que el usuario escoja una opción válida
+        while( true )
         {
-            System.out.println( " " + i + ". " + opciones[ i - 1 ] );
-        }
-        String opcion = pedirCadenaAlUsuario( "Escoja la opción deseada" );
-        try
-        {
-            int opcionSeleccionada = Integer.parseInt( opcion );
-            if( opcionSeleccionada > 0 && opcionSeleccionada <= opciones.length )
-                return opcionSeleccionada;
-            else
+            System.out.println( "\n---------------------" );
+            System.out.println( nombreMenu );
+            System.out.println( "---------------------" );
+
+            for( int i = 1; i <= opciones.length; i++ )
             {
-                System.out.println( "Esa no es una opción válida. Digite solamente números entre 1 y " + opciones.length );
-                return mostrarMenu( nombreMenu, opciones );
+                System.out.println( " " + i + ". " + opciones[ i - 1 ] );
+            }
+            String opcion = pedirCadenaAlUsuario( "Escoja la opción deseada" );
+            try
+            {
+                int opcionSeleccionada = Integer.parseInt( opcion );
+                if( opcionSeleccionada > 0 && opcionSeleccionada <= opciones.length )
+                    return opcionSeleccionada;
+                else
+                    System.out.println( "Esa no es una opción válida. Digite solamente números entre 1 y " + opciones.length );
+            }
+            catch( NumberFormatException nfe )
+            {
+                System.out.println( "Esa no es una opción válida. Digite solamente números." );
             }
-        }
-        catch( NumberFormatException nfe )
-        {
-            System.out.println( "Esa no es una opción válida. Digite solamente números." );
-            return mostrarMenu( nombreMenu, opciones );
         }
     }
 
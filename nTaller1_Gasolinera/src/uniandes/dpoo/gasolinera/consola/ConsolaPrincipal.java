@@ -1,8 +1,16 @@
 package uniandes.dpoo.gasolinera.consola;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileDescriptor;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
 
 import uniandes.dpoo.gasolinera.logica.Gasolinera;
 
@@ -11,6 +19,11 @@ import uniandes.dpoo.gasolinera.logica.Gasolinera;
  */
 public class ConsolaPrincipal extends ConsolaBasica
 {
+    /**
+     * La extensión de los archivos en los que la gasolinera se guarda en formato binario. Al cargar un archivo, el formato se reconoce sin importar su extensión
+     */
+    private static final String EXTENSION_BINARIA = ".gasb";
+
     /**
      * Opciones que se mostrarán en el menú principal
      */
@@ -28,30 +41,34 @@ public class ConsolaPrincipal extends ConsolaBasica
      */
     private void mostrarMenuPrincipal( )
     {
-        int opcionSeleccionada = mostrarMenu( "Menú principal", opcionesMenuPrincipal );
-        if( opcionSeleccionada == 1 )
-        {
-            usarGasolinera( );
-        }
-        else if( opcionSeleccionada == 2 )
-        {
-            ConsolaCrearGasolinera consolaCreacion = new ConsolaCrearGasolinera( );
-            laGasolinera = consolaCreacion.mostrarOpciones( );
-        }
-        else if( opcionSeleccionada == 3 )
-        {
-            cargarGasolinera( );
-        }
-        else if( opcionSeleccionada == 4 )
-        {
-            guardarGasolinera( );
-        }
-        else if( opcionSeleccionada == 5 )
+        boolean salir = false;
+
+        while( !salir )
         {
-            System.out.println( "Saliendo ..." );
-            System.exit( 0 );
+            int opcionSeleccionada = mostrarMenu( "Menú principal", opcionesMenuPrincipal );
+            if( opcionSeleccionada == 1 )
+            {
+                usarGasolinera( );
+            }
+            else if( opcionSeleccionada == 2 )
+            {
+                ConsolaCrearGasolinera consolaCreacion = new ConsolaCrearGasolinera( );
+                laGasolinera = consolaCreacion.mostrarOpciones( );
+            }
+            else if( opcionSeleccionada == 3 )
+            {
+                cargarGasolinera( );
+            }
+            else if( opcionSeleccionada == 4 )
+            {
+                guardarGasolinera( );
+            }
+            else if( opcionSeleccionada == 5 )
+            {
+                System.out.println( "Saliendo ..." );
+                salir = true;
+            }
         }
-        mostrarMenuPrincipal( );
     }
 
     /**
@@ -125,7 +142,8 @@ public class ConsolaPrincipal extends ConsolaBasica
         }
         else
         {
-            String nombreArchivo = pedirCadenaAlUsuario( "Indique el nombre del archivo donde guardará la gasolinera en su estado actual. El archivo se guardará dentro de la carpeta 'datos'" );
+            String nombreArchivo = pedirCadenaAlUsuario( "Indique el nombre del archivo donde guardará la gasolinera en su estado actual. El archivo se guardará dentro de la carpeta 'datos' y, si su nombre termina en "
+                    + EXTENSION_BINARIA + ", se guardará en formato binario" );
             if( !nombreArchivo.trim( ).equals( "" ) )
             {
                 File archivo = new File( "./datos/" + nombreArchivo );
@@ -139,7 +157,14 @@ public class ConsolaPrincipal extends ConsolaBasica
                 {
                     try
                     {
-                        laGasolinera.guardarEstado( archivo );
+                        if( nombreArchivo.endsWith( EXTENSION_BINARIA ) )
+                        {
+                            laGasolinera.guardarEstadoBinario( archivo );
+                        }
+                        else
+                        {
+                            laGasolinera.guardarEstado( archivo );
+                        }
                         System.out.println( "El estado actual de la gasolinera fue salvado en el archivo " + archivo.getAbsolutePath( ) );
                     }
                     catch( IOException e )
@@ -154,11 +179,50 @@ public class ConsolaPrincipal extends ConsolaBasica
     }
 
     /**
-     * Este es el método que se utiliza para iniciar la aplicación
-     * @param args
+     * Ejecuta un script de comandos sin pedirle nada al usuario (ver ConsolaScript)
+     * @param nombreArchivo El archivo con el script, o null o "-" para leer el script de la entrada estándar
+     * @return El código de salida de la aplicación: 0 si no hubo errores, o 1 si alguna línea del script tenía errores o no se pudo leer el script
+     */
+    private static int ejecutarScript( String nombreArchivo )
+    {
+        PrintStream salida = new PrintStream( new BufferedOutputStream( new FileOutputStream( FileDescriptor.out ), 1 << 16 ), false );
+        try
+        {
+            Reader lector;
+            if( nombreArchivo == null || nombreArchivo.equals( "-" ) )
+                lector = new InputStreamReader( System.in );
+            else
+                lector = new FileReader( nombreArchivo );
+            try( BufferedReader entrada = new BufferedReader( lector, 1 << 16 ) )
+            {
+                ConsolaScript script = new ConsolaScript( entrada, salida, System.err );
+                return script.ejecutar( ) == 0 ? 0 : 1;
+            }
+        }
+        catch( IOException e )
+        {
+            System.err.println( "No se pudo leer el script: " + e.getMessage( ) );
+            return 1;
+        }
+        finally
+        {
+            salida.flush( );
+        }
+    }
+
+    /**
+     * Este es el método que se utiliza para iniciar la aplicación.
+     * 
+     * Sin argumentos, la aplicación muestra los menús y le pide al usuario lo que necesite. Con los argumentos --script archivo, ejecuta los comandos del archivo
+     * sin pedirle nada al usuario; si no se indica el archivo, o si es "-", los comandos se leen de la entrada estándar.
+     * @param args Los argumentos de la aplicación
      */
     public static void main( String[] args )
     {
+        if( args.length > 0 && args[ 0 ].equals( "--script" ) )
+        {
+            System.exit( ejecutarScript( args.length > 1 ? args[ 1 ] : null ) );
+        }
         ConsolaPrincipal c = new ConsolaPrincipal( );
         c.mostrarMenuPrincipal( );
     }
@@ -0,0 +1,441 @@
+package uniandes.dpoo.gasolinera.consola;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+
+import uniandes.dpoo.gasolinera.logica.Empleado;
+import uniandes.dpoo.gasolinera.logica.Gasolinera;
+import uniandes.dpoo.gasolinera.logica.RegistroTiposGasolina;
+import uniandes.dpoo.gasolinera.logica.ResultadoVenta;
+import uniandes.dpoo.gasolinera.logica.TipoGasolina;
+import uniandes.dpoo.gasolinera.logica.VersionPrecio;
+import uniandes.dpoo.gasolinera.persistencia.ImportadorVentas;
+
+/**
+ * Esta clase ejecuta un script de comandos sobre una gasolinera, sin pedirle nada al usuario. Sirve para procesar por lotes archivos con millones de ventas.
+ *
+ * Cada línea del script es un comando, con sus argumentos separados por espacios. Las líneas vacías y las que empiezan por # se ignoran. Los comandos son:
+ * <ul>
+ * <li>load archivo: carga la gasolinera de un archivo, de texto o binario (ver Gasolinera.cargarEstado).</li>
+ * <li>sell-volume surtidor tipo galones: vende una cantidad de galones de un tipo de gasolina en un surtidor.</li>
+ * <li>sell-price surtidor tipo valor: vende gasolina por un valor en pesos.</li>
+ * <li>price tipo valor: cambia el precio por galón de un tipo de gasolina. Las ventas siguientes se cobran con el nuevo precio.</li>
+ * <li>import archivo: aplica las ventas de un archivo CSV exportado por los surtidores, en orden de fecha, y muestra un resumen (ver ImportadorVentas).</li>
+ * <li>save archivo: guarda la gasolinera. Si el nombre del archivo termina en .gasb, se guarda en formato binario.</li>
+ * <li>report: muestra el inventario, el dinero de los empleados, cuántas ventas se han hecho y lo que se vendió con cada versión del precio.</li>
+ * </ul>
+ *
+ * Las ventas no escriben nada en la salida, para que el script se ejecute tan rápido como la gasolinera pueda vender. Por lo mismo, los argumentos se recorren
+ * por su posición dentro de la línea, sin copiarlos: sólo se crea un String para las cantidades (que se convierten con Double.parseDouble), para los nombres de
+ * archivo y para los mensajes de error. Si una línea tiene un error, se muestra en la salida de errores el número de la línea y el problema, y el script sigue
+ * con la línea siguiente.
+ */
+public class ConsolaScript
+{
+    // ************************************************************************
+    // Atributos
+    // ************************************************************************
+
+    /**
+     * La extensión de los archivos en los que la gasolinera se guarda en formato binario
+     */
+    private static final String EXTENSION_BINARIA = ".gasb";
+
+    /**
+     * De donde se leen los comandos
+     */
+    private BufferedReader entrada;
+
+    /**
+     * Donde se escriben los reportes
+     */
+    private PrintStream salida;
+
+    /**
+     * Donde se escriben los errores de las líneas del script
+     */
+    private PrintStream salidaErrores;
+
+    /**
+     * La gasolinera sobre la que se ejecutan los comandos, o null si todavía no se ha cargado ninguna
+     */
+    private Gasolinera laGasolinera;
+
+    /**
+     * La línea que se está ejecutando
+     */
+    private String linea;
+
+    /**
+     * La posición de la línea donde empieza el argumento actual
+     */
+    private int inicioArgumento;
+
+    /**
+     * La posición de la línea donde termina el argumento actual, que es donde se empieza a buscar el siguiente
+     */
+    private int posicion;
+
+    /**
+     * La cantidad de comandos ejecutados
+     */
+    private long comandos;
+
+    /**
+     * La cantidad de líneas con errores
+     */
+    private long errores;
+
+    /**
+     * La cantidad de ventas hechas
+     */
+    private long ventas;
+
+    /**
+     * La cantidad de ventas en las que no alcanzó la gasolina
+     */
+    private long ventasIncompletas;
+
+    /**
+     * El dinero cobrado en todas las ventas
+     */
+    private long dineroCobrado;
+
+    // ************************************************************************
+    // Constructores
+    // ************************************************************************
+
+    /**
+     * Prepara la ejecución de un script
+     * @param entrada De donde se leen los comandos
+     * @param salida Donde se escriben los reportes
+     * @param salidaErrores Donde se escriben los errores de las líneas del script
+     */
+    public ConsolaScript( BufferedReader entrada, PrintStream salida, PrintStream salidaErrores )
+    {
+        this.entrada = entrada;
+        this.salida = salida;
+        this.salidaErrores = salidaErrores;
+    }
+
+    // ************************************************************************
+    // Métodos
+    // ************************************************************************
+
+    /**
+     * Retorna la gasolinera sobre la que se ejecutaron los comandos
+     * @return La gasolinera, o null si el script no cargó ninguna
+     */
+    public Gasolinera getGasolinera( )
+    {
+        return laGasolinera;
+    }
+
+    /**
+     * Retorna la cantidad de comandos ejecutados, sin contar las líneas vacías ni los comentarios
+     * @return La cantidad de comandos
+     */
+    public long getComandos( )
+    {
+        return comandos;
+    }
+
+    /**
+     * Retorna la cantidad de líneas del script que tenían errores
+     * @return La cantidad de errores
+     */
+    public long getErrores( )
+    {
+        return errores;
+    }
+
+    /**
+     * Ejecuta todos los comandos del script, uno tras otro, hasta que se acabe la entrada
+     * @return La cantidad de líneas con errores
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo el script
+     */
+    public long ejecutar( ) throws IOException
+    {
+        long numeroLinea = 0;
+        linea = entrada.readLine( );
+        while( linea != null )
+        {
+            numeroLinea++;
+            posicion = 0;
+            if( siguienteArgumento( ) && linea.charAt( inicioArgumento ) != '#' )
+            {
+                comandos++;
+                try
+                {
+                    ejecutarComando( );
+                }
+                catch( IllegalArgumentException | IllegalStateException | IOException e )
+                {
+                    errores++;
+                    salidaErrores.println( "Línea " + numeroLinea + ": " + e.getMessage( ) );
+                }
+            }
+            linea = entrada.readLine( );
+        }
+        salida.flush( );
+        salidaErrores.flush( );
+        return errores;
+    }
+
+    /**
+     * Ejecuta el comando que es el argumento actual, leyendo sus argumentos de la línea actual
+     * @throws IOException Se lanza esta excepción si hay problemas cargando o guardando la gasolinera, o importando ventas
+     */
+    private void ejecutarComando( ) throws IOException
+    {
+        if( argumentoEs( "sell-volume" ) )
+        {
+            int surtidor = leerSurtidor( );
+            int idTipo = leerTipo( );
+            double galones = leerPositivo( );
+            terminarLinea( );
+            registrarVenta( laGasolinera.venderPorCantidad( idTipo, galones, surtidor ) );
+        }
+        else if( argumentoEs( "sell-price" ) )
+        {
+            int surtidor = leerSurtidor( );
+            int idTipo = leerTipo( );
+            double valor = leerPositivo( );
+            if( valor != Math.floor( valor ) || valor > Integer.MAX_VALUE )
+                throw new IllegalArgumentException( "El valor debe ser un número entero de pesos" );
+            terminarLinea( );
+            registrarVenta( laGasolinera.venderPorPrecio( idTipo, ( int )valor, surtidor ) );
+        }
+        else if( argumentoEs( "price" ) )
+        {
+            verificarGasolinera( );
+            int idTipo = leerTipo( );
+            double precio = leerPositivo( );
+            if( precio != Math.floor( precio ) || precio > Integer.MAX_VALUE )
+                throw new IllegalArgumentException( "El precio debe ser un número entero de pesos" );
+            terminarLinea( );
+            laGasolinera.cambiarPrecio( laGasolinera.getRegistroTiposGasolina( ).getTipo( idTipo ).getNombre( ), ( int )precio );
+        }
+        else if( argumentoEs( "load" ) )
+        {
+            File archivo = new File( leerArchivo( ) );
+            laGasolinera = Gasolinera.cargarEstado( archivo );
+        }
+        else if( argumentoEs( "import" ) )
+        {
+            String nombreArchivo = leerArchivo( );
+            verificarGasolinera( );
+            ImportadorVentas importador = new ImportadorVentas( laGasolinera );
+            importador.importar( new File( nombreArchivo ) );
+            ventas += importador.getFilas( );
+            ventasIncompletas += importador.getVentasParciales( );
+            dineroCobrado += importador.getDineroCobrado( );
+            importador.imprimirResumen( salida );
+        }
+        else if( argumentoEs( "save" ) )
+        {
+            String nombreArchivo = leerArchivo( );
+            verificarGasolinera( );
+            if( nombreArchivo.endsWith( EXTENSION_BINARIA ) )
+                laGasolinera.guardarEstadoBinario( new File( nombreArchivo ) );
+            else
+                laGasolinera.guardarEstado( new File( nombreArchivo ) );
+        }
+        else if( argumentoEs( "report" ) )
+        {
+            terminarLinea( );
+            verificarGasolinera( );
+            mostrarReporte( );
+        }
+        else
+        {
+            throw new IllegalArgumentException( "El comando " + argumentoActual( ) + " no existe" );
+        }
+    }
+
+    /**
+     * Cuenta una venta
+     * @param venta El resultado de la venta
+     */
+    private void registrarVenta( ResultadoVenta venta )
+    {
+        ventas++;
+        dineroCobrado += venta.getPrecio( );
+        if( !venta.esCompleta( ) )
+            ventasIncompletas++;
+    }
+
+    /**
+     * Muestra el estado actual de la gasolinera y cuántas ventas se han hecho en el script
+     */
+    private void mostrarReporte( )
+    {
+        salida.println( "Comandos: " + comandos + " (" + errores + " con errores)" );
+        salida.println( "Ventas: " + ventas + " (" + ventasIncompletas + " incompletas), por " + dineroCobrado + " pesos" );
+        salida.println( "Surtidores: " + laGasolinera.getCantidadSurtidores( ) );
+        salida.println( "Tipos de gasolina:" );
+        for( TipoGasolina tipo : laGasolinera.getTiposGasolina( ) )
+        {
+            salida.println( "   - " + tipo.getNombre( ) + ": " + tipo.getPrecioPorGalon( ) + " por galón, " + String.format( "%.2f", tipo.getCantidadDisponible( ) )
+                    + " galones disponibles" );
+            for( VersionPrecio version : tipo.getHistorialPrecios( ) )
+            {
+                salida.println( "        precio " + version + ": " + String.format( "%.2f", version.getGalonesVendidos( ) ) + " galones vendidos por "
+                        + version.getDineroCobrado( ) + " pesos" );
+            }
+        }
+        salida.println( "Empleados:" );
+        for( Empleado empleado : laGasolinera.getEmpleados( ) )
+        {
+            salida.println( "   - " + empleado.getNombre( ) + " tiene " + empleado.getCantidadDinero( ) + " pesos" );
+        }
+    }
+
+    /**
+     * Verifica que ya se haya cargado una gasolinera
+     * @throws IllegalStateException Si todavía no se ha cargado ninguna
+     */
+    private void verificarGasolinera( )
+    {
+        if( laGasolinera == null )
+            throw new IllegalStateException( "No hay una gasolinera cargada: use primero el comando load" );
+    }
+
+    // ************************************************************************
+    // Lectura de argumentos
+    // ************************************************************************
+
+    /**
+     * Avanza hasta el siguiente argumento de la línea actual, sin copiarlo: el argumento queda entre inicioArgumento y posicion
+     * @return true si había otro argumento, o false si no quedan argumentos
+     */
+    private boolean siguienteArgumento( )
+    {
+        int longitud = linea.length( );
+        while( posicion < longitud && Character.isWhitespace( linea.charAt( posicion ) ) )
+        {
+            posicion++;
+        }
+        if( posicion == longitud )
+            return false;
+        inicioArgumento = posicion;
+        while( posicion < longitud && !Character.isWhitespace( linea.charAt( posicion ) ) )
+        {
+            posicion++;
+        }
+        return true;
+    }
+
+    /**
+     * Indica si el argumento actual es igual a un texto, sin copiar el argumento
+     * @param texto El texto con el que se compara
+     * @return true si el argumento es igual al texto, o false en caso contrario
+     */
+    private boolean argumentoEs( String texto )
+    {
+        return posicion - inicioArgumento == texto.length( ) && linea.regionMatches( inicioArgumento, texto, 0, texto.length( ) );
+    }
+
+    /**
+     * Retorna una copia del argumento actual
+     * @return El argumento
+     */
+    private String argumentoActual( )
+    {
+        return linea.substring( inicioArgumento, posicion );
+    }
+
+    /**
+     * Avanza hasta el siguiente argumento de la línea actual, que es obligatorio
+     * @param nombre El nombre del argumento, para el mensaje de error
+     * @throws IllegalArgumentException Si no quedan argumentos
+     */
+    private void argumentoObligatorio( String nombre )
+    {
+        if( !siguienteArgumento( ) )
+            throw new IllegalArgumentException( "Falta " + nombre );
+    }
+
+    /**
+     * Verifica que no queden argumentos en la línea actual
+     * @throws IllegalArgumentException Si quedan argumentos
+     */
+    private void terminarLinea( )
+    {
+        if( siguienteArgumento( ) )
+            throw new IllegalArgumentException( "Sobra el argumento " + argumentoActual( ) );
+    }
+
+    /**
+     * Lee el nombre de un archivo, que es el resto de la línea para que pueda tener espacios
+     * @return El nombre del archivo
+     */
+    private String leerArchivo( )
+    {
+        String nombre = linea.substring( posicion ).trim( );
+        if( nombre.isEmpty( ) )
+            throw new IllegalArgumentException( "Falta el nombre del archivo" );
+        return nombre;
+    }
+
+    /**
+     * Lee el número de un surtidor, sin copiar el argumento, y verifica que exista en la gasolinera
+     * @return El número del surtidor
+     */
+    private int leerSurtidor( )
+    {
+        verificarGasolinera( );
+        argumentoObligatorio( "el número del surtidor" );
+        int numero = 0;
+        for( int i = inicioArgumento; i < posicion; i++ )
+        {
+            char c = linea.charAt( i );
+            if( c < '0' || c > '9' || numero > laGasolinera.getCantidadSurtidores( ) )
+                throw new IllegalArgumentException( "El surtidor " + argumentoActual( ) + " no existe" );
+            numero = numero * 10 + ( c - '0' );
+        }
+        if( numero >= laGasolinera.getCantidadSurtidores( ) )
+            throw new IllegalArgumentException( "El surtidor " + argumentoActual( ) + " no existe" );
+        return numero;
+    }
+
+    /**
+     * Lee el nombre de un tipo de gasolina, sin copiarlo, y verifica que la gasolinera lo venda
+     * @return El identificador del tipo de gasolina
+     */
+    private int leerTipo( )
+    {
+        argumentoObligatorio( "el tipo de gasolina" );
+        RegistroTiposGasolina tipos = laGasolinera.getRegistroTiposGasolina( );
+        for( int idTipo = 0; idTipo < tipos.getCantidadTipos( ); idTipo++ )
+        {
+            if( argumentoEs( tipos.getTipo( idTipo ).getNombre( ) ) )
+                return idTipo;
+        }
+        throw new IllegalArgumentException( "La gasolinera no vende el tipo de gasolina " + argumentoActual( ) );
+    }
+
+    /**
+     * Lee un número estrictamente positivo
+     * @return El número
+     */
+    private double leerPositivo( )
+    {
+        argumentoObligatorio( "la cantidad" );
+        String argumento = argumentoActual( );
+        double numero;
+        try
+        {
+            numero = Double.parseDouble( argumento );
+        }
+        catch( NumberFormatException e )
+        {
+            throw new IllegalArgumentException( "La cantidad " + argumento + " no es un número" );
+        }
+        if( !( numero > 0 ) || Double.isInfinite( numero ) )
+            throw new IllegalArgumentException( "La cantidad debe ser estrictamente positiva" );
+        return numero;
+    }
+}
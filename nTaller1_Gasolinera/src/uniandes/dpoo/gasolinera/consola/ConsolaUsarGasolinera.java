@@ -1,6 +1,7 @@
 package uniandes.dpoo.gasolinera.consola;
 
 import uniandes.dpoo.gasolinera.logica.Gasolinera;
+import uniandes.dpoo.gasolinera.logica.ResultadoVenta;
 import uniandes.dpoo.gasolinera.logica.TipoGasolina;
 
 /**
@@ -85,14 +86,14 @@ public class ConsolaUsarGasolinera extends ConsolaBasica
                 }
                 else
                 {
-                    int precioReal = laGasolinera.venderGasolinaPorPrecio( nombreTipoGasolina, precio, surtidor );
-                    if( precioReal == precio )
+                    ResultadoVenta venta = laGasolinera.venderPorPrecio( laGasolinera.getIdentificadorTipoGasolina( nombreTipoGasolina ), precio, surtidor );
+                    if( venta.esCompleta( ) )
                     {
-                        System.out.println( "Se realizó una venta por " + precio + " pesos" );
+                        System.out.println( "Se realizó una venta por " + venta.getPrecio( ) + " pesos" );
                     }
                     else
                     {
-                        System.out.println( "No había suficiente inventario del tipo de gasolina indicado, así que la venta se hizo sólo por " + precioReal + " pesos" );
+                        System.out.println( "No había suficiente inventario del tipo de gasolina indicado, así que la venta se hizo sólo por " + venta.getPrecio( ) + " pesos" );
                     }
                 }
             }
@@ -128,8 +129,16 @@ public class ConsolaUsarGasolinera extends ConsolaBasica
                 }
                 else
                 {
-                    int precioVenta = laGasolinera.venderGasolinaPorCantidad( nombreTipoGasolina, cantidadGasolina, surtidor );
-                    System.out.println( "Se realizó una venta por " + precioVenta + " pesos" );
+                    ResultadoVenta venta = laGasolinera.venderPorCantidad( laGasolinera.getIdentificadorTipoGasolina( nombreTipoGasolina ), cantidadGasolina, surtidor );
+                    if( venta.esCompleta( ) )
+                    {
+                        System.out.println( "Se realizó una venta por " + venta.getPrecio( ) + " pesos" );
+                    }
+                    else
+                    {
+                        System.out.println( "No había suficiente inventario del tipo de gasolina indicado, así que se entregaron sólo "
+                                + String.format( "%.3f", venta.getCantidadEntregada( ) ) + " galones por " + venta.getPrecio( ) + " pesos" );
+                    }
                 }
             }
         }
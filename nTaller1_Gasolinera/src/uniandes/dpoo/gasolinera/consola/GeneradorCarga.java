@@ -0,0 +1,719 @@
+package uniandes.dpoo.gasolinera.consola;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.management.JMException;
+
+import uniandes.dpoo.gasolinera.logica.Gasolinera;
+import uniandes.dpoo.gasolinera.logica.TipoGasolina;
+import uniandes.dpoo.gasolinera.utils.AcumuladorRepartido;
+import uniandes.dpoo.gasolinera.utils.HilosVirtuales;
+import uniandes.dpoo.gasolinera.utils.HistogramaLatencias;
+
+/**
+ * Esta clase genera tráfico sintético contra una gasolinera para medir cuántas ventas por segundo soporta y con qué latencia.
+ *
+ * Hay dos formas de generar el tráfico:
+ * <ul>
+ * <li>Por surtidor: hay un hilo por surtidor, y cada hilo atiende uno tras otro a los carros que llegan a su surtidor.</li>
+ * <li>Por carro: un hilo genera las llegadas de los carros a toda la gasolinera, y cada carro es un hilo que hace una venta en un surtidor al azar y termina.</li>
+ * </ul>
+ * Cuando la máquina virtual los tiene, los hilos son virtuales (ver HilosVirtuales), así que se pueden simular miles de surtidores o de carros al mismo tiempo.
+ *
+ * Los carros llegan según una tasa de llegadas por segundo, con tiempos entre llegadas exponenciales. Cada carro escoge un tipo de gasolina según la mezcla de
+ * tipos, y compra por cantidad de galones o por valor. La latencia de una venta se mide desde que el carro llegó, no desde que se empezó a atender: así, si la
+ * gasolinera se atrasa, el tiempo que esperan los carros queda en la latencia.
+ *
+ * La generación termina cuando se cumple la duración, o antes si se acaba la gasolina de todos los tipos de la mezcla.
+ */
+public class GeneradorCarga
+{
+    // ************************************************************************
+    // Constantes
+    // ************************************************************************
+
+    /**
+     * La razón por la que terminó la generación cuando se cumplió la duración
+     */
+    public static final String FIN_DURACION = "se cumplió la duración";
+
+    /**
+     * La razón por la que terminó la generación cuando se acabó la gasolina
+     */
+    public static final String FIN_GASOLINA_AGOTADA = "se acabó la gasolina";
+
+    // ************************************************************************
+    // Atributos
+    // ************************************************************************
+
+    /**
+     * La gasolinera donde se hacen las ventas
+     */
+    private Gasolinera gasolinera;
+
+    /**
+     * Indica si se usa un hilo por carro. Si es false, se usa un hilo por surtidor
+     */
+    private boolean hiloPorCarro;
+
+    /**
+     * Las llegadas por segundo: a cada surtidor si hay un hilo por surtidor, o a toda la gasolinera si hay un hilo por carro. Si es 0 y hay un hilo por surtidor,
+     * cada surtidor atiende al siguiente carro apenas termina con el anterior
+     */
+    private double tasaLlegadas;
+
+    /**
+     * Los identificadores de los tipos de gasolina de la mezcla
+     */
+    private int[] tiposMezcla;
+
+    /**
+     * La probabilidad acumulada de cada tipo de la mezcla: el tipo i se escoge si un número al azar entre 0 y 1 es menor que probabilidadesMezcla[i] y mayor que
+     * las anteriores
+     */
+    private double[] probabilidadesMezcla;
+
+    /**
+     * La fracción de las ventas que se hacen por valor. Las demás se hacen por cantidad de galones
+     */
+    private double proporcionPorPrecio;
+
+    /**
+     * La cantidad promedio de galones de una venta por cantidad. Cada venta pide entre la mitad y una vez y media de este valor
+     */
+    private double galonesPorVenta;
+
+    /**
+     * El valor promedio de una venta por valor. Cada venta pide entre la mitad y una vez y media de este valor
+     */
+    private int valorPorVenta;
+
+    /**
+     * La duración máxima de la generación, en milisegundos
+     */
+    private long duracion;
+
+    /**
+     * La cantidad máxima de carros que están siendo atendidos al mismo tiempo cuando hay un hilo por carro
+     */
+    private int maximoCarros;
+
+    /**
+     * Se vuelve true cuando la generación debe terminar
+     */
+    private volatile boolean detenido;
+
+    /**
+     * Se abre cuando se acaba la gasolina de todos los tipos de la mezcla
+     */
+    private CountDownLatch agotada;
+
+    /**
+     * La cantidad de ventas hechas
+     */
+    private AcumuladorRepartido ventas;
+
+    /**
+     * La cantidad de ventas que no se pudieron hacer porque no había gasolina del tipo pedido
+     */
+    private AcumuladorRepartido ventasSinGasolina;
+
+    /**
+     * El dinero cobrado en todas las ventas
+     */
+    private AcumuladorRepartido dinero;
+
+    /**
+     * Las latencias de las ventas
+     */
+    private HistogramaLatencias latencias;
+
+    /**
+     * La razón por la que terminó la última generación, o null si no ha terminado ninguna
+     */
+    private String razonFin;
+
+    /**
+     * La duración real de la última generación, en nanosegundos
+     */
+    private long tiempoTranscurrido;
+
+    // ************************************************************************
+    // Constructores
+    // ************************************************************************
+
+    /**
+     * Prepara un generador de carga contra una gasolinera. Inicialmente hay un hilo por surtidor, cada surtidor atiende carros sin pausa durante 10 segundos, todos
+     * los tipos de gasolina tienen la misma probabilidad, y la mitad de las ventas son por valor
+     * @param gasolinera La gasolinera donde se harán las ventas
+     */
+    public GeneradorCarga( Gasolinera gasolinera )
+    {
+        this.gasolinera = gasolinera;
+        this.hiloPorCarro = false;
+        this.tasaLlegadas = 0;
+        this.proporcionPorPrecio = 0.5;
+        this.galonesPorVenta = 8;
+        this.valorPorVenta = 50000;
+        this.duracion = 10000;
+        this.maximoCarros = 10000;
+
+        Map<String, Double> mezcla = new LinkedHashMap<String, Double>( );
+        for( TipoGasolina tipo : gasolinera.getTiposGasolina( ) )
+        {
+            mezcla.put( tipo.getNombre( ), 1.0 );
+        }
+        cambiarMezcla( mezcla );
+    }
+
+    // ************************************************************************
+    // Métodos de configuración
+    // ************************************************************************
+
+    /**
+     * Cambia la forma de generar el tráfico
+     * @param hiloPorCarro Si es true, cada carro es un hilo. Si es false, cada surtidor es un hilo
+     */
+    public void cambiarHiloPorCarro( boolean hiloPorCarro )
+    {
+        this.hiloPorCarro = hiloPorCarro;
+    }
+
+    /**
+     * Cambia la tasa de llegadas de los carros
+     * @param tasaLlegadas Las llegadas por segundo a cada surtidor si hay un hilo por surtidor, o a toda la gasolinera si hay un hilo por carro. Con un hilo por
+     *        surtidor puede ser 0, para que cada surtidor atienda al siguiente carro apenas termine con el anterior
+     * @throws IllegalArgumentException Si la tasa es negativa
+     */
+    public void cambiarTasaLlegadas( double tasaLlegadas )
+    {
+        if( tasaLlegadas < 0 )
+            throw new IllegalArgumentException( "La tasa de llegadas no puede ser negativa" );
+        this.tasaLlegadas = tasaLlegadas;
+    }
+
+    /**
+     * Cambia la mezcla de tipos de gasolina que piden los carros
+     * @param pesos Un mapa donde las llaves son los nombres de los tipos de gasolina y los valores son sus pesos. La probabilidad de cada tipo es su peso dividido
+     *        por la suma de los pesos
+     * @throws IllegalArgumentException Si algún tipo no existe en la gasolinera, si algún peso es negativo o si todos los pesos son 0
+     */
+    public void cambiarMezcla( Map<String, Double> pesos )
+    {
+        int[] tipos = new int[pesos.size( )];
+        double[] probabilidades = new double[pesos.size( )];
+        double total = 0;
+        int i = 0;
+        for( Map.Entry<String, Double> entrada : pesos.entrySet( ) )
+        {
+            tipos[ i ] = gasolinera.getIdentificadorTipoGasolina( entrada.getKey( ) );
+            if( tipos[ i ] == -1 )
+                throw new IllegalArgumentException( "La gasolinera no vende el tipo de gasolina " + entrada.getKey( ) );
+            if( entrada.getValue( ) < 0 )
+                throw new IllegalArgumentException( "El peso del tipo " + entrada.getKey( ) + " no puede ser negativo" );
+            total += entrada.getValue( );
+            probabilidades[ i ] = total;
+            i++;
+        }
+        if( total <= 0 )
+            throw new IllegalArgumentException( "La mezcla debe tener al menos un tipo con peso positivo" );
+        for( i = 0; i < probabilidades.length; i++ )
+        {
+            probabilidades[ i ] /= total;
+        }
+        this.tiposMezcla = tipos;
+        this.probabilidadesMezcla = probabilidades;
+    }
+
+    /**
+     * Cambia la fracción de las ventas que se hacen por valor
+     * @param proporcionPorPrecio Un número entre 0 (todas por cantidad de galones) y 1 (todas por valor)
+     * @throws IllegalArgumentException Si la fracción no está entre 0 y 1
+     */
+    public void cambiarProporcionPorPrecio( double proporcionPorPrecio )
+    {
+        if( proporcionPorPrecio < 0 || proporcionPorPrecio > 1 )
+            throw new IllegalArgumentException( "La proporción de ventas por valor debe estar entre 0 y 1" );
+        this.proporcionPorPrecio = proporcionPorPrecio;
+    }
+
+    /**
+     * Cambia el tamaño promedio de las ventas
+     * @param galonesPorVenta La cantidad promedio de galones de una venta por cantidad
+     * @param valorPorVenta El valor promedio de una venta por valor
+     * @throws IllegalArgumentException Si alguno de los dos no es positivo
+     */
+    public void cambiarTamanoVentas( double galonesPorVenta, int valorPorVenta )
+    {
+        if( galonesPorVenta <= 0 || valorPorVenta <= 0 )
+            throw new IllegalArgumentException( "El tamaño de las ventas debe ser positivo" );
+        this.galonesPorVenta = galonesPorVenta;
+        this.valorPorVenta = valorPorVenta;
+    }
+
+    /**
+     * Cambia la duración máxima de la generación
+     * @param duracion La duración máxima
+     * @param unidad La unidad de la duración
+     */
+    public void cambiarDuracion( long duracion, TimeUnit unidad )
+    {
+        this.duracion = unidad.toMillis( duracion );
+    }
+
+    /**
+     * Cambia la cantidad máxima de carros que se atienden al mismo tiempo cuando hay un hilo por carro. Si llegan más carros, la generación de llegadas espera a
+     * que termine alguno, y esa espera queda en la latencia de los carros que llegaron
+     * @param maximoCarros La cantidad máxima de carros
+     */
+    public void cambiarMaximoCarros( int maximoCarros )
+    {
+        if( maximoCarros <= 0 )
+            throw new IllegalArgumentException( "La cantidad máxima de carros debe ser positiva" );
+        this.maximoCarros = maximoCarros;
+    }
+
+    // ************************************************************************
+    // Métodos de consulta
+    // ************************************************************************
+
+    /**
+     * Retorna la cantidad de ventas hechas en la última generación
+     * @return La cantidad de ventas
+     */
+    public long getVentas( )
+    {
+        return ventas.sumar( );
+    }
+
+    /**
+     * Retorna la cantidad de ventas de la última generación que no se pudieron hacer porque no había gasolina del tipo pedido. Estas ventas también se cuentan en
+     * getVentas
+     * @return La cantidad de ventas sin gasolina
+     */
+    public long getVentasSinGasolina( )
+    {
+        return ventasSinGasolina.sumar( );
+    }
+
+    /**
+     * Retorna el dinero cobrado en la última generación
+     * @return El dinero cobrado
+     */
+    public long getDinero( )
+    {
+        return dinero.sumar( );
+    }
+
+    /**
+     * Retorna las latencias de las ventas de la última generación
+     * @return El histograma de las latencias, en nanosegundos
+     */
+    public HistogramaLatencias getLatencias( )
+    {
+        return latencias;
+    }
+
+    /**
+     * Retorna la razón por la que terminó la última generación
+     * @return FIN_DURACION o FIN_GASOLINA_AGOTADA
+     */
+    public String getRazonFin( )
+    {
+        return razonFin;
+    }
+
+    /**
+     * Retorna la duración real de la última generación
+     * @return La duración en nanosegundos
+     */
+    public long getTiempoTranscurrido( )
+    {
+        return tiempoTranscurrido;
+    }
+
+    // ************************************************************************
+    // Generación
+    // ************************************************************************
+
+    /**
+     * Genera el tráfico contra la gasolinera hasta que se cumpla la duración o se acabe la gasolina de la mezcla. El método retorna cuando ya terminaron todas las
+     * ventas
+     * @throws InterruptedException Si el hilo se interrumpe mientras espera
+     */
+    public void ejecutar( ) throws InterruptedException
+    {
+        if( hiloPorCarro && tasaLlegadas == 0 )
+            throw new IllegalStateException( "Con un hilo por carro se necesita una tasa de llegadas" );
+
+        detenido = false;
+        agotada = new CountDownLatch( 1 );
+        ventas = new AcumuladorRepartido( );
+        ventasSinGasolina = new AcumuladorRepartido( );
+        dinero = new AcumuladorRepartido( );
+        latencias = new HistogramaLatencias( );
+        ThreadFactory fabrica = HilosVirtuales.crearFabrica( hiloPorCarro ? "carro" : "surtidor" );
+
+        long inicio = System.nanoTime( );
+        if( hiloPorCarro )
+            generarCarros( fabrica, inicio );
+        else
+            atenderSurtidores( fabrica );
+        tiempoTranscurrido = System.nanoTime( ) - inicio;
+        razonFin = agotada.getCount( ) == 0 ? FIN_GASOLINA_AGOTADA : FIN_DURACION;
+    }
+
+    /**
+     * Inicia un hilo por surtidor y espera a que termine la generación
+     * @param fabrica La fábrica de los hilos
+     * @throws InterruptedException Si el hilo se interrumpe mientras espera
+     */
+    private void atenderSurtidores( ThreadFactory fabrica ) throws InterruptedException
+    {
+        List<Thread> hilos = new ArrayList<Thread>( );
+        for( int i = 0; i < gasolinera.getCantidadSurtidores( ); i++ )
+        {
+            int numeroSurtidor = i;
+            Thread hilo = fabrica.newThread( ( ) -> atenderSurtidor( numeroSurtidor ) );
+            hilo.start( );
+            hilos.add( hilo );
+        }
+        try
+        {
+            agotada.await( duracion, TimeUnit.MILLISECONDS );
+        }
+        finally
+        {
+            detenido = true;
+            for( Thread hilo : hilos )
+            {
+                LockSupport.unpark( hilo );
+                hilo.join( );
+            }
+        }
+    }
+
+    /**
+     * Atiende a los carros que llegan a un surtidor, uno tras otro, hasta que termine la generación
+     * @param numeroSurtidor El número del surtidor
+     */
+    private void atenderSurtidor( int numeroSurtidor )
+    {
+        long llegada = System.nanoTime( );
+        while( !detenido )
+        {
+            if( tasaLlegadas > 0 )
+            {
+                llegada += calcularEsperaLlegada( );
+                esperarHasta( llegada );
+                if( detenido )
+                    return;
+            }
+            else
+            {
+                llegada = System.nanoTime( );
+            }
+            vender( numeroSurtidor, llegada );
+        }
+    }
+
+    /**
+     * Genera las llegadas de los carros a la gasolinera, con un hilo por carro, hasta que termine la generación. Al final espera a que terminen los carros que
+     * estaban siendo atendidos
+     * @param fabrica La fábrica de los hilos
+     * @param inicio El momento en que empezó la generación, según System.nanoTime
+     * @throws InterruptedException Si el hilo se interrumpe mientras espera
+     */
+    private void generarCarros( ThreadFactory fabrica, long inicio ) throws InterruptedException
+    {
+        Semaphore carros = new Semaphore( maximoCarros );
+        long fin = inicio + TimeUnit.MILLISECONDS.toNanos( duracion );
+        long llegada = inicio;
+        try
+        {
+            while( !detenido )
+            {
+                llegada += calcularEsperaLlegada( );
+                if( llegada - fin >= 0 )
+                    break;
+                esperarHasta( llegada );
+                carros.acquire( );
+                if( detenido )
+                {
+                    carros.release( );
+                    break;
+                }
+                long llegadaCarro = llegada;
+                int numeroSurtidor = ThreadLocalRandom.current( ).nextInt( gasolinera.getCantidadSurtidores( ) );
+                fabrica.newThread( ( ) -> {
+                    try
+                    {
+                        vender( numeroSurtidor, llegadaCarro );
+                    }
+                    finally
+                    {
+                        carros.release( );
+                    }
+                } ).start( );
+            }
+        }
+        finally
+        {
+            detenido = true;
+            carros.acquire( maximoCarros );
+        }
+    }
+
+    /**
+     * Calcula al azar el tiempo hasta la siguiente llegada, con distribución exponencial
+     * @return El tiempo en nanosegundos
+     */
+    private long calcularEsperaLlegada( )
+    {
+        double u = ThreadLocalRandom.current( ).nextDouble( );
+        return ( long )( -Math.log( 1 - u ) / tasaLlegadas * 1e9 );
+    }
+
+    /**
+     * Espera hasta un momento dado, o hasta que termine la generación
+     * @param momento El momento, según System.nanoTime
+     */
+    private void esperarHasta( long momento )
+    {
+        long espera = momento - System.nanoTime( );
+        while( espera > 0 && !detenido )
+        {
+            LockSupport.parkNanos( espera );
+            espera = momento - System.nanoTime( );
+        }
+    }
+
+    /**
+     * Hace la venta de un carro en un surtidor y registra su resultado
+     * @param numeroSurtidor El número del surtidor
+     * @param llegada El momento en que llegó el carro, según System.nanoTime
+     */
+    private void vender( int numeroSurtidor, long llegada )
+    {
+        ThreadLocalRandom aleatorio = ThreadLocalRandom.current( );
+        int idTipo = escogerTipo( aleatorio.nextDouble( ) );
+        double factor = 0.5 + aleatorio.nextDouble( );
+
+        int cobrado;
+        if( aleatorio.nextDouble( ) < proporcionPorPrecio )
+            cobrado = gasolinera.venderGasolinaPorPrecio( idTipo, Math.max( 1, ( int )( valorPorVenta * factor ) ), numeroSurtidor );
+        else
+            cobrado = gasolinera.venderGasolinaPorCantidad( idTipo, galonesPorVenta * factor, numeroSurtidor );
+        latencias.registrar( System.nanoTime( ) - llegada );
+
+        ventas.agregar( 1 );
+        dinero.agregar( cobrado );
+        if( cobrado == 0 )
+        {
+            ventasSinGasolina.agregar( 1 );
+            if( mezclaAgotada( ) )
+            {
+                detenido = true;
+                agotada.countDown( );
+            }
+        }
+    }
+
+    /**
+     * Escoge un tipo de la mezcla
+     * @param azar Un número al azar entre 0 y 1
+     * @return El identificador del tipo escogido
+     */
+    private int escogerTipo( double azar )
+    {
+        for( int i = 0; i < tiposMezcla.length - 1; i++ )
+        {
+            if( azar < probabilidadesMezcla[ i ] )
+                return tiposMezcla[ i ];
+        }
+        return tiposMezcla[ tiposMezcla.length - 1 ];
+    }
+
+    /**
+     * Indica si se acabó la gasolina de todos los tipos de la mezcla con peso positivo
+     * @return Retorna true si no queda gasolina de ningún tipo de la mezcla
+     */
+    private boolean mezclaAgotada( )
+    {
+        double anterior = 0;
+        for( int i = 0; i < tiposMezcla.length; i++ )
+        {
+            boolean tienePeso = probabilidadesMezcla[ i ] > anterior;
+            anterior = probabilidadesMezcla[ i ];
+            if( tienePeso && gasolinera.getRegistroTiposGasolina( ).getTipo( tiposMezcla[ i ] ).getMicrogalonesDisponibles( ) > 0 )
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Imprime el resultado de la última generación
+     * @param salida Donde se imprime el resultado
+     */
+    public void imprimirReporte( PrintStream salida )
+    {
+        double segundos = tiempoTranscurrido / 1e9;
+        long cantidadVentas = getVentas( );
+        salida.println( "Hilos: " + ( HilosVirtuales.hayHilosVirtuales( ) ? "virtuales" : "normales" ) + ", uno por " + ( hiloPorCarro ? "carro" : "surtidor" ) );
+        salida.printf( "Terminó porque %s, después de %.2f s%n", razonFin, segundos );
+        salida.println( "Ventas: " + cantidadVentas + " (" + getVentasSinGasolina( ) + " sin gasolina)" );
+        salida.printf( "Ventas por segundo: %.0f%n", cantidadVentas / segundos );
+        salida.println( "Dinero cobrado: " + getDinero( ) );
+        salida.printf( "Latencia (us): p50 %.1f, p99 %.1f, p999 %.1f, máxima %.1f%n", latencias.calcularPercentil( 50 ) / 1e3, latencias.calcularPercentil( 99 ) / 1e3,
+                latencias.calcularPercentil( 99.9 ) / 1e3, latencias.getMaximo( ) / 1e3 );
+    }
+
+    // ************************************************************************
+    // Programa
+    // ************************************************************************
+
+    /**
+     * Imprime las opciones del programa
+     */
+    private static void imprimirUso( )
+    {
+        System.out.println( "Uso: GeneradorCarga [opciones]" );
+        System.out.println( "  --archivo <archivo>     Carga la gasolinera de un archivo. Si no se indica, se construye una nueva" );
+        System.out.println( "  --surtidores <n>        Surtidores de la gasolinera nueva (8)" );
+        System.out.println( "  --empleados <n>         Empleados de la gasolinera nueva (4)" );
+        System.out.println( "  --inventario <galones>  Galones de cada tipo en la gasolinera nueva (100000)" );
+        System.out.println( "  --hilo surtidor|carro   Un hilo por surtidor o uno por carro (surtidor)" );
+        System.out.println( "  --tasa <llegadas>       Llegadas por segundo a cada surtidor, o a la gasolinera con un hilo por carro. 0 es sin pausa (0)" );
+        System.out.println( "  --mezcla <tipo=peso,..> Pesos de los tipos de gasolina (todos iguales)" );
+        System.out.println( "  --por-precio <fracción> Fracción de las ventas que se hacen por valor (0.5)" );
+        System.out.println( "  --galones <galones>     Galones promedio de una venta por cantidad (8)" );
+        System.out.println( "  --valor <valor>         Valor promedio de una venta por valor (50000)" );
+        System.out.println( "  --duracion <segundos>   Duración máxima (10)" );
+        System.out.println( "  --max-carros <n>        Carros atendidos al mismo tiempo con un hilo por carro (10000)" );
+        System.out.println( "  --metricas <nombre>     Publica las métricas de la gasolinera por JMX con ese nombre mientras se genera la carga" );
+    }
+
+    /**
+     * Interpreta una mezcla de tipos de gasolina de la forma tipo=peso,tipo=peso
+     * @param texto El texto de la mezcla
+     * @return Un mapa con los pesos de los tipos
+     */
+    private static Map<String, Double> leerMezcla( String texto )
+    {
+        Map<String, Double> mezcla = new LinkedHashMap<String, Double>( );
+        for( String parte : texto.split( "," ) )
+        {
+            int igual = parte.indexOf( '=' );
+            if( igual < 0 )
+                throw new IllegalArgumentException( "Cada tipo de la mezcla debe tener la forma tipo=peso: " + parte );
+            mezcla.put( parte.substring( 0, igual ).trim( ), Double.parseDouble( parte.substring( igual + 1 ) ) );
+        }
+        return mezcla;
+    }
+
+    /**
+     * Este es el método que se utiliza para generar carga desde la línea de comandos
+     * @param args Las opciones del programa, de la forma --opcion valor
+     */
+    public static void main( String[] args )
+    {
+        Map<String, String> opciones = new LinkedHashMap<String, String>( );
+        for( int i = 0; i < args.length; i += 2 )
+        {
+            if( !args[ i ].startsWith( "--" ) || i + 1 == args.length )
+            {
+                imprimirUso( );
+                System.exit( 1 );
+            }
+            opciones.put( args[ i ].substring( 2 ), args[ i + 1 ] );
+        }
+
+        try
+        {
+            Gasolinera gasolinera;
+            if( opciones.containsKey( "archivo" ) )
+            {
+                gasolinera = Gasolinera.cargarEstado( new File( opciones.remove( "archivo" ) ) );
+            }
+            else
+            {
+                double inventario = Double.parseDouble( valorOpcion( opciones, "inventario", "100000" ) );
+                List<TipoGasolina> tipos = new ArrayList<TipoGasolina>( );
+                tipos.add( new TipoGasolina( "corriente", 14500, inventario ) );
+                tipos.add( new TipoGasolina( "extra", 21090, inventario ) );
+                tipos.add( new TipoGasolina( "diesel", 11800, inventario ) );
+                int cantidadEmpleados = Integer.parseInt( valorOpcion( opciones, "empleados", "4" ) );
+                String[] empleados = new String[cantidadEmpleados];
+                for( int i = 0; i < cantidadEmpleados; i++ )
+                {
+                    empleados[ i ] = "empleado" + i;
+                }
+                gasolinera = new Gasolinera( Integer.parseInt( valorOpcion( opciones, "surtidores", "8" ) ), tipos, empleados );
+            }
+
+            GeneradorCarga generador = new GeneradorCarga( gasolinera );
+            generador.cambiarHiloPorCarro( valorOpcion( opciones, "hilo", "surtidor" ).equals( "carro" ) );
+            generador.cambiarTasaLlegadas( Double.parseDouble( valorOpcion( opciones, "tasa", "0" ) ) );
+            if( opciones.containsKey( "mezcla" ) )
+                generador.cambiarMezcla( leerMezcla( opciones.remove( "mezcla" ) ) );
+            generador.cambiarProporcionPorPrecio( Double.parseDouble( valorOpcion( opciones, "por-precio", "0.5" ) ) );
+            generador.cambiarTamanoVentas( Double.parseDouble( valorOpcion( opciones, "galones", "8" ) ), Integer.parseInt( valorOpcion( opciones, "valor", "50000" ) ) );
+            generador.cambiarDuracion( Long.parseLong( valorOpcion( opciones, "duracion", "10" ) ), TimeUnit.SECONDS );
+            generador.cambiarMaximoCarros( Integer.parseInt( valorOpcion( opciones, "max-carros", "10000" ) ) );
+            String nombreMetricas = opciones.remove( "metricas" );
+            if( !opciones.isEmpty( ) )
+                throw new IllegalArgumentException( "Opciones desconocidas: " + opciones.keySet( ) );
+            if( nombreMetricas != null )
+                gasolinera.activarMetricas( nombreMetricas );
+
+            System.out.println( "Generando carga contra una gasolinera de " + gasolinera.getCantidadSurtidores( ) + " surtidores ..." );
+            generador.ejecutar( );
+            generador.imprimirReporte( System.out );
+        }
+        catch( IOException e )
+        {
+            System.out.println( "No se pudo cargar la gasolinera: " + e.getMessage( ) );
+            System.exit( 1 );
+        }
+        catch( JMException e )
+        {
+            System.out.println( "No se pudieron publicar las métricas: " + e.getMessage( ) );
+            System.exit( 1 );
+        }
+        catch( IllegalArgumentException | IllegalStateException e )
+        {
+            System.out.println( e.getMessage( ) );
+            imprimirUso( );
+            System.exit( 1 );
+        }
+        catch( InterruptedException e )
+        {
+            System.out.println( "La generación fue interrumpida" );
+        }
+    }
+
+    /**
+     * Saca una opción del mapa de opciones
+     * @param opciones Las opciones que no se han usado
+     * @param nombre El nombre de la opción
+     * @param valorPorDefecto El valor si la opción no se indicó
+     * @return El valor de la opción
+     */
+    private static String valorOpcion( Map<String, String> opciones, String nombre, String valorPorDefecto )
+    {
+        String valor = opciones.remove( nombre );
+        return valor != null ? valor : valorPorDefecto;
+    }
+}
@@ -0,0 +1,304 @@
+package uniandes.dpoo.gasolinera.eventos;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Esta clase es un bus donde se publica un evento por cada venta de la gasolinera, para que otros hilos reaccionen a las ventas (alertas de inventario, tableros,
+ * estadísticas) sin hacer más lentas las ventas.
+ *
+ * Los eventos se guardan en un anillo de tamaño fijo, reservado al construir el bus: cada posición del anillo tiene sus campos dentro de un AtomicLongArray, así que
+ * publicar una venta sólo escribe números en arreglos que ya existen y no crea ningún objeto. Cada venta toma la siguiente secuencia del bus y escribe en la posición
+ * secuencia % tamaño. Si hay un solo hilo que publica, la secuencia se toma sin compareAndSet.
+ *
+ * Cada posición tiene además un sello con la secuencia del evento que tiene. Quien publica pone un sello de "escribiendo" antes de escribir los campos y el sello de la
+ * secuencia después; quien consume lee el sello, los campos y otra vez el sello, y si el sello cambió mientras leía, sabe que el evento se sobreescribió. Así, un
+ * consumidor que no frena las ventas nunca procesa un evento a medio escribir.
+ *
+ * Cada consumidor (ver ConsumidorVentas) tiene su propio hilo, su propia posición en el anillo y su propia contrapresión (ver Contrapresion): las ventas sólo esperan a
+ * los consumidores que usan BLOQUEAR.
+ */
+public class BusVentas
+{
+    // ************************************************************************
+    // Constantes
+    // ************************************************************************
+
+    /**
+     * La cantidad de campos (long) de cada evento en el anillo
+     */
+    static final int CAMPOS = 5;
+
+    /**
+     * La cantidad de veces que se cede el procesador esperando antes de empezar a dormir
+     */
+    private static final int ESPERAS_ACTIVAS = 100;
+
+    // ************************************************************************
+    // Atributos
+    // ************************************************************************
+
+    /**
+     * El tamaño del anillo menos 1. El tamaño es una potencia de 2
+     */
+    private final int mascara;
+
+    /**
+     * Los campos de los eventos. Los del evento en la posición p del anillo están desde la posición p * CAMPOS: surtidor y tipo, empleado y versión del precio,
+     * microgalones, precio y momento
+     */
+    private final AtomicLongArray campos;
+
+    /**
+     * El sello de cada posición del anillo: s + 1 si tiene el evento de secuencia s, -(s + 1) mientras se escribe el evento de secuencia s, o 0 si nunca se ha escrito
+     */
+    private final AtomicLongArray sellos;
+
+    /**
+     * La siguiente secuencia que se va a publicar
+     */
+    private final AtomicLong cursor = new AtomicLong( );
+
+    /**
+     * Indica si sólo un hilo publica eventos
+     */
+    private final boolean unSoloProductor;
+
+    /**
+     * Los consumidores del bus
+     */
+    private volatile ConsumidorVentas[] consumidores = new ConsumidorVentas[0];
+
+    /**
+     * Los consumidores que usan BLOQUEAR, que son los únicos a los que esperan las ventas
+     */
+    private volatile ConsumidorVentas[] consumidoresBloqueantes = new ConsumidorVentas[0];
+
+    /**
+     * La menor secuencia que esperaba algún consumidor bloqueante la última vez que se revisaron. Mientras la secuencia que se publica no alcance a sobreescribir esa
+     * posición, no hay que volver a revisar a los consumidores
+     */
+    private volatile long minimoBloqueantes = Long.MAX_VALUE;
+
+    // ************************************************************************
+    // Constructores
+    // ************************************************************************
+
+    /**
+     * Construye un bus sin consumidores
+     * @param capacidad La cantidad de eventos que caben en el anillo. Se redondea a la siguiente potencia de 2
+     * @param unSoloProductor true si sólo un hilo va a publicar eventos; false si pueden publicar varios hilos al mismo tiempo
+     */
+    public BusVentas( int capacidad, boolean unSoloProductor )
+    {
+        int tamano = Integer.highestOneBit( Math.max( capacidad, 2 ) * 2 - 1 );
+        this.mascara = tamano - 1;
+        this.campos = new AtomicLongArray( tamano * CAMPOS );
+        this.sellos = new AtomicLongArray( tamano );
+        this.unSoloProductor = unSoloProductor;
+    }
+
+    // ************************************************************************
+    // Métodos
+    // ************************************************************************
+
+    /**
+     * Retorna la cantidad de eventos que caben en el anillo
+     * @return La capacidad del anillo
+     */
+    public int getCapacidad( )
+    {
+        return mascara + 1;
+    }
+
+    /**
+     * Retorna la cantidad de eventos que se han publicado
+     * @return La cantidad de eventos publicados
+     */
+    public long getPublicados( )
+    {
+        return cursor.get( );
+    }
+
+    /**
+     * Agrega un consumidor al bus y arranca su hilo. El consumidor recibe los eventos que se publiquen desde ahora
+     * @param oyente Quien procesa los eventos
+     * @param contrapresion Lo que pasa si el consumidor no alcanza a procesar los eventos
+     * @param cadaCuantos Si la contrapresión es MUESTREAR, el consumidor recibe uno de cada esta cantidad de eventos. Con las otras contrapresiones se ignora
+     * @return El consumidor
+     */
+    public synchronized ConsumidorVentas agregarConsumidor( OyenteVentas oyente, Contrapresion contrapresion, int cadaCuantos )
+    {
+        ConsumidorVentas consumidor = new ConsumidorVentas( this, oyente, contrapresion, cadaCuantos, cursor.get( ), "bus-ventas-" + consumidores.length );
+        ConsumidorVentas[] nuevos = Arrays.copyOf( consumidores, consumidores.length + 1 );
+        nuevos[ consumidores.length ] = consumidor;
+        consumidores = nuevos;
+        if( contrapresion == Contrapresion.BLOQUEAR )
+        {
+            ConsumidorVentas[] bloqueantes = Arrays.copyOf( consumidoresBloqueantes, consumidoresBloqueantes.length + 1 );
+            bloqueantes[ consumidoresBloqueantes.length ] = consumidor;
+            consumidoresBloqueantes = bloqueantes;
+            minimoBloqueantes = Long.MIN_VALUE;
+        }
+        consumidor.iniciar( );
+        return consumidor;
+    }
+
+    /**
+     * Agrega un consumidor al bus, igual que agregarConsumidor con cadaCuantos en 1
+     * @param oyente Quien procesa los eventos
+     * @param contrapresion Lo que pasa si el consumidor no alcanza a procesar los eventos
+     * @return El consumidor
+     */
+    public ConsumidorVentas agregarConsumidor( OyenteVentas oyente, Contrapresion contrapresion )
+    {
+        return agregarConsumidor( oyente, contrapresion, 1 );
+    }
+
+    /**
+     * Detiene todos los consumidores. Cada consumidor procesa antes los eventos que ya estaban publicados cuando se llamó este método, excepto los que le toque
+     * descartar
+     * @throws InterruptedException Se lanza esta excepción si el hilo se interrumpe mientras espera a los consumidores
+     */
+    public synchronized void detener( ) throws InterruptedException
+    {
+        long fin = cursor.get( );
+        for( ConsumidorVentas consumidor : consumidores )
+        {
+            consumidor.detener( fin );
+        }
+        for( ConsumidorVentas consumidor : consumidores )
+        {
+            consumidor.esperar( );
+        }
+
+        // Sin consumidores, las ventas ya no tienen a quién esperar
+        consumidores = new ConsumidorVentas[0];
+        consumidoresBloqueantes = new ConsumidorVentas[0];
+        minimoBloqueantes = Long.MAX_VALUE;
+    }
+
+    /**
+     * Publica el evento de una venta. Si hay consumidores que usan BLOQUEAR y el anillo está lleno, espera a que el más atrasado libere espacio.
+     *
+     * Este método no crea objetos.
+     * @param numeroSurtidor El número del surtidor
+     * @param idTipoGasolina El identificador del tipo de gasolina
+     * @param posicionEmpleado La posición del empleado dentro de la tabla de surtidores
+     * @param numeroVersionPrecio El número de la versión del precio con la que se cobró
+     * @param microgalones La cantidad vendida, en millonésimas de galón
+     * @param precio El precio cobrado
+     */
+    public void publicar( int numeroSurtidor, int idTipoGasolina, int posicionEmpleado, int numeroVersionPrecio, long microgalones, int precio )
+    {
+        long secuencia;
+        if( unSoloProductor )
+        {
+            secuencia = cursor.get( );
+            cursor.lazySet( secuencia + 1 );
+        }
+        else
+        {
+            secuencia = cursor.getAndIncrement( );
+        }
+
+        // Esperar a que los consumidores bloqueantes hayan leído el evento que se va a sobreescribir
+        long sobreescrita = secuencia - ( mascara + 1 );
+        if( sobreescrita >= minimoBloqueantes )
+        {
+            esperarBloqueantes( sobreescrita );
+        }
+
+        int posicion = ( int )( secuencia & mascara );
+        if( !unSoloProductor )
+        {
+            // Si otro hilo que publica se atrasó una vuelta completa, esperar a que termine de escribir esta posición para no mezclar los dos eventos
+            long selloAnterior = sobreescrita < 0 ? 0 : sobreescrita + 1;
+            for( int esperas = 0; sellos.get( posicion ) != selloAnterior; esperas++ )
+            {
+                esperar( esperas );
+            }
+        }
+        int base = posicion * CAMPOS;
+        sellos.set( posicion, -( secuencia + 1 ) );
+        campos.lazySet( base, ( ( long )numeroSurtidor << 32 ) | ( idTipoGasolina & 0xFFFFFFFFL ) );
+        campos.lazySet( base + 1, ( ( long )posicionEmpleado << 32 ) | ( numeroVersionPrecio & 0xFFFFFFFFL ) );
+        campos.lazySet( base + 2, microgalones );
+        campos.lazySet( base + 3, precio );
+        campos.lazySet( base + 4, System.currentTimeMillis( ) );
+        sellos.lazySet( posicion, secuencia + 1 );
+    }
+
+    /**
+     * Espera hasta que todos los consumidores bloqueantes hayan pasado una secuencia
+     * @param sobreescrita La secuencia del evento que se va a sobreescribir
+     */
+    private void esperarBloqueantes( long sobreescrita )
+    {
+        int esperas = 0;
+        while( true )
+        {
+            long minimo = Long.MAX_VALUE;
+            for( ConsumidorVentas consumidor : consumidoresBloqueantes )
+            {
+                minimo = Math.min( minimo, consumidor.getSiguiente( ) );
+            }
+            minimoBloqueantes = minimo;
+            if( sobreescrita < minimo )
+            {
+                return;
+            }
+            esperar( esperas++ );
+        }
+    }
+
+    /**
+     * Lee el evento con una secuencia, si todavía está en el anillo
+     * @param secuencia La secuencia del evento
+     * @param evento El evento donde se copian los datos
+     * @return 1 si se leyó el evento, 0 si todavía no se ha publicado, o -1 si ya se sobreescribió
+     */
+    int leer( long secuencia, EventoVenta evento )
+    {
+        int posicion = ( int )( secuencia & mascara );
+        long sello = sellos.get( posicion );
+        if( sello != secuencia + 1 )
+        {
+            long secuenciaSello = sello > 0 ? sello - 1 : -sello - 1;
+            return sello != 0 && secuenciaSello > secuencia ? -1 : 0;
+        }
+
+        int base = posicion * CAMPOS;
+        long surtidorTipo = campos.get( base );
+        long empleadoVersion = campos.get( base + 1 );
+        long microgalones = campos.get( base + 2 );
+        long precio = campos.get( base + 3 );
+        long momento = campos.get( base + 4 );
+        if( sellos.get( posicion ) != sello )
+        {
+            // Otro hilo empezó a sobreescribir el evento mientras se leía
+            return -1;
+        }
+        evento.cargar( secuencia, ( int )( surtidorTipo >> 32 ), ( int )surtidorTipo, ( int )( empleadoVersion >> 32 ), ( int )empleadoVersion, microgalones, ( int )precio,
+                momento );
+        return 1;
+    }
+
+    /**
+     * Espera un momento: primero cediendo el procesador y después durmiendo, cada vez un poco más, hasta un máximo de un milisegundo
+     * @param intento La cantidad de veces que ya se ha esperado
+     */
+    static void esperar( int intento )
+    {
+        if( intento < ESPERAS_ACTIVAS )
+        {
+            Thread.yield( );
+        }
+        else
+        {
+            LockSupport.parkNanos( Math.min( 1000L * ( intento - ESPERAS_ACTIVAS + 1 ), 1000000L ) );
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package uniandes.dpoo.gasolinera.eventos;
+
+/**
+ * Un consumidor del bus de ventas: un hilo que recorre el anillo del bus en orden y le pasa cada evento a un oyente (ver BusVentas.agregarConsumidor).
+ *
+ * Cada consumidor tiene su propia posición en el anillo y un solo EventoVenta que reutiliza para todos los eventos. Las estadísticas del consumidor sólo las modifica
+ * su hilo, así que se pueden leer desde cualquier hilo sin sincronización.
+ */
+public class ConsumidorVentas
+{
+    /**
+     * El bus del que se leen los eventos
+     */
+    private final BusVentas bus;
+
+    /**
+     * Quien procesa los eventos
+     */
+    private final OyenteVentas oyente;
+
+    /**
+     * Lo que pasa si el consumidor no alcanza a procesar los eventos
+     */
+    private final Contrapresion contrapresion;
+
+    /**
+     * Si la contrapresión es MUESTREAR, sólo se procesan los eventos cuya secuencia es múltiplo de este número
+     */
+    private final int cadaCuantos;
+
+    /**
+     * El evento que se llena con cada venta que se lee
+     */
+    private final EventoVenta evento = new EventoVenta( );
+
+    /**
+     * El hilo del consumidor
+     */
+    private final Thread hilo;
+
+    /**
+     * La secuencia del siguiente evento que va a leer el consumidor. Las ventas la consultan para no sobreescribir eventos que un consumidor bloqueante no ha leído
+     */
+    private volatile long siguiente;
+
+    /**
+     * La secuencia en la que se detiene el consumidor
+     */
+    private volatile long fin = Long.MAX_VALUE;
+
+    /**
+     * La cantidad de eventos que se le pasaron al oyente
+     */
+    private volatile long procesados;
+
+    /**
+     * La cantidad de eventos que se sobreescribieron antes de que el consumidor los leyera
+     */
+    private volatile long descartados;
+
+    /**
+     * La cantidad de eventos que no se le pasaron al oyente porque no entraron en la muestra
+     */
+    private volatile long omitidos;
+
+    /**
+     * La cantidad de veces que el oyente lanzó una excepción
+     */
+    private volatile long errores;
+
+    ConsumidorVentas( BusVentas bus, OyenteVentas oyente, Contrapresion contrapresion, int cadaCuantos, long inicio, String nombre )
+    {
+        this.bus = bus;
+        this.oyente = oyente;
+        this.contrapresion = contrapresion;
+        this.cadaCuantos = contrapresion == Contrapresion.MUESTREAR ? Math.max( cadaCuantos, 1 ) : 1;
+        this.siguiente = inicio;
+        this.hilo = new Thread( this::consumir, nombre );
+        hilo.setDaemon( true );
+    }
+
+    public Contrapresion getContrapresion( )
+    {
+        return contrapresion;
+    }
+
+    long getSiguiente( )
+    {
+        return siguiente;
+    }
+
+    public long getProcesados( )
+    {
+        return procesados;
+    }
+
+    public long getDescartados( )
+    {
+        return descartados;
+    }
+
+    public long getOmitidos( )
+    {
+        return omitidos;
+    }
+
+    public long getErrores( )
+    {
+        return errores;
+    }
+
+    /**
+     * Arranca el hilo del consumidor
+     */
+    void iniciar( )
+    {
+        hilo.start( );
+    }
+
+    /**
+     * Le indica al consumidor que se detenga cuando llegue a una secuencia
+     * @param secuenciaFinal La primera secuencia que el consumidor ya no procesa
+     */
+    void detener( long secuenciaFinal )
+    {
+        fin = secuenciaFinal;
+    }
+
+    /**
+     * Espera a que el hilo del consumidor termine
+     * @throws InterruptedException Se lanza esta excepción si el hilo se interrumpe mientras espera
+     */
+    void esperar( ) throws InterruptedException
+    {
+        hilo.join( );
+    }
+
+    /**
+     * Recorre el anillo hasta que se detenga el consumidor. Sólo lo llama el hilo del consumidor
+     */
+    private void consumir( )
+    {
+        int esperas = 0;
+        long secuencia = siguiente;
+        while( secuencia < fin )
+        {
+            int resultado = bus.leer( secuencia, evento );
+            if( resultado == 0 )
+            {
+                // El evento todavía no se ha publicado
+                BusVentas.esperar( esperas++ );
+                continue;
+            }
+            esperas = 0;
+
+            if( resultado < 0 )
+            {
+                // El consumidor se atrasó una vuelta: seguir con el evento más antiguo que todavía esté en el anillo
+                long masAntiguo = Math.max( secuencia + 1, bus.getPublicados( ) - bus.getCapacidad( ) );
+                descartados += masAntiguo - secuencia;
+                secuencia = masAntiguo;
+            }
+            else
+            {
+                if( secuencia % cadaCuantos == 0 )
+                {
+                    entregar( );
+                }
+                else
+                {
+                    omitidos++;
+                }
+                secuencia++;
+            }
+            siguiente = secuencia;
+        }
+    }
+
+    /**
+     * Le pasa el evento al oyente. Si el oyente falla, el error se cuenta y el consumidor sigue con el siguiente evento
+     */
+    private void entregar( )
+    {
+        try
+        {
+            oyente.ventaRealizada( evento );
+        }
+        catch( RuntimeException e )
+        {
+            errores++;
+        }
+        procesados++;
+    }
+}
@@ -0,0 +1,25 @@
+package uniandes.dpoo.gasolinera.eventos;
+
+/**
+ * Lo que pasa cuando un consumidor del bus de ventas no alcanza a procesar los eventos al ritmo en el que se publican (ver BusVentas)
+ */
+public enum Contrapresion
+{
+    /**
+     * Las ventas esperan a que el consumidor libere espacio en el anillo. El consumidor recibe todos los eventos, pero si es lento, vuelve lentas las ventas. Sirve
+     * para consumidores que no pueden perder eventos. El oyente de un consumidor así no debe vender en la gasolinera que publica los eventos (ver OyenteVentas)
+     */
+    BLOQUEAR,
+
+    /**
+     * Las ventas nunca esperan al consumidor. Si el consumidor se atrasa más que el tamaño del anillo, los eventos que se sobreescribieron se pierden y el consumidor
+     * sigue con el evento más antiguo que todavía esté en el anillo. Sirve para alertas y estadísticas que toleran perder algunos eventos
+     */
+    DESCARTAR,
+
+    /**
+     * Las ventas nunca esperan al consumidor, y el consumidor sólo recibe uno de cada cierta cantidad de eventos. Si aun así se atrasa, se comporta como DESCARTAR.
+     * Sirve para tableros que sólo necesitan una muestra de las ventas
+     */
+    MUESTREAR
+}
@@ -0,0 +1,97 @@
+package uniandes.dpoo.gasolinera.eventos;
+
+import uniandes.dpoo.gasolinera.logica.TipoGasolina;
+
+/**
+ * Los datos de una venta que se publicó en el bus de ventas (ver BusVentas).
+ *
+ * Cada consumidor tiene un solo evento que llena con cada venta que lee del anillo, así que procesar una venta no crea objetos. Por lo mismo, un oyente no debe guardar
+ * el evento que recibe.
+ */
+public class EventoVenta
+{
+    /**
+     * La posición de la venta en el bus. Las ventas se numeran desde 0, en el orden en el que se publicaron
+     */
+    private long secuencia;
+
+    private int numeroSurtidor;
+
+    private int idTipoGasolina;
+
+    /**
+     * La posición del empleado que atendió la venta dentro de la lista de empleados de los surtidores (ver TablaSurtidores.getEmpleados)
+     */
+    private int posicionEmpleado;
+
+    private int numeroVersionPrecio;
+
+    private long microgalones;
+
+    private int precio;
+
+    /**
+     * El momento de la venta, en milisegundos desde 1970
+     */
+    private long momento;
+
+    /**
+     * Llena el evento con los datos de una venta
+     */
+    void cargar( long secuencia, int numeroSurtidor, int idTipoGasolina, int posicionEmpleado, int numeroVersionPrecio, long microgalones, int precio, long momento )
+    {
+        this.secuencia = secuencia;
+        this.numeroSurtidor = numeroSurtidor;
+        this.idTipoGasolina = idTipoGasolina;
+        this.posicionEmpleado = posicionEmpleado;
+        this.numeroVersionPrecio = numeroVersionPrecio;
+        this.microgalones = microgalones;
+        this.precio = precio;
+        this.momento = momento;
+    }
+
+    public long getSecuencia( )
+    {
+        return secuencia;
+    }
+
+    public int getNumeroSurtidor( )
+    {
+        return numeroSurtidor;
+    }
+
+    public int getIdTipoGasolina( )
+    {
+        return idTipoGasolina;
+    }
+
+    public int getPosicionEmpleado( )
+    {
+        return posicionEmpleado;
+    }
+
+    public int getNumeroVersionPrecio( )
+    {
+        return numeroVersionPrecio;
+    }
+
+    public long getMicrogalones( )
+    {
+        return microgalones;
+    }
+
+    public double getGalones( )
+    {
+        return TipoGasolina.aGalones( microgalones );
+    }
+
+    public int getPrecio( )
+    {
+        return precio;
+    }
+
+    public long getMomento( )
+    {
+        return momento;
+    }
+}
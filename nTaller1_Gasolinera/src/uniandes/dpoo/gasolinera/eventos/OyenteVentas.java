@@ -0,0 +1,19 @@
+package uniandes.dpoo.gasolinera.eventos;
+
+/**
+ * Lo que tiene que implementar quien quiera reaccionar a las ventas de una gasolinera a través del bus de ventas (ver BusVentas)
+ */
+public interface OyenteVentas
+{
+    /**
+     * Procesa una venta. Se llama desde el hilo del consumidor, nunca desde el hilo que hizo la venta.
+     * 
+     * El evento se reutiliza para la siguiente venta, así que no se debe guardar: si se necesita algún dato después, hay que copiarlo.
+     * 
+     * La gasolinera publica cada venta cuando ya terminó de registrarla y soltó la puerta de ventas, así que el oyente puede capturar o guardar el estado de la
+     * gasolinera (por ejemplo con capturarEstado, guardarEstado o guardarCambios). Lo que no debe hacer un oyente con contrapresión BLOQUEAR es vender en la misma
+     * gasolinera: si el anillo está lleno, esa venta esperaría a que el mismo oyente libere espacio, y nunca terminaría.
+     * @param evento El evento de la venta
+     */
+    void ventaRealizada( EventoVenta evento );
+}
@@ -0,0 +1,46 @@
+package uniandes.dpoo.gasolinera.exceptions;
+
+import java.io.IOException;
+
+/**
+ * Esta excepción indica que un archivo con la información de una gasolinera no tiene el formato esperado. La excepción indica la línea y la columna del archivo donde
+ * se encontró el problema.
+ */
+@SuppressWarnings("serial")
+public class FormatoArchivoException extends IOException
+{
+
+    private String nombreArchivo;
+    private int linea;
+    private int columna;
+    private String problema;
+
+    public FormatoArchivoException( String nombreArchivo, int linea, int columna, String problema )
+    {
+        this.nombreArchivo = nombreArchivo;
+        this.linea = linea;
+        this.columna = columna;
+        this.problema = problema;
+    }
+
+    @Override
+    public String getMessage( )
+    {
+        return nombreArchivo + ", línea " + linea + ", columna " + columna + ": " + problema;
+    }
+
+    public int getLinea( )
+    {
+        return linea;
+    }
+
+    public int getColumna( )
+    {
+        return columna;
+    }
+
+    public String getProblema( )
+    {
+        return problema;
+    }
+}
@@ -1,5 +1,11 @@
 package uniandes.dpoo.gasolinera.exceptions;
 
+/**
+ * Esta excepción indica que no hay suficiente gasolina de un tipo para despachar la cantidad solicitada.
+ * 
+ * La excepción no guarda la traza de la pila y el mensaje sólo se construye cuando se pide, porque se usa para informar una condición normal del negocio y no un error
+ * de programación.
+ */
 @SuppressWarnings("serial")
 public class GasolinaInsuficienteException extends Exception
 {
@@ -10,7 +16,7 @@ public class GasolinaInsuficienteException extends Exception
 
     public GasolinaInsuficienteException( String tipoGasolina, double cantidadDisponible, double cantidadSolicitada )
     {
-        super( );
+        super( null, null, false, false );
         this.tipoGasolina = tipoGasolina;
         this.cantidadDisponible = cantidadDisponible;
         this.cantidadSolicitada = cantidadSolicitada;
@@ -1,7 +1,14 @@
 package uniandes.dpoo.gasolinera.logica;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import uniandes.dpoo.gasolinera.utils.AcumuladorRepartido;
+
 /**
  * Esta clase representa a un empleado de la gasolinería que recauda el dinero producto de las ventas
+ * 
+ * Un mismo empleado suele atender varios surtidores, así que muchos hilos le agregan dinero al mismo tiempo. Para que no se estorben, el dinero se guarda en un
+ * AcumuladorRepartido en lugar de un solo contador.
  */
 public class Empleado
 {
@@ -11,9 +18,14 @@ public class Empleado
     private String nombre;
 
     /**
-     * La cantidad de dinero que ha recogido el empleado
+     * La cantidad de dinero que ha recogido el empleado desde el último cierre de turno
+     */
+    private final AcumuladorRepartido cantidadDinero = new AcumuladorRepartido( );
+
+    /**
+     * Indica si la cantidad de dinero ha cambiado desde la última vez que se llamó tomarModificado
      */
-    private int cantidadDinero;
+    private final AtomicBoolean modificado = new AtomicBoolean( );
 
     /**
      * Construye un nuevo empleado con el nombre dado e inicializa la cantidad de dinero en 0
@@ -22,7 +34,6 @@ public class Empleado
     public Empleado( String nombre )
     {
         this.nombre = nombre;
-        this.cantidadDinero = 0;
     }
 
     public String getNombre( )
@@ -30,17 +41,46 @@ public class Empleado
         return nombre;
     }
 
-    public int getCantidadDinero( )
+    public long getCantidadDinero( )
     {
-        return cantidadDinero;
+        return cantidadDinero.sumar( );
     }
 
     /**
-     * Aumenta la cantidad de dinero que tiene el empleado
+     * Aumenta la cantidad de dinero que tiene el empleado.
+     * 
+     * Un mismo empleado puede atender varios surtidores, así que este método puede ser llamado desde varios hilos al mismo tiempo.
      * @param dinero La cantidad de dinero que el empleado recibió
      */
-    public void agregarDinero( int dinero )
+    public void agregarDinero( long dinero )
+    {
+        cantidadDinero.agregar( dinero );
+        if( !modificado.get( ) )
+        {
+            modificado.set( true );
+        }
+    }
+
+    /**
+     * Cierra el turno del empleado: retorna todo el dinero que ha recogido y deja su cantidad de dinero en 0.
+     * 
+     * El dinero se toma y se reinicia en un solo paso, así que si al mismo tiempo se hace una venta en uno de sus surtidores, el precio queda en el dinero retornado o
+     * en el del siguiente turno, pero nunca se pierde ni se cuenta dos veces.
+     * @return El dinero recogido en el turno
+     */
+    public long cerrarTurno( )
+    {
+        long dinero = cantidadDinero.tomarYReiniciar( );
+        modificado.set( true );
+        return dinero;
+    }
+
+    /**
+     * Indica si la cantidad de dinero ha cambiado desde la última vez que se llamó este método, y quita la marca
+     * @return true si la cantidad de dinero cambió
+     */
+    public boolean tomarModificado( )
     {
-        this.cantidadDinero += dinero;
+        return modificado.getAndSet( false );
     }
 }
@@ -0,0 +1,295 @@
+package uniandes.dpoo.gasolinera.logica;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import uniandes.dpoo.gasolinera.persistencia.DiarioVentas;
+import uniandes.dpoo.gasolinera.persistencia.InstantaneaBinaria;
+
+/**
+ * Esta clase es una copia del estado de una gasolinera en un momento dado (ver Gasolinera.capturarEstado): el inventario y el precio de cada tipo de gasolina, los
+ * galones vendidos y el empleado de cada surtidor, y el dinero de cada empleado.
+ *
+ * La copia sólo tiene arreglos de tipos primitivos y cadenas, y no cambia después de construida, así que se puede guardar en un archivo desde cualquier hilo mientras
+ * la gasolinera sigue vendiendo.
+ */
+public class EstadoGasolinera
+{
+    // ************************************************************************
+    // Atributos
+    // ************************************************************************
+
+    /**
+     * Los nombres de los tipos de gasolina, en el orden de sus identificadores
+     */
+    private String[] nombresTipos;
+
+    /**
+     * El precio por galón de cada tipo de gasolina
+     */
+    private int[] precios;
+
+    /**
+     * El número de la versión del precio vigente de cada tipo de gasolina
+     */
+    private int[] versionesPrecio;
+
+    /**
+     * El momento en el que se publicó la versión del precio vigente de cada tipo de gasolina, en milisegundos desde 1970
+     */
+    private long[] desdeVersionesPrecio;
+
+    /**
+     * La cantidad disponible de cada tipo de gasolina, en millonésimas de galón. Incluye la gasolina reservada que todavía no se ha despachado
+     */
+    private long[] microgalonesDisponibles;
+
+    /**
+     * Los nombres de los empleados
+     */
+    private String[] nombresEmpleados;
+
+    /**
+     * El dinero de cada empleado
+     */
+    private long[] dinero;
+
+    /**
+     * La posición en nombresEmpleados del empleado asignado a cada surtidor
+     */
+    private int[] empleadosSurtidores;
+
+    /**
+     * Los galones vendidos en cada surtidor, en millonésimas de galón. Los del tipo t en el surtidor n están en la posición n * (cantidad de tipos) + t
+     */
+    private long[] galonesVendidos;
+
+    /**
+     * El diario de ventas que estaba activo cuando se capturó el estado, o null si no había uno
+     */
+    private DiarioVentas diario;
+
+    /**
+     * La posición del diario hasta donde llegaban sus registros cuando se capturó el estado. Los registros anteriores ya están incluidos en este estado
+     */
+    private long posicionDiario;
+
+    /**
+     * La generación de las marcas que se quitaron al capturar el estado (ver Gasolinera.confirmarGuardado)
+     */
+    private long generacionMarcas;
+
+    // ************************************************************************
+    // Constructores
+    // ************************************************************************
+
+    /**
+     * Copia el estado de una gasolinera. Mientras se construye la copia nadie debería estar modificando la gasolinera
+     * @param tiposGasolina El registro de los tipos de gasolina
+     * @param surtidores La tabla de surtidores
+     * @param empleados Los empleados de la gasolinera
+     * @param diario El diario de ventas activo, o null si no hay uno
+     * @param generacionMarcas La generación de las marcas que se quitaron al capturar el estado
+     */
+    EstadoGasolinera( RegistroTiposGasolina tiposGasolina, TablaSurtidores surtidores, Collection<Empleado> empleados, DiarioVentas diario, long generacionMarcas )
+    {
+        this.generacionMarcas = generacionMarcas;
+        int cantidadTipos = tiposGasolina.getCantidadTipos( );
+        nombresTipos = new String[cantidadTipos];
+        precios = new int[cantidadTipos];
+        versionesPrecio = new int[cantidadTipos];
+        desdeVersionesPrecio = new long[cantidadTipos];
+        microgalonesDisponibles = new long[cantidadTipos];
+        for( int idTipo = 0; idTipo < cantidadTipos; idTipo++ )
+        {
+            TipoGasolina tipo = tiposGasolina.getTipo( idTipo );
+            nombresTipos[ idTipo ] = tipo.getNombre( );
+            VersionPrecio versionPrecio = tipo.getVersionPrecio( );
+            precios[ idTipo ] = versionPrecio.getPrecioPorGalon( );
+            versionesPrecio[ idTipo ] = versionPrecio.getNumero( );
+            desdeVersionesPrecio[ idTipo ] = versionPrecio.getDesde( );
+            microgalonesDisponibles[ idTipo ] = tipo.getMicrogalonesEnTanque( );
+        }
+
+        nombresEmpleados = new String[empleados.size( )];
+        dinero = new long[empleados.size( )];
+        Map<Empleado, Integer> posicionesEmpleados = new IdentityHashMap<Empleado, Integer>( );
+        int posicion = 0;
+        for( Empleado empleado : empleados )
+        {
+            nombresEmpleados[ posicion ] = empleado.getNombre( );
+            dinero[ posicion ] = empleado.getCantidadDinero( );
+            posicionesEmpleados.put( empleado, posicion );
+            posicion++;
+        }
+
+        // Traducir las posiciones de la tabla de surtidores a posiciones en la lista de empleados de la gasolinera. Las asignaciones se copian antes de pedir los
+        // empleados de la tabla, para que estén todos aunque un surtidor se reasigne mientras tanto
+        empleadosSurtidores = surtidores.copiarAsignaciones( );
+        List<Empleado> empleadosTabla = surtidores.getEmpleados( );
+        int[] traduccion = new int[empleadosTabla.size( )];
+        for( int i = 0; i < traduccion.length; i++ )
+        {
+            Integer posicionEmpleado = posicionesEmpleados.get( empleadosTabla.get( i ) );
+            traduccion[ i ] = posicionEmpleado == null ? -1 : posicionEmpleado;
+        }
+        for( int i = 0; i < empleadosSurtidores.length; i++ )
+        {
+            empleadosSurtidores[ i ] = traduccion[ empleadosSurtidores[ i ] ];
+        }
+        galonesVendidos = surtidores.copiarGalonesVendidos( );
+
+        this.diario = diario;
+        this.posicionDiario = diario == null ? 0 : diario.getPosicionFinal( );
+    }
+
+    // ************************************************************************
+    // Métodos
+    // ************************************************************************
+
+    public int getCantidadTipos( )
+    {
+        return nombresTipos.length;
+    }
+
+    public String getNombreTipo( int idTipo )
+    {
+        return nombresTipos[ idTipo ];
+    }
+
+    public int getPrecioPorGalon( int idTipo )
+    {
+        return precios[ idTipo ];
+    }
+
+    public int getVersionPrecio( int idTipo )
+    {
+        return versionesPrecio[ idTipo ];
+    }
+
+    public long getDesdeVersionPrecio( int idTipo )
+    {
+        return desdeVersionesPrecio[ idTipo ];
+    }
+
+    public long getMicrogalonesDisponibles( int idTipo )
+    {
+        return microgalonesDisponibles[ idTipo ];
+    }
+
+    public int getCantidadEmpleados( )
+    {
+        return nombresEmpleados.length;
+    }
+
+    public String getNombreEmpleado( int posicion )
+    {
+        return nombresEmpleados[ posicion ];
+    }
+
+    public long getCantidadDinero( int posicion )
+    {
+        return dinero[ posicion ];
+    }
+
+    public int getCantidadSurtidores( )
+    {
+        return empleadosSurtidores.length;
+    }
+
+    /**
+     * Retorna el empleado asignado a un surtidor
+     * @param numeroSurtidor El número del surtidor
+     * @return La posición del empleado (ver getNombreEmpleado), o -1 si el empleado del surtidor no estaba entre los empleados de la gasolinera
+     */
+    public int getEmpleadoSurtidor( int numeroSurtidor )
+    {
+        return empleadosSurtidores[ numeroSurtidor ];
+    }
+
+    /**
+     * Retorna la cantidad de galones de un tipo de gasolina vendidos en un surtidor
+     * @param numeroSurtidor El número del surtidor
+     * @param idTipo El identificador del tipo de gasolina
+     * @return La cantidad vendida, en millonésimas de galón
+     */
+    public long getMicrogalonesVendidos( int numeroSurtidor, int idTipo )
+    {
+        return galonesVendidos[ numeroSurtidor * nombresTipos.length + idTipo ];
+    }
+
+    DiarioVentas getDiario( )
+    {
+        return diario;
+    }
+
+    long getPosicionDiario( )
+    {
+        return posicionDiario;
+    }
+
+    long getGeneracionMarcas( )
+    {
+        return generacionMarcas;
+    }
+
+    /**
+     * Guarda el estado en un archivo de texto, con el formato que lee Gasolinera.cargarEstado. Si el archivo ya existe, se sobreescribe
+     * @param archivo El archivo donde se guardará la información
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo en el archivo
+     */
+    public void guardarTexto( File archivo ) throws IOException
+    {
+        PrintWriter writer = new PrintWriter( archivo );
+
+        // Guardar la información de los tipos de gasolina
+        for( int idTipo = 0; idTipo < nombresTipos.length; idTipo++ )
+        {
+            writer.println( "tipo:" + nombresTipos[ idTipo ] + ":" + precios[ idTipo ] + ":" + TipoGasolina.aGalones( microgalonesDisponibles[ idTipo ] ) + ":"
+                    + versionesPrecio[ idTipo ] + ":" + desdeVersionesPrecio[ idTipo ] );
+        }
+
+        // Guardar la información de los surtidores
+        for( int i = 0; i < empleadosSurtidores.length; i++ )
+        {
+            if( empleadosSurtidores[ i ] == -1 )
+            {
+                writer.close( );
+                throw new IOException( "El empleado del surtidor " + i + " no trabaja en la gasolinera" );
+            }
+            writer.print( "surtidor:" + nombresEmpleados[ empleadosSurtidores[ i ] ] );
+            for( int idTipo = 0; idTipo < nombresTipos.length; idTipo++ )
+            {
+                writer.print( ":" + nombresTipos[ idTipo ] + ":" + TipoGasolina.aGalones( getMicrogalonesVendidos( i, idTipo ) ) );
+            }
+            writer.println( );
+        }
+
+        // Guardar la información de los empleados
+        for( int i = 0; i < nombresEmpleados.length; i++ )
+        {
+            writer.println( "empleado:" + nombresEmpleados[ i ] + ":" + dinero[ i ] );
+        }
+
+        writer.close( );
+        if( writer.checkError( ) )
+        {
+            throw new IOException( "Hubo problemas escribiendo el archivo " + archivo );
+        }
+    }
+
+    /**
+     * Guarda el estado en un archivo binario (ver InstantaneaBinaria). Si el archivo ya existe, se sobreescribe
+     * @param archivo El archivo donde se guardará la información
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo en el archivo
+     */
+    public void guardarBinario( File archivo ) throws IOException
+    {
+        InstantaneaBinaria.guardar( this, archivo );
+    }
+}
@@ -4,41 +4,120 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
+import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
-import uniandes.dpoo.gasolinera.exceptions.GasolinaInsuficienteException;
+import javax.management.JMException;
+
+import uniandes.dpoo.gasolinera.eventos.BusVentas;
+import uniandes.dpoo.gasolinera.metricas.MetricasGasolinera;
+import uniandes.dpoo.gasolinera.metricas.VentasRecientes;
+import uniandes.dpoo.gasolinera.persistencia.DiarioVentas;
+import uniandes.dpoo.gasolinera.persistencia.InstantaneaBinaria;
+import uniandes.dpoo.gasolinera.persistencia.LectorGasolinera;
+import uniandes.dpoo.gasolinera.persistencia.RecuperacionParalela;
+import uniandes.dpoo.gasolinera.utils.EstrategiaAsignacion;
+import uniandes.dpoo.gasolinera.utils.PuertaConcurrente;
+import uniandes.dpoo.gasolinera.utils.RuedaTemporizadora;
 import uniandes.dpoo.gasolinera.utils.Sorteo;
 
 /**
- * Esta clase tiene la información de una Gasolinera incluyendo los tipos de gasolina, los empleados y los surtidores
+ * Esta clase tiene la información de una Gasolinera incluyendo los tipos de gasolina, los empleados y los surtidores.
+ * 
+ * Los métodos para vender gasolina pueden llamarse desde varios hilos al mismo tiempo. En lugar de usar un único candado para toda la gasolinera, el inventario de
+ * cada tipo de gasolina se actualiza sin candados (ver TipoGasolina) y los galones vendidos en cada surtidor también (ver TablaSurtidores): así, dos ventas en
+ * surtidores distintos nunca se bloquean entre sí.
+ * 
+ * Cada venta pasa por una PuertaConcurrente que sólo se cierra mientras se captura el estado de la gasolinera (ver capturarEstado). Así, el estado capturado nunca
+ * tiene una venta a medias, y mientras se guarda en un archivo las ventas siguen sin esperar.
+ * 
+ * Los surtidores también pueden reservar gasolina antes de despacharla y confirmar después lo que despacharon (ver reservar). Las reservas no usan candados: la
+ * gasolina se reserva con el mismo compareAndSet con el que se despacha, y las reservas que no se confirman a tiempo se vencen desde una RuedaTemporizadora. La
+ * rueda tiene su propio hilo, que se detiene al cerrar la gasolinera (ver cerrar).
+ * 
+ * Las ventas, los guardados y la carga se pueden medir activando las métricas de la gasolinera (ver activarMetricas y MetricasGasolinera). Otros hilos también pueden
+ * reaccionar a cada venta a través de un bus de ventas (ver activarEventos y BusVentas), y las ventas de los últimos minutos y horas se pueden consultar activando
+ * las ventas recientes (ver activarVentasRecientes y VentasRecientes).
  */
 public class Gasolinera
 {
+    // ************************************************************************
+    // Constantes
+    // ************************************************************************
+
+    /**
+     * La cantidad máxima de grupos de marcas sin guardar que se conservan por separado. Si hay más, los más antiguos se juntan
+     */
+    private static final int MAXIMO_MARCAS_SIN_GUARDAR = 16;
+
     // ************************************************************************
     // Atributos
     // ************************************************************************
 
     /**
-     * Un arreglo con los surtidores que hay en la gasolinera
+     * La tabla con la información de los surtidores que hay en la gasolinera. Los objetos Surtidor que entrega la gasolinera son vistas sobre esta tabla
      */
-    private Surtidor[] surtidores;
+    private TablaSurtidores surtidores;
 
     /**
-     * Un mapa de los tipos de gasolina en venta: las llaves son el nombre del tipo de gasolina
+     * El registro de los tipos de gasolina en venta, que le asigna a cada uno un identificador entero. Los surtidores comparten este mismo registro
      */
-    private Map<String, TipoGasolina> tiposGasolina;
+    private RegistroTiposGasolina tiposGasolina;
 
     /**
      * Un mapa con los empleados de la gasolinea: las llaves son el nombre del empleado
      */
     private Map<String, Empleado> empleados;
 
+    /**
+     * El diario donde se registra cada venta, o null si las ventas no se están registrando
+     */
+    private volatile DiarioVentas diario;
+
+    /**
+     * La puerta por la que pasa cada venta, que se cierra mientras se captura el estado de la gasolinera
+     */
+    private final PuertaConcurrente puertaVentas = new PuertaConcurrente( );
+
+    /**
+     * Las métricas de las ventas y los guardados, o null si las métricas están apagadas
+     */
+    private volatile MetricasGasolinera metricas;
+
+    /**
+     * El tiempo que tomó cargar la gasolinera de sus archivos, en nanosegundos, o 0 si no se cargó de un archivo
+     */
+    private long nanosegundosCarga;
+
+    /**
+     * La rueda que vence las reservas que no se confirman a tiempo. Se crea con la primera reserva
+     */
+    private volatile RuedaTemporizadora ruedaReservas;
+
+    /**
+     * La generación de las últimas marcas que se quitaron. Sólo cambia mientras la puerta de las ventas está cerrada
+     */
+    private long generacionMarcas;
+
+    /**
+     * Las marcas que se quitaron al capturar el estado o al guardar los cambios y que todavía no están en un archivo confirmado, en orden de generación (ver
+     * MarcasTomadas)
+     */
+    private final LinkedList<MarcasTomadas> marcasSinGuardar = new LinkedList<MarcasTomadas>( );
+
     // ************************************************************************
     // Constructores
     // ************************************************************************
@@ -54,29 +133,44 @@ public class Gasolinera
      */
     public Gasolinera( int cantidadSurtidores, List<TipoGasolina> listaTiposGasolina, String[] nombresEmpleados )
     {
-        // Guardar los tipos de gasolina en un mapa organizado con el nombre
-        this.tiposGasolina = new HashMap<String, TipoGasolina>( );
-        for( TipoGasolina tipo : listaTiposGasolina )
-        {
-            this.tiposGasolina.put( tipo.getNombre( ), tipo );
-        }
+        this( cantidadSurtidores, listaTiposGasolina, nombresEmpleados, Sorteo.alAzar( ) );
+    }
+
+    /**
+     * Construye una nueva gasolinera con la información entregada, asignándole los empleados a los surtidores con una estrategia (ver Sorteo).
+     * 
+     * Inicialmente no se va a haber vendido ningún galón de ningún tipo de gasolina y los empleados no habrán recaudado dinero.
+     * 
+     * @param cantidadSurtidores La cantidad de surtidores en la gasolinera
+     * @param listaTiposGasolina Una lista de TipoGasolina con la información de cada tipo en venta en la gasolinería
+     * @param nombresEmpleados Un arreglo con los nombres de los empleados que trabajan en la gasolinera. Las estrategias ven a los empleados en este orden
+     * @param estrategia La estrategia con la que se le asigna un empleado a cada surtidor
+     */
+    public Gasolinera( int cantidadSurtidores, List<TipoGasolina> listaTiposGasolina, String[] nombresEmpleados, EstrategiaAsignacion estrategia )
+    {
+        // Registrar los tipos de gasolina para que cada uno tenga un identificador
+        this.tiposGasolina = new RegistroTiposGasolina( listaTiposGasolina );
 
-        // Construir los empleados de la gasolinera partiendo con los nombres
+        // Construir los empleados de la gasolinera partiendo con los nombres, sin repetir nombres
         this.empleados = new HashMap<String, Empleado>( );
+        List<Empleado> opciones = new ArrayList<Empleado>( nombresEmpleados.length );
         for( String nombre : nombresEmpleados )
         {
-            this.empleados.put( nombre, new Empleado( nombre ) );
+            if( !this.empleados.containsKey( nombre ) )
+            {
+                Empleado empleado = new Empleado( nombre );
+                this.empleados.put( nombre, empleado );
+                opciones.add( empleado );
+            }
         }
 
-        // Construir los surtidores de la gasolinera usando los tipos de gasolina y asignarle empleados aleatoriamente
-        this.surtidores = new Surtidor[cantidadSurtidores];
+        // Construir los surtidores de la gasolinera usando los tipos de gasolina y asignarles empleados con la estrategia
+        this.surtidores = new TablaSurtidores( tiposGasolina, cantidadSurtidores );
+        int[] asignaciones = estrategia.asignar( cantidadSurtidores, new int[opciones.size( )] );
         for( int i = 0; i < cantidadSurtidores; i++ )
         {
-            Empleado[] dummy = new Empleado[]{}; // Este arreglo se usa únicamente para indicarle el tipo genérico al método toArray de Collection
-            Empleado seleccionado = Sorteo.seleccionarAlAzar( empleados.values( ).toArray( dummy ) );
-            this.surtidores[ i ] = new Surtidor( tiposGasolina, seleccionado );
+            this.surtidores.agregarSurtidor( opciones.get( asignaciones[ i ] ) );
         }
-
     }
 
     /**
@@ -85,18 +179,15 @@ public class Gasolinera
      * Este constructor asume que los objetos están correctamente enlazados: los tipos de gasolina en los surtidores son los mismos que estarán en la gasolinera, y los
      * empleados asignados a los surtidores son los mismos que estarán en la gasolinera.
      * 
-     * @param surtidores Los surtidores de la gasolinera
-     * @param tiposGasolina Una coleción de TipoGasolina con la información de cada tipo en venta en la gasolinería
+     * Este constructor se usa para construir una gasolinera que se cargó de un archivo, así que la gasolinera queda sin cambios pendientes por guardar.
+     * 
+     * @param surtidores La tabla con los surtidores de la gasolinera
      * @param empleados Una colección con los empleados que trabajan en la gasolinera
      */
-    private Gasolinera( List<Surtidor> surtidores, Collection<TipoGasolina> tiposGasolina, Collection<Empleado> empleados )
+    public Gasolinera( TablaSurtidores surtidores, Collection<Empleado> empleados )
     {
-        // Guardar los tipos de gasolina en un mapa organizado con el nombre
-        this.tiposGasolina = new HashMap<String, TipoGasolina>( );
-        for( TipoGasolina tipo : tiposGasolina )
-        {
-            this.tiposGasolina.put( tipo.getNombre( ), tipo );
-        }
+        this.tiposGasolina = surtidores.getTiposGasolina( );
+        this.surtidores = surtidores;
 
         // Construir el mapa de los empleados de la gasolinera
         this.empleados = new HashMap<String, Empleado>( );
@@ -105,12 +196,8 @@ public class Gasolinera
             this.empleados.put( empleado.getNombre( ), empleado );
         }
 
-        // Organizar los surtidores de la gasolinera en el arreglo de surtidores
-        this.surtidores = new Surtidor[surtidores.size( )];
-        for( int i = 0; i < surtidores.size( ); i++ )
-        {
-            this.surtidores[ i ] = surtidores.get( i );
-        }
+        // El estado con el que se construye la gasolinera es el que está guardado, así que no hay cambios pendientes por guardar
+        descartarModificaciones( );
     }
 
     // ************************************************************************
@@ -123,22 +210,55 @@ public class Gasolinera
      */
     public int getCantidadSurtidores( )
     {
-        return surtidores.length;
+        return surtidores.getCantidadSurtidores( );
     }
 
+    /**
+     * Retorna un surtidor de la gasolinera. El surtidor retornado es una vista sobre la tabla de surtidores de la gasolinera, así que siempre refleja su estado actual
+     * @param numSurtidor El número del surtidor. Los surtidores están numerados desde 0.
+     * @return El surtidor
+     */
     public Surtidor getSurtidor( int numSurtidor )
     {
-        return surtidores[ numSurtidor ];
+        if( numSurtidor < 0 || numSurtidor >= surtidores.getCantidadSurtidores( ) )
+        {
+            throw new IndexOutOfBoundsException( "No existe el surtidor " + numSurtidor );
+        }
+        return new Surtidor( surtidores, numSurtidor );
+    }
+
+    /**
+     * Retorna la tabla donde están los surtidores de la gasolinera
+     * @return La tabla de surtidores
+     */
+    public TablaSurtidores getTablaSurtidores( )
+    {
+        return surtidores;
     }
 
     public TipoGasolina getTipoGasolina( String nombreTipoGasolina )
     {
-        return tiposGasolina.get( nombreTipoGasolina );
+        return tiposGasolina.getTipo( nombreTipoGasolina );
     }
 
     public Collection<TipoGasolina> getTiposGasolina( )
     {
-        return tiposGasolina.values( );
+        return tiposGasolina.getTipos( );
+    }
+
+    /**
+     * Retorna el identificador entero de un tipo de gasolina, para usarlo con los métodos de venta que reciben identificadores
+     * @param nombreTipoGasolina El nombre del tipo de gasolina
+     * @return El identificador del tipo de gasolina, o -1 si no se vende ese tipo en la gasolinera
+     */
+    public int getIdentificadorTipoGasolina( String nombreTipoGasolina )
+    {
+        return tiposGasolina.getIdentificador( nombreTipoGasolina );
+    }
+
+    public RegistroTiposGasolina getRegistroTiposGasolina( )
+    {
+        return tiposGasolina;
     }
 
     public Empleado getEmpleado( String nombreEmpleado )
@@ -158,6 +278,10 @@ public class Gasolinera
      * 
      * Después de realizada la transacción, debe haber quedado actualizado el inventario de gasolina (en el TipoGasolina), la cantidad entregada en el surtidor y la cantidad
      * de dinero que tiene el empleado que atiende en el surtidor.
+     * 
+     * Este método puede llamarse desde varios hilos: si no alcanza la gasolina, lo que quede se despacha en un solo paso atómico, así que nunca se entrega más de lo
+     * que hay en el inventario. Cuando no alcanza la gasolina no se lanzan ni se imprimen excepciones: quien necesite saberlo debe usar venderPorCantidad, que retorna
+     * también los galones entregados.
      * @param nombreTipoGasolina El tipo de gasolina que quiere el cliente
      * @param cantidadSolicitada La cantidad en galones que quiere el cliente
      * @param numeroSurtidor El número del surtidor donde están atendiendo al cliente. Los surtidores están numerados desde 0.
@@ -165,33 +289,176 @@ public class Gasolinera
      */
     public int venderGasolinaPorCantidad( String nombreTipoGasolina, double cantidadSolicitada, int numeroSurtidor )
     {
-        Surtidor elSurtidor = surtidores[ numeroSurtidor ];
-        TipoGasolina tipo = tiposGasolina.get( nombreTipoGasolina );
+        return venderGasolinaPorCantidad( tiposGasolina.getIdentificador( nombreTipoGasolina ), cantidadSolicitada, numeroSurtidor );
+    }
+
+    /**
+     * Le vende a un cliente una cierta cantidad de gasolina, dada la cantidad de gasolina que quiere el cliente y el identificador del tipo de gasolina.
+     * 
+     * Este método se comporta igual que venderGasolinaPorCantidad con el nombre del tipo, pero sólo hace operaciones sobre arreglos: no busca nada por nombre.
+     * @param idTipoGasolina El identificador del tipo de gasolina que quiere el cliente (ver getIdentificadorTipoGasolina)
+     * @param cantidadSolicitada La cantidad en galones que quiere el cliente
+     * @param numeroSurtidor El número del surtidor donde están atendiendo al cliente. Los surtidores están numerados desde 0.
+     * @return El precio de la gasolina que se le vendió al cliente (no necesariamente es la cantidad solicitada)
+     */
+    public int venderGasolinaPorCantidad( int idTipoGasolina, double cantidadSolicitada, int numeroSurtidor )
+    {
+        return venderPorCantidad( idTipoGasolina, cantidadSolicitada, numeroSurtidor ).getPrecio( );
+    }
+
+    /**
+     * Le vende a un cliente una cierta cantidad de gasolina, igual que venderGasolinaPorCantidad, pero retorna también cuánta gasolina se entregó. Así quien llama
+     * sabe si alcanzó la gasolina sin tener que calcular el precio esperado (ver ResultadoVenta.esCompleta)
+     * @param idTipoGasolina El identificador del tipo de gasolina que quiere el cliente (ver getIdentificadorTipoGasolina)
+     * @param cantidadSolicitada La cantidad en galones que quiere el cliente
+     * @param numeroSurtidor El número del surtidor donde están atendiendo al cliente. Los surtidores están numerados desde 0.
+     * @return El resultado de la venta
+     */
+    public ResultadoVenta venderPorCantidad( int idTipoGasolina, double cantidadSolicitada, int numeroSurtidor )
+    {
+        TipoGasolina tipo = tiposGasolina.getTipo( idTipoGasolina );
+        return venderGasolina( tipo, idTipoGasolina, cantidadSolicitada, numeroSurtidor, tipo.getVersionPrecio( ) );
+    }
+
+    /**
+     * Vende gasolina cobrando con una versión del precio que ya se leyó, para que toda la venta use el mismo precio aunque otro hilo lo cambie mientras tanto
+     * @param tipo El tipo de gasolina que quiere el cliente
+     * @param idTipoGasolina El identificador del tipo de gasolina
+     * @param cantidadSolicitada La cantidad en galones que quiere el cliente
+     * @param numeroSurtidor El número del surtidor donde están atendiendo al cliente
+     * @param versionPrecio La versión del precio con la que se cobra la venta
+     * @return El resultado de la venta
+     */
+    private ResultadoVenta venderGasolina( TipoGasolina tipo, int idTipoGasolina, double cantidadSolicitada, int numeroSurtidor, VersionPrecio versionPrecio )
+    {
+        MetricasGasolinera lasMetricas = metricas;
+        long inicio = lasMetricas != null ? System.nanoTime( ) : 0;
 
-        double cantidadEntregada = 0;
+        double cantidadEntregada;
+        int posicionEmpleado;
+        int precio;
+        int franja = puertaVentas.entrar( );
         try
         {
-            // Actualizar la cantidad de gasolina disponible de ese tipo
-            tipo.despacharGasolina( cantidadSolicitada );
-            cantidadEntregada = cantidadSolicitada;
-        }
-        catch( GasolinaInsuficienteException e )
-        {
-            System.out.println( e.getMessage( ) );
-            cantidadEntregada = e.getCantidadDisponible( );
-            try
+            // Actualizar la cantidad de gasolina disponible de ese tipo: si no alcanza, se entrega todo lo que quede
+            cantidadEntregada = tipo.despacharHasta( cantidadSolicitada );
+
+            posicionEmpleado = surtidores.getPosicionEmpleadoAsignado( numeroSurtidor );
+            precio = registrarVenta( numeroSurtidor, idTipoGasolina, cantidadEntregada, versionPrecio, posicionEmpleado );
+            if( lasMetricas != null )
             {
-                tipo.despacharGasolina( cantidadEntregada );
+                boolean incompleta = TipoGasolina.aMicrogalones( cantidadEntregada ) < TipoGasolina.aMicrogalones( cantidadSolicitada );
+                lasMetricas.registrarVenta( numeroSurtidor, idTipoGasolina, incompleta, precio );
+                lasMetricas.registrarLatencia( idTipoGasolina, System.nanoTime( ) - inicio );
             }
-            catch( GasolinaInsuficienteException e1 )
+        }
+        finally
+        {
+            puertaVentas.salir( franja );
+        }
+
+        // El evento se publica después de salir de la puerta: publicar puede esperar a un consumidor que a su vez esté esperando a que la puerta se cierre
+        surtidores.publicarVenta( numeroSurtidor, idTipoGasolina, posicionEmpleado, versionPrecio.getNumero( ), TipoGasolina.aMicrogalones( cantidadEntregada ), precio );
+        return new ResultadoVenta( precio, versionPrecio.getPrecioPorGalon( ), cantidadSolicitada, cantidadEntregada );
+    }
+
+    /**
+     * Registra en el surtidor una venta cuya gasolina ya se despachó del inventario, y la agrega al diario si las ventas se están registrando. La venta no se publica
+     * en el bus de ventas: quien llama la publica con TablaSurtidores.publicarVenta después de salir de la puerta de ventas
+     * @param numeroSurtidor El número del surtidor donde se hizo la venta
+     * @param idTipoGasolina El identificador del tipo de gasolina que se vendió
+     * @param cantidadEntregada La cantidad de galones que se le entregaron al cliente
+     * @param versionPrecio La versión del precio con la que se cobra la venta. Queda anotada en el diario junto con la venta
+     * @param posicionEmpleado La posición del empleado asignado al surtidor. Se lee una sola vez, para que el diario y el evento tengan al mismo empleado que recibió
+     *        el dinero aunque el surtidor se reasigne durante la venta
+     * @return El precio de la venta
+     */
+    private int registrarVenta( int numeroSurtidor, int idTipoGasolina, double cantidadEntregada, VersionPrecio versionPrecio, int posicionEmpleado )
+    {
+        int precio = surtidores.registrarVenta( numeroSurtidor, idTipoGasolina, cantidadEntregada, versionPrecio, posicionEmpleado );
+
+        DiarioVentas elDiario = diario;
+        if( elDiario != null )
+        {
+            elDiario.registrar( numeroSurtidor, idTipoGasolina, surtidores.getEmpleado( posicionEmpleado ), TipoGasolina.aMicrogalones( cantidadEntregada ), precio,
+                    versionPrecio.getNumero( ) );
+        }
+        return precio;
+    }
+
+    /**
+     * Aplica sobre la gasolinera una venta que se había registrado antes, por ejemplo en un diario de ventas: descuenta la gasolina del inventario y suma los galones
+     * al surtidor y el dinero al empleado, sin volver a calcular el precio ni registrar la venta en el diario.
+     * @param numeroSurtidor El número del surtidor donde se hizo la venta
+     * @param idTipoGasolina El identificador del tipo de gasolina que se vendió
+     * @param microgalones La cantidad entregada, en millonésimas de galón
+     * @param precio El precio que se cobró
+     * @param empleado El empleado que recibió el dinero
+     */
+    public void aplicarVentaRegistrada( int numeroSurtidor, int idTipoGasolina, long microgalones, int precio, Empleado empleado )
+    {
+        aplicarVentaRegistrada( numeroSurtidor, idTipoGasolina, microgalones, precio, empleado, 0 );
+    }
+
+    /**
+     * Aplica sobre la gasolinera una venta que se había registrado antes, igual que aplicarVentaRegistrada, y la suma a la versión del precio con la que se cobró
+     * si esa versión está en el historial del tipo de gasolina.
+     * @param numeroSurtidor El número del surtidor donde se hizo la venta
+     * @param idTipoGasolina El identificador del tipo de gasolina que se vendió
+     * @param microgalones La cantidad entregada, en millonésimas de galón
+     * @param precio El precio que se cobró
+     * @param empleado El empleado que recibió el dinero
+     * @param numeroVersionPrecio El número de la versión del precio con la que se cobró la venta, o 0 si no se conoce
+     */
+    public void aplicarVentaRegistrada( int numeroSurtidor, int idTipoGasolina, long microgalones, int precio, Empleado empleado, int numeroVersionPrecio )
+    {
+        TipoGasolina tipo = tiposGasolina.getTipo( idTipoGasolina );
+        VersionPrecio versionPrecio = numeroVersionPrecio > 0 ? tipo.buscarVersionPrecio( numeroVersionPrecio ) : null;
+        int franja = puertaVentas.entrar( );
+        try
+        {
+            tipo.despacharMicrogalonesHasta( microgalones );
+            surtidores.agregarGalonesVendidos( numeroSurtidor, idTipoGasolina, microgalones );
+            empleado.agregarDinero( precio );
+            if( versionPrecio != null )
             {
-                // Nunca debería entrar acá
-                e1.printStackTrace( );
+                versionPrecio.registrarVenta( microgalones, precio );
             }
         }
+        finally
+        {
+            puertaVentas.salir( franja );
+        }
+    }
 
-        int precio = elSurtidor.venderGasolina( nombreTipoGasolina, cantidadEntregada );
-        return precio;
+    /**
+     * Empieza a registrar cada venta de la gasolinera en un diario de ventas. Si el archivo ya tiene un diario de esta gasolinera, las ventas se agregan al final.
+     * 
+     * El diario debería estar vacío o corresponder a las ventas hechas después del último archivo guardado: cada vez que se guarde el estado de la gasolinera, o sólo
+     * sus cambios, se borran del diario las ventas que quedaron incluidas en el archivo.
+     * @param archivo El archivo del diario
+     * @param registrosPorEscritura La cantidad de ventas que se acumulan antes de escribirlas en el archivo
+     * @param milisegundosPorEscritura El tiempo máximo que puede pasar una venta sin escribirse en el archivo. Si es 0, sólo se escribe por cantidad de ventas
+     * @throws IOException Se lanza esta excepción si hay problemas abriendo el diario
+     */
+    public void activarDiario( File archivo, int registrosPorEscritura, long milisegundosPorEscritura ) throws IOException
+    {
+        desactivarDiario( );
+        diario = new DiarioVentas( archivo, tiposGasolina, new ArrayList<Empleado>( empleados.values( ) ), registrosPorEscritura, milisegundosPorEscritura );
+    }
+
+    /**
+     * Deja de registrar las ventas en el diario, escribiendo antes las ventas pendientes
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo o cerrando el diario
+     */
+    public void desactivarDiario( ) throws IOException
+    {
+        DiarioVentas elDiario = diario;
+        diario = null;
+        if( elDiario != null )
+        {
+            elDiario.cerrar( );
+        }
     }
 
     /**
@@ -208,111 +475,1080 @@ public class Gasolinera
      */
     public int venderGasolinaPorPrecio( String nombreTipoGasolina, int valorSolicitado, int numeroSurtidor )
     {
-        TipoGasolina tipo = tiposGasolina.get( nombreTipoGasolina );
-        double cantidadSolicitada = valorSolicitado / ( double )tipo.getPrecioPorGalon( );
-
-        return venderGasolinaPorCantidad( nombreTipoGasolina, cantidadSolicitada, numeroSurtidor );
+        return venderGasolinaPorPrecio( tiposGasolina.getIdentificador( nombreTipoGasolina ), valorSolicitado, numeroSurtidor );
     }
 
     /**
-     * Guarga la información actual de la gasolinera en un archivo.
+     * Le vende a un cliente una cierta cantidad de gasolina, dado el precio que quiere pagar el cliente y el identificador del tipo de gasolina.
      * 
-     * Si el archivo ya existe, se sobreescribe.
-     * @param archivo El archivo donde se guardará la información
-     * @throws IOException Se lanza esta excepción si hay problemas escribiendo en el archivo
+     * Este método se comporta igual que venderGasolinaPorPrecio con el nombre del tipo, pero sólo hace operaciones sobre arreglos: no busca nada por nombre.
+     * @param idTipoGasolina El identificador del tipo de gasolina que quiere el cliente (ver getIdentificadorTipoGasolina)
+     * @param valorSolicitado El precio que quiere pagar el cliente por la gasolina que se le entregue
+     * @param numeroSurtidor El número del surtidor donde están atendiendo al cliente. Los surtidores están numerados desde 0.
+     * @return El precio de la gasolina que se le vendió al cliente (no necesariamente es el valor solicitado)
      */
-    public void guardarEstado( File archivo ) throws IOException
+    public int venderGasolinaPorPrecio( int idTipoGasolina, int valorSolicitado, int numeroSurtidor )
+    {
+        return venderPorPrecio( idTipoGasolina, valorSolicitado, numeroSurtidor ).getPrecio( );
+    }
+
+    /**
+     * Le vende a un cliente una cierta cantidad de gasolina, igual que venderGasolinaPorPrecio, pero retorna también cuánta gasolina se pidió y se entregó, según la
+     * versión del precio con la que se cobró la venta
+     * @param idTipoGasolina El identificador del tipo de gasolina que quiere el cliente (ver getIdentificadorTipoGasolina)
+     * @param valorSolicitado El precio que quiere pagar el cliente por la gasolina que se le entregue
+     * @param numeroSurtidor El número del surtidor donde están atendiendo al cliente. Los surtidores están numerados desde 0.
+     * @return El resultado de la venta
+     */
+    public ResultadoVenta venderPorPrecio( int idTipoGasolina, int valorSolicitado, int numeroSurtidor )
     {
-        PrintWriter writer = new PrintWriter( archivo );
+        // La cantidad y el precio de la venta se calculan con la misma versión del precio
+        TipoGasolina tipo = tiposGasolina.getTipo( idTipoGasolina );
+        VersionPrecio versionPrecio = tipo.getVersionPrecio( );
+        double cantidadSolicitada = valorSolicitado / ( double )versionPrecio.getPrecioPorGalon( );
+
+        return venderGasolina( tipo, idTipoGasolina, cantidadSolicitada, numeroSurtidor, versionPrecio );
+    }
 
-        // Guardar la información de los tipos de gasolina
-        for( TipoGasolina tipo : tiposGasolina.values( ) )
+    /**
+     * Cambia el precio de un tipo de gasolina publicando una nueva versión del precio (ver TipoGasolina.cambiarPrecio). Las ventas que están en curso terminan con el
+     * precio anterior y no se bloquean mientras se cambia el precio. Si las ventas se están registrando en un diario, el cambio también queda en el diario.
+     * @param nombreTipoGasolina El nombre del tipo de gasolina
+     * @param precioPorGalon El nuevo precio por galón
+     * @return La versión del precio publicada
+     * @throws IllegalArgumentException Se lanza esta excepción si la gasolinera no vende ese tipo de gasolina o si el precio no es positivo
+     */
+    public VersionPrecio cambiarPrecio( String nombreTipoGasolina, int precioPorGalon )
+    {
+        int idTipo = tiposGasolina.getIdentificador( nombreTipoGasolina );
+        if( idTipo == -1 )
         {
-            writer.println( "tipo:" + tipo.getNombre( ) + ":" + tipo.getPrecioPorGalon( ) + ":" + tipo.getCantidadDisponible( ) );
+            throw new IllegalArgumentException( "En la gasolinera no se vende el tipo de gasolina " + nombreTipoGasolina );
         }
 
-        // Guardar la información de los surtidores
-        for( int i = 0; i < surtidores.length; i++ )
+        // El cambio pasa por la misma puerta que las ventas, para que un estado capturado tenga el precio nuevo sólo si también tiene su registro en el diario
+        int franja = puertaVentas.entrar( );
+        try
         {
-            Surtidor surtidor = surtidores[ i ];
-            writer.print( "surtidor:" + surtidor.getEmpleadoAsignado( ).getNombre( ) );
-            for( TipoGasolina tipo : tiposGasolina.values( ) )
+            VersionPrecio nueva = tiposGasolina.getTipo( idTipo ).cambiarPrecio( precioPorGalon );
+            DiarioVentas elDiario = diario;
+            if( elDiario != null )
             {
-                writer.print( ":" + tipo.getNombre( ) + ":" + surtidor.getGalonesVendidos( tipo.getNombre( ) ) );
+                elDiario.registrarCambioPrecio( idTipo, nueva );
             }
-            writer.println( );
+            return nueva;
+        }
+        finally
+        {
+            puertaVentas.salir( franja );
         }
+    }
 
-        // Guardar la información de los empleados
-        for( Empleado emp : empleados.values( ) )
+    /**
+     * Reserva gasolina para un surtidor antes de despacharla, como la preautorización de un surtidor real. La gasolina reservada sale del inventario disponible, así
+     * que ninguna otra venta ni reserva la puede tomar. Si no alcanza la gasolina, se reserva todo lo que quede.
+     * 
+     * La reserva debe terminarse con confirmarReserva, cuando se sepa cuánto se despachó, o con liberarReserva. Si no se termina antes del plazo, vence y toda la
+     * gasolina vuelve al inventario. La gasolina despachada se cobra con el precio vigente al hacer la reserva.
+     * @param nombreTipoGasolina El tipo de gasolina que se reserva
+     * @param cantidadSolicitada La cantidad de galones que se quiere reservar
+     * @param numeroSurtidor El número del surtidor que hace la reserva
+     * @param plazo El tiempo que puede pasar antes de que la reserva venza
+     * @param unidad La unidad del plazo
+     * @return La reserva
+     * @throws IllegalArgumentException Se lanza esta excepción si la gasolinera no vende ese tipo de gasolina o si el surtidor no existe
+     */
+    public Reserva reservar( String nombreTipoGasolina, double cantidadSolicitada, int numeroSurtidor, long plazo, TimeUnit unidad )
+    {
+        int idTipo = tiposGasolina.getIdentificador( nombreTipoGasolina );
+        if( idTipo == -1 )
+        {
+            throw new IllegalArgumentException( "En la gasolinera no se vende el tipo de gasolina " + nombreTipoGasolina );
+        }
+        return reservar( idTipo, cantidadSolicitada, numeroSurtidor, plazo, unidad );
+    }
+
+    /**
+     * Reserva gasolina para un surtidor antes de despacharla, dado el identificador del tipo de gasolina. Funciona igual que reservar con el nombre del tipo
+     * @param idTipoGasolina El identificador del tipo de gasolina que se reserva
+     * @param cantidadSolicitada La cantidad de galones que se quiere reservar
+     * @param numeroSurtidor El número del surtidor que hace la reserva
+     * @param plazo El tiempo que puede pasar antes de que la reserva venza
+     * @param unidad La unidad del plazo
+     * @return La reserva
+     * @throws IllegalArgumentException Se lanza esta excepción si el surtidor no existe
+     */
+    public Reserva reservar( int idTipoGasolina, double cantidadSolicitada, int numeroSurtidor, long plazo, TimeUnit unidad )
+    {
+        if( numeroSurtidor < 0 || numeroSurtidor >= surtidores.getCantidadSurtidores( ) )
         {
-            writer.println( "empleado:" + emp.getNombre( ) + ":" + emp.getCantidadDinero( ) );
+            throw new IllegalArgumentException( "No existe el surtidor " + numeroSurtidor );
         }
+        TipoGasolina tipo = tiposGasolina.getTipo( idTipoGasolina );
+        long microgalonesSolicitados = TipoGasolina.aMicrogalones( cantidadSolicitada );
 
-        writer.close( );
+        long reservados;
+        int franja = puertaVentas.entrar( );
+        try
+        {
+            reservados = tipo.reservarMicrogalonesHasta( microgalonesSolicitados );
+        }
+        finally
+        {
+            puertaVentas.salir( franja );
+        }
+
+        Reserva reserva = new Reserva( numeroSurtidor, idTipoGasolina, microgalonesSolicitados, reservados, tipo.getVersionPrecio( ) );
+        reserva.programarVencimiento( getRuedaReservas( ).programar( ( ) -> terminarReserva( reserva, Reserva.Estado.VENCIDA ), plazo, unidad ) );
+        return reserva;
     }
 
     /**
-     * Carga toda la información de una gasolinera a partir de un archivo y retorna una nueva Gasolinera inicializada con esa información
-     * @param archivo El archivo que contiene la información que se va a cargar
-     * @return Una nueva gasolinera con su estado inicializado con la información del archivo
-     * @throws FileNotFoundException Se lanza esta excepción si el archivo no se encuentra
-     * @throws IOException Se lanza esta excepción si el archivo no se puede leer
-     * @throws NumberFormatException Se lanza esta excepción si alguno de los números dentro del archivo tiene el formato equivocado
+     * Confirma cuánto se despachó con una reserva: registra la venta en el surtidor (y en el diario, si está activo) y devuelve al inventario lo que no se despachó
+     * @param reserva La reserva
+     * @param cantidadDespachada La cantidad de galones que realmente se despachó
+     * @return El precio de la gasolina despachada
+     * @throws IllegalArgumentException Se lanza esta excepción si la cantidad despachada es negativa o mayor que la reservada
+     * @throws IllegalStateException Se lanza esta excepción si la reserva ya se había confirmado, liberado o vencido
      */
-    public static Gasolinera cargarEstado( File archivo ) throws FileNotFoundException, IOException, NumberFormatException
+    public int confirmarReserva( Reserva reserva, double cantidadDespachada )
     {
-        Map<String, TipoGasolina> tipos = new HashMap<String, TipoGasolina>( );
-        Map<String, Empleado> empleados = new HashMap<String, Empleado>( );
-        List<Surtidor> surtidores = new LinkedList<Surtidor>( );
+        long despachados = TipoGasolina.aMicrogalones( cantidadDespachada );
+        if( despachados < 0 || despachados > reserva.getMicrogalonesReservados( ) )
+        {
+            throw new IllegalArgumentException( "Se reservaron " + reserva.getGalonesReservados( ) + " galones y no se pueden despachar " + cantidadDespachada );
+        }
+        if( !reserva.terminar( Reserva.Estado.CONFIRMADA ) )
+        {
+            throw new IllegalStateException( "La reserva ya no está pendiente: " + reserva.getEstado( ) );
+        }
 
-        BufferedReader br = new BufferedReader( new FileReader( archivo ) );
-        String line = br.readLine( );
-        while( line != null )
+        int numeroSurtidor = reserva.getNumeroSurtidor( );
+        int idTipo = reserva.getIdTipoGasolina( );
+        MetricasGasolinera lasMetricas = metricas;
+        long inicio = lasMetricas != null ? System.nanoTime( ) : 0;
+        int posicionEmpleado;
+        int precio;
+        int franja = puertaVentas.entrar( );
+        try
         {
-            String[] partes = line.split( ":" );
-            if( partes[ 0 ].equals( "tipo" ) )
+            tiposGasolina.getTipo( idTipo ).terminarReserva( reserva.getMicrogalonesReservados( ), despachados );
+            posicionEmpleado = surtidores.getPosicionEmpleadoAsignado( numeroSurtidor );
+            precio = registrarVenta( numeroSurtidor, idTipo, TipoGasolina.aGalones( despachados ), reserva.getVersionPrecio( ), posicionEmpleado );
+            if( lasMetricas != null )
             {
-                String nombre = partes[ 1 ];
-                int precio = Integer.parseInt( partes[ 2 ] );
-                double cantidad = Double.parseDouble( partes[ 3 ] );
-                tipos.put( nombre, new TipoGasolina( nombre, precio, cantidad ) );
+                lasMetricas.registrarVenta( numeroSurtidor, idTipo, !reserva.estaCompleta( ), precio );
+                lasMetricas.registrarLatencia( idTipo, System.nanoTime( ) - inicio );
             }
-            else if( partes[ 0 ].equals( "surtidor" ) )
+        }
+        finally
+        {
+            puertaVentas.salir( franja );
+        }
+        surtidores.publicarVenta( numeroSurtidor, idTipo, posicionEmpleado, reserva.getVersionPrecio( ).getNumero( ), despachados, precio );
+        return precio;
+    }
+
+    /**
+     * Libera una reserva sin despachar nada: toda la gasolina reservada vuelve al inventario
+     * @param reserva La reserva
+     * @return true si la reserva estaba pendiente; false si ya se había confirmado, liberado o vencido
+     */
+    public boolean liberarReserva( Reserva reserva )
+    {
+        return terminarReserva( reserva, Reserva.Estado.LIBERADA );
+    }
+
+    /**
+     * Termina una reserva sin despachar nada, si todavía estaba pendiente, y devuelve al inventario la gasolina reservada
+     * @param reserva La reserva
+     * @param estadoFinal El estado con el que termina: LIBERADA o VENCIDA
+     * @return true si la reserva estaba pendiente
+     */
+    private boolean terminarReserva( Reserva reserva, Reserva.Estado estadoFinal )
+    {
+        if( !reserva.terminar( estadoFinal ) )
+        {
+            return false;
+        }
+        int franja = puertaVentas.entrar( );
+        try
+        {
+            tiposGasolina.getTipo( reserva.getIdTipoGasolina( ) ).terminarReserva( reserva.getMicrogalonesReservados( ), 0 );
+        }
+        finally
+        {
+            puertaVentas.salir( franja );
+        }
+        return true;
+    }
+
+    /**
+     * Retorna la rueda que vence las reservas, creándola si todavía no existe
+     * @return La rueda de las reservas
+     */
+    private RuedaTemporizadora getRuedaReservas( )
+    {
+        RuedaTemporizadora rueda = ruedaReservas;
+        if( rueda == null )
+        {
+            synchronized( this )
             {
-                String nombreEmpleado = partes[ 1 ];
-                if( !empleados.containsKey( nombreEmpleado ) )
+                if( ruedaReservas == null )
                 {
-                    empleados.put( nombreEmpleado, new Empleado( nombreEmpleado ) );
+                    ruedaReservas = new RuedaTemporizadora( 10, TimeUnit.MILLISECONDS, 512, "reservas-gasolinera" );
                 }
-                Empleado empleadoAsignado = empleados.get( nombreEmpleado );
-                Surtidor nuevoSurtidor = new Surtidor( tipos, empleadoAsignado );
-                for( int pos = 2; pos < partes.length; pos += 2 )
+                rueda = ruedaReservas;
+            }
+        }
+        return rueda;
+    }
+
+    /**
+     * Cierra la gasolinera: detiene el hilo de la rueda que vence las reservas. Las reservas que sigan pendientes ya no vencen solas, pero todavía se pueden
+     * confirmar o liberar. Si después se hace otra reserva, se vuelve a crear la rueda.
+     * 
+     * El diario, los eventos y las métricas no se cierran acá: se desactivan con sus propios métodos.
+     */
+    public synchronized void cerrar( )
+    {
+        if( ruedaReservas != null )
+        {
+            ruedaReservas.detener( );
+            ruedaReservas = null;
+        }
+    }
+
+    /**
+     * Vende un lote de solicitudes de venta, por cantidad o por precio, de cualquier tipo de gasolina y en cualquier surtidor.
+     * 
+     * El resultado es el mismo que si se vendieran las solicitudes una por una en el orden del lote: cuando no alcanza la gasolina de un tipo, las primeras solicitudes
+     * de ese tipo reciben todo lo que pidieron y las siguientes reciben lo que quede. La diferencia es que el inventario de cada tipo de gasolina se actualiza una
+     * sola vez por lote, con la suma de lo que se pidió de ese tipo, en lugar de una vez por venta.
+     * 
+     * Antes de vender cualquier solicitud se verifica que todas sean válidas, así que si el lote tiene una solicitud inválida no se vende ninguna.
+     * @param solicitudes Las solicitudes de venta, en el orden en el que llegaron
+     * @return El precio cobrado en cada venta y la lista de ventas en las que no alcanzó la gasolina
+     * @throws IllegalArgumentException Se lanza esta excepción si alguna solicitud es de un tipo de gasolina que no se vende en la gasolinera o de un surtidor que no
+     *         existe
+     */
+    public ResultadoLote venderLote( List<SolicitudVenta> solicitudes )
+    {
+        int cantidadSolicitudes = solicitudes.size( );
+        int[] idsTipos = new int[cantidadSolicitudes];
+        long[] microgalonesSolicitados = new long[cantidadSolicitudes];
+        long[] microgalonesPorTipo = new long[tiposGasolina.getCantidadTipos( )];
+
+        // Todo el lote se cobra con la versión del precio de cada tipo vigente al empezar
+        VersionPrecio[] versionesPrecio = new VersionPrecio[microgalonesPorTipo.length];
+        for( int idTipo = 0; idTipo < versionesPrecio.length; idTipo++ )
+        {
+            versionesPrecio[ idTipo ] = tiposGasolina.getTipo( idTipo ).getVersionPrecio( );
+        }
+
+        // Validar las solicitudes y agrupar por tipo de gasolina lo que se pidió
+        int posicion = 0;
+        for( SolicitudVenta solicitud : solicitudes )
+        {
+            int idTipo = tiposGasolina.getIdentificador( solicitud.getNombreTipoGasolina( ) );
+            if( idTipo == -1 )
+            {
+                throw new IllegalArgumentException( "En la gasolinera no se vende el tipo de gasolina " + solicitud.getNombreTipoGasolina( ) );
+            }
+            if( solicitud.getNumeroSurtidor( ) < 0 || solicitud.getNumeroSurtidor( ) >= surtidores.getCantidadSurtidores( ) )
+            {
+                throw new IllegalArgumentException( "No existe el surtidor " + solicitud.getNumeroSurtidor( ) );
+            }
+            idsTipos[ posicion ] = idTipo;
+            microgalonesSolicitados[ posicion ] = TipoGasolina.aMicrogalones( solicitud.calcularGalonesSolicitados( versionesPrecio[ idTipo ].getPrecioPorGalon( ) ) );
+            microgalonesPorTipo[ idTipo ] += microgalonesSolicitados[ posicion ];
+            posicion++;
+        }
+
+        int[] precios = new int[cantidadSolicitudes];
+        int[] posicionesEmpleados = new int[cantidadSolicitudes];
+        long[] microgalonesEntregados = new long[cantidadSolicitudes];
+        List<ResultadoLote.VentaParcial> ventasParciales = new ArrayList<ResultadoLote.VentaParcial>( );
+        MetricasGasolinera lasMetricas = metricas;
+        int franja = puertaVentas.entrar( );
+        try
+        {
+            // Actualizar el inventario una sola vez por tipo de gasolina. Después de esto, microgalonesPorTipo tiene lo que queda por repartir de cada tipo
+            for( int idTipo = 0; idTipo < microgalonesPorTipo.length; idTipo++ )
+            {
+                if( microgalonesPorTipo[ idTipo ] > 0 )
                 {
-                    String tipo = partes[ pos ];
-                    double cantidad = Double.parseDouble( partes[ pos + 1 ] );
-                    nuevoSurtidor.cambiarGalonesVendidos( tipo, cantidad );
+                    microgalonesPorTipo[ idTipo ] = tiposGasolina.getTipo( idTipo ).despacharMicrogalonesHasta( microgalonesPorTipo[ idTipo ] );
                 }
-                surtidores.add( nuevoSurtidor );
             }
-            else if( partes[ 0 ].equals( "empleado" ) )
+
+            // Repartir lo despachado en el orden de llegada y registrar cada venta en su surtidor
+            posicion = 0;
+            for( SolicitudVenta solicitud : solicitudes )
             {
-                String nombreEmpleado = partes[ 1 ];
-                int dinero = Integer.parseInt( partes[ 2 ] );
-                if( !empleados.containsKey( nombreEmpleado ) )
+                int idTipo = idsTipos[ posicion ];
+                long entregados = Math.min( microgalonesSolicitados[ posicion ], microgalonesPorTipo[ idTipo ] );
+                microgalonesPorTipo[ idTipo ] -= entregados;
+
+                double cantidadEntregada = TipoGasolina.aGalones( entregados );
+                posicionesEmpleados[ posicion ] = surtidores.getPosicionEmpleadoAsignado( solicitud.getNumeroSurtidor( ) );
+                microgalonesEntregados[ posicion ] = entregados;
+                precios[ posicion ] = registrarVenta( solicitud.getNumeroSurtidor( ), idTipo, cantidadEntregada, versionesPrecio[ idTipo ], posicionesEmpleados[ posicion ] );
+                if( entregados < microgalonesSolicitados[ posicion ] )
                 {
-                    empleados.put( nombreEmpleado, new Empleado( nombreEmpleado ) );
+                    ventasParciales.add( new ResultadoLote.VentaParcial( posicion, TipoGasolina.aGalones( microgalonesSolicitados[ posicion ] ), cantidadEntregada ) );
                 }
-                Empleado nuevoEmpleado = empleados.get( nombreEmpleado );
-                nuevoEmpleado.agregarDinero( dinero );
+                if( lasMetricas != null )
+                {
+                    lasMetricas.registrarVenta( solicitud.getNumeroSurtidor( ), idTipo, entregados < microgalonesSolicitados[ posicion ], precios[ posicion ] );
+                }
+                posicion++;
             }
-
-            line = br.readLine( );
         }
-        br.close( );
+        finally
+        {
+            puertaVentas.salir( franja );
+        }
 
-        Gasolinera nuevaGasolinera = new Gasolinera( surtidores, tipos.values( ), empleados.values( ) );
-        return nuevaGasolinera;
+        // Los eventos se publican después de salir de la puerta, igual que en las ventas individuales
+        posicion = 0;
+        for( SolicitudVenta solicitud : solicitudes )
+        {
+            int idTipo = idsTipos[ posicion ];
+            surtidores.publicarVenta( solicitud.getNumeroSurtidor( ), idTipo, posicionesEmpleados[ posicion ], versionesPrecio[ idTipo ].getNumero( ),
+                    microgalonesEntregados[ posicion ], precios[ posicion ] );
+            posicion++;
+        }
+        return new ResultadoLote( precios, ventasParciales );
     }
 
+    /**
+     * Guarga la información actual de la gasolinera en un archivo.
+     * 
+     * Si el archivo ya existe, se sobreescribe. Si las ventas se están registrando en un diario, después de guardar se borran del diario las ventas que quedaron
+     * incluidas en el archivo. Este método puede llamarse mientras otros hilos están vendiendo gasolina: el archivo tiene el estado del momento en el que se capturó
+     * (ver capturarEstado).
+     * @param archivo El archivo donde se guardará la información
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo en el archivo
+     */
+    public void guardarEstado( File archivo ) throws IOException
+    {
+        long inicio = System.nanoTime( );
+        EstadoGasolinera estado = capturarEstado( );
+        estado.guardarTexto( archivo );
+        confirmarGuardado( estado );
+        registrarGuardado( inicio );
+    }
+
+    /**
+     * Guarda la información actual de la gasolinera en un archivo binario (ver InstantaneaBinaria), que es más compacto y mucho más rápido de cargar que el archivo de
+     * texto que escribe guardarEstado. El archivo se puede cargar con el mismo método cargarEstado.
+     * 
+     * Igual que con guardarEstado, si el archivo ya existe se sobreescribe y, si las ventas se están registrando en un diario, después de guardar se borran del diario
+     * las ventas que quedaron incluidas en el archivo.
+     * @param archivo El archivo donde se guardará la información
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo en el archivo
+     */
+    public void guardarEstadoBinario( File archivo ) throws IOException
+    {
+        long inicio = System.nanoTime( );
+        EstadoGasolinera estado = capturarEstado( );
+        estado.guardarBinario( archivo );
+        confirmarGuardado( estado );
+        registrarGuardado( inicio );
+    }
+
+    /**
+     * Registra en las métricas, si están activas, el tiempo de un guardado que acaba de terminar
+     * @param inicio El momento en el que empezó el guardado, según System.nanoTime
+     */
+    private void registrarGuardado( long inicio )
+    {
+        MetricasGasolinera lasMetricas = metricas;
+        if( lasMetricas != null )
+        {
+            lasMetricas.registrarGuardado( System.nanoTime( ) - inicio );
+        }
+    }
+
+    /**
+     * Activa las métricas de la gasolinera (ver MetricasGasolinera): desde ahora se cuentan las ventas y se mide su latencia y la de los guardados. Si las métricas
+     * ya estaban activas, se siguen usando las mismas
+     * @return Las métricas de la gasolinera
+     */
+    public synchronized MetricasGasolinera activarMetricas( )
+    {
+        if( metricas == null )
+        {
+            metricas = new MetricasGasolinera( this );
+        }
+        return metricas;
+    }
+
+    /**
+     * Activa las métricas de la gasolinera y las publica por JMX con un nombre (ver MetricasGasolinera.registrarEnJMX)
+     * @param nombre El nombre con el que se publica la gasolinera
+     * @return Las métricas de la gasolinera
+     * @throws JMException Se lanza esta excepción si no se pudieron publicar las métricas
+     */
+    public synchronized MetricasGasolinera activarMetricas( String nombre ) throws JMException
+    {
+        MetricasGasolinera lasMetricas = activarMetricas( );
+        lasMetricas.registrarEnJMX( nombre );
+        return lasMetricas;
+    }
+
+    /**
+     * Apaga las métricas de la gasolinera y las retira de JMX si estaban publicadas. Si se vuelven a activar, empiezan otra vez desde 0
+     * @throws JMException Se lanza esta excepción si no se pudieron retirar las métricas de JMX
+     */
+    public synchronized void desactivarMetricas( ) throws JMException
+    {
+        MetricasGasolinera lasMetricas = metricas;
+        metricas = null;
+        if( lasMetricas != null )
+        {
+            lasMetricas.retirarDeJMX( );
+        }
+    }
+
+    /**
+     * Retorna las métricas de la gasolinera
+     * @return Las métricas, o null si están apagadas
+     */
+    public MetricasGasolinera getMetricas( )
+    {
+        return metricas;
+    }
+
+    /**
+     * Empieza a publicar cada venta de la gasolinera en un bus de ventas, al que se le pueden agregar consumidores (ver BusVentas.agregarConsumidor). Si ya había un
+     * bus, se sigue usando el mismo
+     * @param capacidad La cantidad de eventos que caben en el anillo del bus
+     * @param unSoloProductor true si las ventas se van a hacer desde un solo hilo
+     * @return El bus de ventas de la gasolinera
+     */
+    public synchronized BusVentas activarEventos( int capacidad, boolean unSoloProductor )
+    {
+        BusVentas elBus = surtidores.getBusVentas( );
+        if( elBus == null )
+        {
+            elBus = new BusVentas( capacidad, unSoloProductor );
+            surtidores.setBusVentas( elBus );
+        }
+        return elBus;
+    }
+
+    /**
+     * Deja de publicar las ventas y detiene los consumidores del bus, después de que procesen las ventas que ya se habían publicado
+     * @throws InterruptedException Se lanza esta excepción si el hilo se interrumpe mientras espera a los consumidores
+     */
+    public synchronized void desactivarEventos( ) throws InterruptedException
+    {
+        BusVentas elBus = surtidores.getBusVentas( );
+        surtidores.setBusVentas( null );
+        if( elBus != null )
+        {
+            elBus.detener( );
+        }
+    }
+
+    /**
+     * Retorna el bus donde se publican las ventas de la gasolinera
+     * @return El bus, o null si las ventas no se están publicando
+     */
+    public BusVentas getEventos( )
+    {
+        return surtidores.getBusVentas( );
+    }
+
+    /**
+     * Empieza a acumular las ventas de los últimos minutos y horas, por surtidor y tipo de gasolina y por empleado (ver VentasRecientes). Las ventas se acumulan en
+     * la tabla de surtidores, así que también se cuentan las que se hacen directamente en la tabla o en un Surtidor. Si ya se estaban acumulando, no se hace nada
+     * @return Las ventas recientes de la gasolinera
+     */
+    public synchronized VentasRecientes activarVentasRecientes( )
+    {
+        if( surtidores.getVentasRecientes( ) == null )
+        {
+            surtidores.setVentasRecientes( new VentasRecientes( this ) );
+        }
+        return surtidores.getVentasRecientes( );
+    }
+
+    /**
+     * Deja de acumular las ventas recientes. Lo acumulado hasta ahora se pierde
+     */
+    public synchronized void desactivarVentasRecientes( )
+    {
+        surtidores.setVentasRecientes( null );
+    }
+
+    /**
+     * Retorna las ventas de los últimos minutos y horas
+     * @return Las ventas recientes, o null si no se están acumulando
+     */
+    public VentasRecientes getVentasRecientes( )
+    {
+        return surtidores.getVentasRecientes( );
+    }
+
+    /**
+     * Retorna el tiempo que tomó cargar la gasolinera de sus archivos con cargarEstado
+     * @return El tiempo en nanosegundos, o 0 si la gasolinera no se cargó de un archivo
+     */
+    public long getNanosegundosCarga( )
+    {
+        return nanosegundosCarga;
+    }
+
+    /**
+     * Captura una copia del estado actual de la gasolinera, que después se puede guardar en un archivo (ver EstadoGasolinera y GuardadoEnSegundoPlano).
+     * 
+     * Mientras se copia el estado no se pueden empezar ventas nuevas, y la copia espera a que terminen las que están en curso: así, cada venta queda completa en la
+     * copia o no queda. La copia sólo recorre arreglos en memoria, así que las ventas se detienen por muy poco tiempo.
+     * 
+     * Capturar el estado quita las marcas de lo que ha cambiado en la gasolinera, pero la gasolinera las conserva hasta que se confirma que el estado quedó guardado
+     * (ver confirmarGuardado). Si el estado no se alcanza a guardar, o se captura sin confirmarlo, esos cambios siguen yendo en el siguiente archivo de cambios.
+     * 
+     * Este método no debe llamarse desde un hilo que esté haciendo una venta.
+     * @return La copia del estado
+     */
+    public EstadoGasolinera capturarEstado( )
+    {
+        puertaVentas.cerrar( );
+        try
+        {
+            long generacion = tomarMarcas( );
+            return new EstadoGasolinera( tiposGasolina, surtidores, empleados.values( ), diario, generacion );
+        }
+        finally
+        {
+            puertaVentas.abrir( );
+        }
+    }
+
+    /**
+     * Le asigna otro empleado a un surtidor sin detener las ventas. Cada venta se le abona al empleado que estaba asignado cuando se registró: las ventas en curso
+     * pueden quedar a nombre del empleado anterior, pero ninguna queda a nombre de los dos. Si las ventas se están registrando en un diario, la reasignación también
+     * queda en el diario.
+     * @param numeroSurtidor El número del surtidor
+     * @param nombreEmpleado El nombre del empleado que va a atender el surtidor
+     * @throws IllegalArgumentException Se lanza esta excepción si la gasolinera no tiene un empleado con ese nombre
+     */
+    public void reasignarSurtidor( int numeroSurtidor, String nombreEmpleado )
+    {
+        Empleado empleado = buscarEmpleado( nombreEmpleado );
+
+        // Igual que los cambios de precio, la reasignación pasa por la puerta de las ventas: un estado capturado la tiene sólo si el diario también la tiene
+        int franja = puertaVentas.entrar( );
+        try
+        {
+            // La tabla se bloquea mientras se registra, para que las reasignaciones queden en el diario en el mismo orden en que se hicieron
+            synchronized( surtidores )
+            {
+                surtidores.reasignar( numeroSurtidor, empleado );
+                DiarioVentas elDiario = diario;
+                if( elDiario != null )
+                {
+                    elDiario.registrarAsignacion( numeroSurtidor, empleado );
+                }
+            }
+        }
+        finally
+        {
+            puertaVentas.salir( franja );
+        }
+    }
+
+    /**
+     * Cambia el turno en todos los surtidores al mismo tiempo, sin detener las ventas: todas las asignaciones nuevas se publican juntas, así que ninguna venta ve
+     * unos surtidores con el turno nuevo y otros con el anterior. Si las ventas se están registrando en un diario, los surtidores que cambiaron de empleado quedan en
+     * el diario.
+     * @param nombresEmpleados El nombre del nuevo empleado de cada surtidor, en el orden de los surtidores. Si una posición es null, ese surtidor conserva su
+     *        empleado
+     * @throws IllegalArgumentException Se lanza esta excepción si la cantidad de nombres no es la cantidad de surtidores o si algún nombre no es de un empleado de la
+     *         gasolinera
+     */
+    public void cambiarTurno( String[] nombresEmpleados )
+    {
+        Empleado[] empleadosSurtidores = new Empleado[nombresEmpleados.length];
+        for( int i = 0; i < nombresEmpleados.length; i++ )
+        {
+            if( nombresEmpleados[ i ] != null )
+            {
+                empleadosSurtidores[ i ] = buscarEmpleado( nombresEmpleados[ i ] );
+            }
+        }
+        cambiarTurno( empleadosSurtidores );
+    }
+
+    /**
+     * Cambia el turno en todos los surtidores al mismo tiempo, repartiendo los surtidores entre los empleados del nuevo turno con una estrategia (ver Sorteo). Igual
+     * que con cambiarTurno, todas las asignaciones nuevas se publican juntas y las ventas no se detienen
+     * @param nombresEmpleados Los nombres de los empleados del nuevo turno. Las estrategias ven a los empleados en este orden
+     * @param estrategia La estrategia con la que se le asigna un empleado a cada surtidor
+     * @throws IllegalArgumentException Se lanza esta excepción si no hay nombres o si algún nombre no es de un empleado de la gasolinera
+     */
+    public void cambiarTurno( String[] nombresEmpleados, EstrategiaAsignacion estrategia )
+    {
+        if( nombresEmpleados.length == 0 )
+        {
+            throw new IllegalArgumentException( "El turno debe tener al menos un empleado" );
+        }
+        Empleado[] turno = new Empleado[nombresEmpleados.length];
+        for( int i = 0; i < nombresEmpleados.length; i++ )
+        {
+            turno[ i ] = buscarEmpleado( nombresEmpleados[ i ] );
+        }
+
+        int[] asignaciones = estrategia.asignar( surtidores.getCantidadSurtidores( ), new int[turno.length] );
+        Empleado[] empleadosSurtidores = new Empleado[asignaciones.length];
+        for( int i = 0; i < asignaciones.length; i++ )
+        {
+            empleadosSurtidores[ i ] = turno[ asignaciones[ i ] ];
+        }
+        cambiarTurno( empleadosSurtidores );
+    }
+
+    /**
+     * Cambia el turno en la tabla de surtidores y registra en el diario, si está activo, cada surtidor que cambió de empleado. Igual que en reasignarSurtidor, el
+     * cambio pasa por la puerta de las ventas y se registra con la tabla bloqueada
+     * @param empleadosSurtidores El nuevo empleado de cada surtidor, en el orden de los surtidores. Si una posición es null, ese surtidor conserva su empleado
+     */
+    private void cambiarTurno( Empleado[] empleadosSurtidores )
+    {
+        int franja = puertaVentas.entrar( );
+        try
+        {
+            synchronized( surtidores )
+            {
+                int[] anteriores = surtidores.copiarAsignaciones( );
+                surtidores.cambiarTurno( empleadosSurtidores );
+                DiarioVentas elDiario = diario;
+                if( elDiario != null )
+                {
+                    int[] nuevas = surtidores.copiarAsignaciones( );
+                    for( int i = 0; i < nuevas.length; i++ )
+                    {
+                        if( nuevas[ i ] != anteriores[ i ] )
+                        {
+                            elDiario.registrarAsignacion( i, empleadosSurtidores[ i ] );
+                        }
+                    }
+                }
+            }
+        }
+        finally
+        {
+            puertaVentas.salir( franja );
+        }
+    }
+
+    /**
+     * Busca un empleado de la gasolinera por su nombre
+     * @param nombreEmpleado El nombre del empleado
+     * @return El empleado
+     * @throws IllegalArgumentException Se lanza esta excepción si la gasolinera no tiene un empleado con ese nombre
+     */
+    private Empleado buscarEmpleado( String nombreEmpleado )
+    {
+        Empleado empleado = empleados.get( nombreEmpleado );
+        if( empleado == null )
+        {
+            throw new IllegalArgumentException( "La gasolinera no tiene al empleado " + nombreEmpleado );
+        }
+        return empleado;
+    }
+
+    /**
+     * Cierra el turno de todos los empleados de la gasolinera (ver Empleado.cerrarTurno). Mientras se cierran los turnos no hay ventas en curso, así que todos los
+     * turnos se cierran en el mismo momento: cada venta queda completa en los turnos cerrados o en los siguientes
+     * @return Un mapa con el dinero que recogió cada empleado en el turno: las llaves son los nombres de los empleados
+     */
+    public Map<String, Long> cerrarTurnos( )
+    {
+        Map<String, Long> recaudos = new HashMap<String, Long>( );
+        puertaVentas.cerrar( );
+        try
+        {
+            for( Empleado empleado : empleados.values( ) )
+            {
+                recaudos.put( empleado.getNombre( ), empleado.cerrarTurno( ) );
+            }
+        }
+        finally
+        {
+            puertaVentas.abrir( );
+        }
+        return recaudos;
+    }
+
+    /**
+     * Informa que un estado capturado ya quedó guardado en un archivo, para olvidar las marcas de lo que había cambiado hasta la captura y borrar del diario de ventas
+     * las ventas que quedaron incluidas en ese archivo. El archivo pasa a ser la base de los siguientes archivos de cambios. Si el diario que estaba activo al
+     * capturar el estado ya no está activo, no se borra nada del diario.
+     * 
+     * Los guardados pueden confirmarse en cualquier orden: si ya se confirmó un estado capturado después de este, sus marcas y sus ventas ya se olvidaron y no se
+     * hace nada (ver DiarioVentas.descartarHasta).
+     * @param estado El estado que se guardó
+     * @throws IOException Se lanza esta excepción si hay problemas modificando el diario
+     */
+    public void confirmarGuardado( EstadoGasolinera estado ) throws IOException
+    {
+        olvidarMarcasHasta( estado.getGeneracionMarcas( ) );
+        DiarioVentas elDiario = diario;
+        if( elDiario != null && elDiario == estado.getDiario( ) )
+        {
+            elDiario.descartarHasta( estado.getPosicionDiario( ) );
+        }
+    }
+
+    /**
+     * Guarda en un archivo sólo la información que ha cambiado desde la última vez que se guardó la gasolinera, ya sea completa (con guardarEstado) o sólo con los
+     * cambios (con este método). El archivo tiene los tipos de gasolina, los surtidores y los empleados que cambiaron, con su estado actual, y el empleado de los
+     * surtidores que se reasignaron.
+     * 
+     * Para recuperar el estado de la gasolinera hay que cargar el último archivo completo y luego aplicar, en orden, todos los archivos de cambios guardados después
+     * (ver cargarEstado con una lista de archivos de cambios). Si las ventas se están registrando en un diario, después de guardar se borran del diario las ventas
+     * que quedaron incluidas en el archivo, y las demás se pueden reproducir encima de los archivos (ver cargarEstado con archivos de cambios y diario).
+     * 
+     * Igual que en capturarEstado, las marcas se quitan y los valores se copian mientras no se pueden empezar ventas nuevas, junto con la posición del diario en ese
+     * momento: cada venta queda completa en el archivo o en lo que queda del diario, pero no en los dos. El archivo se escribe después, sin detener las ventas. El
+     * archivo también tiene lo que cambió antes de capturas cuyo guardado no se ha confirmado.
+     * 
+     * El archivo se escribe primero en un archivo temporal que después reemplaza al anterior, así que nunca queda un archivo de cambios a medias. Las marcas y las
+     * ventas del diario sólo se olvidan cuando el archivo quedó en su lugar: si algo falla, el siguiente archivo de cambios vuelve a tener esos cambios.
+     * @param archivoCambios El archivo donde se guardarán los cambios. Si ya existe, se sobreescribe
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo en el archivo
+     */
+    public void guardarCambios( File archivoCambios ) throws IOException
+    {
+        StringWriter cambios = new StringWriter( );
+        PrintWriter writer = new PrintWriter( cambios );
+        writer.println( "cambios" );
+
+        DiarioVentas elDiario;
+        long posicionDiario;
+        long generacion;
+        puertaVentas.cerrar( );
+        try
+        {
+            elDiario = diario;
+            posicionDiario = elDiario != null ? elDiario.getPosicionFinal( ) : 0;
+            generacion = escribirCambios( writer );
+        }
+        finally
+        {
+            puertaVentas.abrir( );
+        }
+
+        // El archivo se escribe primero en un archivo temporal que después reemplaza al anterior. Si algo falla antes, las marcas tomadas y las ventas del diario
+        // se conservan para el siguiente archivo de cambios
+        File temporal = new File( archivoCambios.getPath( ) + ".tmp" );
+        Writer archivo = new FileWriter( temporal );
+        try
+        {
+            archivo.write( cambios.toString( ) );
+        }
+        finally
+        {
+            archivo.close( );
+        }
+        Files.move( temporal.toPath( ), archivoCambios.toPath( ), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+
+        olvidarMarcasHasta( generacion );
+        if( elDiario != null )
+        {
+            elDiario.descartarHasta( posicionDiario );
+        }
+    }
+
+    /**
+     * Escribe las líneas de un archivo de cambios con lo que ha cambiado en la gasolinera desde el último archivo confirmado, y quita las marcas. Debe llamarse
+     * mientras no se pueden empezar ventas
+     * @param writer Donde se escriben las líneas
+     * @return La generación de las marcas que se quitaron, para olvidarlas cuando el archivo quede guardado
+     */
+    private long escribirCambios( PrintWriter writer )
+    {
+        long generacion = tomarMarcas( );
+        MarcasTomadas cambios = new MarcasTomadas( generacion );
+        synchronized( marcasSinGuardar )
+        {
+            for( MarcasTomadas marcas : marcasSinGuardar )
+            {
+                cambios.agregar( marcas );
+            }
+        }
+
+        // Guardar la información de los tipos de gasolina que cambiaron
+        for( int idTipo = 0; idTipo < tiposGasolina.getCantidadTipos( ); idTipo++ )
+        {
+            if( cambios.tieneTipo( idTipo ) )
+            {
+                TipoGasolina tipo = tiposGasolina.getTipo( idTipo );
+                VersionPrecio versionPrecio = tipo.getVersionPrecio( );
+                writer.println( "tipo:" + tipo.getNombre( ) + ":" + versionPrecio.getPrecioPorGalon( ) + ":" + TipoGasolina.aGalones( tipo.getMicrogalonesEnTanque( ) ) + ":"
+                        + versionPrecio.getNumero( ) + ":" + versionPrecio.getDesde( ) );
+            }
+        }
+
+        // Guardar la información de los surtidores que cambiaron, indicando el número de cada uno
+        BitSet surtidoresModificados = cambios.getSurtidores( );
+        for( int numeroSurtidor = surtidoresModificados.nextSetBit( 0 ); numeroSurtidor >= 0; numeroSurtidor = surtidoresModificados.nextSetBit( numeroSurtidor + 1 ) )
+        {
+            writer.print( "surtidor:" + numeroSurtidor );
+            for( int idTipo = 0; idTipo < tiposGasolina.getCantidadTipos( ); idTipo++ )
+            {
+                writer.print( ":" + tiposGasolina.getTipo( idTipo ).getNombre( ) + ":" + surtidores.getGalonesVendidos( numeroSurtidor, idTipo ) );
+            }
+            writer.println( );
+        }
+
+        // Guardar el empleado actual de los surtidores que se reasignaron
+        BitSet asignacionesModificadas = cambios.getAsignaciones( );
+        for( int numeroSurtidor = asignacionesModificadas.nextSetBit( 0 ); numeroSurtidor >= 0; numeroSurtidor = asignacionesModificadas.nextSetBit( numeroSurtidor + 1 ) )
+        {
+            writer.println( "asignacion:" + numeroSurtidor + ":" + surtidores.getEmpleadoAsignado( numeroSurtidor ).getNombre( ) );
+        }
+
+        // Guardar la información de los empleados que cambiaron
+        for( Empleado emp : empleados.values( ) )
+        {
+            if( cambios.tieneEmpleado( emp ) )
+            {
+                writer.println( "empleado:" + emp.getNombre( ) + ":" + emp.getCantidadDinero( ) );
+            }
+        }
+        writer.flush( );
+        return generacion;
+    }
+
+    /**
+     * Aplica sobre la gasolinera los cambios guardados en un archivo con guardarCambios
+     * @param archivoCambios El archivo con los cambios
+     * @throws IOException Se lanza esta excepción si el archivo no se puede leer o no es un archivo de cambios de esta gasolinera
+     * @throws NumberFormatException Se lanza esta excepción si alguno de los números dentro del archivo tiene el formato equivocado
+     */
+    public void aplicarCambios( File archivoCambios ) throws IOException, NumberFormatException
+    {
+        BufferedReader br = new BufferedReader( new FileReader( archivoCambios ) );
+        try
+        {
+            String line = br.readLine( );
+            if( !"cambios".equals( line ) )
+            {
+                throw new IOException( "El archivo " + archivoCambios + " no es un archivo de cambios" );
+            }
+
+            line = br.readLine( );
+            while( line != null )
+            {
+                String[] partes = line.split( ":" );
+                if( partes[ 0 ].equals( "tipo" ) )
+                {
+                    TipoGasolina tipo = tiposGasolina.getTipo( partes[ 1 ] );
+                    if( tipo == null )
+                    {
+                        throw new IOException( "La gasolinera no tiene el tipo de gasolina " + partes[ 1 ] );
+                    }
+                    tipo.cambiarCantidadDisponible( Double.parseDouble( partes[ 3 ] ) );
+                    if( partes.length > 4 )
+                    {
+                        // Los archivos de cambios anteriores no tienen el momento en el que se publicó la versión del precio
+                        long desde = partes.length > 5 ? Long.parseLong( partes[ 5 ] ) : System.currentTimeMillis( );
+                        tipo.restaurarPrecio( Integer.parseInt( partes[ 4 ] ), Integer.parseInt( partes[ 2 ] ), desde );
+                    }
+                }
+                else if( partes[ 0 ].equals( "surtidor" ) )
+                {
+                    int numeroSurtidor = Integer.parseInt( partes[ 1 ] );
+                    for( int pos = 2; pos < partes.length; pos += 2 )
+                    {
+                        int idTipo = tiposGasolina.getIdentificador( partes[ pos ] );
+                        if( idTipo != -1 )
+                        {
+                            surtidores.cambiarGalonesVendidos( numeroSurtidor, idTipo, Double.parseDouble( partes[ pos + 1 ] ) );
+                        }
+                    }
+                }
+                else if( partes[ 0 ].equals( "asignacion" ) )
+                {
+                    Empleado empleado = empleados.get( partes[ 2 ] );
+                    if( empleado == null )
+                    {
+                        throw new IOException( "La gasolinera no tiene al empleado " + partes[ 2 ] );
+                    }
+                    surtidores.reasignar( Integer.parseInt( partes[ 1 ] ), empleado );
+                }
+                else if( partes[ 0 ].equals( "empleado" ) )
+                {
+                    Empleado empleado = empleados.get( partes[ 1 ] );
+                    if( empleado == null )
+                    {
+                        throw new IOException( "La gasolinera no tiene al empleado " + partes[ 1 ] );
+                    }
+                    empleado.agregarDinero( Long.parseLong( partes[ 2 ] ) - empleado.getCantidadDinero( ) );
+                }
+                line = br.readLine( );
+            }
+        }
+        finally
+        {
+            br.close( );
+        }
+    }
+
+    /**
+     * Quita las marcas de todo lo que ha cambiado en la gasolinera y olvida las que se habían tomado, para que el siguiente archivo de cambios sólo tenga lo que
+     * cambie de acá en adelante
+     */
+    private void descartarModificaciones( )
+    {
+        MarcasTomadas.tomar( 0, tiposGasolina, surtidores, empleados.values( ) );
+        synchronized( marcasSinGuardar )
+        {
+            marcasSinGuardar.clear( );
+        }
+    }
+
+    /**
+     * Quita las marcas de todo lo que ha cambiado en la gasolinera y las conserva en un grupo nuevo, hasta que un archivo que las incluya quede guardado. Debe
+     * llamarse mientras la puerta de las ventas está cerrada
+     * @return La generación del grupo de marcas
+     */
+    private long tomarMarcas( )
+    {
+        generacionMarcas++;
+        MarcasTomadas marcas = MarcasTomadas.tomar( generacionMarcas, tiposGasolina, surtidores, empleados.values( ) );
+        synchronized( marcasSinGuardar )
+        {
+            marcasSinGuardar.addLast( marcas );
+            if( marcasSinGuardar.size( ) > MAXIMO_MARCAS_SIN_GUARDAR )
+            {
+                // Juntar el grupo más antiguo con el siguiente: el grupo junto se conserva un poco más, así que a lo sumo algún cambio se guarda dos veces
+                MarcasTomadas masAntiguas = marcasSinGuardar.removeFirst( );
+                marcasSinGuardar.getFirst( ).agregar( masAntiguas );
+            }
+        }
+        return generacionMarcas;
+    }
+
+    /**
+     * Olvida las marcas que quedaron incluidas en un archivo guardado: las de su generación y las anteriores
+     * @param generacion La generación de las marcas que se tomaron al preparar el archivo
+     */
+    private void olvidarMarcasHasta( long generacion )
+    {
+        synchronized( marcasSinGuardar )
+        {
+            while( !marcasSinGuardar.isEmpty( ) && marcasSinGuardar.getFirst( ).getGeneracion( ) <= generacion )
+            {
+                marcasSinGuardar.removeFirst( );
+            }
+        }
+    }
+
+    /**
+     * Carga toda la información de una gasolinera a partir de un archivo y retorna una nueva Gasolinera inicializada con esa información.
+     * 
+     * El archivo puede ser de texto (escrito con guardarEstado) o binario (escrito con guardarEstadoBinario): el formato se reconoce por el número con el que empiezan
+     * los archivos binarios.
+     * @param archivo El archivo que contiene la información que se va a cargar
+     * @return Una nueva gasolinera con su estado inicializado con la información del archivo
+     * @throws FileNotFoundException Se lanza esta excepción si el archivo no se encuentra
+     * @throws IOException Se lanza esta excepción si el archivo no se puede leer. Si el archivo no tiene el formato esperado, se lanza una FormatoArchivoException
+     *         que indica la línea y la columna del problema
+     * @throws NumberFormatException Se lanza esta excepción si alguno de los números dentro del archivo tiene el formato equivocado
+     */
+    public static Gasolinera cargarEstado( File archivo ) throws FileNotFoundException, IOException, NumberFormatException
+    {
+        long inicio = System.nanoTime( );
+        Gasolinera nuevaGasolinera;
+        if( InstantaneaBinaria.esInstantaneaBinaria( archivo ) )
+        {
+            nuevaGasolinera = InstantaneaBinaria.cargar( archivo );
+        }
+        else
+        {
+            LectorGasolinera lector = new LectorGasolinera( new FileReader( archivo ), archivo.getPath( ) );
+            nuevaGasolinera = lector.leer( );
+        }
+        nuevaGasolinera.nanosegundosCarga = System.nanoTime( ) - inicio;
+        return nuevaGasolinera;
+    }
+
+    /**
+     * Carga toda la información de una gasolinera a partir del último archivo completo y luego le aplica, en orden, los archivos de cambios que se guardaron después
+     * @param archivo El archivo que contiene la información completa de la gasolinera
+     * @param archivosCambios Los archivos de cambios, en el orden en el que se guardaron
+     * @return Una nueva gasolinera con su estado inicializado con la información de todos los archivos
+     * @throws FileNotFoundException Se lanza esta excepción si alguno de los archivos no se encuentra
+     * @throws IOException Se lanza esta excepción si alguno de los archivos no se puede leer, o si un archivo de cambios no corresponde a la gasolinera
+     * @throws NumberFormatException Se lanza esta excepción si alguno de los números dentro de los archivos tiene el formato equivocado
+     */
+    public static Gasolinera cargarEstado( File archivo, List<File> archivosCambios ) throws FileNotFoundException, IOException, NumberFormatException
+    {
+        long inicio = System.nanoTime( );
+        Gasolinera nuevaGasolinera = cargarEstado( archivo );
+        for( File archivoCambios : archivosCambios )
+        {
+            nuevaGasolinera.aplicarCambios( archivoCambios );
+        }
+        nuevaGasolinera.descartarModificaciones( );
+        nuevaGasolinera.nanosegundosCarga = System.nanoTime( ) - inicio;
+        return nuevaGasolinera;
+    }
+
+    /**
+     * Carga toda la información de una gasolinera a partir del último archivo guardado y luego reproduce encima las ventas del diario, para recuperar el estado que
+     * tenía la gasolinera cuando se registró la última venta.
+     * 
+     * Las ventas del diario se reproducen en paralelo (ver RecuperacionParalela).
+     * @param archivo El archivo que contiene la información que se va a cargar
+     * @param archivoDiario El archivo con el diario de ventas. Si no existe, sólo se carga el primer archivo
+     * @return Una nueva gasolinera con su estado inicializado con la información de los dos archivos
+     * @throws FileNotFoundException Se lanza esta excepción si el archivo no se encuentra
+     * @throws IOException Se lanza esta excepción si alguno de los archivos no se puede leer, o si el diario no corresponde a la gasolinera
+     * @throws NumberFormatException Se lanza esta excepción si alguno de los números dentro del archivo tiene el formato equivocado
+     */
+    public static Gasolinera cargarEstado( File archivo, File archivoDiario ) throws FileNotFoundException, IOException, NumberFormatException
+    {
+        long inicio = System.nanoTime( );
+        Gasolinera nuevaGasolinera = cargarEstado( archivo );
+        if( archivoDiario.exists( ) && archivoDiario.length( ) > 0 )
+        {
+            RecuperacionParalela.reproducir( archivoDiario, nuevaGasolinera );
+        }
+        nuevaGasolinera.nanosegundosCarga = System.nanoTime( ) - inicio;
+        return nuevaGasolinera;
+    }
+
+    /**
+     * Carga toda la información de una gasolinera a partir del último archivo completo, le aplica en orden los archivos de cambios que se guardaron después, y luego
+     * reproduce encima las ventas que quedan en el diario. Así se recupera el estado que tenía la gasolinera cuando se registró la última venta, aunque se haya
+     * detenido entre dos archivos de cambios.
+     * 
+     * Las ventas que quedan en el diario son las que no alcanzaron a quedar en el último archivo de cambios (ver guardarCambios), y después de cargar quedan marcadas
+     * como cambios para el siguiente archivo.
+     * @param archivo El archivo que contiene la información completa de la gasolinera
+     * @param archivosCambios Los archivos de cambios, en el orden en el que se guardaron
+     * @param archivoDiario El archivo con el diario de ventas. Si no existe, sólo se cargan los otros archivos
+     * @return Una nueva gasolinera con su estado inicializado con la información de todos los archivos
+     * @throws FileNotFoundException Se lanza esta excepción si alguno de los archivos no se encuentra
+     * @throws IOException Se lanza esta excepción si alguno de los archivos no se puede leer, o si un archivo de cambios o el diario no corresponden a la gasolinera
+     * @throws NumberFormatException Se lanza esta excepción si alguno de los números dentro de los archivos tiene el formato equivocado
+     */
+    public static Gasolinera cargarEstado( File archivo, List<File> archivosCambios, File archivoDiario ) throws FileNotFoundException, IOException, NumberFormatException
+    {
+        long inicio = System.nanoTime( );
+        Gasolinera nuevaGasolinera = cargarEstado( archivo, archivosCambios );
+        if( archivoDiario.exists( ) && archivoDiario.length( ) > 0 )
+        {
+            RecuperacionParalela.reproducir( archivoDiario, nuevaGasolinera );
+        }
+        nuevaGasolinera.nanosegundosCarga = System.nanoTime( ) - inicio;
+        return nuevaGasolinera;
+    }
 }
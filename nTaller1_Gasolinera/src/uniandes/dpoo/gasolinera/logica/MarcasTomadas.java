@@ -0,0 +1,142 @@
+package uniandes.dpoo.gasolinera.logica;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Esta clase tiene las marcas de lo que había cambiado en una gasolinera cuando se quitaron para capturar su estado o guardar sus cambios: los tipos de gasolina,
+ * los surtidores, las asignaciones de los surtidores y los empleados.
+ *
+ * Cada grupo de marcas tiene el número de la generación en la que se tomaron. La gasolinera conserva los grupos hasta que se confirma que un archivo con una
+ * generación igual o posterior quedó guardado, así que si el archivo no se alcanza a guardar, esos cambios van en el siguiente archivo de cambios.
+ */
+class MarcasTomadas
+{
+    // ************************************************************************
+    // Atributos
+    // ************************************************************************
+
+    /**
+     * La generación en la que se tomaron las marcas. Si el grupo junta las marcas de varias generaciones, es la última de ellas
+     */
+    private long generacion;
+
+    /**
+     * Los identificadores de los tipos de gasolina que cambiaron
+     */
+    private BitSet tipos;
+
+    /**
+     * Los números de los surtidores en los que cambiaron los galones vendidos
+     */
+    private BitSet surtidores;
+
+    /**
+     * Los números de los surtidores que se reasignaron
+     */
+    private BitSet asignaciones;
+
+    /**
+     * Los empleados a los que les cambió el dinero
+     */
+    private Set<Empleado> empleados;
+
+    // ************************************************************************
+    // Constructores
+    // ************************************************************************
+
+    /**
+     * Construye un grupo de marcas vacío
+     * @param generacion La generación en la que se toman las marcas
+     */
+    MarcasTomadas( long generacion )
+    {
+        this.generacion = generacion;
+        tipos = new BitSet( );
+        surtidores = new BitSet( );
+        asignaciones = new BitSet( );
+        empleados = Collections.newSetFromMap( new IdentityHashMap<Empleado, Boolean>( ) );
+    }
+
+    /**
+     * Quita las marcas de todo lo que ha cambiado en la gasolinera y las guarda en un grupo nuevo. Debe llamarse mientras no se pueden empezar ventas
+     * @param generacion La generación en la que se toman las marcas
+     * @param tiposGasolina El registro de los tipos de gasolina
+     * @param tablaSurtidores La tabla de surtidores
+     * @param empleadosGasolinera Los empleados de la gasolinera
+     * @return El grupo con las marcas que se quitaron
+     */
+    static MarcasTomadas tomar( long generacion, RegistroTiposGasolina tiposGasolina, TablaSurtidores tablaSurtidores, Collection<Empleado> empleadosGasolinera )
+    {
+        MarcasTomadas marcas = new MarcasTomadas( generacion );
+        for( int idTipo = 0; idTipo < tiposGasolina.getCantidadTipos( ); idTipo++ )
+        {
+            if( tiposGasolina.getTipo( idTipo ).tomarModificado( ) )
+            {
+                marcas.tipos.set( idTipo );
+            }
+        }
+        for( int numeroSurtidor : tablaSurtidores.tomarSurtidoresModificados( ) )
+        {
+            marcas.surtidores.set( numeroSurtidor );
+        }
+        for( int numeroSurtidor : tablaSurtidores.tomarAsignacionesModificadas( ) )
+        {
+            marcas.asignaciones.set( numeroSurtidor );
+        }
+        for( Empleado empleado : empleadosGasolinera )
+        {
+            if( empleado.tomarModificado( ) )
+            {
+                marcas.empleados.add( empleado );
+            }
+        }
+        return marcas;
+    }
+
+    // ************************************************************************
+    // Métodos
+    // ************************************************************************
+
+    /**
+     * Agrega a este grupo las marcas de otro grupo. La generación queda como la mayor de las dos, así que el grupo se conserva mientras se conserve cualquiera de los
+     * dos
+     * @param otras Las marcas que se agregan
+     */
+    void agregar( MarcasTomadas otras )
+    {
+        generacion = Math.max( generacion, otras.generacion );
+        tipos.or( otras.tipos );
+        surtidores.or( otras.surtidores );
+        asignaciones.or( otras.asignaciones );
+        empleados.addAll( otras.empleados );
+    }
+
+    long getGeneracion( )
+    {
+        return generacion;
+    }
+
+    boolean tieneTipo( int idTipo )
+    {
+        return tipos.get( idTipo );
+    }
+
+    BitSet getSurtidores( )
+    {
+        return surtidores;
+    }
+
+    BitSet getAsignaciones( )
+    {
+        return asignaciones;
+    }
+
+    boolean tieneEmpleado( Empleado empleado )
+    {
+        return empleados.contains( empleado );
+    }
+}
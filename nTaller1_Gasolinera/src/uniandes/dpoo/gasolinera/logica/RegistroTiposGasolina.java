@@ -0,0 +1,118 @@
+package uniandes.dpoo.gasolinera.logica;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Esta clase le asigna a cada tipo de gasolina de una gasolinera un identificador entero.
+ * 
+ * Los identificadores son densos: van desde 0 hasta la cantidad de tipos menos 1, en el orden en el que se registraron los tipos. Así, la gasolinera y los surtidores
+ * pueden guardar la información de cada tipo en arreglos y buscarla por posición, en lugar de buscarla por nombre en un mapa en cada venta.
+ */
+public class RegistroTiposGasolina
+{
+    /**
+     * Los tipos de gasolina registrados. La posición de cada tipo es su identificador
+     */
+    private TipoGasolina[] tipos;
+
+    /**
+     * Un mapa con el identificador de cada tipo de gasolina: las llaves son el nombre del tipo de gasolina
+     */
+    private Map<String, Integer> identificadores;
+
+    /**
+     * Construye un nuevo registro con los tipos de gasolina dados y le asigna un identificador a cada uno.
+     * 
+     * Si hay dos tipos con el mismo nombre, el último reemplaza al primero y conserva su identificador.
+     * @param tiposGasolina Los tipos de gasolina que se van a registrar
+     */
+    public RegistroTiposGasolina( Collection<TipoGasolina> tiposGasolina )
+    {
+        List<TipoGasolina> listaTipos = new ArrayList<TipoGasolina>( );
+        this.identificadores = new HashMap<String, Integer>( );
+        for( TipoGasolina tipo : tiposGasolina )
+        {
+            Integer identificador = identificadores.get( tipo.getNombre( ) );
+            if( identificador == null )
+            {
+                identificadores.put( tipo.getNombre( ), listaTipos.size( ) );
+                listaTipos.add( tipo );
+            }
+            else
+            {
+                listaTipos.set( identificador, tipo );
+            }
+        }
+        this.tipos = listaTipos.toArray( new TipoGasolina[listaTipos.size( )] );
+    }
+
+    /**
+     * Retorna la cantidad de tipos de gasolina registrados
+     * @return Cantidad de tipos de gasolina
+     */
+    public int getCantidadTipos( )
+    {
+        return tipos.length;
+    }
+
+    /**
+     * Retorna el identificador de un tipo de gasolina
+     * @param nombreTipoGasolina El nombre del tipo de gasolina
+     * @return El identificador del tipo de gasolina, o -1 si no hay un tipo registrado con ese nombre
+     */
+    public int getIdentificador( String nombreTipoGasolina )
+    {
+        Integer identificador = identificadores.get( nombreTipoGasolina );
+        return identificador == null ? -1 : identificador;
+    }
+
+    /**
+     * Retorna el tipo de gasolina que tiene el identificador dado
+     * @param identificador El identificador del tipo de gasolina. Debe estar entre 0 y la cantidad de tipos menos 1
+     * @return El tipo de gasolina
+     */
+    public TipoGasolina getTipo( int identificador )
+    {
+        return tipos[ identificador ];
+    }
+
+    /**
+     * Retorna el tipo de gasolina que tiene el nombre dado
+     * @param nombreTipoGasolina El nombre del tipo de gasolina
+     * @return El tipo de gasolina, o null si no hay un tipo registrado con ese nombre
+     */
+    public TipoGasolina getTipo( String nombreTipoGasolina )
+    {
+        int identificador = getIdentificador( nombreTipoGasolina );
+        return identificador == -1 ? null : tipos[ identificador ];
+    }
+
+    /**
+     * Retorna los tipos de gasolina registrados, ordenados por identificador
+     * @return Una lista que no se puede modificar
+     */
+    public List<TipoGasolina> getTipos( )
+    {
+        return Collections.unmodifiableList( Arrays.asList( tipos ) );
+    }
+
+    /**
+     * Retorna un arreglo con los nombres de los tipos de gasolina registrados, ordenados por identificador
+     * @return Un arreglo nuevo con un elemento por cada tipo de gasolina
+     */
+    public String[] getNombres( )
+    {
+        String[] nombres = new String[tipos.length];
+        for( int i = 0; i < tipos.length; i++ )
+        {
+            nombres[ i ] = tipos[ i ].getNombre( );
+        }
+        return nombres;
+    }
+}
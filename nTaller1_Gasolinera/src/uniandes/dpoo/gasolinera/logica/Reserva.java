@@ -0,0 +1,171 @@
+package uniandes.dpoo.gasolinera.logica;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import uniandes.dpoo.gasolinera.utils.RuedaTemporizadora;
+
+/**
+ * Una reserva de gasolina para un surtidor: la preautorización que hace el surtidor antes de empezar a despachar (ver Gasolinera.reservar).
+ *
+ * La reserva empieza pendiente y termina una sola vez: cuando se confirma lo que se despachó, cuando se libera sin despachar o cuando vence su plazo. Los tres caminos
+ * compiten con un compareAndSet sobre el estado, así que si una confirmación y el vencimiento ocurren al mismo tiempo, sólo uno de los dos tiene efecto.
+ */
+public class Reserva
+{
+    /**
+     * Los estados de una reserva
+     */
+    public enum Estado
+    {
+        /**
+         * La gasolina está reservada y todavía no se ha despachado
+         */
+        PENDIENTE,
+
+        /**
+         * Se confirmó lo que se despachó y se devolvió el resto
+         */
+        CONFIRMADA,
+
+        /**
+         * Se liberó toda la gasolina sin despachar nada
+         */
+        LIBERADA,
+
+        /**
+         * Pasó el plazo sin que se confirmara, y se liberó toda la gasolina
+         */
+        VENCIDA
+    }
+
+    /**
+     * El número del surtidor para el que se hizo la reserva
+     */
+    private final int numeroSurtidor;
+
+    /**
+     * El identificador del tipo de gasolina reservado
+     */
+    private final int idTipoGasolina;
+
+    /**
+     * La cantidad que se pidió reservar, en millonésimas de galón
+     */
+    private final long microgalonesSolicitados;
+
+    /**
+     * La cantidad que se reservó, en millonésimas de galón. Puede ser menor que la solicitada si no alcanzaba la gasolina
+     */
+    private final long microgalonesReservados;
+
+    /**
+     * La versión del precio con la que se cobra la gasolina despachada con esta reserva
+     */
+    private final VersionPrecio versionPrecio;
+
+    /**
+     * El estado de la reserva
+     */
+    private final AtomicReference<Estado> estado = new AtomicReference<Estado>( Estado.PENDIENTE );
+
+    /**
+     * La tarea que hace vencer la reserva, o null si todavía no se ha programado
+     */
+    private volatile RuedaTemporizadora.Tarea vencimiento;
+
+    Reserva( int numeroSurtidor, int idTipoGasolina, long microgalonesSolicitados, long microgalonesReservados, VersionPrecio versionPrecio )
+    {
+        this.numeroSurtidor = numeroSurtidor;
+        this.idTipoGasolina = idTipoGasolina;
+        this.microgalonesSolicitados = microgalonesSolicitados;
+        this.microgalonesReservados = microgalonesReservados;
+        this.versionPrecio = versionPrecio;
+    }
+
+    public int getNumeroSurtidor( )
+    {
+        return numeroSurtidor;
+    }
+
+    public int getIdTipoGasolina( )
+    {
+        return idTipoGasolina;
+    }
+
+    public double getGalonesSolicitados( )
+    {
+        return TipoGasolina.aGalones( microgalonesSolicitados );
+    }
+
+    public double getGalonesReservados( )
+    {
+        return TipoGasolina.aGalones( microgalonesReservados );
+    }
+
+    public long getMicrogalonesReservados( )
+    {
+        return microgalonesReservados;
+    }
+
+    long getMicrogalonesSolicitados( )
+    {
+        return microgalonesSolicitados;
+    }
+
+    public VersionPrecio getVersionPrecio( )
+    {
+        return versionPrecio;
+    }
+
+    public Estado getEstado( )
+    {
+        return estado.get( );
+    }
+
+    /**
+     * Indica si se reservó toda la gasolina que se pidió
+     * @return true si la reserva está completa
+     */
+    public boolean estaCompleta( )
+    {
+        return microgalonesReservados == microgalonesSolicitados;
+    }
+
+    /**
+     * Guarda la tarea que hace vencer la reserva. Si la reserva ya terminó, la tarea se cancela de una vez
+     * @param tarea La tarea programada en la rueda
+     */
+    void programarVencimiento( RuedaTemporizadora.Tarea tarea )
+    {
+        vencimiento = tarea;
+        if( estado.get( ) != Estado.PENDIENTE )
+        {
+            tarea.cancelar( );
+        }
+    }
+
+    /**
+     * Termina la reserva, si todavía estaba pendiente. Si termina por otra razón distinta a vencerse, la tarea del vencimiento se cancela
+     * @param estadoFinal El estado con el que termina la reserva
+     * @return true si la reserva estaba pendiente y quedó en el estado final; false si ya había terminado antes
+     */
+    boolean terminar( Estado estadoFinal )
+    {
+        if( !estado.compareAndSet( Estado.PENDIENTE, estadoFinal ) )
+        {
+            return false;
+        }
+        RuedaTemporizadora.Tarea tarea = vencimiento;
+        if( tarea != null && estadoFinal != Estado.VENCIDA )
+        {
+            tarea.cancelar( );
+        }
+        return true;
+    }
+
+    @Override
+    public String toString( )
+    {
+        return "Reserva de " + getGalonesReservados( ) + " galones en el surtidor " + numeroSurtidor + " (" + estado.get( ) + ")";
+    }
+}
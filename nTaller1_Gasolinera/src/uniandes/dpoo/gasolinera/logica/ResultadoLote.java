@@ -0,0 +1,78 @@
+package uniandes.dpoo.gasolinera.logica;
+
+import java.util.List;
+
+/**
+ * Esta clase tiene el resultado de vender un lote de solicitudes en la gasolinera.
+ */
+public class ResultadoLote
+{
+    /**
+     * El precio cobrado en cada venta del lote, en el mismo orden de las solicitudes
+     */
+    private int[] precios;
+
+    /**
+     * Las ventas del lote en las que no alcanzó la gasolina para entregar todo lo que se pidió, en el orden de las solicitudes
+     */
+    private List<VentaParcial> ventasParciales;
+
+    public ResultadoLote( int[] precios, List<VentaParcial> ventasParciales )
+    {
+        this.precios = precios;
+        this.ventasParciales = ventasParciales;
+    }
+
+    public int[] getPrecios( )
+    {
+        return precios;
+    }
+
+    public List<VentaParcial> getVentasParciales( )
+    {
+        return ventasParciales;
+    }
+
+    /**
+     * Describe una venta de un lote en la que no alcanzó la gasolina
+     */
+    public static class VentaParcial
+    {
+        /**
+         * La posición de la solicitud dentro del lote
+         */
+        private int posicion;
+
+        /**
+         * La cantidad de galones que se pidieron
+         */
+        private double cantidadSolicitada;
+
+        /**
+         * La cantidad de galones que realmente se entregaron
+         */
+        private double cantidadEntregada;
+
+        public VentaParcial( int posicion, double cantidadSolicitada, double cantidadEntregada )
+        {
+            this.posicion = posicion;
+            this.cantidadSolicitada = cantidadSolicitada;
+            this.cantidadEntregada = cantidadEntregada;
+        }
+
+        public int getPosicion( )
+        {
+            return posicion;
+        }
+
+        public double getCantidadSolicitada( )
+        {
+            return cantidadSolicitada;
+        }
+
+        public double getCantidadEntregada( )
+        {
+            return cantidadEntregada;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package uniandes.dpoo.gasolinera.logica;
+
+/**
+ * Esta clase tiene el resultado de una venta de la gasolinera: el precio cobrado y cuánta gasolina se pidió y se entregó.
+ *
+ * Para saber si alcanzó la gasolina hay que usar esCompleta, que compara los galones, y no comparar el precio cobrado con un precio calculado afuera: el precio se
+ * redondea y se cobra con la versión del precio que leyó la venta, que puede no ser la que ve quien llama si el precio cambia al mismo tiempo.
+ */
+public class ResultadoVenta
+{
+    /**
+     * El precio cobrado
+     */
+    private int precio;
+
+    /**
+     * El precio por galón de la versión del precio con la que se cobró la venta
+     */
+    private int precioPorGalon;
+
+    /**
+     * La cantidad de galones que se pidieron
+     */
+    private double cantidadSolicitada;
+
+    /**
+     * La cantidad de galones que realmente se entregaron
+     */
+    private double cantidadEntregada;
+
+    public ResultadoVenta( int precio, int precioPorGalon, double cantidadSolicitada, double cantidadEntregada )
+    {
+        this.precio = precio;
+        this.precioPorGalon = precioPorGalon;
+        this.cantidadSolicitada = cantidadSolicitada;
+        this.cantidadEntregada = cantidadEntregada;
+    }
+
+    public int getPrecio( )
+    {
+        return precio;
+    }
+
+    public int getPrecioPorGalon( )
+    {
+        return precioPorGalon;
+    }
+
+    public double getCantidadSolicitada( )
+    {
+        return cantidadSolicitada;
+    }
+
+    public double getCantidadEntregada( )
+    {
+        return cantidadEntregada;
+    }
+
+    /**
+     * Indica si se entregó toda la gasolina que se pidió. Las cantidades se comparan en millonésimas de galón, igual que se despacha el inventario
+     * @return true si la cantidad entregada es la solicitada, false si no alcanzó la gasolina
+     */
+    public boolean esCompleta( )
+    {
+        return TipoGasolina.aMicrogalones( cantidadEntregada ) >= TipoGasolina.aMicrogalones( cantidadSolicitada );
+    }
+
+    /**
+     * Calcula el precio que se habría cobrado si se hubiera entregado toda la gasolina que se pidió, con la misma versión del precio de la venta
+     * @return El precio de la cantidad solicitada
+     */
+    public long calcularPrecioSolicitado( )
+    {
+        return Math.round( precioPorGalon * cantidadSolicitada );
+    }
+}
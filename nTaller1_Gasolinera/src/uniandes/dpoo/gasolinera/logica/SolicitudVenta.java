@@ -0,0 +1,112 @@
+package uniandes.dpoo.gasolinera.logica;
+
+/**
+ * Esta clase representa una venta que se le pide a la gasolinera dentro de un lote de ventas.
+ * 
+ * Una solicitud puede pedir una cantidad de galones o un valor en pesos, igual que los métodos venderGasolinaPorCantidad y venderGasolinaPorPrecio de la gasolinera.
+ */
+public class SolicitudVenta
+{
+    /**
+     * El nombre del tipo de gasolina que quiere el cliente
+     */
+    private String nombreTipoGasolina;
+
+    /**
+     * El número del surtidor donde están atendiendo al cliente
+     */
+    private int numeroSurtidor;
+
+    /**
+     * Indica si el cliente pidió un valor en pesos (true) o una cantidad de galones (false)
+     */
+    private boolean porPrecio;
+
+    /**
+     * La cantidad de galones que quiere el cliente, si la solicitud es por cantidad
+     */
+    private double cantidadSolicitada;
+
+    /**
+     * El valor en pesos que quiere pagar el cliente, si la solicitud es por precio
+     */
+    private int valorSolicitado;
+
+    private SolicitudVenta( String nombreTipoGasolina, int numeroSurtidor, boolean porPrecio, double cantidadSolicitada, int valorSolicitado )
+    {
+        this.nombreTipoGasolina = nombreTipoGasolina;
+        this.numeroSurtidor = numeroSurtidor;
+        this.porPrecio = porPrecio;
+        this.cantidadSolicitada = cantidadSolicitada;
+        this.valorSolicitado = valorSolicitado;
+    }
+
+    /**
+     * Crea una solicitud de venta por cantidad de galones
+     * @param nombreTipoGasolina El tipo de gasolina que quiere el cliente
+     * @param cantidadSolicitada La cantidad en galones que quiere el cliente
+     * @param numeroSurtidor El número del surtidor donde están atendiendo al cliente
+     * @return La nueva solicitud
+     */
+    public static SolicitudVenta porCantidad( String nombreTipoGasolina, double cantidadSolicitada, int numeroSurtidor )
+    {
+        return new SolicitudVenta( nombreTipoGasolina, numeroSurtidor, false, cantidadSolicitada, 0 );
+    }
+
+    /**
+     * Crea una solicitud de venta por precio
+     * @param nombreTipoGasolina El tipo de gasolina que quiere el cliente
+     * @param valorSolicitado El precio que quiere pagar el cliente por la gasolina que se le entregue
+     * @param numeroSurtidor El número del surtidor donde están atendiendo al cliente
+     * @return La nueva solicitud
+     */
+    public static SolicitudVenta porPrecio( String nombreTipoGasolina, int valorSolicitado, int numeroSurtidor )
+    {
+        return new SolicitudVenta( nombreTipoGasolina, numeroSurtidor, true, 0, valorSolicitado );
+    }
+
+    public String getNombreTipoGasolina( )
+    {
+        return nombreTipoGasolina;
+    }
+
+    public int getNumeroSurtidor( )
+    {
+        return numeroSurtidor;
+    }
+
+    public boolean esPorPrecio( )
+    {
+        return porPrecio;
+    }
+
+    public double getCantidadSolicitada( )
+    {
+        return cantidadSolicitada;
+    }
+
+    public int getValorSolicitado( )
+    {
+        return valorSolicitado;
+    }
+
+    /**
+     * Calcula la cantidad de galones que se pidieron en la solicitud
+     * @param tipo El tipo de gasolina de la solicitud, que se usa para convertir el valor en pesos a galones
+     * @return La cantidad de galones que se le deberían entregar al cliente si hubiera suficiente gasolina
+     */
+    public double calcularGalonesSolicitados( TipoGasolina tipo )
+    {
+        return calcularGalonesSolicitados( tipo.getPrecioPorGalon( ) );
+    }
+
+    /**
+     * Calcula la cantidad de galones que se pidieron en la solicitud, con un precio por galón dado
+     * @param precioPorGalon El precio por galón que se usa para convertir el valor en pesos a galones
+     * @return La cantidad de galones que se le deberían entregar al cliente si hubiera suficiente gasolina
+     */
+    public double calcularGalonesSolicitados( int precioPorGalon )
+    {
+        return porPrecio ? valorSolicitado / ( double )precioPorGalon : cantidadSolicitada;
+    }
+}
@@ -1,50 +1,59 @@
 package uniandes.dpoo.gasolinera.logica;
 
-import java.util.HashMap;
 import java.util.Map;
-import java.util.Set;
 
 /**
  * Esta clase representa a un surtidor de gasolina en la gasolinera.
  * 
  * Todos los surtidores entregan gasolina de los mismos tanques, pero cada surtidor lleva la cuenta de cuánto ha entregado, de cada tipo de gasolina.
+ * 
+ * La información del surtidor no se guarda en este objeto sino en una fila de una TablaSurtidores: los surtidores de una gasolinera son vistas sobre la tabla de la
+ * gasolinera, y un surtidor construido por fuera de una gasolinera tiene su propia tabla de un solo surtidor.
  *
  */
 public class Surtidor
 {
 
     /**
-     * Un mapa donde se lleva la cuenta de los galones de gasolina entregados por tipo de gasolina.
-     * 
-     * La llave del mapa es el nombre del tipo de gasolina, y el valor es la cantidad de galones.
+     * La tabla donde está guardada la información del surtidor
      */
-    private Map<String, Double> galonesVendidos;
+    private TablaSurtidores tabla;
 
     /**
-     * Un mapa de los tipos de gasolina en venta: las llaves son el nombre del tipo de gasolina
+     * El número del surtidor dentro de la tabla
      */
-    private Map<String, TipoGasolina> tiposGasolina;
+    private int numero;
+
+    public Surtidor( Map<String, TipoGasolina> tiposGasolina, Empleado empleado )
+    {
+        this( new RegistroTiposGasolina( tiposGasolina.values( ) ), empleado );
+    }
 
     /**
-     * El empleado que está asignado para atender el surtidor
+     * Construye un nuevo surtidor que vende los tipos de gasolina del registro dado, con su propia tabla de un solo surtidor.
+     * @param tiposGasolina El registro con los tipos de gasolina que se venden en el surtidor
+     * @param empleado El empleado asignado al surtidor
      */
-    private Empleado empleadoAsignado;
-
-    public Surtidor( Map<String, TipoGasolina> tiposGasolina, Empleado empleado )
+    public Surtidor( RegistroTiposGasolina tiposGasolina, Empleado empleado )
     {
-        this.empleadoAsignado = empleado;
-        this.tiposGasolina = tiposGasolina;
+        this.tabla = new TablaSurtidores( tiposGasolina, 1 );
+        this.numero = tabla.agregarSurtidor( empleado );
+    }
 
-        galonesVendidos = new HashMap<String, Double>( );
-        for( String nombreTipo : tiposGasolina.keySet( ) )
-        {
-            galonesVendidos.put( nombreTipo, new Double( 0 ) );
-        }
+    /**
+     * Construye un surtidor que es una vista sobre una fila de una tabla de surtidores
+     * @param tabla La tabla donde está guardada la información del surtidor
+     * @param numero El número del surtidor dentro de la tabla
+     */
+    Surtidor( TablaSurtidores tabla, int numero )
+    {
+        this.tabla = tabla;
+        this.numero = numero;
     }
 
     public Empleado getEmpleadoAsignado( )
     {
-        return empleadoAsignado;
+        return tabla.getEmpleadoAsignado( numero );
     }
 
     /**
@@ -54,17 +63,44 @@ public class Surtidor
      */
     public Double getGalonesVendidos( String nombreTipoGasolina )
     {
-        return galonesVendidos.get( nombreTipoGasolina );
+        int idTipo = tabla.getTiposGasolina( ).getIdentificador( nombreTipoGasolina );
+        return idTipo == -1 ? null : tabla.getGalonesVendidos( numero, idTipo );
     }
 
     /**
-     * Cambia la cantidad de galones vendidos de un cierto tipo de gasolina
+     * Retorna la cantidad de galones de gasolina vendidos en el surtidor según el tipo de gasolina.
+     * @param idTipoGasolina El identificador del tipo de gasolina en el registro
+     * @return La cantidad de galones
+     */
+    public double getGalonesVendidos( int idTipoGasolina )
+    {
+        return tabla.getGalonesVendidos( numero, idTipoGasolina );
+    }
+
+    /**
+     * Cambia la cantidad de galones vendidos de un cierto tipo de gasolina.
+     * 
+     * Si el tipo de gasolina no se ofrece en el surtidor, no se hace nada.
      * @param nombreTipoGasolina El nombre del tipo de gasolina
      * @param cantidad La nueva cantidad que estará registrada en el surtidor
      */
     public void cambiarGalonesVendidos( String nombreTipoGasolina, double cantidad )
     {
-        galonesVendidos.put( nombreTipoGasolina, cantidad );
+        int idTipo = tabla.getTiposGasolina( ).getIdentificador( nombreTipoGasolina );
+        if( idTipo != -1 )
+        {
+            cambiarGalonesVendidos( idTipo, cantidad );
+        }
+    }
+
+    /**
+     * Cambia la cantidad de galones vendidos de un cierto tipo de gasolina
+     * @param idTipoGasolina El identificador del tipo de gasolina en el registro
+     * @param cantidad La nueva cantidad que estará registrada en el surtidor
+     */
+    public void cambiarGalonesVendidos( int idTipoGasolina, double cantidad )
+    {
+        tabla.cambiarGalonesVendidos( numero, idTipoGasolina, cantidad );
     }
 
     /**
@@ -73,9 +109,7 @@ public class Surtidor
      */
     public String[] getTiposGasolina( )
     {
-        Set<String> conjuntoLlaves = tiposGasolina.keySet( );
-        String[] dummy = new String[]{}; // Este arreglo vacío sirve solo para indicarle el tipo al método toArray de Collection
-        return conjuntoLlaves.toArray( dummy );
+        return tabla.getTiposGasolina( ).getNombres( );
     }
 
     /**
@@ -85,7 +119,7 @@ public class Surtidor
      */
     public TipoGasolina getTipoGasolina( String nombreTipoGasolina )
     {
-        return tiposGasolina.get( nombreTipoGasolina );
+        return tabla.getTiposGasolina( ).getTipo( nombreTipoGasolina );
     }
 
     /**
@@ -101,16 +135,20 @@ public class Surtidor
      */
     public int venderGasolina( String nombreTipoGasolina, double cantidadEntregada )
     {
-        // Calcular el precio de la gasolina vendida y registrar que el empleado tiene esa cantidad de dinero
-        TipoGasolina tipo = tiposGasolina.get( nombreTipoGasolina );
-        int precio = ( int )Math.round( tipo.getPrecioPorGalon( ) * cantidadEntregada );
-        empleadoAsignado.agregarDinero( precio );
-
-        // Actualizar la cantidad de gasolina vendida en el surtidor
-        double cantidadAnterior = galonesVendidos.get( nombreTipoGasolina );
-        galonesVendidos.put( nombreTipoGasolina, cantidadAnterior + cantidadEntregada );
+        return venderGasolina( tabla.getTiposGasolina( ).getIdentificador( nombreTipoGasolina ), cantidadEntregada );
+    }
 
-        return precio;
+    /**
+     * Este método registra una venta de gasolina en el surtidor, identificando el tipo de gasolina por su identificador en el registro.
+     * 
+     * Este método sólo hace operaciones sobre arreglos: no busca nada por nombre.
+     * @param idTipoGasolina El identificador del tipo de gasolina que se vendió
+     * @param cantidadEntregada La cantidad de galones de gasolina que se le entregaron al cliente
+     * @return El precio de la compra, redondeado al entero más cercano
+     */
+    public int venderGasolina( int idTipoGasolina, double cantidadEntregada )
+    {
+        return tabla.venderGasolina( numero, idTipoGasolina, cantidadEntregada );
     }
 
 }
@@ -0,0 +1,541 @@
+package uniandes.dpoo.gasolinera.logica;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import uniandes.dpoo.gasolinera.eventos.BusVentas;
+import uniandes.dpoo.gasolinera.metricas.VentasRecientes;
+import uniandes.dpoo.gasolinera.utils.MarcasConcurrentes;
+
+/**
+ * Esta clase guarda la información de todos los surtidores de una gasolinera en arreglos de tipos primitivos, en lugar de tener un objeto con un mapa por cada surtidor.
+ * 
+ * Los galones vendidos de todos los surtidores están en un solo arreglo de long, organizado por surtidor y luego por tipo de gasolina: los galones vendidos del tipo t en
+ * el surtidor s están en la posición s * cantidadTipos + t. Igual que el inventario en TipoGasolina, los galones se guardan en millonésimas de galón, así que registrar
+ * una venta es una sola suma atómica y ventas en surtidores distintos (o de tipos distintos en el mismo surtidor) no se bloquean entre sí.
+ * 
+ * El empleado asignado a cada surtidor se guarda como una posición dentro del arreglo de empleados de la tabla. Los empleados se pueden reasignar mientras se vende
+ * gasolina (por ejemplo, en un cambio de turno): los arreglos de asignaciones y de empleados nunca se modifican después de publicarse, sino que cada reasignación
+ * publica copias nuevas. El arreglo de empleados sólo crece, y siempre se publica antes que el de asignaciones que lo usa, así que quien lee primero las
+ * asignaciones y después los empleados siempre encuentra al empleado. Una venta lee una sola vez la posición del empleado y le abona el dinero a ese empleado,
+ * así que cada venta queda a nombre de exactamente un empleado: el que estaba asignado cuando se registró la venta.
+ * 
+ * La tabla también marca los surtidores que han cambiado, para que la gasolinera pueda guardar sólo los cambios (ver Gasolinera.guardarCambios).
+ * 
+ * Si la tabla tiene un bus de ventas, cada venta se publica en el bus después de registrarla (ver BusVentas).
+ * 
+ * Los surtidores se agregan mientras se construye la gasolinera, desde un solo hilo. Después de eso la cantidad de surtidores no cambia.
+ */
+public class TablaSurtidores
+{
+    /**
+     * El registro con los tipos de gasolina que se venden en los surtidores
+     */
+    private RegistroTiposGasolina tiposGasolina;
+
+    /**
+     * La cantidad de tipos de gasolina, que es el tamaño de la fila de cada surtidor en el arreglo de galones
+     */
+    private int cantidadTipos;
+
+    /**
+     * La cantidad de surtidores que hay en la tabla
+     */
+    private int cantidadSurtidores;
+
+    /**
+     * Los galones vendidos, en millonésimas de galón, organizados por surtidor y luego por tipo de gasolina
+     */
+    private AtomicLongArray galonesVendidos;
+
+    /**
+     * La posición dentro del arreglo empleados del empleado asignado a cada surtidor. Después de construir la gasolinera el arreglo no se modifica: las
+     * reasignaciones publican un arreglo nuevo
+     */
+    private volatile int[] asignaciones;
+
+    /**
+     * Los distintos empleados que atienden o han atendido los surtidores de la tabla. El arreglo no se modifica: cuando llega un empleado nuevo se publica uno más
+     * grande
+     */
+    private volatile Empleado[] empleados;
+
+    /**
+     * Un mapa con la posición de cada empleado dentro del arreglo empleados. Sólo se usa mientras se agregan surtidores y dentro de las reasignaciones
+     */
+    private Map<Empleado, Integer> posicionesEmpleados;
+
+    /**
+     * Las marcas de los surtidores cuyos galones vendidos han cambiado desde la última vez que se tomaron las marcas
+     */
+    private MarcasConcurrentes surtidoresModificados;
+
+    /**
+     * Las marcas de los surtidores cuyo empleado asignado ha cambiado desde la última vez que se tomaron las marcas
+     */
+    private MarcasConcurrentes asignacionesModificadas;
+
+    /**
+     * El bus donde se publica cada venta, o null si las ventas no se publican
+     */
+    private volatile BusVentas busVentas;
+
+    /**
+     * Las ventas recientes donde se acumula cada venta, o null si no se están acumulando
+     */
+    private volatile VentasRecientes ventasRecientes;
+
+    /**
+     * Construye una tabla sin surtidores
+     * @param tiposGasolina El registro con los tipos de gasolina que se venden en los surtidores
+     * @param capacidadInicial La cantidad de surtidores para la que se reserva espacio inicialmente
+     */
+    public TablaSurtidores( RegistroTiposGasolina tiposGasolina, int capacidadInicial )
+    {
+        this.tiposGasolina = tiposGasolina;
+        this.cantidadTipos = tiposGasolina.getCantidadTipos( );
+        this.cantidadSurtidores = 0;
+
+        int capacidad = Math.max( capacidadInicial, 1 );
+        this.galonesVendidos = new AtomicLongArray( capacidad * cantidadTipos );
+        this.asignaciones = new int[capacidad];
+        this.empleados = new Empleado[0];
+        this.posicionesEmpleados = new IdentityHashMap<Empleado, Integer>( );
+        this.surtidoresModificados = new MarcasConcurrentes( capacidad );
+        this.asignacionesModificadas = new MarcasConcurrentes( capacidad );
+    }
+
+    /**
+     * Agrega un nuevo surtidor a la tabla, sin galones vendidos.
+     * 
+     * Este método no debe llamarse mientras otros hilos estén vendiendo gasolina en los surtidores de la tabla.
+     * @param empleado El empleado asignado al nuevo surtidor
+     * @return El número del nuevo surtidor
+     */
+    public int agregarSurtidor( Empleado empleado )
+    {
+        if( cantidadSurtidores == asignaciones.length )
+        {
+            ampliarCapacidad( );
+        }
+
+        asignaciones[ cantidadSurtidores ] = buscarPosicionEmpleado( empleado );
+        cantidadSurtidores++;
+        return cantidadSurtidores - 1;
+    }
+
+    /**
+     * Busca la posición de un empleado dentro del arreglo empleados. Si el empleado no estaba, publica un arreglo nuevo con el empleado al final
+     * @param empleado El empleado
+     * @return La posición del empleado
+     */
+    private int buscarPosicionEmpleado( Empleado empleado )
+    {
+        Integer posicion = posicionesEmpleados.get( empleado );
+        if( posicion == null )
+        {
+            posicion = empleados.length;
+            Empleado[] nuevosEmpleados = new Empleado[empleados.length + 1];
+            System.arraycopy( empleados, 0, nuevosEmpleados, 0, empleados.length );
+            nuevosEmpleados[ posicion ] = empleado;
+            empleados = nuevosEmpleados;
+            posicionesEmpleados.put( empleado, posicion );
+        }
+        return posicion;
+    }
+
+    /**
+     * Duplica el espacio reservado para surtidores, copiando la información que ya estaba en la tabla
+     */
+    private void ampliarCapacidad( )
+    {
+        int nuevaCapacidad = asignaciones.length * 2;
+
+        AtomicLongArray nuevosGalones = new AtomicLongArray( nuevaCapacidad * cantidadTipos );
+        for( int i = 0; i < cantidadSurtidores * cantidadTipos; i++ )
+        {
+            nuevosGalones.set( i, galonesVendidos.get( i ) );
+        }
+        galonesVendidos = nuevosGalones;
+
+        int[] nuevasAsignaciones = new int[nuevaCapacidad];
+        System.arraycopy( asignaciones, 0, nuevasAsignaciones, 0, cantidadSurtidores );
+        asignaciones = nuevasAsignaciones;
+
+        surtidoresModificados = new MarcasConcurrentes( surtidoresModificados, nuevaCapacidad );
+        asignacionesModificadas = new MarcasConcurrentes( asignacionesModificadas, nuevaCapacidad );
+    }
+
+    /**
+     * Verifica que el número de un surtidor corresponda a un surtidor de la tabla. Los arreglos pueden tener espacio reservado para más surtidores, así que no basta
+     * con que la posición exista en los arreglos
+     * @param numeroSurtidor El número del surtidor
+     */
+    private void verificarSurtidor( int numeroSurtidor )
+    {
+        if( numeroSurtidor < 0 || numeroSurtidor >= cantidadSurtidores )
+        {
+            throw new IndexOutOfBoundsException( "No existe el surtidor " + numeroSurtidor );
+        }
+    }
+
+    /**
+     * Retorna los números de los surtidores cuyos galones vendidos han cambiado desde la última vez que se llamó este método, y quita las marcas.
+     * 
+     * Las marcas se quitan antes de que quien llama lea los galones, así que un cambio que ocurra mientras tanto vuelve a marcar el surtidor y nunca se pierde.
+     * @return Los números de los surtidores modificados, en orden ascendente
+     */
+    public int[] tomarSurtidoresModificados( )
+    {
+        return surtidoresModificados.tomarMarcas( cantidadSurtidores );
+    }
+
+    /**
+     * Retorna los números de los surtidores cuyo empleado asignado ha cambiado desde la última vez que se llamó este método, y quita las marcas
+     * @return Los números de los surtidores reasignados, en orden ascendente
+     */
+    public int[] tomarAsignacionesModificadas( )
+    {
+        return asignacionesModificadas.tomarMarcas( cantidadSurtidores );
+    }
+
+    public int getCantidadSurtidores( )
+    {
+        return cantidadSurtidores;
+    }
+
+    public RegistroTiposGasolina getTiposGasolina( )
+    {
+        return tiposGasolina;
+    }
+
+    public BusVentas getBusVentas( )
+    {
+        return busVentas;
+    }
+
+    /**
+     * Cambia el bus donde se publican las ventas de la tabla
+     * @param busVentas El nuevo bus, o null para dejar de publicar las ventas
+     */
+    public void setBusVentas( BusVentas busVentas )
+    {
+        this.busVentas = busVentas;
+    }
+
+    public VentasRecientes getVentasRecientes( )
+    {
+        return ventasRecientes;
+    }
+
+    /**
+     * Cambia las ventas recientes donde se acumulan las ventas de la tabla
+     * @param ventasRecientes Las nuevas ventas recientes, o null para dejar de acumular las ventas
+     */
+    public void setVentasRecientes( VentasRecientes ventasRecientes )
+    {
+        this.ventasRecientes = ventasRecientes;
+    }
+
+    /**
+     * Retorna el empleado asignado a un surtidor
+     * @param numeroSurtidor El número del surtidor
+     * @return El empleado que atiende el surtidor
+     */
+    public Empleado getEmpleadoAsignado( int numeroSurtidor )
+    {
+        return getEmpleado( getPosicionEmpleadoAsignado( numeroSurtidor ) );
+    }
+
+    /**
+     * Retorna la posición del empleado asignado a un surtidor. La posición no cambia aunque el surtidor se reasigne, así que sirve para saber a qué empleado se le
+     * abona una venta (ver getEmpleado)
+     * @param numeroSurtidor El número del surtidor
+     * @return La posición del empleado en la lista que retorna getEmpleados
+     */
+    public int getPosicionEmpleadoAsignado( int numeroSurtidor )
+    {
+        verificarSurtidor( numeroSurtidor );
+        return asignaciones[ numeroSurtidor ];
+    }
+
+    /**
+     * Retorna el empleado que está en una posición. La posición debe haberse leído antes de llamar este método, por ejemplo con getPosicionEmpleadoAsignado
+     * @param posicionEmpleado La posición del empleado
+     * @return El empleado
+     */
+    public Empleado getEmpleado( int posicionEmpleado )
+    {
+        return empleados[ posicionEmpleado ];
+    }
+
+    /**
+     * Busca la posición de un empleado en la lista que retorna getEmpleados
+     * @param empleado El empleado
+     * @return La posición del empleado, o -1 si el empleado nunca ha atendido un surtidor de la tabla
+     */
+    public int getPosicionEmpleado( Empleado empleado )
+    {
+        Empleado[] losEmpleados = empleados;
+        for( int i = 0; i < losEmpleados.length; i++ )
+        {
+            if( losEmpleados[ i ] == empleado )
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Retorna una lista con los distintos empleados que atienden o han atendido los surtidores de la tabla. La lista incluye a todos los empleados de un arreglo
+     * que retorne copiarAsignaciones si ese arreglo se pidió antes
+     * @return Una lista nueva con cada empleado una sola vez
+     */
+    public List<Empleado> getEmpleados( )
+    {
+        Empleado[] losEmpleados = empleados;
+        List<Empleado> lista = new ArrayList<Empleado>( losEmpleados.length );
+        for( Empleado empleado : losEmpleados )
+        {
+            lista.add( empleado );
+        }
+        return lista;
+    }
+
+    /**
+     * Retorna una copia de las posiciones de los empleados asignados a los surtidores: la posición i tiene la posición del empleado del surtidor i en la lista que
+     * retorna getEmpleados. Si los surtidores se están reasignando, hay que llamar a getEmpleados después de este método
+     * @return Un arreglo nuevo con una posición por surtidor
+     */
+    public int[] copiarAsignaciones( )
+    {
+        return Arrays.copyOf( asignaciones, cantidadSurtidores );
+    }
+
+    /**
+     * Le asigna un empleado a un surtidor, mientras se sigue vendiendo gasolina. Las ventas que ya leyeron al empleado anterior se le abonan a ese empleado; las
+     * siguientes, al nuevo
+     * @param numeroSurtidor El número del surtidor
+     * @param empleado El empleado que va a atender el surtidor
+     */
+    public synchronized void reasignar( int numeroSurtidor, Empleado empleado )
+    {
+        verificarSurtidor( numeroSurtidor );
+        int posicion = buscarPosicionEmpleado( empleado );
+        int[] nuevasAsignaciones = asignaciones.clone( );
+        nuevasAsignaciones[ numeroSurtidor ] = posicion;
+        asignaciones = nuevasAsignaciones;
+        asignacionesModificadas.marcar( numeroSurtidor );
+    }
+
+    /**
+     * Cambia los empleados de varios surtidores al mismo tiempo. Todas las asignaciones nuevas se publican juntas, así que ninguna venta ve unos surtidores con el
+     * turno nuevo y otros con el anterior
+     * @param empleadosSurtidores El nuevo empleado de cada surtidor, en el orden de los surtidores. Si una posición es null, ese surtidor conserva su empleado
+     */
+    public synchronized void cambiarTurno( Empleado[] empleadosSurtidores )
+    {
+        if( empleadosSurtidores.length != cantidadSurtidores )
+        {
+            throw new IllegalArgumentException( "Se esperaban " + cantidadSurtidores + " empleados y llegaron " + empleadosSurtidores.length );
+        }
+
+        int[] nuevasAsignaciones = asignaciones.clone( );
+        for( int i = 0; i < cantidadSurtidores; i++ )
+        {
+            if( empleadosSurtidores[ i ] != null )
+            {
+                nuevasAsignaciones[ i ] = buscarPosicionEmpleado( empleadosSurtidores[ i ] );
+            }
+        }
+        int[] anteriores = asignaciones;
+        asignaciones = nuevasAsignaciones;
+
+        for( int i = 0; i < cantidadSurtidores; i++ )
+        {
+            if( anteriores[ i ] != nuevasAsignaciones[ i ] )
+            {
+                asignacionesModificadas.marcar( i );
+            }
+        }
+    }
+
+    /**
+     * Retorna una copia de los galones vendidos en todos los surtidores, en millonésimas de galón. Los galones del tipo t en el surtidor n están en la posición
+     * n * (cantidad de tipos) + t
+     * @return Un arreglo nuevo con los galones vendidos
+     */
+    public long[] copiarGalonesVendidos( )
+    {
+        long[] copia = new long[cantidadSurtidores * cantidadTipos];
+        for( int i = 0; i < copia.length; i++ )
+        {
+            copia[ i ] = galonesVendidos.get( i );
+        }
+        return copia;
+    }
+
+    /**
+     * Retorna la cantidad de galones de un tipo de gasolina vendidos en un surtidor
+     * @param numeroSurtidor El número del surtidor
+     * @param idTipoGasolina El identificador del tipo de gasolina en el registro
+     * @return La cantidad de galones
+     */
+    public double getGalonesVendidos( int numeroSurtidor, int idTipoGasolina )
+    {
+        return TipoGasolina.aGalones( galonesVendidos.get( numeroSurtidor * cantidadTipos + idTipoGasolina ) );
+    }
+
+    /**
+     * Retorna la cantidad de galones de un tipo de gasolina vendidos en un surtidor, sin convertirla a galones
+     * @param numeroSurtidor El número del surtidor
+     * @param idTipoGasolina El identificador del tipo de gasolina en el registro
+     * @return La cantidad vendida, en millonésimas de galón
+     */
+    public long getMicrogalonesVendidos( int numeroSurtidor, int idTipoGasolina )
+    {
+        return galonesVendidos.get( numeroSurtidor * cantidadTipos + idTipoGasolina );
+    }
+
+    /**
+     * Cambia la cantidad de galones de un tipo de gasolina vendidos en un surtidor
+     * @param numeroSurtidor El número del surtidor
+     * @param idTipoGasolina El identificador del tipo de gasolina en el registro
+     * @param cantidad La nueva cantidad de galones que estará registrada en el surtidor
+     */
+    public void cambiarGalonesVendidos( int numeroSurtidor, int idTipoGasolina, double cantidad )
+    {
+        cambiarMicrogalonesVendidos( numeroSurtidor, idTipoGasolina, TipoGasolina.aMicrogalones( cantidad ) );
+    }
+
+    /**
+     * Cambia la cantidad de galones de un tipo de gasolina vendidos en un surtidor, sin convertirla de galones
+     * @param numeroSurtidor El número del surtidor
+     * @param idTipoGasolina El identificador del tipo de gasolina en el registro
+     * @param microgalones La nueva cantidad que estará registrada en el surtidor, en millonésimas de galón
+     */
+    public void cambiarMicrogalonesVendidos( int numeroSurtidor, int idTipoGasolina, long microgalones )
+    {
+        verificarSurtidor( numeroSurtidor );
+        galonesVendidos.set( numeroSurtidor * cantidadTipos + idTipoGasolina, microgalones );
+        surtidoresModificados.marcar( numeroSurtidor );
+    }
+
+    /**
+     * Suma una cantidad a los galones de un tipo de gasolina vendidos en un surtidor, sin cobrar la venta
+     * @param numeroSurtidor El número del surtidor
+     * @param idTipoGasolina El identificador del tipo de gasolina en el registro
+     * @param microgalones La cantidad que se suma, en millonésimas de galón
+     */
+    public void agregarGalonesVendidos( int numeroSurtidor, int idTipoGasolina, long microgalones )
+    {
+        verificarSurtidor( numeroSurtidor );
+        galonesVendidos.addAndGet( numeroSurtidor * cantidadTipos + idTipoGasolina, microgalones );
+        surtidoresModificados.marcar( numeroSurtidor );
+    }
+
+    /**
+     * Registra una venta de gasolina en un surtidor: calcula el precio, se lo agrega al dinero del empleado asignado y actualiza los galones vendidos en el surtidor.
+     * 
+     * El precio se calcula con la versión del precio vigente en el momento de la llamada.
+     * @param numeroSurtidor El número del surtidor
+     * @param idTipoGasolina El identificador del tipo de gasolina que se vendió
+     * @param cantidadEntregada La cantidad de galones de gasolina que se le entregaron al cliente
+     * @return El precio de la compra, redondeado al entero más cercano
+     */
+    public int venderGasolina( int numeroSurtidor, int idTipoGasolina, double cantidadEntregada )
+    {
+        return venderGasolina( numeroSurtidor, idTipoGasolina, cantidadEntregada, tiposGasolina.getTipo( idTipoGasolina ).getVersionPrecio( ) );
+    }
+
+    /**
+     * Registra una venta de gasolina en un surtidor con una versión del precio que ya se leyó. La venta también se suma a esa versión del precio, para saber cuánto
+     * dinero entró en cada periodo de precios.
+     * 
+     * Si la tabla tiene ventas recientes, la venta se acumula en ellas, y si tiene un bus de ventas, la venta se publica en el bus al final. Si el bus tiene
+     * consumidores que usan BLOQUEAR y el anillo está lleno, este método espera a que haya espacio.
+     * @param numeroSurtidor El número del surtidor
+     * @param idTipoGasolina El identificador del tipo de gasolina que se vendió
+     * @param cantidadEntregada La cantidad de galones de gasolina que se le entregaron al cliente
+     * @param versionPrecio La versión del precio con la que se cobra la venta
+     * @return El precio de la compra, redondeado al entero más cercano
+     */
+    public int venderGasolina( int numeroSurtidor, int idTipoGasolina, double cantidadEntregada, VersionPrecio versionPrecio )
+    {
+        return venderGasolina( numeroSurtidor, idTipoGasolina, cantidadEntregada, versionPrecio, getPosicionEmpleadoAsignado( numeroSurtidor ) );
+    }
+
+    /**
+     * Registra una venta de gasolina en un surtidor con una versión del precio y un empleado que ya se leyeron. Sirve para que quien registra la venta en otro lugar
+     * (por ejemplo, en el diario de ventas) use el mismo empleado al que se le abona el dinero, aunque el surtidor se reasigne mientras tanto.
+     * @param numeroSurtidor El número del surtidor
+     * @param idTipoGasolina El identificador del tipo de gasolina que se vendió
+     * @param cantidadEntregada La cantidad de galones de gasolina que se le entregaron al cliente
+     * @param versionPrecio La versión del precio con la que se cobra la venta
+     * @param posicionEmpleado La posición del empleado que hizo la venta (ver getPosicionEmpleadoAsignado)
+     * @return El precio de la compra, redondeado al entero más cercano
+     */
+    public int venderGasolina( int numeroSurtidor, int idTipoGasolina, double cantidadEntregada, VersionPrecio versionPrecio, int posicionEmpleado )
+    {
+        int precio = registrarVenta( numeroSurtidor, idTipoGasolina, cantidadEntregada, versionPrecio, posicionEmpleado );
+        publicarVenta( numeroSurtidor, idTipoGasolina, posicionEmpleado, versionPrecio.getNumero( ), TipoGasolina.aMicrogalones( cantidadEntregada ), precio );
+        return precio;
+    }
+
+    /**
+     * Registra una venta de gasolina en un surtidor igual que venderGasolina, pero sin publicarla en el bus de ventas. Sirve para que quien registra la venta mientras
+     * tiene algún bloqueo (como la puerta de ventas de la gasolinera) la publique con publicarVenta después de soltarlo: publicar puede esperar a los consumidores
+     * del bus, y esos consumidores pueden estar esperando ese mismo bloqueo.
+     * @param numeroSurtidor El número del surtidor
+     * @param idTipoGasolina El identificador del tipo de gasolina que se vendió
+     * @param cantidadEntregada La cantidad de galones de gasolina que se le entregaron al cliente
+     * @param versionPrecio La versión del precio con la que se cobra la venta
+     * @param posicionEmpleado La posición del empleado que hizo la venta (ver getPosicionEmpleadoAsignado)
+     * @return El precio de la compra, redondeado al entero más cercano
+     */
+    public int registrarVenta( int numeroSurtidor, int idTipoGasolina, double cantidadEntregada, VersionPrecio versionPrecio, int posicionEmpleado )
+    {
+        verificarSurtidor( numeroSurtidor );
+
+        // Calcular el precio de la gasolina vendida y registrar que el empleado tiene esa cantidad de dinero
+        int precio = versionPrecio.calcularPrecio( cantidadEntregada );
+        empleados[ posicionEmpleado ].agregarDinero( precio );
+
+        // Actualizar la cantidad de gasolina vendida en el surtidor y en la versión del precio
+        long microgalones = TipoGasolina.aMicrogalones( cantidadEntregada );
+        galonesVendidos.addAndGet( numeroSurtidor * cantidadTipos + idTipoGasolina, microgalones );
+        surtidoresModificados.marcar( numeroSurtidor );
+        versionPrecio.registrarVenta( microgalones, precio );
+
+        VentasRecientes lasVentasRecientes = ventasRecientes;
+        if( lasVentasRecientes != null )
+        {
+            lasVentasRecientes.registrarVenta( numeroSurtidor, idTipoGasolina, posicionEmpleado, microgalones, precio );
+        }
+        return precio;
+    }
+
+    /**
+     * Publica en el bus de ventas, si la tabla tiene uno, una venta que ya se registró con registrarVenta. Si el bus tiene consumidores que usan BLOQUEAR y el anillo
+     * está lleno, este método espera a que haya espacio, así que no debe llamarse mientras se tiene un bloqueo que los consumidores puedan necesitar
+     * @param numeroSurtidor El número del surtidor
+     * @param idTipoGasolina El identificador del tipo de gasolina que se vendió
+     * @param posicionEmpleado La posición del empleado que hizo la venta
+     * @param numeroVersionPrecio El número de la versión del precio con la que se cobró la venta
+     * @param microgalones La cantidad entregada, en millonésimas de galón
+     * @param precio El precio cobrado
+     */
+    public void publicarVenta( int numeroSurtidor, int idTipoGasolina, int posicionEmpleado, int numeroVersionPrecio, long microgalones, int precio )
+    {
+        BusVentas elBus = busVentas;
+        if( elBus != null )
+        {
+            elBus.publicar( numeroSurtidor, idTipoGasolina, posicionEmpleado, numeroVersionPrecio, microgalones, precio );
+        }
+    }
+}
@@ -1,25 +1,93 @@
 package uniandes.dpoo.gasolinera.logica;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
 import uniandes.dpoo.gasolinera.exceptions.GasolinaInsuficienteException;
 
 /**
  * Encapsula la información sobre un tipo de gasolina disponible en la gasolinera.
  * 
- * Esta clase será la encargada de saber cuánta gasolina de un determinado tipo hay aún disponible en la gasolinera
+ * Esta clase será la encargada de saber cuánta gasolina de un determinado tipo hay aún disponible en la gasolinera.
+ * 
+ * El inventario se guarda en punto fijo, como una cantidad entera de millonésimas de galón dentro de un AtomicLong. Todos los despachos se hacen con un ciclo de
+ * compareAndSet, así que varios hilos pueden despachar gasolina del mismo tipo sin usar candados y sin que dos hilos se lleven los mismos galones.
+ * 
+ * La gasolina también se puede reservar para un surtidor antes de despacharla (ver Gasolinera.reservar). La gasolina reservada sale de la cantidad disponible, así que
+ * nadie más la puede vender, pero sigue estando en el tanque hasta que se confirme que se despachó.
+ * 
+ * El precio es una VersionPrecio inmutable guardada en una sola referencia volatile. Cambiar el precio publica una versión nueva, así que las ventas leen el precio
+ * sin candados y nunca ven un precio a medio cambiar; sólo los cambios de precio se sincronizan entre ellos.
  */
 public class TipoGasolina
 {
+    /**
+     * La cantidad de unidades del inventario que corresponden a un galón
+     */
+    public static final long MICROGALONES_POR_GALON = 1000000L;
+
     private String nombre;
 
-    private int precioPorGalon;
+    /**
+     * La versión vigente del precio. Se reemplaza completa en cada cambio de precio
+     */
+    private volatile VersionPrecio versionPrecio;
+
+    /**
+     * Todas las versiones del precio, en el orden en el que se publicaron. La última es la vigente
+     */
+    private final List<VersionPrecio> historialPrecios = new CopyOnWriteArrayList<VersionPrecio>( );
 
-    private double cantidadDisponible;
+    /**
+     * La cantidad disponible de este tipo de gasolina, en millonésimas de galón
+     */
+    private final AtomicLong microgalonesDisponibles;
+
+    /**
+     * La cantidad de este tipo de gasolina que está reservada y todavía no se ha despachado, en millonésimas de galón
+     */
+    private final AtomicLong microgalonesReservados = new AtomicLong( );
+
+    /**
+     * Indica si el inventario ha cambiado desde la última vez que se llamó tomarModificado
+     */
+    private final AtomicBoolean modificado = new AtomicBoolean( );
 
     public TipoGasolina( String nombre, int precioPorGalon, double cantidadDisponible )
+    {
+        this( nombre, precioPorGalon, cantidadDisponible, 1 );
+    }
+
+    /**
+     * Construye un tipo de gasolina cuyo precio vigente tiene un número de versión dado. Se usa al cargar una gasolinera guardada, para que la numeración de las
+     * versiones siga donde iba
+     * @param nombre El nombre del tipo de gasolina
+     * @param precioPorGalon El precio por galón vigente
+     * @param cantidadDisponible La cantidad de galones disponibles
+     * @param numeroVersionPrecio El número de la versión del precio vigente
+     */
+    public TipoGasolina( String nombre, int precioPorGalon, double cantidadDisponible, int numeroVersionPrecio )
+    {
+        this( nombre, precioPorGalon, cantidadDisponible, numeroVersionPrecio, System.currentTimeMillis( ) );
+    }
+
+    /**
+     * Construye un tipo de gasolina cuyo precio vigente tiene un número de versión y un momento de publicación dados. Se usa al cargar una gasolinera guardada
+     * @param nombre El nombre del tipo de gasolina
+     * @param precioPorGalon El precio por galón vigente
+     * @param cantidadDisponible La cantidad de galones disponibles
+     * @param numeroVersionPrecio El número de la versión del precio vigente
+     * @param desdeVersionPrecio El momento en el que se publicó la versión del precio vigente, en milisegundos desde 1970
+     */
+    public TipoGasolina( String nombre, int precioPorGalon, double cantidadDisponible, int numeroVersionPrecio, long desdeVersionPrecio )
     {
         this.nombre = nombre;
-        this.precioPorGalon = precioPorGalon;
-        this.cantidadDisponible = cantidadDisponible;
+        this.versionPrecio = new VersionPrecio( numeroVersionPrecio, precioPorGalon, desdeVersionPrecio );
+        this.historialPrecios.add( versionPrecio );
+        this.microgalonesDisponibles = new AtomicLong( aMicrogalones( cantidadDisponible ) );
     }
 
     public String getNombre( )
@@ -29,25 +97,273 @@ public class TipoGasolina
 
     public int getPrecioPorGalon( )
     {
-        return precioPorGalon;
+        return versionPrecio.getPrecioPorGalon( );
+    }
+
+    /**
+     * Retorna la versión vigente del precio. Quien necesite usar el precio varias veces para una misma venta debe leer la versión una sola vez y usarla siempre, en
+     * lugar de llamar varias veces a getPrecioPorGalon
+     * @return La versión vigente del precio
+     */
+    public VersionPrecio getVersionPrecio( )
+    {
+        return versionPrecio;
+    }
+
+    /**
+     * Retorna todas las versiones del precio de este tipo de gasolina desde que se creó o se cargó, en el orden en el que se publicaron
+     * @return Una lista que no se puede modificar con las versiones del precio
+     */
+    public List<VersionPrecio> getHistorialPrecios( )
+    {
+        return Collections.unmodifiableList( historialPrecios );
+    }
+
+    /**
+     * Busca en el historial la versión del precio con un número
+     * @param numero El número de la versión
+     * @return La versión del precio, o null si no está en el historial
+     */
+    public VersionPrecio buscarVersionPrecio( int numero )
+    {
+        VersionPrecio vigente = versionPrecio;
+        if( vigente.getNumero( ) == numero )
+        {
+            return vigente;
+        }
+        for( VersionPrecio version : historialPrecios )
+        {
+            if( version.getNumero( ) == numero )
+            {
+                return version;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Cambia el precio de este tipo de gasolina publicando una nueva versión del precio. Las ventas que ya habían leído la versión anterior se cobran con el precio
+     * anterior; las siguientes, con el nuevo
+     * @param precioPorGalon El nuevo precio por galón
+     * @return La versión publicada
+     * @throws IllegalArgumentException Se lanza esta excepción si el precio no es positivo
+     */
+    public synchronized VersionPrecio cambiarPrecio( int precioPorGalon )
+    {
+        return publicarVersion( versionPrecio.getNumero( ) + 1, precioPorGalon, System.currentTimeMillis( ) );
+    }
+
+    /**
+     * Vuelve a publicar una versión del precio que se había publicado antes, por ejemplo al reproducir un diario de ventas. Si la versión no es más nueva que la
+     * vigente, no se cambia nada: el precio vigente ya la tiene en cuenta
+     * @param numero El número de la versión
+     * @param precioPorGalon El precio por galón de la versión
+     * @param desde El momento en el que se publicó la versión, en milisegundos desde 1970
+     * @return La versión vigente después de restaurar
+     * @throws IllegalArgumentException Se lanza esta excepción si el precio no es positivo
+     */
+    public synchronized VersionPrecio restaurarPrecio( int numero, int precioPorGalon, long desde )
+    {
+        if( numero <= versionPrecio.getNumero( ) )
+        {
+            return versionPrecio;
+        }
+        return publicarVersion( numero, precioPorGalon, desde );
+    }
+
+    /**
+     * Publica una versión del precio como la vigente y la agrega al final del historial. Debe llamarse con el candado del tipo de gasolina
+     */
+    private VersionPrecio publicarVersion( int numero, int precioPorGalon, long desde )
+    {
+        if( precioPorGalon <= 0 )
+        {
+            throw new IllegalArgumentException( "El precio de la gasolina " + nombre + " debe ser positivo: " + precioPorGalon );
+        }
+        VersionPrecio nueva = new VersionPrecio( numero, precioPorGalon, desde );
+        historialPrecios.add( nueva );
+        versionPrecio = nueva;
+        marcarModificado( );
+        return nueva;
     }
 
     public double getCantidadDisponible( )
     {
-        return cantidadDisponible;
+        return aGalones( microgalonesDisponibles.get( ) );
+    }
+
+    /**
+     * Retorna la cantidad disponible de este tipo de gasolina, sin convertirla a galones
+     * @return La cantidad disponible, en millonésimas de galón
+     */
+    public long getMicrogalonesDisponibles( )
+    {
+        return microgalonesDisponibles.get( );
     }
 
+    /**
+     * Retorna la cantidad reservada de este tipo de gasolina que todavía no se ha despachado
+     * @return La cantidad reservada, en millonésimas de galón
+     */
+    public long getMicrogalonesReservados( )
+    {
+        return microgalonesReservados.get( );
+    }
+
+    /**
+     * Retorna la cantidad de este tipo de gasolina que hay en el tanque: la disponible más la reservada. Es la que se guarda en los archivos, porque una reserva que
+     * no se haya confirmado no debe perderse si la aplicación falla
+     * @return La cantidad en el tanque, en millonésimas de galón
+     */
+    public long getMicrogalonesEnTanque( )
+    {
+        return microgalonesDisponibles.get( ) + microgalonesReservados.get( );
+    }
+
+    /**
+     * Reserva la cantidad solicitada o, si no alcanza, todo lo que quede disponible. La decisión de cuánto reservar se hace en un solo paso atómico, igual que en
+     * despacharMicrogalonesHasta
+     * @param microgalonesSolicitados La cantidad que se quiere reservar, en millonésimas de galón
+     * @return La cantidad que realmente se reservó, en millonésimas de galón
+     */
+    public long reservarMicrogalonesHasta( long microgalonesSolicitados )
+    {
+        long reservados = despacharMicrogalonesHasta( microgalonesSolicitados );
+        if( reservados > 0 )
+        {
+            microgalonesReservados.addAndGet( reservados );
+            modificado.set( true );
+        }
+        return reservados;
+    }
+
+    /**
+     * Termina una reserva: lo que se despachó sale del tanque y lo que no se despachó vuelve a estar disponible
+     * @param microgalonesReservados La cantidad que se había reservado, en millonésimas de galón
+     * @param microgalonesDespachados La cantidad que se despachó, en millonésimas de galón. No puede ser mayor que la reservada
+     */
+    public void terminarReserva( long microgalonesReservados, long microgalonesDespachados )
+    {
+        long devueltos = microgalonesReservados - microgalonesDespachados;
+        if( devueltos > 0 )
+        {
+            microgalonesDisponibles.addAndGet( devueltos );
+        }
+        this.microgalonesReservados.addAndGet( -microgalonesReservados );
+
+        // La marca se pone después de cambiar los dos valores, para que un archivo de cambios que los haya leído a medio cambiar se corrija en el siguiente
+        modificado.set( true );
+    }
+
+    /**
+     * Reduce la cantidad disponible de este tipo de gasolina, únicamente si alcanza para despachar toda la cantidad solicitada.
+     * 
+     * Este método es para quienes necesitan que la venta sea completa o no se haga. Si una venta parcial es aceptable, es mejor usar despacharHasta.
+     * @param cantidadSolicitada La cantidad de galones que se quiere despachar
+     * @throws GasolinaInsuficienteException Se lanza esta excepción si no hay suficiente gasolina para despachar la cantidad solicitada
+     */
     public void despacharGasolina( double cantidadSolicitada ) throws GasolinaInsuficienteException
     {
-        // Verificar si hay suficiente gasolina y lanzar una excepción si no alcanza
-        if( cantidadSolicitada > cantidadDisponible )
+        long solicitados = aMicrogalones( cantidadSolicitada );
+        long disponibles;
+        do
         {
-            GasolinaInsuficienteException ex = new GasolinaInsuficienteException( nombre, cantidadDisponible, cantidadSolicitada );
-            throw ex;
+            // Verificar si hay suficiente gasolina y lanzar una excepción si no alcanza
+            disponibles = microgalonesDisponibles.get( );
+            if( solicitados > disponibles )
+            {
+                GasolinaInsuficienteException ex = new GasolinaInsuficienteException( nombre, aGalones( disponibles ), cantidadSolicitada );
+                throw ex;
+            }
+
+            // Reducir la cantidad disponible, sólo si ningún otro hilo la cambió desde que se leyó
+        } while( !microgalonesDisponibles.compareAndSet( disponibles, disponibles - solicitados ) );
+        marcarModificado( );
+    }
+
+    /**
+     * Despacha la cantidad solicitada o, si no alcanza, todo lo que quede de este tipo de gasolina.
+     * 
+     * La decisión de cuánto despachar y la reducción del inventario se hacen en un solo paso atómico. A diferencia de despacharGasolina, este método no lanza
+     * excepciones ni crea objetos cuando no alcanza la gasolina, así que es el que debe usarse cuando una venta parcial es aceptable.
+     * @param cantidadSolicitada La cantidad de galones que se quiere despachar
+     * @return La cantidad de galones que realmente se despachó
+     */
+    public double despacharHasta( double cantidadSolicitada )
+    {
+        return aGalones( despacharMicrogalonesHasta( aMicrogalones( cantidadSolicitada ) ) );
+    }
+
+    /**
+     * Despacha la cantidad solicitada, expresada en millonésimas de galón, o todo lo que quede si no alcanza. Funciona igual que despacharHasta.
+     * @param microgalonesSolicitados La cantidad que se quiere despachar, en millonésimas de galón
+     * @return La cantidad que realmente se despachó, en millonésimas de galón
+     */
+    public long despacharMicrogalonesHasta( long microgalonesSolicitados )
+    {
+        long disponibles;
+        long entregados;
+        do
+        {
+            disponibles = microgalonesDisponibles.get( );
+            entregados = Math.min( microgalonesSolicitados, disponibles );
+        } while( !microgalonesDisponibles.compareAndSet( disponibles, disponibles - entregados ) );
+
+        if( entregados > 0 )
+        {
+            marcarModificado( );
         }
+        return entregados;
+    }
 
-        // Reducir la cantidad disponible
-        cantidadDisponible -= cantidadSolicitada;
+    /**
+     * Cambia la cantidad disponible de este tipo de gasolina
+     * @param cantidadDisponible La nueva cantidad de galones disponibles
+     */
+    public void cambiarCantidadDisponible( double cantidadDisponible )
+    {
+        microgalonesDisponibles.set( aMicrogalones( cantidadDisponible ) );
+        marcarModificado( );
+    }
+
+    /**
+     * Marca que el inventario cambió. La marca sólo se escribe si no estaba puesta, para que las ventas no escriban en la misma posición de memoria
+     */
+    private void marcarModificado( )
+    {
+        if( !modificado.get( ) )
+        {
+            modificado.set( true );
+        }
+    }
+
+    /**
+     * Indica si el inventario ha cambiado desde la última vez que se llamó este método, y quita la marca
+     * @return true si el inventario cambió
+     */
+    public boolean tomarModificado( )
+    {
+        return modificado.getAndSet( false );
+    }
+
+    /**
+     * Convierte una cantidad de galones a millonésimas de galón, redondeando a la unidad más cercana
+     * @param galones La cantidad de galones
+     * @return La cantidad equivalente en millonésimas de galón
+     */
+    public static long aMicrogalones( double galones )
+    {
+        return Math.round( galones * MICROGALONES_POR_GALON );
+    }
+
+    /**
+     * Convierte una cantidad en millonésimas de galón a galones
+     * @param microgalones La cantidad en millonésimas de galón
+     * @return La cantidad equivalente en galones
+     */
+    public static double aGalones( long microgalones )
+    {
+        return microgalones / ( double )MICROGALONES_POR_GALON;
     }
 
     @Override
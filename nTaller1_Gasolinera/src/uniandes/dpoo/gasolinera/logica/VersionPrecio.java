@@ -0,0 +1,111 @@
+package uniandes.dpoo.gasolinera.logica;
+
+import uniandes.dpoo.gasolinera.utils.AcumuladorRepartido;
+
+/**
+ * Una versión del precio de un tipo de gasolina: el precio por galón que rigió desde un momento hasta que se publicó la siguiente versión.
+ *
+ * El número y el precio de una versión nunca cambian. Cada venta lee una sola vez la versión vigente de su tipo de gasolina y calcula el precio con ella, así que un
+ * cambio de precio hecho mientras tanto no puede hacer que una venta use un precio a medias o mezcle dos precios. La versión también acumula lo que se vendió con
+ * ella, para poder saber cuánto dinero entró en cada periodo de precios.
+ */
+public class VersionPrecio
+{
+    /**
+     * El número de la versión. Las versiones de un tipo de gasolina se numeran desde 1, en el orden en el que se publicaron
+     */
+    private final int numero;
+
+    /**
+     * El precio por galón de esta versión
+     */
+    private final int precioPorGalon;
+
+    /**
+     * El momento en el que se publicó la versión, en milisegundos desde 1970
+     */
+    private final long desde;
+
+    /**
+     * El dinero cobrado en las ventas hechas con esta versión
+     */
+    private final AcumuladorRepartido dineroCobrado = new AcumuladorRepartido( );
+
+    /**
+     * La gasolina vendida con esta versión, en millonésimas de galón
+     */
+    private final AcumuladorRepartido microgalonesVendidos = new AcumuladorRepartido( );
+
+    /**
+     * Construye una versión del precio
+     * @param numero El número de la versión
+     * @param precioPorGalon El precio por galón
+     * @param desde El momento en el que se publicó la versión, en milisegundos desde 1970
+     */
+    public VersionPrecio( int numero, int precioPorGalon, long desde )
+    {
+        this.numero = numero;
+        this.precioPorGalon = precioPorGalon;
+        this.desde = desde;
+    }
+
+    public int getNumero( )
+    {
+        return numero;
+    }
+
+    public int getPrecioPorGalon( )
+    {
+        return precioPorGalon;
+    }
+
+    public long getDesde( )
+    {
+        return desde;
+    }
+
+    /**
+     * Calcula el precio de una cantidad de gasolina con esta versión
+     * @param galones La cantidad de galones
+     * @return El precio, redondeado al entero más cercano
+     */
+    public int calcularPrecio( double galones )
+    {
+        return ( int )Math.round( precioPorGalon * galones );
+    }
+
+    /**
+     * Suma a esta versión una venta hecha con su precio
+     * @param microgalones La cantidad vendida, en millonésimas de galón
+     * @param precio El precio cobrado
+     */
+    public void registrarVenta( long microgalones, int precio )
+    {
+        dineroCobrado.agregar( precio );
+        microgalonesVendidos.agregar( microgalones );
+    }
+
+    /**
+     * Retorna el dinero cobrado en las ventas hechas con esta versión
+     * @return El dinero cobrado
+     */
+    public long getDineroCobrado( )
+    {
+        return dineroCobrado.sumar( );
+    }
+
+    /**
+     * Retorna la gasolina vendida con esta versión
+     * @return La cantidad vendida, en galones
+     */
+    public double getGalonesVendidos( )
+    {
+        return TipoGasolina.aGalones( microgalonesVendidos.sumar( ) );
+    }
+
+    @Override
+    public String toString( )
+    {
+        return "v" + numero + " (" + precioPorGalon + ")";
+    }
+}
@@ -0,0 +1,133 @@
+package uniandes.dpoo.gasolinera.metricas;
+
+/**
+ * Esta es la interfaz con la que las métricas de una gasolinera se publican por JMX (ver MetricasGasolinera.registrarEnJMX), para consultarlas por ejemplo con
+ * jconsole o VisualVM.
+ *
+ * Los arreglos por tipo de gasolina están en el mismo orden que getTiposGasolina, y los arreglos por surtidor están ordenados por número de surtidor. Las latencias
+ * se reportan en microsegundos y los tiempos de carga y guardado en milisegundos.
+ */
+public interface GasolineraMBean
+{
+    /**
+     * Retorna la cantidad de ventas hechas desde que se activaron las métricas
+     * @return La cantidad de ventas
+     */
+    long getVentas( );
+
+    /**
+     * Retorna la cantidad de ventas en las que no alcanzó la gasolina y se entregó menos de lo pedido
+     * @return La cantidad de ventas incompletas
+     */
+    long getVentasIncompletas( );
+
+    /**
+     * Retorna el dinero cobrado en todas las ventas
+     * @return El dinero cobrado
+     */
+    long getDinero( );
+
+    /**
+     * Retorna la mediana de la latencia de las ventas
+     * @return La latencia en microsegundos
+     */
+    double getLatenciaP50( );
+
+    /**
+     * Retorna el percentil 99 de la latencia de las ventas
+     * @return La latencia en microsegundos
+     */
+    double getLatenciaP99( );
+
+    /**
+     * Retorna el percentil 99.9 de la latencia de las ventas
+     * @return La latencia en microsegundos
+     */
+    double getLatenciaP999( );
+
+    /**
+     * Retorna la mayor latencia de las ventas
+     * @return La latencia en microsegundos
+     */
+    double getLatenciaMaxima( );
+
+    /**
+     * Retorna los nombres de los tipos de gasolina, en el orden de los arreglos por tipo
+     * @return Los nombres de los tipos de gasolina
+     */
+    String[] getTiposGasolina( );
+
+    /**
+     * Retorna la cantidad de ventas de cada tipo de gasolina
+     * @return Las cantidades de ventas, en el orden de getTiposGasolina
+     */
+    long[] getVentasPorTipo( );
+
+    /**
+     * Retorna la cantidad de ventas incompletas de cada tipo de gasolina
+     * @return Las cantidades de ventas incompletas, en el orden de getTiposGasolina
+     */
+    long[] getVentasIncompletasPorTipo( );
+
+    /**
+     * Retorna el dinero cobrado por cada tipo de gasolina
+     * @return El dinero cobrado, en el orden de getTiposGasolina
+     */
+    long[] getDineroPorTipo( );
+
+    /**
+     * Retorna el percentil 99 de la latencia de las ventas de cada tipo de gasolina
+     * @return Las latencias en microsegundos, en el orden de getTiposGasolina
+     */
+    double[] getLatenciaP99PorTipo( );
+
+    /**
+     * Retorna la cantidad de ventas de cada surtidor
+     * @return Las cantidades de ventas, ordenadas por número de surtidor
+     */
+    long[] getVentasPorSurtidor( );
+
+    /**
+     * Retorna la cantidad de ventas incompletas de cada surtidor
+     * @return Las cantidades de ventas incompletas, ordenadas por número de surtidor
+     */
+    long[] getVentasIncompletasPorSurtidor( );
+
+    /**
+     * Retorna el dinero cobrado en cada surtidor
+     * @return El dinero cobrado, ordenado por número de surtidor
+     */
+    long[] getDineroPorSurtidor( );
+
+    /**
+     * Retorna la cantidad de ventas de un tipo de gasolina en un surtidor
+     * @param numeroSurtidor El número del surtidor
+     * @param nombreTipoGasolina El nombre del tipo de gasolina
+     * @return La cantidad de ventas, o -1 si el surtidor o el tipo no existen
+     */
+    long consultarVentas( int numeroSurtidor, String nombreTipoGasolina );
+
+    /**
+     * Retorna la cantidad de veces que se ha guardado el estado de la gasolinera desde que se activaron las métricas
+     * @return La cantidad de guardados
+     */
+    long getGuardados( );
+
+    /**
+     * Retorna la mediana del tiempo de los guardados
+     * @return El tiempo en milisegundos
+     */
+    double getGuardadoP50( );
+
+    /**
+     * Retorna el mayor tiempo de los guardados
+     * @return El tiempo en milisegundos
+     */
+    double getGuardadoMaximo( );
+
+    /**
+     * Retorna el tiempo que tomó cargar la gasolinera de sus archivos
+     * @return El tiempo en milisegundos, o 0 si la gasolinera no se cargó de un archivo
+     */
+    double getTiempoCarga( );
+}
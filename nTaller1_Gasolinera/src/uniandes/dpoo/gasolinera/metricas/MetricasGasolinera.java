@@ -0,0 +1,381 @@
+package uniandes.dpoo.gasolinera.metricas;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import uniandes.dpoo.gasolinera.logica.Gasolinera;
+import uniandes.dpoo.gasolinera.logica.RegistroTiposGasolina;
+import uniandes.dpoo.gasolinera.utils.HistogramaLatencias;
+
+/**
+ * Esta clase cuenta las ventas y los guardados de una gasolinera, para saber cómo se está comportando mientras funciona.
+ *
+ * Las ventas se cuentan por surtidor y por tipo de gasolina: hay un contador por cada pareja de surtidor y tipo, y los totales por surtidor o por tipo se calculan
+ * al consultarlos. Las latencias se registran en un histograma por tipo de gasolina, y los percentiles de todas las ventas se calculan juntando esos histogramas;
+ * no hay un histograma por surtidor, porque con muchos surtidores ocuparían demasiada memoria.
+ *
+ * Las métricas se activan con Gasolinera.activarMetricas. Mientras están apagadas, cada venta sólo lee un atributo de la gasolinera para ver que no hay métricas.
+ * Las métricas se pueden publicar por JMX con registrarEnJMX (ver GasolineraMBean).
+ */
+public class MetricasGasolinera implements GasolineraMBean
+{
+    // ************************************************************************
+    // Atributos
+    // ************************************************************************
+
+    /**
+     * El dominio de los nombres JMX de las gasolineras
+     */
+    public static final String DOMINIO_JMX = "uniandes.dpoo.gasolinera";
+
+    /**
+     * El registro de los tipos de gasolina de la gasolinera
+     */
+    private RegistroTiposGasolina tiposGasolina;
+
+    /**
+     * La gasolinera de las métricas
+     */
+    private Gasolinera gasolinera;
+
+    /**
+     * La cantidad de tipos de gasolina
+     */
+    private int cantidadTipos;
+
+    /**
+     * La cantidad de surtidores que había cuando se activaron las métricas. Las ventas de surtidores agregados después no se cuentan
+     */
+    private int cantidadSurtidores;
+
+    /**
+     * La cantidad de ventas de cada surtidor y tipo. El contador del surtidor n y el tipo t está en la posición n * cantidadTipos + t
+     */
+    private AtomicLongArray ventas;
+
+    /**
+     * La cantidad de ventas incompletas de cada surtidor y tipo, en las mismas posiciones que ventas
+     */
+    private AtomicLongArray ventasIncompletas;
+
+    /**
+     * El dinero cobrado en cada surtidor y tipo, en las mismas posiciones que ventas
+     */
+    private AtomicLongArray dinero;
+
+    /**
+     * Las latencias de las ventas de cada tipo de gasolina
+     */
+    private HistogramaLatencias[] latenciasPorTipo;
+
+    /**
+     * Los tiempos de los guardados
+     */
+    private HistogramaLatencias guardados;
+
+    /**
+     * El nombre con el que las métricas están registradas en JMX, o null si no están registradas
+     */
+    private ObjectName nombreJMX;
+
+    // ************************************************************************
+    // Constructores
+    // ************************************************************************
+
+    /**
+     * Construye las métricas de una gasolinera, con todos los contadores en 0
+     * @param gasolinera La gasolinera
+     */
+    public MetricasGasolinera( Gasolinera gasolinera )
+    {
+        this.gasolinera = gasolinera;
+        this.tiposGasolina = gasolinera.getRegistroTiposGasolina( );
+        this.cantidadTipos = tiposGasolina.getCantidadTipos( );
+        this.cantidadSurtidores = gasolinera.getCantidadSurtidores( );
+        this.ventas = new AtomicLongArray( cantidadSurtidores * cantidadTipos );
+        this.ventasIncompletas = new AtomicLongArray( cantidadSurtidores * cantidadTipos );
+        this.dinero = new AtomicLongArray( cantidadSurtidores * cantidadTipos );
+        this.latenciasPorTipo = new HistogramaLatencias[cantidadTipos];
+        for( int t = 0; t < cantidadTipos; t++ )
+        {
+            latenciasPorTipo[ t ] = new HistogramaLatencias( );
+        }
+        this.guardados = new HistogramaLatencias( );
+    }
+
+    // ************************************************************************
+    // Registro
+    // ************************************************************************
+
+    /**
+     * Cuenta una venta
+     * @param numeroSurtidor El número del surtidor donde se hizo la venta
+     * @param idTipoGasolina El identificador del tipo de gasolina
+     * @param incompleta Indica si se entregó menos de lo que se pidió
+     * @param precio El precio cobrado
+     */
+    public void registrarVenta( int numeroSurtidor, int idTipoGasolina, boolean incompleta, int precio )
+    {
+        if( numeroSurtidor >= cantidadSurtidores )
+            return;
+        int posicion = numeroSurtidor * cantidadTipos + idTipoGasolina;
+        ventas.incrementAndGet( posicion );
+        if( incompleta )
+            ventasIncompletas.incrementAndGet( posicion );
+        dinero.addAndGet( posicion, precio );
+    }
+
+    /**
+     * Registra la latencia de una venta
+     * @param idTipoGasolina El identificador del tipo de gasolina
+     * @param nanosegundos La latencia en nanosegundos
+     */
+    public void registrarLatencia( int idTipoGasolina, long nanosegundos )
+    {
+        latenciasPorTipo[ idTipoGasolina ].registrar( nanosegundos );
+    }
+
+    /**
+     * Registra el tiempo de un guardado
+     * @param nanosegundos El tiempo en nanosegundos
+     */
+    public void registrarGuardado( long nanosegundos )
+    {
+        guardados.registrar( nanosegundos );
+    }
+
+    /**
+     * Publica las métricas por JMX, en el servidor de MBeans de la plataforma, con el nombre uniandes.dpoo.gasolinera:type=Gasolinera,name=nombre. Si ya estaban
+     * publicadas con otro nombre, se retiran antes
+     * @param nombre El nombre de la gasolinera
+     * @return El nombre JMX de las métricas
+     * @throws JMException Se lanza esta excepción si no se pudieron registrar, por ejemplo porque ya hay otra gasolinera con el mismo nombre
+     */
+    public synchronized ObjectName registrarEnJMX( String nombre ) throws JMException
+    {
+        retirarDeJMX( );
+        ObjectName nombreCompleto = new ObjectName( DOMINIO_JMX + ":type=Gasolinera,name=" + ObjectName.quote( nombre ) );
+        MBeanServer servidor = ManagementFactory.getPlatformMBeanServer( );
+        servidor.registerMBean( new StandardMBean( this, GasolineraMBean.class ), nombreCompleto );
+        nombreJMX = nombreCompleto;
+        return nombreCompleto;
+    }
+
+    /**
+     * Retira las métricas de JMX, si estaban publicadas
+     * @throws JMException Se lanza esta excepción si no se pudieron retirar
+     */
+    public synchronized void retirarDeJMX( ) throws JMException
+    {
+        if( nombreJMX != null )
+        {
+            ManagementFactory.getPlatformMBeanServer( ).unregisterMBean( nombreJMX );
+            nombreJMX = null;
+        }
+    }
+
+    /**
+     * Retorna el nombre con el que las métricas están publicadas por JMX
+     * @return El nombre JMX, o null si no están publicadas
+     */
+    public synchronized ObjectName getNombreJMX( )
+    {
+        return nombreJMX;
+    }
+
+    // ************************************************************************
+    // Consultas
+    // ************************************************************************
+
+    /**
+     * Suma los contadores de todos los surtidores y tipos
+     * @param contadores Los contadores
+     * @return La suma
+     */
+    private long sumarTodo( AtomicLongArray contadores )
+    {
+        long total = 0;
+        for( int i = 0; i < contadores.length( ); i++ )
+        {
+            total += contadores.get( i );
+        }
+        return total;
+    }
+
+    /**
+     * Suma los contadores de cada tipo de gasolina, en todos los surtidores
+     * @param contadores Los contadores
+     * @return La suma de cada tipo
+     */
+    private long[] sumarPorTipo( AtomicLongArray contadores )
+    {
+        long[] totales = new long[cantidadTipos];
+        for( int i = 0; i < contadores.length( ); i++ )
+        {
+            totales[ i % cantidadTipos ] += contadores.get( i );
+        }
+        return totales;
+    }
+
+    /**
+     * Suma los contadores de cada surtidor, de todos los tipos de gasolina
+     * @param contadores Los contadores
+     * @return La suma de cada surtidor
+     */
+    private long[] sumarPorSurtidor( AtomicLongArray contadores )
+    {
+        long[] totales = new long[cantidadSurtidores];
+        for( int i = 0; i < contadores.length( ); i++ )
+        {
+            totales[ i / cantidadTipos ] += contadores.get( i );
+        }
+        return totales;
+    }
+
+    /**
+     * Junta los histogramas de latencia de todos los tipos de gasolina
+     * @return Un histograma con las latencias de todas las ventas
+     */
+    private HistogramaLatencias juntarLatencias( )
+    {
+        HistogramaLatencias latencias = new HistogramaLatencias( );
+        for( HistogramaLatencias latenciasTipo : latenciasPorTipo )
+        {
+            latencias.agregar( latenciasTipo );
+        }
+        return latencias;
+    }
+
+    @Override
+    public long getVentas( )
+    {
+        return sumarTodo( ventas );
+    }
+
+    @Override
+    public long getVentasIncompletas( )
+    {
+        return sumarTodo( ventasIncompletas );
+    }
+
+    @Override
+    public long getDinero( )
+    {
+        return sumarTodo( dinero );
+    }
+
+    @Override
+    public double getLatenciaP50( )
+    {
+        return juntarLatencias( ).calcularPercentil( 50 ) / 1e3;
+    }
+
+    @Override
+    public double getLatenciaP99( )
+    {
+        return juntarLatencias( ).calcularPercentil( 99 ) / 1e3;
+    }
+
+    @Override
+    public double getLatenciaP999( )
+    {
+        return juntarLatencias( ).calcularPercentil( 99.9 ) / 1e3;
+    }
+
+    @Override
+    public double getLatenciaMaxima( )
+    {
+        return juntarLatencias( ).getMaximo( ) / 1e3;
+    }
+
+    @Override
+    public String[] getTiposGasolina( )
+    {
+        return tiposGasolina.getNombres( );
+    }
+
+    @Override
+    public long[] getVentasPorTipo( )
+    {
+        return sumarPorTipo( ventas );
+    }
+
+    @Override
+    public long[] getVentasIncompletasPorTipo( )
+    {
+        return sumarPorTipo( ventasIncompletas );
+    }
+
+    @Override
+    public long[] getDineroPorTipo( )
+    {
+        return sumarPorTipo( dinero );
+    }
+
+    @Override
+    public double[] getLatenciaP99PorTipo( )
+    {
+        double[] percentiles = new double[cantidadTipos];
+        for( int t = 0; t < cantidadTipos; t++ )
+        {
+            percentiles[ t ] = latenciasPorTipo[ t ].calcularPercentil( 99 ) / 1e3;
+        }
+        return percentiles;
+    }
+
+    @Override
+    public long[] getVentasPorSurtidor( )
+    {
+        return sumarPorSurtidor( ventas );
+    }
+
+    @Override
+    public long[] getVentasIncompletasPorSurtidor( )
+    {
+        return sumarPorSurtidor( ventasIncompletas );
+    }
+
+    @Override
+    public long[] getDineroPorSurtidor( )
+    {
+        return sumarPorSurtidor( dinero );
+    }
+
+    @Override
+    public long consultarVentas( int numeroSurtidor, String nombreTipoGasolina )
+    {
+        int idTipo = tiposGasolina.getIdentificador( nombreTipoGasolina );
+        if( idTipo == -1 || numeroSurtidor < 0 || numeroSurtidor >= cantidadSurtidores )
+            return -1;
+        return ventas.get( numeroSurtidor * cantidadTipos + idTipo );
+    }
+
+    @Override
+    public long getGuardados( )
+    {
+        return guardados.getCantidad( );
+    }
+
+    @Override
+    public double getGuardadoP50( )
+    {
+        return guardados.calcularPercentil( 50 ) / 1e6;
+    }
+
+    @Override
+    public double getGuardadoMaximo( )
+    {
+        return guardados.getMaximo( ) / 1e6;
+    }
+
+    @Override
+    public double getTiempoCarga( )
+    {
+        return gasolinera.getNanosegundosCarga( ) / 1e6;
+    }
+}
@@ -0,0 +1,252 @@
+package uniandes.dpoo.gasolinera.metricas;
+
+import java.util.concurrent.TimeUnit;
+
+import uniandes.dpoo.gasolinera.logica.Empleado;
+import uniandes.dpoo.gasolinera.logica.Gasolinera;
+import uniandes.dpoo.gasolinera.logica.TablaSurtidores;
+import uniandes.dpoo.gasolinera.logica.TipoGasolina;
+import uniandes.dpoo.gasolinera.utils.ContadoresPorPeriodo;
+
+/**
+ * Esta clase acumula las ventas recientes de una gasolinera, para responder preguntas como "cuánta gasolina extra se vendió en el surtidor 3 en la última hora" o
+ * "cuánto dinero recogió Alice en los últimos 15 minutos".
+ *
+ * Los galones vendidos se acumulan por surtidor y tipo de gasolina, y el dinero por empleado. Cada uno se guarda dos veces en anillos de contadores (ver
+ * ContadoresPorPeriodo): uno con los últimos MINUTOS minutos y otro con las últimas HORAS horas. Registrar una venta son cuatro operaciones atómicas, sin
+ * importar cuántas ventas haya habido, y una consulta suma a lo sumo una ranura por periodo de la ventana, sin recorrer las ventas.
+ *
+ * Las ventanas de hasta MINUTOS minutos se responden por minutos, incluyendo el minuto en curso. Las más largas se responden por horas del reloj, desde la hora en
+ * la que empieza la ventana hasta la hora en curso: nunca dejan por fuera ventas de la ventana, pero pueden contar hasta 59 minutos de ventas anteriores a su
+ * comienzo. Por ejemplo, una ventana de 90 minutos consultada a las 10:15 empieza a las 8:46 y se responde con las ventas desde las 8:00.
+ *
+ * Las ventas recientes se activan con Gasolinera.activarVentasRecientes, y desde ese momento se acumulan todas las ventas que pasan por la tabla de surtidores
+ * (ver TablaSurtidores.venderGasolina), incluidas las que se hacen directamente en un Surtidor. Las ventas que se reproducen de un diario no se cuentan. Igual que
+ * en MetricasGasolinera, las ventas de surtidores agregados después de activarlas no se cuentan.
+ */
+public class VentasRecientes
+{
+    // ************************************************************************
+    // Atributos
+    // ************************************************************************
+
+    /**
+     * La cantidad de minutos que se recuerdan minuto a minuto
+     */
+    public static final int MINUTOS = 60;
+
+    /**
+     * La cantidad de horas que se recuerdan hora a hora
+     */
+    public static final int HORAS = 24;
+
+    /**
+     * La tabla de surtidores de la gasolinera, para encontrar la posición de cada empleado
+     */
+    private TablaSurtidores surtidores;
+
+    /**
+     * La gasolinera de las ventas
+     */
+    private Gasolinera gasolinera;
+
+    /**
+     * La cantidad de tipos de gasolina
+     */
+    private int cantidadTipos;
+
+    /**
+     * La cantidad de surtidores que había cuando se activaron las ventas recientes
+     */
+    private int cantidadSurtidores;
+
+    /**
+     * La cantidad de empleados de la gasolinera. Los empleados se identifican por su posición en la tabla de surtidores, que siempre es menor a esta cantidad
+     */
+    private int cantidadEmpleados;
+
+    /**
+     * Los galones vendidos por minuto, en millonésimas de galón. El contador del surtidor n y el tipo t es el n * cantidadTipos + t
+     */
+    private ContadoresPorPeriodo galonesPorMinuto;
+
+    /**
+     * Los galones vendidos por hora, con los mismos contadores que galonesPorMinuto. Recuerdan una hora más que HORAS, porque una ventana de HORAS horas que no
+     * empieza en una hora exacta toca HORAS + 1 horas del reloj
+     */
+    private ContadoresPorPeriodo galonesPorHora;
+
+    /**
+     * El dinero recogido por minuto. El contador de cada empleado es su posición en la tabla de surtidores
+     */
+    private ContadoresPorPeriodo dineroPorMinuto;
+
+    /**
+     * El dinero recogido por hora, con los mismos contadores que dineroPorMinuto
+     */
+    private ContadoresPorPeriodo dineroPorHora;
+
+    // ************************************************************************
+    // Constructores
+    // ************************************************************************
+
+    /**
+     * Construye las ventas recientes de una gasolinera, sin ventas
+     * @param gasolinera La gasolinera
+     */
+    public VentasRecientes( Gasolinera gasolinera )
+    {
+        this.gasolinera = gasolinera;
+        this.surtidores = gasolinera.getTablaSurtidores( );
+        this.cantidadTipos = gasolinera.getRegistroTiposGasolina( ).getCantidadTipos( );
+        this.cantidadSurtidores = gasolinera.getCantidadSurtidores( );
+        this.cantidadEmpleados = gasolinera.getEmpleados( ).size( );
+        this.galonesPorMinuto = new ContadoresPorPeriodo( cantidadSurtidores * cantidadTipos, MINUTOS, TimeUnit.MINUTES.toMillis( 1 ) );
+        this.galonesPorHora = new ContadoresPorPeriodo( cantidadSurtidores * cantidadTipos, HORAS + 1, TimeUnit.HOURS.toMillis( 1 ) );
+        this.dineroPorMinuto = new ContadoresPorPeriodo( cantidadEmpleados, MINUTOS, TimeUnit.MINUTES.toMillis( 1 ) );
+        this.dineroPorHora = new ContadoresPorPeriodo( cantidadEmpleados, HORAS + 1, TimeUnit.HOURS.toMillis( 1 ) );
+    }
+
+    // ************************************************************************
+    // Registro
+    // ************************************************************************
+
+    /**
+     * Registra una venta hecha en este momento
+     * @param numeroSurtidor El número del surtidor donde se hizo la venta
+     * @param idTipoGasolina El identificador del tipo de gasolina
+     * @param posicionEmpleado La posición en la tabla de surtidores del empleado que recibió el dinero
+     * @param microgalones La cantidad entregada, en millonésimas de galón
+     * @param precio El precio cobrado
+     */
+    public void registrarVenta( int numeroSurtidor, int idTipoGasolina, int posicionEmpleado, long microgalones, int precio )
+    {
+        registrarVenta( numeroSurtidor, idTipoGasolina, posicionEmpleado, microgalones, precio, System.currentTimeMillis( ) );
+    }
+
+    /**
+     * Registra una venta hecha en un momento dado
+     * @param numeroSurtidor El número del surtidor donde se hizo la venta
+     * @param idTipoGasolina El identificador del tipo de gasolina
+     * @param posicionEmpleado La posición en la tabla de surtidores del empleado que recibió el dinero
+     * @param microgalones La cantidad entregada, en millonésimas de galón
+     * @param precio El precio cobrado
+     * @param milisegundos El momento de la venta, según System.currentTimeMillis
+     */
+    public void registrarVenta( int numeroSurtidor, int idTipoGasolina, int posicionEmpleado, long microgalones, int precio, long milisegundos )
+    {
+        if( numeroSurtidor < cantidadSurtidores )
+        {
+            int contador = numeroSurtidor * cantidadTipos + idTipoGasolina;
+            galonesPorMinuto.agregar( contador, microgalones, milisegundos );
+            galonesPorHora.agregar( contador, microgalones, milisegundos );
+        }
+        if( posicionEmpleado < cantidadEmpleados )
+        {
+            dineroPorMinuto.agregar( posicionEmpleado, precio, milisegundos );
+            dineroPorHora.agregar( posicionEmpleado, precio, milisegundos );
+        }
+    }
+
+    // ************************************************************************
+    // Consultas
+    // ************************************************************************
+
+    /**
+     * Suma un contador en una ventana que termina en un momento dado, usando los contadores por minuto o por hora según el tamaño de la ventana. Las ventanas de
+     * más de MINUTOS minutos se extienden hacia atrás hasta el comienzo de la hora en la que empiezan
+     * @param porMinuto Los contadores por minuto
+     * @param porHora Los contadores por hora
+     * @param contador La posición del contador
+     * @param duracion La duración de la ventana
+     * @param unidad La unidad de la duración
+     * @param milisegundos El momento en el que termina la ventana, según System.currentTimeMillis
+     * @return La suma del contador en la ventana
+     */
+    private long sumar( ContadoresPorPeriodo porMinuto, ContadoresPorPeriodo porHora, int contador, long duracion, TimeUnit unidad, long milisegundos )
+    {
+        long minutos = unidad.toMinutes( duracion );
+        if( minutos < 1 || minutos > HORAS * 60L )
+        {
+            throw new IllegalArgumentException( "La ventana debe durar entre 1 minuto y " + HORAS + " horas" );
+        }
+        if( minutos <= MINUTOS )
+        {
+            return porMinuto.sumar( contador, ( int )minutos, milisegundos );
+        }
+        long minutoActual = milisegundos / TimeUnit.MINUTES.toMillis( 1 );
+        long horaInicio = ( minutoActual - minutos + 1 ) / 60;
+        long horaActual = minutoActual / 60;
+        return porHora.sumar( contador, ( int )( horaActual - horaInicio + 1 ), milisegundos );
+    }
+
+    /**
+     * Retorna los galones de un tipo de gasolina vendidos en un surtidor en una ventana que termina ahora
+     * @param numeroSurtidor El número del surtidor
+     * @param idTipoGasolina El identificador del tipo de gasolina
+     * @param duracion La duración de la ventana, entre 1 minuto y HORAS horas
+     * @param unidad La unidad de la duración
+     * @return La cantidad de galones
+     */
+    public double getGalonesVendidos( int numeroSurtidor, int idTipoGasolina, long duracion, TimeUnit unidad )
+    {
+        return getGalonesVendidos( numeroSurtidor, idTipoGasolina, duracion, unidad, System.currentTimeMillis( ) );
+    }
+
+    /**
+     * Retorna los galones de un tipo de gasolina vendidos en un surtidor en una ventana que termina en un momento dado
+     * @param numeroSurtidor El número del surtidor
+     * @param idTipoGasolina El identificador del tipo de gasolina
+     * @param duracion La duración de la ventana, entre 1 minuto y HORAS horas
+     * @param unidad La unidad de la duración
+     * @param milisegundos El momento en el que termina la ventana, según System.currentTimeMillis
+     * @return La cantidad de galones, o 0 si el surtidor se agregó después de activar las ventas recientes
+     */
+    public double getGalonesVendidos( int numeroSurtidor, int idTipoGasolina, long duracion, TimeUnit unidad, long milisegundos )
+    {
+        if( numeroSurtidor < 0 || numeroSurtidor >= gasolinera.getCantidadSurtidores( ) )
+        {
+            throw new IndexOutOfBoundsException( "No existe el surtidor " + numeroSurtidor );
+        }
+        if( numeroSurtidor >= cantidadSurtidores )
+        {
+            return 0;
+        }
+        return TipoGasolina.aGalones( sumar( galonesPorMinuto, galonesPorHora, numeroSurtidor * cantidadTipos + idTipoGasolina, duracion, unidad, milisegundos ) );
+    }
+
+    /**
+     * Retorna el dinero que recogió un empleado en una ventana que termina ahora
+     * @param nombreEmpleado El nombre del empleado
+     * @param duracion La duración de la ventana, entre 1 minuto y HORAS horas
+     * @param unidad La unidad de la duración
+     * @return El dinero recogido
+     */
+    public long getDineroRecogido( String nombreEmpleado, long duracion, TimeUnit unidad )
+    {
+        return getDineroRecogido( nombreEmpleado, duracion, unidad, System.currentTimeMillis( ) );
+    }
+
+    /**
+     * Retorna el dinero que recogió un empleado en una ventana que termina en un momento dado
+     * @param nombreEmpleado El nombre del empleado
+     * @param duracion La duración de la ventana, entre 1 minuto y HORAS horas
+     * @param unidad La unidad de la duración
+     * @param milisegundos El momento en el que termina la ventana, según System.currentTimeMillis
+     * @return El dinero recogido, o 0 si el empleado no ha atendido ningún surtidor
+     */
+    public long getDineroRecogido( String nombreEmpleado, long duracion, TimeUnit unidad, long milisegundos )
+    {
+        Empleado empleado = gasolinera.getEmpleado( nombreEmpleado );
+        if( empleado == null )
+        {
+            throw new IllegalArgumentException( "La gasolinera no tiene al empleado " + nombreEmpleado );
+        }
+        int posicion = surtidores.getPosicionEmpleado( empleado );
+        if( posicion == -1 || posicion >= cantidadEmpleados )
+        {
+            return 0;
+        }
+        return sumar( dineroPorMinuto, dineroPorHora, posicion, duracion, unidad, milisegundos );
+    }
+}
@@ -0,0 +1,778 @@
+package uniandes.dpoo.gasolinera.persistencia;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import uniandes.dpoo.gasolinera.logica.Empleado;
+import uniandes.dpoo.gasolinera.logica.Gasolinera;
+import uniandes.dpoo.gasolinera.logica.RegistroTiposGasolina;
+import uniandes.dpoo.gasolinera.logica.VersionPrecio;
+
+/**
+ * Esta clase es un diario binario donde se agrega un registro por cada venta que se hace en una gasolinera.
+ * 
+ * El archivo empieza con un encabezado que tiene los nombres de los tipos de gasolina y de los empleados de la gasolinera. Después vienen los registros, todos del mismo
+ * tamaño: el surtidor, el tipo de gasolina y el empleado (como posiciones dentro del encabezado), la cantidad entregada en millonésimas de galón, el precio cobrado, el
+ * momento de la venta y el número de la versión del precio con la que se cobró. Los cambios de precio también quedan en el diario, como registros cuyo surtidor es
+ * CAMBIO_PRECIO: el precio es el nuevo precio por galón y el número de versión es el de la versión publicada. Las reasignaciones de los surtidores también quedan, como
+ * registros cuyo surtidor es ASIGNACION: el empleado es el nuevo empleado del surtidor y el número del surtidor va en el campo del precio.
+ * 
+ * Los registros no se escriben uno por uno: se acumulan en memoria y se escriben juntos, forzando la escritura al disco, cuando se han acumulado cierta cantidad de
+ * registros o cuando ha pasado cierto tiempo desde la última escritura (lo que pase primero). Si la aplicación falla, se pierden como máximo los registros de ese
+ * último grupo.
+ * 
+ * Si escribir un grupo falla, el archivo se corta donde terminaba el último grupo escrito, para que no quede un registro a medias en la mitad, y el diario queda
+ * fallido: las ventas que ya estaban aplicadas en la gasolinera no están en el archivo, así que registrar más ventas, escribir o cerrar el diario lanzan la falla en
+ * lugar de seguir como si nada. Para volver a tener un diario hay que desactivarlo (lo que también lanza la falla), guardar el estado completo de la gasolinera y
+ * activar un diario nuevo.
+ * 
+ * El diario tiene las ventas hechas después del último archivo guardado con Gasolinera.guardarEstado, así que para recuperar el estado de la gasolinera hay que cargar
+ * ese archivo y luego reproducir el diario encima (ver Gasolinera.cargarEstado con dos archivos).
+ */
+public class DiarioVentas
+{
+    /**
+     * El número con el que empiezan todos los diarios de ventas ("GASD")
+     */
+    public static final int NUMERO_MAGICO = 0x47415344;
+
+    /**
+     * La versión del formato del diario
+     */
+    public static final int VERSION = 3;
+
+    /**
+     * El tamaño en bytes de cada registro: surtidor, tipo y empleado (int), galones (long), precio (int), momento de la venta (long) y versión del precio (int)
+     */
+    public static final int TAMANO_REGISTRO = 4 + 4 + 4 + 8 + 4 + 8 + 4;
+
+    /**
+     * El tamaño en bytes de cada registro en la versión 1 del formato, que no tenía la versión del precio. Esos diarios se pueden reproducir, pero no se les agregan
+     * registros
+     */
+    private static final int TAMANO_REGISTRO_VERSION_1 = 4 + 4 + 4 + 8 + 4 + 8;
+
+    /**
+     * El número de surtidor de los registros que son cambios de precio y no ventas
+     */
+    public static final int CAMBIO_PRECIO = -1;
+
+    /**
+     * El número de surtidor de los registros que son reasignaciones de un surtidor y no ventas. Sólo aparecen desde la versión 3 del formato
+     */
+    public static final int ASIGNACION = -2;
+
+    /**
+     * El archivo del diario
+     */
+    private File archivo;
+
+    /**
+     * El canal por el que se escribe en el archivo del diario
+     */
+    private FileChannel canal;
+
+    /**
+     * Acá se acumulan los registros que todavía no se han escrito en el archivo
+     */
+    private ByteBuffer pendientes;
+
+    /**
+     * La cantidad de registros que se acumulan antes de escribirlos en el archivo
+     */
+    private int registrosPorEscritura;
+
+    /**
+     * Los nombres de los tipos de gasolina en el encabezado del diario
+     */
+    private String[] nombresTipos;
+
+    /**
+     * La posición de cada tipo de gasolina dentro del encabezado, según su identificador en el registro de la gasolinera
+     */
+    private int[] posicionesTipos;
+
+    /**
+     * La posición de cada empleado dentro del encabezado
+     */
+    private Map<Empleado, Integer> posicionesEmpleados;
+
+    /**
+     * El tamaño en bytes del encabezado del archivo, que es donde empieza el primer registro
+     */
+    private long tamanoEncabezado;
+
+    /**
+     * La cantidad de registros que se han borrado del comienzo del diario (con descartarHasta o reiniciar) desde que se abrió. Las posiciones que retorna
+     * getPosicionFinal cuentan estos registros, así que siguen sirviendo después de borrar
+     */
+    private long registrosDescartados;
+
+    /**
+     * La falla con la que no se pudo escribir un grupo de registros, o null si el diario no ha fallado
+     */
+    private IOException falla;
+
+    /**
+     * El hilo que escribe los registros pendientes cuando pasa el tiempo máximo entre escrituras. Es null si no hay tiempo máximo
+     */
+    private ScheduledExecutorService temporizador;
+
+    /**
+     * Abre un diario de ventas para una gasolinera.
+     * 
+     * Si el archivo no existe o está vacío, se crea y se le escribe el encabezado. Si el archivo ya tiene un diario, los nuevos registros se agregan al final.
+     * @param archivo El archivo del diario
+     * @param tiposGasolina El registro de los tipos de gasolina de la gasolinera
+     * @param empleados Los empleados de la gasolinera
+     * @param registrosPorEscritura La cantidad de registros que se acumulan antes de escribirlos en el archivo. Si es 1, cada venta se escribe inmediatamente
+     * @param milisegundosPorEscritura El tiempo máximo que puede pasar un registro sin escribirse en el archivo. Si es 0, sólo se escribe por cantidad de registros
+     * @throws IOException Se lanza esta excepción si hay problemas abriendo el archivo, o si el archivo tiene un diario de otra gasolinera
+     */
+    public DiarioVentas( File archivo, RegistroTiposGasolina tiposGasolina, List<Empleado> empleados, int registrosPorEscritura, long milisegundosPorEscritura ) throws IOException
+    {
+        this.archivo = archivo;
+        this.registrosPorEscritura = Math.max( registrosPorEscritura, 1 );
+        this.pendientes = ByteBuffer.allocate( this.registrosPorEscritura * TAMANO_REGISTRO );
+        this.canal = FileChannel.open( archivo.toPath( ), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE );
+
+        if( canal.size( ) == 0 )
+        {
+            escribirEncabezado( tiposGasolina, empleados );
+        }
+        else
+        {
+            Encabezado encabezado = leerEncabezado( canal );
+            if( encabezado.version != VERSION )
+            {
+                canal.close( );
+                throw new IOException( "El diario " + archivo + " tiene la versión " + encabezado.version
+                        + " del formato: hay que reproducirlo y guardar el estado de la gasolinera antes de registrar más ventas" );
+            }
+            this.nombresTipos = encabezado.nombresTipos;
+            this.posicionesEmpleados = new IdentityHashMap<Empleado, Integer>( );
+            List<String> nombresEmpleados = Arrays.asList( encabezado.nombresEmpleados );
+            for( Empleado empleado : empleados )
+            {
+                int posicion = nombresEmpleados.indexOf( empleado.getNombre( ) );
+                if( posicion == -1 )
+                {
+                    throw new IOException( "El diario " + archivo + " no tiene al empleado " + empleado.getNombre( ) );
+                }
+                posicionesEmpleados.put( empleado, posicion );
+            }
+
+            // Descartar un registro incompleto al final del archivo, que pudo quedar así por una falla
+            long registrosCompletos = ( canal.size( ) - encabezado.tamano ) / TAMANO_REGISTRO;
+            canal.truncate( encabezado.tamano + registrosCompletos * TAMANO_REGISTRO );
+        }
+        this.tamanoEncabezado = leerEncabezado( canal ).tamano;
+        this.posicionesTipos = calcularPosicionesTipos( tiposGasolina, nombresTipos, archivo );
+        canal.position( canal.size( ) );
+
+        if( milisegundosPorEscritura > 0 )
+        {
+            temporizador = Executors.newSingleThreadScheduledExecutor( r -> {
+                Thread hilo = new Thread( r, "diario-ventas" );
+                hilo.setDaemon( true );
+                return hilo;
+            } );
+            temporizador.scheduleWithFixedDelay( ( ) -> {
+                try
+                {
+                    escribirPendientes( );
+                }
+                catch( UncheckedIOException e )
+                {
+                    // La falla queda guardada en el diario: la siguiente venta, escritura o cierre la lanza
+                }
+            }, milisegundosPorEscritura, milisegundosPorEscritura, TimeUnit.MILLISECONDS );
+        }
+    }
+
+    /**
+     * Agrega al diario el registro de una venta. El registro queda en el archivo cuando se complete el grupo o pase el tiempo máximo entre escrituras.
+     * @param numeroSurtidor El número del surtidor donde se hizo la venta
+     * @param idTipoGasolina El identificador del tipo de gasolina en el registro de la gasolinera
+     * @param empleado El empleado que recibió el dinero de la venta
+     * @param microgalones La cantidad entregada, en millonésimas de galón
+     * @param precio El precio cobrado
+     * @param numeroVersionPrecio El número de la versión del precio con la que se cobró la venta
+     * @throws UncheckedIOException Se lanza esta excepción si hay problemas escribiendo el grupo de registros en el archivo, o si el diario ya había fallado
+     */
+    public synchronized void registrar( int numeroSurtidor, int idTipoGasolina, Empleado empleado, long microgalones, int precio, int numeroVersionPrecio )
+    {
+        verificarFalla( );
+        pendientes.putInt( numeroSurtidor );
+        pendientes.putInt( posicionesTipos[ idTipoGasolina ] );
+        pendientes.putInt( posicionesEmpleados.get( empleado ) );
+        pendientes.putLong( microgalones );
+        pendientes.putInt( precio );
+        pendientes.putLong( System.currentTimeMillis( ) );
+        pendientes.putInt( numeroVersionPrecio );
+
+        if( !pendientes.hasRemaining( ) )
+        {
+            escribirPendientes( );
+        }
+    }
+
+    /**
+     * Agrega al diario el registro de un cambio de precio, para que al reproducir el diario el precio quede como estaba
+     * @param idTipoGasolina El identificador del tipo de gasolina en el registro de la gasolinera
+     * @param versionPrecio La versión del precio que se publicó
+     * @throws UncheckedIOException Se lanza esta excepción si hay problemas escribiendo el grupo de registros en el archivo, o si el diario ya había fallado
+     */
+    public synchronized void registrarCambioPrecio( int idTipoGasolina, VersionPrecio versionPrecio )
+    {
+        verificarFalla( );
+        pendientes.putInt( CAMBIO_PRECIO );
+        pendientes.putInt( posicionesTipos[ idTipoGasolina ] );
+        pendientes.putInt( -1 );
+        pendientes.putLong( 0 );
+        pendientes.putInt( versionPrecio.getPrecioPorGalon( ) );
+        pendientes.putLong( versionPrecio.getDesde( ) );
+        pendientes.putInt( versionPrecio.getNumero( ) );
+
+        if( !pendientes.hasRemaining( ) )
+        {
+            escribirPendientes( );
+        }
+    }
+
+    /**
+     * Agrega al diario el registro de la reasignación de un surtidor, para que al reproducir el diario el surtidor quede con el empleado que tenía
+     * @param numeroSurtidor El número del surtidor que se reasignó
+     * @param empleado El nuevo empleado del surtidor
+     * @throws UncheckedIOException Se lanza esta excepción si hay problemas escribiendo el grupo de registros en el archivo, o si el diario ya había fallado
+     */
+    public synchronized void registrarAsignacion( int numeroSurtidor, Empleado empleado )
+    {
+        verificarFalla( );
+        pendientes.putInt( ASIGNACION );
+        pendientes.putInt( -1 );
+        pendientes.putInt( posicionesEmpleados.get( empleado ) );
+        pendientes.putLong( 0 );
+        pendientes.putInt( numeroSurtidor );
+        pendientes.putLong( System.currentTimeMillis( ) );
+        pendientes.putInt( 0 );
+
+        if( !pendientes.hasRemaining( ) )
+        {
+            escribirPendientes( );
+        }
+    }
+
+    /**
+     * Escribe en el archivo los registros pendientes y fuerza la escritura al disco. Los registros sólo se quitan de los pendientes cuando quedaron escritos.
+     * 
+     * Si la escritura falla, el archivo se corta donde estaba antes de escribir, para no dejar un registro a medias, y el diario queda fallido (ver verificarFalla)
+     * @throws UncheckedIOException Se lanza esta excepción si hay problemas escribiendo en el archivo, o si el diario ya había fallado
+     */
+    public synchronized void escribirPendientes( )
+    {
+        verificarFalla( );
+        if( pendientes.position( ) == 0 || !canal.isOpen( ) )
+        {
+            return;
+        }
+        long finEscrito = 0;
+        try
+        {
+            finEscrito = canal.position( );
+            pendientes.flip( );
+            while( pendientes.hasRemaining( ) )
+            {
+                canal.write( pendientes );
+            }
+            canal.force( false );
+            pendientes.clear( );
+        }
+        catch( IOException e )
+        {
+            // Dejar los pendientes como estaban antes de escribir y quitar del archivo lo que alcanzó a escribirse de este grupo
+            pendientes.position( pendientes.limit( ) );
+            pendientes.limit( pendientes.capacity( ) );
+            try
+            {
+                canal.truncate( finEscrito );
+                canal.position( finEscrito );
+            }
+            catch( IOException e2 )
+            {
+                e.addSuppressed( e2 );
+            }
+            falla = e;
+            throw new UncheckedIOException( "No se pudo escribir en el diario de ventas", e );
+        }
+    }
+
+    /**
+     * Verifica que el diario no haya fallado antes
+     * @throws UncheckedIOException Se lanza esta excepción, con la falla original como causa, si alguna escritura anterior del diario falló
+     */
+    private void verificarFalla( )
+    {
+        if( falla != null )
+        {
+            throw new UncheckedIOException( "El diario de ventas falló antes y le faltan ventas", falla );
+        }
+    }
+
+    /**
+     * Indica si alguna escritura del diario falló. Un diario fallido no acepta más registros
+     * @return true si el diario falló, false en caso contrario
+     */
+    public synchronized boolean haFallado( )
+    {
+        return falla != null;
+    }
+
+    /**
+     * Borra todos los registros del diario, dejando sólo el encabezado. Se usa después de guardar el estado completo de la gasolinera, cuando los registros anteriores
+     * ya están incluidos en el archivo guardado.
+     * @throws IOException Se lanza esta excepción si hay problemas modificando el archivo
+     */
+    public synchronized void reiniciar( ) throws IOException
+    {
+        registrosDescartados += ( canal.size( ) - tamanoEncabezado ) / TAMANO_REGISTRO + pendientes.position( ) / TAMANO_REGISTRO;
+        pendientes.clear( );
+        canal.truncate( tamanoEncabezado );
+        canal.position( canal.size( ) );
+        canal.force( true );
+    }
+
+    /**
+     * Retorna la posición del diario donde termina el último registro agregado, contando los registros que todavía no se han escrito en el archivo.
+     * 
+     * La posición es lógica: es la cantidad de registros agregados desde que se abrió el diario, incluyendo los que ya se borraron. Por eso no cambia cuando se
+     * borran registros, y una posición obtenida antes de borrar sigue señalando el mismo registro.
+     * 
+     * Si se captura el estado de la gasolinera cuando ninguna venta está en curso, esta posición separa las ventas incluidas en el estado capturado de las
+     * siguientes (ver descartarHasta).
+     * @return La posición lógica del final del diario, en registros
+     * @throws UncheckedIOException Se lanza esta excepción si hay problemas consultando el tamaño del archivo
+     */
+    public synchronized long getPosicionFinal( )
+    {
+        try
+        {
+            return registrosDescartados + ( canal.size( ) - tamanoEncabezado ) / TAMANO_REGISTRO + pendientes.position( ) / TAMANO_REGISTRO;
+        }
+        catch( IOException e )
+        {
+            throw new UncheckedIOException( "No se pudo consultar el tamaño del diario de ventas", e );
+        }
+    }
+
+    /**
+     * Borra los registros del diario que están antes de una posición, conservando los siguientes. Se usa después de guardar un estado de la gasolinera capturado
+     * mientras seguían las ventas: los registros anteriores a la captura ya están incluidos en el archivo guardado, pero los siguientes no.
+     * 
+     * Si ya se borraron los registros hasta esa posición (por ejemplo, porque un guardado capturado después se confirmó primero), no se hace nada. Así, los
+     * guardados que se confirman en desorden nunca borran registros que no estén incluidos en su archivo.
+     * 
+     * Los registros que se conservan se copian a un archivo nuevo que después reemplaza al diario, así que si algo falla en la mitad, el diario sigue completo.
+     * @param posicion La posición que retornó getPosicionFinal cuando se capturó el estado
+     * @throws IOException Se lanza esta excepción si hay problemas modificando el archivo
+     */
+    public synchronized void descartarHasta( long posicion ) throws IOException
+    {
+        try
+        {
+            escribirPendientes( );
+        }
+        catch( UncheckedIOException e )
+        {
+            throw e.getCause( );
+        }
+        long cantidadBorrar = posicion - registrosDescartados;
+        if( cantidadBorrar <= 0 || !canal.isOpen( ) )
+        {
+            return;
+        }
+        if( tamanoEncabezado + cantidadBorrar * TAMANO_REGISTRO >= canal.size( ) )
+        {
+            reiniciar( );
+            return;
+        }
+        long inicio = tamanoEncabezado + cantidadBorrar * TAMANO_REGISTRO;
+
+        File temporal = new File( archivo.getPath( ) + ".tmp" );
+        FileChannel nuevoCanal = FileChannel.open( temporal.toPath( ), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING );
+        try
+        {
+            transferir( canal, 0, tamanoEncabezado, nuevoCanal );
+            transferir( canal, inicio, canal.size( ) - inicio, nuevoCanal );
+            nuevoCanal.force( true );
+        }
+        catch( IOException e )
+        {
+            nuevoCanal.close( );
+            temporal.delete( );
+            throw e;
+        }
+        canal.close( );
+        Files.move( temporal.toPath( ), archivo.toPath( ), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+        canal = nuevoCanal;
+        canal.position( canal.size( ) );
+        registrosDescartados += cantidadBorrar;
+    }
+
+    /**
+     * Copia una parte de un archivo al final de otro
+     * @param origen El canal del que se copia
+     * @param inicio La posición del origen donde empieza la copia
+     * @param cantidad La cantidad de bytes que se copian
+     * @param destino El canal al que se copia
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo o escribiendo
+     */
+    private static void transferir( FileChannel origen, long inicio, long cantidad, FileChannel destino ) throws IOException
+    {
+        long copiados = 0;
+        while( copiados < cantidad )
+        {
+            copiados += origen.transferTo( inicio + copiados, cantidad - copiados, destino );
+        }
+    }
+
+    /**
+     * Escribe los registros pendientes y cierra el archivo del diario
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo o cerrando el archivo
+     */
+    public synchronized void cerrar( ) throws IOException
+    {
+        if( temporizador != null )
+        {
+            temporizador.shutdown( );
+        }
+        try
+        {
+            escribirPendientes( );
+        }
+        catch( UncheckedIOException e )
+        {
+            throw e.getCause( );
+        }
+        finally
+        {
+            canal.close( );
+        }
+    }
+
+    /**
+     * Reproduce sobre una gasolinera todas las ventas registradas en un diario: descuenta la gasolina del inventario, suma los galones a los surtidores y el dinero a
+     * los empleados. Si el último registro está incompleto, se ignora.
+     * 
+     * Los cambios de precio del diario se vuelven a publicar, y cada venta se suma a la versión del precio con la que se cobró si esa versión está en el historial
+     * del tipo de gasolina. Las ventas cobradas con versiones anteriores a la que tenía el archivo guardado no se pueden atribuir a ninguna versión. Las
+     * reasignaciones de los surtidores se vuelven a hacer en el orden del diario.
+     * @param archivo El archivo del diario
+     * @param gasolinera La gasolinera sobre la que se reproducen las ventas. Normalmente es la que se cargó del último archivo guardado
+     * @return La cantidad de ventas que se reprodujeron
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo el archivo, o si el diario tiene tipos de gasolina, empleados o surtidores que no están
+     *         en la gasolinera
+     */
+    public static long reproducir( File archivo, Gasolinera gasolinera ) throws IOException
+    {
+        FileChannel canal = FileChannel.open( archivo.toPath( ), StandardOpenOption.READ );
+        try
+        {
+            Encabezado encabezado = leerEncabezado( canal );
+
+            // Traducir las posiciones del encabezado a los identificadores y objetos de la gasolinera
+            int[] idsTipos = traducirTipos( encabezado, gasolinera, archivo );
+            Empleado[] empleados = traducirEmpleados( encabezado, gasolinera, archivo );
+
+            long reproducidas = 0;
+            int tamanoRegistro = encabezado.getTamanoRegistro( );
+            ByteBuffer buffer = ByteBuffer.allocate( 1024 * tamanoRegistro );
+            canal.position( encabezado.tamano );
+            while( canal.read( buffer ) != -1 )
+            {
+                buffer.flip( );
+                while( buffer.remaining( ) >= tamanoRegistro )
+                {
+                    int numeroSurtidor = buffer.getInt( );
+                    int posicionTipo = buffer.getInt( );
+                    int posicionEmpleado = buffer.getInt( );
+                    long microgalones = buffer.getLong( );
+                    int precio = buffer.getInt( );
+                    long momento = buffer.getLong( );
+                    int numeroVersionPrecio = encabezado.version == 1 ? 0 : buffer.getInt( );
+                    if( numeroSurtidor == ASIGNACION )
+                    {
+                        // El número del surtidor reasignado está en el campo del precio
+                        if( precio < 0 || precio >= gasolinera.getCantidadSurtidores( ) )
+                        {
+                            throw new IOException( "El diario " + archivo + " reasigna el surtidor " + precio + ", que no está en la gasolinera" );
+                        }
+                        gasolinera.getTablaSurtidores( ).reasignar( precio, empleados[ posicionEmpleado ] );
+                    }
+                    else if( numeroSurtidor == CAMBIO_PRECIO )
+                    {
+                        gasolinera.getRegistroTiposGasolina( ).getTipo( idsTipos[ posicionTipo ] ).restaurarPrecio( numeroVersionPrecio, precio, momento );
+                    }
+                    else
+                    {
+                        gasolinera.aplicarVentaRegistrada( numeroSurtidor, idsTipos[ posicionTipo ], microgalones, precio, empleados[ posicionEmpleado ],
+                                numeroVersionPrecio );
+                        reproducidas++;
+                    }
+                }
+                buffer.compact( );
+            }
+            return reproducidas;
+        }
+        finally
+        {
+            canal.close( );
+        }
+    }
+
+    /**
+     * Traduce las posiciones de los tipos de gasolina en el encabezado de un diario a los identificadores de la gasolinera
+     * @param encabezado El encabezado del diario
+     * @param gasolinera La gasolinera sobre la que se reproduce el diario
+     * @param archivo El archivo del diario, para los mensajes de error
+     * @return Un arreglo con el identificador en la gasolinera de cada tipo, según su posición en el encabezado
+     * @throws IOException Se lanza esta excepción si algún tipo de gasolina del diario no está en la gasolinera
+     */
+    static int[] traducirTipos( Encabezado encabezado, Gasolinera gasolinera, File archivo ) throws IOException
+    {
+        int[] idsTipos = new int[encabezado.nombresTipos.length];
+        for( int i = 0; i < idsTipos.length; i++ )
+        {
+            idsTipos[ i ] = gasolinera.getIdentificadorTipoGasolina( encabezado.nombresTipos[ i ] );
+            if( idsTipos[ i ] == -1 )
+            {
+                throw new IOException( "La gasolinera no tiene el tipo de gasolina " + encabezado.nombresTipos[ i ] + " del diario " + archivo );
+            }
+        }
+        return idsTipos;
+    }
+
+    /**
+     * Busca en la gasolinera los empleados del encabezado de un diario
+     * @param encabezado El encabezado del diario
+     * @param gasolinera La gasolinera sobre la que se reproduce el diario
+     * @param archivo El archivo del diario, para los mensajes de error
+     * @return Un arreglo con los empleados de la gasolinera, según su posición en el encabezado
+     * @throws IOException Se lanza esta excepción si algún empleado del diario no está en la gasolinera
+     */
+    static Empleado[] traducirEmpleados( Encabezado encabezado, Gasolinera gasolinera, File archivo ) throws IOException
+    {
+        Empleado[] empleados = new Empleado[encabezado.nombresEmpleados.length];
+        for( int i = 0; i < empleados.length; i++ )
+        {
+            empleados[ i ] = gasolinera.getEmpleado( encabezado.nombresEmpleados[ i ] );
+            if( empleados[ i ] == null )
+            {
+                throw new IOException( "La gasolinera no tiene al empleado " + encabezado.nombresEmpleados[ i ] + " del diario " + archivo );
+            }
+        }
+        return empleados;
+    }
+
+    /**
+     * Escribe el encabezado de un diario nuevo
+     * @param tiposGasolina El registro de los tipos de gasolina de la gasolinera
+     * @param empleados Los empleados de la gasolinera
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo en el archivo
+     */
+    private void escribirEncabezado( RegistroTiposGasolina tiposGasolina, List<Empleado> empleados ) throws IOException
+    {
+        this.nombresTipos = tiposGasolina.getNombres( );
+        this.posicionesEmpleados = new IdentityHashMap<Empleado, Integer>( );
+        String[] nombresEmpleados = new String[empleados.size( )];
+        for( int i = 0; i < nombresEmpleados.length; i++ )
+        {
+            nombresEmpleados[ i ] = empleados.get( i ).getNombre( );
+            posicionesEmpleados.put( empleados.get( i ), i );
+        }
+
+        List<byte[]> nombres = new ArrayList<byte[]>( );
+        int tamano = 4 * 4;
+        for( String nombre : nombresTipos )
+        {
+            nombres.add( nombre.getBytes( StandardCharsets.UTF_8 ) );
+        }
+        for( String nombre : nombresEmpleados )
+        {
+            nombres.add( nombre.getBytes( StandardCharsets.UTF_8 ) );
+        }
+        for( byte[] nombre : nombres )
+        {
+            tamano += 4 + nombre.length;
+        }
+
+        ByteBuffer encabezado = ByteBuffer.allocate( tamano );
+        encabezado.putInt( NUMERO_MAGICO );
+        encabezado.putInt( VERSION );
+        encabezado.putInt( nombresTipos.length );
+        encabezado.putInt( nombresEmpleados.length );
+        for( byte[] nombre : nombres )
+        {
+            encabezado.putInt( nombre.length );
+            encabezado.put( nombre );
+        }
+        encabezado.flip( );
+        canal.position( 0 );
+        while( encabezado.hasRemaining( ) )
+        {
+            canal.write( encabezado );
+        }
+        canal.force( true );
+    }
+
+    /**
+     * Calcula la posición en el encabezado de cada tipo de gasolina del registro de la gasolinera
+     * @param tiposGasolina El registro de los tipos de gasolina de la gasolinera
+     * @param nombresTipos Los nombres de los tipos de gasolina en el encabezado
+     * @param archivo El archivo del diario, para los mensajes de error
+     * @return Un arreglo con la posición en el encabezado de cada tipo, según su identificador
+     * @throws IOException Se lanza esta excepción si algún tipo de gasolina no está en el encabezado
+     */
+    private static int[] calcularPosicionesTipos( RegistroTiposGasolina tiposGasolina, String[] nombresTipos, File archivo ) throws IOException
+    {
+        List<String> listaNombres = Arrays.asList( nombresTipos );
+        int[] posiciones = new int[tiposGasolina.getCantidadTipos( )];
+        for( int idTipo = 0; idTipo < posiciones.length; idTipo++ )
+        {
+            posiciones[ idTipo ] = listaNombres.indexOf( tiposGasolina.getTipo( idTipo ).getNombre( ) );
+            if( posiciones[ idTipo ] == -1 )
+            {
+                throw new IOException( "El diario " + archivo + " no tiene el tipo de gasolina " + tiposGasolina.getTipo( idTipo ).getNombre( ) );
+            }
+        }
+        return posiciones;
+    }
+
+    /**
+     * Lee el encabezado de un diario, desde el comienzo del archivo. Cada parte se lee con su tamaño exacto: primero los 16 bytes fijos y luego, por cada nombre,
+     * su longitud y después sus bytes, así que el encabezado puede tener cualquier tamaño. La posición del canal no cambia
+     * @param canal El canal del archivo del diario
+     * @return El encabezado leído
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo el archivo o si el archivo no es un diario de ventas
+     */
+    static Encabezado leerEncabezado( FileChannel canal ) throws IOException
+    {
+        if( canal.size( ) < 16 )
+        {
+            throw new IOException( "El archivo no es un diario de ventas" );
+        }
+        ByteBuffer fijo = leerBytes( canal, 0, 16 );
+        if( fijo.getInt( ) != NUMERO_MAGICO )
+        {
+            throw new IOException( "El archivo no es un diario de ventas" );
+        }
+        Encabezado encabezado = new Encabezado( );
+        encabezado.version = fijo.getInt( );
+        if( encabezado.version < 1 || encabezado.version > VERSION )
+        {
+            throw new IOException( "La versión del diario de ventas no es compatible" );
+        }
+        int cantidadTipos = fijo.getInt( );
+        int cantidadEmpleados = fijo.getInt( );
+        if( cantidadTipos < 0 || cantidadEmpleados < 0 )
+        {
+            throw new IOException( "El encabezado del diario de ventas está dañado" );
+        }
+
+        long posicion = 16;
+        encabezado.nombresTipos = new String[cantidadTipos];
+        for( int i = 0; i < cantidadTipos; i++ )
+        {
+            int longitud = leerLongitudNombre( canal, posicion );
+            encabezado.nombresTipos[ i ] = new String( leerBytes( canal, posicion + 4, longitud ).array( ), StandardCharsets.UTF_8 );
+            posicion += 4 + longitud;
+        }
+        encabezado.nombresEmpleados = new String[cantidadEmpleados];
+        for( int i = 0; i < cantidadEmpleados; i++ )
+        {
+            int longitud = leerLongitudNombre( canal, posicion );
+            encabezado.nombresEmpleados[ i ] = new String( leerBytes( canal, posicion + 4, longitud ).array( ), StandardCharsets.UTF_8 );
+            posicion += 4 + longitud;
+        }
+        encabezado.tamano = posicion;
+        return encabezado;
+    }
+
+    /**
+     * Lee la longitud en bytes de un nombre del encabezado. Después de la longitud vienen los bytes del nombre en UTF-8
+     * @param canal El canal del archivo del diario
+     * @param posicion La posición del archivo donde empieza el nombre
+     * @return La longitud del nombre
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo el archivo o si el nombre no cabe en lo que queda del archivo
+     */
+    private static int leerLongitudNombre( FileChannel canal, long posicion ) throws IOException
+    {
+        int longitud = leerBytes( canal, posicion, 4 ).getInt( );
+        if( longitud < 0 || longitud > canal.size( ) - posicion - 4 )
+        {
+            throw new IOException( "El encabezado del diario de ventas está dañado" );
+        }
+        return longitud;
+    }
+
+    /**
+     * Lee exactamente una cantidad de bytes de un archivo, sin cambiar la posición del canal
+     * @param canal El canal del archivo
+     * @param posicion La posición del archivo donde empiezan los bytes
+     * @param cantidad La cantidad de bytes que se leen
+     * @return Un buffer listo para leer, con los bytes leídos
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo el archivo o si el archivo se termina antes
+     */
+    private static ByteBuffer leerBytes( FileChannel canal, long posicion, int cantidad ) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate( cantidad );
+        while( buffer.hasRemaining( ) )
+        {
+            if( canal.read( buffer, posicion + buffer.position( ) ) < 0 )
+            {
+                throw new IOException( "El encabezado del diario de ventas está incompleto" );
+            }
+        }
+        buffer.flip( );
+        return buffer;
+    }
+
+    /**
+     * La información del encabezado de un diario
+     */
+    static class Encabezado
+    {
+        int version;
+
+        String[] nombresTipos;
+
+        String[] nombresEmpleados;
+
+        long tamano;
+
+        /**
+         * Retorna el tamaño en bytes de los registros del diario, según la versión de su formato
+         * @return El tamaño de cada registro
+         */
+        int getTamanoRegistro( )
+        {
+            return version == 1 ? TAMANO_REGISTRO_VERSION_1 : TAMANO_REGISTRO;
+        }
+    }
+}
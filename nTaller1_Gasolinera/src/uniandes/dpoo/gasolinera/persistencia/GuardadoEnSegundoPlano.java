@@ -0,0 +1,169 @@
+package uniandes.dpoo.gasolinera.persistencia;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import uniandes.dpoo.gasolinera.logica.EstadoGasolinera;
+import uniandes.dpoo.gasolinera.logica.Gasolinera;
+
+/**
+ * Esta clase guarda el estado de una gasolinera en un hilo aparte, mientras la gasolinera sigue vendiendo.
+ *
+ * Cada guardado captura primero el estado de la gasolinera (ver Gasolinera.capturarEstado), lo que detiene las ventas sólo mientras se copian los arreglos en
+ * memoria, y luego escribe la copia en el archivo desde el hilo de esta clase. El archivo se escribe primero en un archivo temporal que después reemplaza al anterior,
+ * así que si algo falla en la mitad, el archivo anterior sigue completo. Cuando termina, se borran del diario de ventas las ventas que quedaron incluidas en el archivo.
+ *
+ * Los guardados se pueden pedir uno por uno (guardar) o programar para que se hagan periódicamente (programar). En los dos casos el resultado es un
+ * CompletableFuture que se completa cuando el archivo quedó escrito.
+ */
+public class GuardadoEnSegundoPlano
+{
+    // ************************************************************************
+    // Atributos
+    // ************************************************************************
+
+    /**
+     * La gasolinera que se guarda
+     */
+    private Gasolinera gasolinera;
+
+    /**
+     * El hilo donde se escriben los archivos
+     */
+    private ScheduledExecutorService hilo;
+
+    /**
+     * Los guardados periódicos programados, o null si no hay
+     */
+    private ScheduledFuture<?> programacion;
+
+    /**
+     * El resultado del último guardado que se empezó, o null si no se ha empezado ninguno
+     */
+    private volatile CompletableFuture<File> ultimoGuardado;
+
+    // ************************************************************************
+    // Constructores
+    // ************************************************************************
+
+    /**
+     * Prepara el guardado en segundo plano de una gasolinera
+     * @param gasolinera La gasolinera que se guardará
+     */
+    public GuardadoEnSegundoPlano( Gasolinera gasolinera )
+    {
+        this.gasolinera = gasolinera;
+        this.hilo = Executors.newSingleThreadScheduledExecutor( r -> {
+            Thread nuevoHilo = new Thread( r, "guardado-gasolinera" );
+            nuevoHilo.setDaemon( true );
+            return nuevoHilo;
+        } );
+    }
+
+    // ************************************************************************
+    // Métodos
+    // ************************************************************************
+
+    /**
+     * Captura el estado actual de la gasolinera y lo guarda en un archivo desde el hilo de esta clase. El método retorna apenas se captura el estado, sin esperar a
+     * que se escriba el archivo
+     * @param archivo El archivo donde se guardará el estado. Si ya existe, se reemplaza
+     * @param binario Indica si el archivo se guarda en formato binario (ver InstantaneaBinaria) o de texto
+     * @return El resultado del guardado, que se completa con el archivo cuando quedó escrito, o con la excepción si hubo problemas escribiéndolo
+     */
+    public CompletableFuture<File> guardar( File archivo, boolean binario )
+    {
+        EstadoGasolinera estado = gasolinera.capturarEstado( );
+        CompletableFuture<File> resultado = new CompletableFuture<File>( );
+        ultimoGuardado = resultado;
+        hilo.execute( ( ) -> escribir( estado, archivo, binario, resultado ) );
+        return resultado;
+    }
+
+    /**
+     * Programa guardados periódicos del estado de la gasolinera. Si ya había guardados programados, se reemplazan. Si un guardado se demora más que el periodo, el
+     * siguiente empieza cuando termine
+     * @param archivo El archivo donde se guardará el estado cada vez
+     * @param binario Indica si el archivo se guarda en formato binario (ver InstantaneaBinaria) o de texto
+     * @param periodo El tiempo entre el inicio de un guardado y el del siguiente
+     * @param unidad La unidad del periodo
+     */
+    public synchronized void programar( File archivo, boolean binario, long periodo, TimeUnit unidad )
+    {
+        cancelarProgramacion( );
+        programacion = hilo.scheduleAtFixedRate( ( ) -> {
+            CompletableFuture<File> resultado = new CompletableFuture<File>( );
+            ultimoGuardado = resultado;
+            escribir( gasolinera.capturarEstado( ), archivo, binario, resultado );
+        }, periodo, periodo, unidad );
+    }
+
+    /**
+     * Cancela los guardados periódicos programados. Si hay un guardado en curso, se deja terminar
+     */
+    public synchronized void cancelarProgramacion( )
+    {
+        if( programacion != null )
+        {
+            programacion.cancel( false );
+            programacion = null;
+        }
+    }
+
+    /**
+     * Retorna el resultado del último guardado que se empezó, ya sea pedido con guardar o programado
+     * @return El resultado del último guardado, o null si no se ha empezado ninguno
+     */
+    public CompletableFuture<File> getUltimoGuardado( )
+    {
+        return ultimoGuardado;
+    }
+
+    /**
+     * Cancela los guardados programados y espera a que terminen los guardados pendientes
+     * @param tiempoMaximo El tiempo máximo que se espera
+     * @param unidad La unidad del tiempo máximo
+     * @return Retorna true si terminaron todos los guardados pendientes, o false si se acabó el tiempo
+     * @throws InterruptedException Se lanza esta excepción si el hilo se interrumpe mientras espera
+     */
+    public boolean cerrar( long tiempoMaximo, TimeUnit unidad ) throws InterruptedException
+    {
+        cancelarProgramacion( );
+        hilo.shutdown( );
+        return hilo.awaitTermination( tiempoMaximo, unidad );
+    }
+
+    /**
+     * Escribe un estado capturado en un archivo y completa el resultado del guardado
+     * @param estado El estado capturado
+     * @param archivo El archivo donde se guardará el estado
+     * @param binario Indica si el archivo se guarda en formato binario o de texto
+     * @param resultado El resultado que se completa al terminar
+     */
+    private void escribir( EstadoGasolinera estado, File archivo, boolean binario, CompletableFuture<File> resultado )
+    {
+        try
+        {
+            File temporal = new File( archivo.getPath( ) + ".tmp" );
+            if( binario )
+                estado.guardarBinario( temporal );
+            else
+                estado.guardarTexto( temporal );
+            Files.move( temporal.toPath( ), archivo.toPath( ), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+            gasolinera.confirmarGuardado( estado );
+            resultado.complete( archivo );
+        }
+        catch( IOException | RuntimeException e )
+        {
+            // La excepción no se propaga para que los guardados programados no se detengan por un error
+            resultado.completeExceptionally( e );
+        }
+    }
+}
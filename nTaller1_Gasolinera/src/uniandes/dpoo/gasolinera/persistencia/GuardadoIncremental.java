@@ -0,0 +1,209 @@
+package uniandes.dpoo.gasolinera.persistencia;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import uniandes.dpoo.gasolinera.logica.EstadoGasolinera;
+import uniandes.dpoo.gasolinera.logica.Gasolinera;
+
+/**
+ * Esta clase administra los archivos con los que se guarda una gasolinera de forma incremental: un archivo completo (el archivo base) y una serie de archivos de
+ * cambios que se guardan después, cada uno con lo que cambió desde el archivo anterior.
+ *
+ * Los archivos de cambios se llaman como el archivo base, seguido de ".cambios" y un número consecutivo que empieza en 1. Para cargar la gasolinera se carga el
+ * archivo base y luego se aplican los archivos de cambios en orden. Cuando hay muchos archivos de cambios, se pueden compactar: se vuelve a escribir el archivo base
+ * con el estado completo y se borran los archivos de cambios.
+ */
+public class GuardadoIncremental
+{
+    // ************************************************************************
+    // Atributos
+    // ************************************************************************
+
+    /**
+     * El archivo con el estado completo de la gasolinera
+     */
+    private File archivoBase;
+
+    /**
+     * El número que tendrá el siguiente archivo de cambios
+     */
+    private int siguienteCambio;
+
+    // ************************************************************************
+    // Constructores
+    // ************************************************************************
+
+    /**
+     * Crea un nuevo administrador para los archivos de una gasolinera. Si ya hay archivos de cambios guardados, los siguientes se numeran después del último.
+     * @param archivoBase El archivo con el estado completo de la gasolinera
+     */
+    public GuardadoIncremental( File archivoBase )
+    {
+        this.archivoBase = archivoBase;
+        this.siguienteCambio = 1;
+        while( getArchivoCambios( siguienteCambio ).exists( ) )
+        {
+            siguienteCambio++;
+        }
+    }
+
+    // ************************************************************************
+    // Métodos
+    // ************************************************************************
+
+    /**
+     * Retorna el archivo con el estado completo de la gasolinera
+     * @return El archivo base
+     */
+    public File getArchivoBase( )
+    {
+        return archivoBase;
+    }
+
+    /**
+     * Retorna el archivo de cambios con un cierto número
+     * @param numero El número del archivo de cambios, empezando en 1
+     * @return El archivo de cambios, que puede no existir
+     */
+    public File getArchivoCambios( int numero )
+    {
+        return new File( archivoBase.getPath( ) + ".cambios" + numero );
+    }
+
+    /**
+     * Retorna los archivos de cambios que se han guardado después del archivo base, en el orden en el que se guardaron
+     * @return Una lista con los archivos de cambios. Si no hay ninguno, la lista está vacía
+     */
+    public List<File> getArchivosCambios( )
+    {
+        List<File> archivos = new ArrayList<File>( );
+        for( int numero = 1; numero < siguienteCambio; numero++ )
+        {
+            archivos.add( getArchivoCambios( numero ) );
+        }
+        return archivos;
+    }
+
+    /**
+     * Guarda el estado completo de la gasolinera en el archivo base. Si la gasolinera ya tenía archivos de cambios, se borran porque ya no son necesarios.
+     * 
+     * El estado se escribe en un archivo temporal que después reemplaza al archivo base, y sólo entonces se confirma el guardado (ver Gasolinera.confirmarGuardado):
+     * si algo falla antes, el diario de ventas y las marcas de lo que ha cambiado siguen completos para el archivo base anterior.
+     * @param gasolinera La gasolinera que se va a guardar
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo el archivo
+     */
+    public void guardarEstado( Gasolinera gasolinera ) throws IOException
+    {
+        File temporal = new File( archivoBase.getPath( ) + ".tmp" );
+        EstadoGasolinera estado = gasolinera.capturarEstado( );
+        estado.guardarTexto( temporal );
+        Files.move( temporal.toPath( ), archivoBase.toPath( ), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+        borrarArchivosCambios( );
+        gasolinera.confirmarGuardado( estado );
+    }
+
+    /**
+     * Guarda en un nuevo archivo de cambios lo que ha cambiado en la gasolinera desde la última vez que se guardó
+     * @param gasolinera La gasolinera que se va a guardar. Debe ser la misma que se cargó (o guardó) con estos archivos
+     * @return El archivo de cambios donde se guardó la información
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo el archivo
+     */
+    public File guardarCambios( Gasolinera gasolinera ) throws IOException
+    {
+        File archivoCambios = getArchivoCambios( siguienteCambio );
+        gasolinera.guardarCambios( archivoCambios );
+        siguienteCambio++;
+        return archivoCambios;
+    }
+
+    /**
+     * Carga la gasolinera a partir del archivo base y de todos los archivos de cambios
+     * @return La gasolinera con el estado que tenía cuando se guardó el último archivo de cambios
+     * @throws IOException Se lanza esta excepción si alguno de los archivos no se puede leer
+     * @throws NumberFormatException Se lanza esta excepción si alguno de los números dentro de los archivos tiene el formato equivocado
+     */
+    public Gasolinera cargar( ) throws IOException, NumberFormatException
+    {
+        return Gasolinera.cargarEstado( archivoBase, getArchivosCambios( ) );
+    }
+
+    /**
+     * Carga la gasolinera a partir del archivo base y de todos los archivos de cambios, y luego reproduce encima las ventas del diario que no alcanzaron a quedar en
+     * el último archivo de cambios
+     * @param archivoDiario El archivo con el diario de ventas. Si no existe, sólo se cargan los otros archivos
+     * @return La gasolinera con el estado que tenía cuando se registró la última venta del diario
+     * @throws IOException Se lanza esta excepción si alguno de los archivos no se puede leer, o si el diario no corresponde a la gasolinera
+     * @throws NumberFormatException Se lanza esta excepción si alguno de los números dentro de los archivos tiene el formato equivocado
+     */
+    public Gasolinera cargar( File archivoDiario ) throws IOException, NumberFormatException
+    {
+        return Gasolinera.cargarEstado( archivoBase, getArchivosCambios( ), archivoDiario );
+    }
+
+    /**
+     * Junta el archivo base y todos los archivos de cambios en un nuevo archivo base, y borra los archivos de cambios.
+     *
+     * El nuevo archivo base se escribe primero en un archivo temporal que después reemplaza al anterior, así que si algo falla en la mitad, los archivos que había
+     * siguen sirviendo para cargar la gasolinera.
+     * @return La gasolinera cargada a partir de los archivos
+     * @throws IOException Se lanza esta excepción si alguno de los archivos no se puede leer o escribir
+     * @throws NumberFormatException Se lanza esta excepción si alguno de los números dentro de los archivos tiene el formato equivocado
+     */
+    public Gasolinera compactar( ) throws IOException, NumberFormatException
+    {
+        Gasolinera gasolinera = cargar( );
+        guardarEstado( gasolinera );
+        return gasolinera;
+    }
+
+    /**
+     * Borra todos los archivos de cambios y vuelve a empezar la numeración
+     */
+    private void borrarArchivosCambios( )
+    {
+        // Se borran del último al primero para que, si algo falla, no queden archivos de cambios sin los anteriores
+        for( int numero = siguienteCambio - 1; numero >= 1; numero-- )
+        {
+            getArchivoCambios( numero ).delete( );
+        }
+        siguienteCambio = 1;
+    }
+
+    // ************************************************************************
+    // Programa principal
+    // ************************************************************************
+
+    /**
+     * Compacta los archivos de una gasolinera guardada de forma incremental
+     * @param args El primer argumento debe ser la ruta del archivo base
+     */
+    public static void main( String[] args )
+    {
+        if( args.length != 1 )
+        {
+            System.out.println( "Uso: GuardadoIncremental <archivo base>" );
+            return;
+        }
+
+        GuardadoIncremental guardado = new GuardadoIncremental( new File( args[ 0 ] ) );
+        int cantidadCambios = guardado.getArchivosCambios( ).size( );
+        try
+        {
+            guardado.compactar( );
+            System.out.println( "Se compactaron " + cantidadCambios + " archivos de cambios en " + guardado.getArchivoBase( ) );
+        }
+        catch( NumberFormatException e )
+        {
+            System.out.println( "Alguno de los archivos tiene un número con el formato equivocado: " + e.getMessage( ) );
+        }
+        catch( IOException e )
+        {
+            System.out.println( "Hubo un problema compactando los archivos: " + e.getMessage( ) );
+        }
+    }
+}
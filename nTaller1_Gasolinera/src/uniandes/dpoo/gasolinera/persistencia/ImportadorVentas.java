@@ -0,0 +1,1021 @@
+package uniandes.dpoo.gasolinera.persistencia;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import uniandes.dpoo.gasolinera.exceptions.FormatoArchivoException;
+import uniandes.dpoo.gasolinera.logica.Gasolinera;
+import uniandes.dpoo.gasolinera.logica.RegistroTiposGasolina;
+import uniandes.dpoo.gasolinera.logica.ResultadoVenta;
+import uniandes.dpoo.gasolinera.logica.TipoGasolina;
+
+/**
+ * Esta clase aplica sobre una gasolinera las ventas de un archivo CSV exportado por los controladores de los surtidores.
+ *
+ * Cada línea del archivo es una venta con cinco campos separados por comas: surtidor,tipo,galones,valor,fecha. De los campos galones y valor sólo uno puede tener
+ * un valor: si tiene galones, la venta es por cantidad, y si tiene valor, es por precio (en pesos enteros). La fecha puede ser un número de milisegundos o una fecha
+ * como 2024-02-10T08:15:30.250 (la T puede ser un espacio, y los segundos y la fracción son opcionales). Si la primera línea no empieza con un número, es un
+ * encabezado y se ignora, igual que las líneas vacías.
+ *
+ * El archivo se lee en paralelo: se parte en fragmentos que se proyectan en memoria (ver FileChannel.map) y varios hilos convierten las líneas de cada fragmento en
+ * arreglos de números, sin construir cadenas. Las ventas se aplican después en un solo hilo, en orden de fecha (y en el orden del archivo cuando dos ventas tienen la
+ * misma fecha), usando los mismos métodos de venta de la gasolinera: así, cuando no alcanza la gasolina de un tipo, las ventas quedan incompletas exactamente como
+ * habría pasado si se hubieran hecho en el momento.
+ *
+ * Si alguna línea tiene un error, no se aplica ninguna venta y se lanza una FormatoArchivoException con la línea y la columna del problema.
+ */
+public class ImportadorVentas
+{
+    // ************************************************************************
+    // Constantes
+    // ************************************************************************
+
+    /**
+     * La mayor longitud que puede tener una línea, en bytes
+     */
+    private static final int LINEA_MAXIMA = 4096;
+
+    /**
+     * El menor tamaño de un fragmento cuando el tamaño se calcula según el archivo
+     */
+    private static final int FRAGMENTO_MINIMO = 1 << 20;
+
+    /**
+     * El mayor tamaño de un fragmento cuando el tamaño se calcula según el archivo
+     */
+    private static final int FRAGMENTO_MAXIMO = 64 << 20;
+
+    // ************************************************************************
+    // Atributos
+    // ************************************************************************
+
+    /**
+     * La gasolinera sobre la que se aplican las ventas
+     */
+    private Gasolinera gasolinera;
+
+    /**
+     * La cantidad de hilos que leen el archivo
+     */
+    private int hilos;
+
+    /**
+     * El tamaño de los fragmentos en los que se parte el archivo, en bytes, o 0 para calcularlo según el tamaño del archivo
+     */
+    private int tamanoFragmento;
+
+    /**
+     * El nombre del último archivo importado
+     */
+    private String nombreArchivo;
+
+    /**
+     * La cantidad de fragmentos en los que se partió el último archivo
+     */
+    private int fragmentos;
+
+    /**
+     * La cantidad de ventas aplicadas
+     */
+    private long filas;
+
+    /**
+     * Indica si las ventas del archivo no estaban en orden de fecha y hubo que ordenarlas
+     */
+    private boolean desordenado;
+
+    /**
+     * La cantidad de ventas de cada tipo de gasolina en las que no alcanzó la gasolina
+     */
+    private long[] ventasParcialesPorTipo;
+
+    /**
+     * El dinero que no se cobró en las ventas incompletas, porque no había gasolina para entregar
+     */
+    private long pesosSinVender;
+
+    /**
+     * El dinero cobrado en todas las ventas
+     */
+    private long dineroCobrado;
+
+    /**
+     * El tiempo que tomó leer el archivo, en nanosegundos
+     */
+    private long nanosegundosLectura;
+
+    /**
+     * El tiempo que tomó aplicar las ventas, en nanosegundos
+     */
+    private long nanosegundosAplicacion;
+
+    // ************************************************************************
+    // Constructores
+    // ************************************************************************
+
+    /**
+     * Prepara un importador que lee los archivos con un hilo por procesador
+     * @param gasolinera La gasolinera sobre la que se aplican las ventas
+     */
+    public ImportadorVentas( Gasolinera gasolinera )
+    {
+        this( gasolinera, Runtime.getRuntime( ).availableProcessors( ) );
+    }
+
+    /**
+     * Prepara un importador
+     * @param gasolinera La gasolinera sobre la que se aplican las ventas
+     * @param hilos La cantidad de hilos que leen los archivos
+     */
+    public ImportadorVentas( Gasolinera gasolinera, int hilos )
+    {
+        if( hilos < 1 )
+            throw new IllegalArgumentException( "Se necesita al menos un hilo" );
+        this.gasolinera = gasolinera;
+        this.hilos = hilos;
+        this.ventasParcialesPorTipo = new long[0];
+    }
+
+    // ************************************************************************
+    // Configuración y resultados
+    // ************************************************************************
+
+    /**
+     * Cambia el tamaño de los fragmentos en los que se parten los archivos. Normalmente el tamaño se calcula para que cada hilo lea varios fragmentos
+     * @param bytes El tamaño de cada fragmento, en bytes, o 0 para calcularlo según el tamaño del archivo
+     */
+    public void cambiarTamanoFragmento( int bytes )
+    {
+        if( bytes < 0 )
+            throw new IllegalArgumentException( "El tamaño de los fragmentos no puede ser negativo" );
+        this.tamanoFragmento = bytes;
+    }
+
+    /**
+     * Retorna la cantidad de ventas aplicadas en la última importación
+     * @return La cantidad de ventas
+     */
+    public long getFilas( )
+    {
+        return filas;
+    }
+
+    /**
+     * Retorna la cantidad de ventas de la última importación en las que no alcanzó la gasolina
+     * @return La cantidad de ventas incompletas
+     */
+    public long getVentasParciales( )
+    {
+        long total = 0;
+        for( long parciales : ventasParcialesPorTipo )
+        {
+            total += parciales;
+        }
+        return total;
+    }
+
+    /**
+     * Retorna el dinero que no se cobró en la última importación porque no había gasolina para entregar
+     * @return El dinero sin cobrar, en pesos
+     */
+    public long getPesosSinVender( )
+    {
+        return pesosSinVender;
+    }
+
+    /**
+     * Retorna el dinero cobrado en las ventas de la última importación
+     * @return El dinero cobrado, en pesos
+     */
+    public long getDineroCobrado( )
+    {
+        return dineroCobrado;
+    }
+
+    /**
+     * Indica si las ventas del último archivo no estaban en orden de fecha
+     * @return true si hubo que ordenar las ventas antes de aplicarlas
+     */
+    public boolean estabaDesordenado( )
+    {
+        return desordenado;
+    }
+
+    /**
+     * Retorna la cantidad de fragmentos en los que se partió el último archivo
+     * @return La cantidad de fragmentos
+     */
+    public int getFragmentos( )
+    {
+        return fragmentos;
+    }
+
+    /**
+     * Retorna el tiempo total de la última importación, leyendo el archivo y aplicando las ventas
+     * @return El tiempo en nanosegundos
+     */
+    public long getNanosegundos( )
+    {
+        return nanosegundosLectura + nanosegundosAplicacion;
+    }
+
+    /**
+     * Muestra el resumen de la última importación: cuántas ventas se aplicaron, a qué velocidad y en cuántas no alcanzó la gasolina
+     * @param salida Donde se muestra el resumen
+     */
+    public void imprimirResumen( PrintStream salida )
+    {
+        salida.println( "Archivo: " + nombreArchivo + " (" + fragmentos + " fragmentos leídos con " + hilos + " hilos" + ( desordenado ? ", ordenado por fecha)" : ")" ) );
+        salida.println( "Filas: " + filas + ", por " + dineroCobrado + " pesos" );
+        salida.println( String.format( "Lectura: %.1f ms (%.0f filas/s)", nanosegundosLectura / 1e6, calcularFilasPorSegundo( nanosegundosLectura ) ) );
+        salida.println( String.format( "Aplicación: %.1f ms (%.0f filas/s)", nanosegundosAplicacion / 1e6, calcularFilasPorSegundo( nanosegundosAplicacion ) ) );
+        salida.println( String.format( "Total: %.1f ms (%.0f filas/s)", getNanosegundos( ) / 1e6, calcularFilasPorSegundo( getNanosegundos( ) ) ) );
+        salida.println( "Ventas parciales: " + getVentasParciales( ) + " (" + pesosSinVender + " pesos sin vender)" );
+        RegistroTiposGasolina tiposGasolina = gasolinera.getRegistroTiposGasolina( );
+        for( int t = 0; t < ventasParcialesPorTipo.length; t++ )
+        {
+            if( ventasParcialesPorTipo[ t ] > 0 )
+                salida.println( "   - " + tiposGasolina.getTipo( t ).getNombre( ) + ": " + ventasParcialesPorTipo[ t ] );
+        }
+    }
+
+    /**
+     * Calcula cuántas filas por segundo se procesaron en un tiempo
+     * @param nanosegundos El tiempo en nanosegundos
+     * @return La cantidad de filas por segundo
+     */
+    private double calcularFilasPorSegundo( long nanosegundos )
+    {
+        return nanosegundos == 0 ? 0 : filas * 1e9 / nanosegundos;
+    }
+
+    // ************************************************************************
+    // Importación
+    // ************************************************************************
+
+    /**
+     * Lee un archivo de ventas y las aplica sobre la gasolinera, en orden de fecha
+     * @param archivo El archivo CSV con las ventas
+     * @return La cantidad de ventas aplicadas
+     * @throws FormatoArchivoException Se lanza esta excepción si alguna línea no tiene el formato esperado. En ese caso no se aplica ninguna venta
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo el archivo
+     */
+    public long importar( File archivo ) throws FormatoArchivoException, IOException
+    {
+        nombreArchivo = archivo.getPath( );
+        filas = 0;
+        desordenado = false;
+        pesosSinVender = 0;
+        dineroCobrado = 0;
+        ventasParcialesPorTipo = new long[gasolinera.getRegistroTiposGasolina( ).getCantidadTipos( )];
+
+        long inicio = System.nanoTime( );
+        Fragmento[] leidos = leer( archivo );
+        long mitad = System.nanoTime( );
+        aplicar( leidos );
+        nanosegundosLectura = mitad - inicio;
+        nanosegundosAplicacion = System.nanoTime( ) - mitad;
+        return filas;
+    }
+
+    /**
+     * Lee todos los fragmentos del archivo en paralelo
+     * @param archivo El archivo
+     * @return Los fragmentos leídos, en el orden del archivo
+     * @throws FormatoArchivoException Se lanza esta excepción si alguna línea no tiene el formato esperado
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo el archivo
+     */
+    private Fragmento[] leer( File archivo ) throws FormatoArchivoException, IOException
+    {
+        try( FileChannel canal = FileChannel.open( archivo.toPath( ), StandardOpenOption.READ ) )
+        {
+            long tamano = canal.size( );
+            long bytesPorFragmento = tamanoFragmento > 0 ? tamanoFragmento : Math.max( FRAGMENTO_MINIMO, Math.min( FRAGMENTO_MAXIMO, tamano / ( hilos * 4L ) + 1 ) );
+            fragmentos = ( int )Math.max( 1, ( tamano + bytesPorFragmento - 1 ) / bytesPorFragmento );
+
+            byte[][] nombresTipos = codificarNombresTipos( );
+            Fragmento[] leidos = new Fragmento[fragmentos];
+            for( int i = 0; i < fragmentos; i++ )
+            {
+                long inicio = i * bytesPorFragmento;
+                leidos[ i ] = new Fragmento( canal, tamano, inicio, Math.min( tamano, inicio + bytesPorFragmento ), nombresTipos, gasolinera.getCantidadSurtidores( ) );
+            }
+
+            if( fragmentos == 1 || hilos == 1 )
+            {
+                for( Fragmento fragmento : leidos )
+                {
+                    fragmento.leer( );
+                }
+            }
+            else
+            {
+                leerEnParalelo( leidos );
+            }
+
+            // Reportar el primer error del archivo, con el número de línea contado desde el principio
+            int lineasAnteriores = 0;
+            for( Fragmento fragmento : leidos )
+            {
+                if( fragmento.problema != null )
+                    throw new FormatoArchivoException( nombreArchivo, lineasAnteriores + fragmento.lineas, fragmento.columnaProblema, fragmento.problema );
+                lineasAnteriores += fragmento.lineas;
+            }
+            return leidos;
+        }
+    }
+
+    /**
+     * Lee los fragmentos con varios hilos
+     * @param leidos Los fragmentos
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo el archivo
+     */
+    private void leerEnParalelo( Fragmento[] leidos ) throws IOException
+    {
+        AtomicInteger numeroHilo = new AtomicInteger( );
+        ExecutorService ejecutor = Executors.newFixedThreadPool( Math.min( hilos, leidos.length ), r -> {
+            Thread hilo = new Thread( r, "importador-ventas-" + numeroHilo.incrementAndGet( ) );
+            hilo.setDaemon( true );
+            return hilo;
+        } );
+        try
+        {
+            List<Future<?>> tareas = new ArrayList<Future<?>>( leidos.length );
+            for( Fragmento fragmento : leidos )
+            {
+                tareas.add( ejecutor.submit( ( ) -> {
+                    fragmento.leer( );
+                    return null;
+                } ) );
+            }
+            for( Future<?> tarea : tareas )
+            {
+                tarea.get( );
+            }
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new IOException( "La lectura del archivo fue interrumpida", e );
+        }
+        catch( ExecutionException e )
+        {
+            if( e.getCause( ) instanceof IOException )
+                throw ( IOException )e.getCause( );
+            throw new IOException( "No se pudo leer el archivo", e.getCause( ) );
+        }
+        finally
+        {
+            ejecutor.shutdownNow( );
+        }
+    }
+
+    /**
+     * Codifica en UTF-8 los nombres de los tipos de gasolina, para compararlos directamente con los bytes del archivo
+     * @return Los nombres codificados, en la posición del identificador de cada tipo
+     */
+    private byte[][] codificarNombresTipos( )
+    {
+        RegistroTiposGasolina tiposGasolina = gasolinera.getRegistroTiposGasolina( );
+        byte[][] nombres = new byte[tiposGasolina.getCantidadTipos( )][];
+        for( int t = 0; t < nombres.length; t++ )
+        {
+            nombres[ t ] = tiposGasolina.getTipo( t ).getNombre( ).getBytes( StandardCharsets.UTF_8 );
+        }
+        return nombres;
+    }
+
+    /**
+     * Aplica las ventas de todos los fragmentos en orden de fecha. Cada fragmento ya está ordenado, así que basta con mezclarlos
+     * @param leidos Los fragmentos leídos
+     */
+    private void aplicar( Fragmento[] leidos )
+    {
+        // Lo más común es que el archivo ya venga en orden: en ese caso los fragmentos se aplican uno tras otro
+        boolean enOrden = true;
+        long ultimaFecha = Long.MIN_VALUE;
+        for( Fragmento fragmento : leidos )
+        {
+            if( fragmento.cantidad > 0 )
+            {
+                enOrden &= fragmento.orden == null && fragmento.fechas[ 0 ] >= ultimaFecha;
+                ultimaFecha = fragmento.fechas[ fragmento.cantidad - 1 ];
+            }
+        }
+        desordenado = !enOrden;
+
+        if( enOrden )
+        {
+            for( Fragmento fragmento : leidos )
+            {
+                for( int i = 0; i < fragmento.cantidad; i++ )
+                {
+                    aplicarVenta( fragmento, i );
+                }
+            }
+            return;
+        }
+
+        // Mezclar los fragmentos con un montículo de fragmentos, ordenado por la fecha de la siguiente venta de cada uno y luego por la posición en el archivo
+        int[] monticulo = new int[leidos.length];
+        int[] siguientes = new int[leidos.length];
+        int tamanoMonticulo = 0;
+        for( int f = 0; f < leidos.length; f++ )
+        {
+            if( leidos[ f ].cantidad > 0 )
+                monticulo[ tamanoMonticulo++ ] = f;
+        }
+        for( int i = tamanoMonticulo / 2 - 1; i >= 0; i-- )
+        {
+            hundir( monticulo, tamanoMonticulo, i, leidos, siguientes );
+        }
+        while( tamanoMonticulo > 0 )
+        {
+            int f = monticulo[ 0 ];
+            Fragmento fragmento = leidos[ f ];
+            aplicarVenta( fragmento, fragmento.getPosicion( siguientes[ f ] ) );
+            siguientes[ f ]++;
+            if( siguientes[ f ] == fragmento.cantidad )
+                monticulo[ 0 ] = monticulo[ --tamanoMonticulo ];
+            hundir( monticulo, tamanoMonticulo, 0, leidos, siguientes );
+        }
+    }
+
+    /**
+     * Baja un fragmento en el montículo hasta que quede antes de los fragmentos cuya siguiente venta es posterior
+     * @param monticulo Los fragmentos del montículo
+     * @param tamano La cantidad de fragmentos en el montículo
+     * @param i La posición del fragmento que se baja
+     * @param leidos Los fragmentos leídos
+     * @param siguientes La posición de la siguiente venta de cada fragmento
+     */
+    private static void hundir( int[] monticulo, int tamano, int i, Fragmento[] leidos, int[] siguientes )
+    {
+        while( true )
+        {
+            int menor = i;
+            int izquierdo = 2 * i + 1;
+            int derecho = izquierdo + 1;
+            if( izquierdo < tamano && vaAntes( monticulo[ izquierdo ], monticulo[ menor ], leidos, siguientes ) )
+                menor = izquierdo;
+            if( derecho < tamano && vaAntes( monticulo[ derecho ], monticulo[ menor ], leidos, siguientes ) )
+                menor = derecho;
+            if( menor == i )
+                return;
+            int temporal = monticulo[ i ];
+            monticulo[ i ] = monticulo[ menor ];
+            monticulo[ menor ] = temporal;
+            i = menor;
+        }
+    }
+
+    /**
+     * Indica si la siguiente venta de un fragmento va antes que la siguiente venta de otro
+     * @param a El primer fragmento
+     * @param b El segundo fragmento
+     * @param leidos Los fragmentos leídos
+     * @param siguientes La posición de la siguiente venta de cada fragmento
+     * @return true si la venta del fragmento a tiene una fecha anterior, o la misma fecha y a está antes en el archivo
+     */
+    private static boolean vaAntes( int a, int b, Fragmento[] leidos, int[] siguientes )
+    {
+        long fechaA = leidos[ a ].getFecha( siguientes[ a ] );
+        long fechaB = leidos[ b ].getFecha( siguientes[ b ] );
+        return fechaA < fechaB || ( fechaA == fechaB && a < b );
+    }
+
+    /**
+     * Aplica una venta sobre la gasolinera y cuenta si no alcanzó la gasolina
+     * @param fragmento El fragmento donde está la venta
+     * @param i La posición de la venta en el fragmento
+     */
+    private void aplicarVenta( Fragmento fragmento, int i )
+    {
+        int surtidor = fragmento.surtidores[ i ];
+        int idTipo = fragmento.tipos[ i ];
+        ResultadoVenta venta;
+        if( fragmento.porPrecio[ i ] )
+        {
+            venta = gasolinera.venderPorPrecio( idTipo, ( int )fragmento.cantidades[ i ], surtidor );
+        }
+        else
+        {
+            venta = gasolinera.venderPorCantidad( idTipo, TipoGasolina.aGalones( fragmento.cantidades[ i ] ), surtidor );
+        }
+        filas++;
+        dineroCobrado += venta.getPrecio( );
+        if( !venta.esCompleta( ) )
+        {
+            ventasParcialesPorTipo[ idTipo ]++;
+            pesosSinVender += Math.max( venta.calcularPrecioSolicitado( ) - venta.getPrecio( ), 0 );
+        }
+    }
+
+    // ************************************************************************
+    // Clases auxiliares
+    // ************************************************************************
+
+    /**
+     * Un problema en una línea del archivo. No guarda la pila de llamadas porque sólo sirve para salir de la lectura del fragmento
+     */
+    @SuppressWarnings("serial")
+    private static class ProblemaLinea extends Exception
+    {
+        private ProblemaLinea( String problema )
+        {
+            super( problema, null, false, false );
+        }
+    }
+
+    /**
+     * Un fragmento del archivo, con las ventas de las líneas que empiezan dentro de él guardadas en arreglos paralelos.
+     *
+     * Una línea pertenece al fragmento donde está su primer byte, así que el fragmento se proyecta en memoria desde el byte anterior a su inicio (para saber si ahí
+     * empieza una línea) y hasta LINEA_MAXIMA bytes después de su fin (para terminar de leer la última línea).
+     */
+    private static class Fragmento
+    {
+        private FileChannel canal;
+        private long tamanoArchivo;
+        private long inicio;
+        private long fin;
+        private byte[][] nombresTipos;
+        private int cantidadSurtidores;
+
+        /**
+         * El contenido proyectado del fragmento y la posición dentro de él de los bytes que se están leyendo
+         */
+        private MappedByteBuffer contenido;
+        private int posicion;
+        private int inicioLinea;
+
+        /**
+         * Las ventas leídas: cada arreglo tiene un campo de la venta y las ventas están en el orden del archivo
+         */
+        private int cantidad;
+        private int[] surtidores;
+        private int[] tipos;
+        private long[] cantidades;
+        private boolean[] porPrecio;
+        private long[] fechas;
+
+        /**
+         * El orden de las ventas por fecha, o null si ya estaban en orden
+         */
+        private int[] orden;
+
+        /**
+         * La cantidad de líneas que empiezan en el fragmento. Si hubo un problema, es el número de la línea del problema dentro del fragmento
+         */
+        private int lineas;
+
+        /**
+         * El primer problema encontrado y su columna, o null si todas las líneas estaban bien
+         */
+        private String problema;
+        private int columnaProblema;
+
+        private Fragmento( FileChannel canal, long tamanoArchivo, long inicio, long fin, byte[][] nombresTipos, int cantidadSurtidores )
+        {
+            this.canal = canal;
+            this.tamanoArchivo = tamanoArchivo;
+            this.inicio = inicio;
+            this.fin = fin;
+            this.nombresTipos = nombresTipos;
+            this.cantidadSurtidores = cantidadSurtidores;
+            int capacidad = ( int )Math.min( 1 << 20, ( fin - inicio ) / 24 + 16 );
+            this.surtidores = new int[capacidad];
+            this.tipos = new int[capacidad];
+            this.cantidades = new long[capacidad];
+            this.porPrecio = new boolean[capacidad];
+            this.fechas = new long[capacidad];
+        }
+
+        /**
+         * Retorna la fecha de una venta
+         * @param i La posición de la venta en el orden de fecha del fragmento
+         * @return La fecha
+         */
+        private long getFecha( int i )
+        {
+            return fechas[ getPosicion( i ) ];
+        }
+
+        /**
+         * Retorna la posición en el archivo de una venta
+         * @param i La posición de la venta en el orden de fecha del fragmento
+         * @return La posición de la venta en los arreglos del fragmento
+         */
+        private int getPosicion( int i )
+        {
+            return orden == null ? i : orden[ i ];
+        }
+
+        /**
+         * Lee todas las líneas que empiezan en el fragmento y las deja en orden de fecha
+         * @throws IOException Se lanza esta excepción si hay problemas proyectando el fragmento en memoria
+         */
+        private void leer( ) throws IOException
+        {
+            if( inicio == fin )
+                return;
+            long desde = inicio == 0 ? 0 : inicio - 1;
+            long hasta = Math.min( tamanoArchivo, fin + LINEA_MAXIMA );
+            contenido = canal.map( FileChannel.MapMode.READ_ONLY, desde, hasta - desde );
+            int limite = contenido.limit( );
+            int finPropio = ( int )( fin - desde );
+
+            // Buscar el inicio de la primera línea del fragmento
+            posicion = 0;
+            if( inicio > 0 )
+            {
+                while( posicion < limite && contenido.get( posicion ) != '\n' )
+                {
+                    posicion++;
+                }
+                posicion++;
+            }
+
+            try
+            {
+                while( posicion < finPropio )
+                {
+                    lineas++;
+                    inicioLinea = posicion;
+                    int finLinea = buscarFinLinea( limite, desde + limite == tamanoArchivo );
+
+                    // Ignorar el retorno de carro de los archivos escritos en Windows
+                    int finContenido = finLinea > posicion && contenido.get( finLinea - 1 ) == '\r' ? finLinea - 1 : finLinea;
+                    boolean encabezado = inicio == 0 && lineas == 1 && posicion < finContenido && !esDigito( contenido.get( posicion ) );
+                    if( posicion < finContenido && !encabezado )
+                        leerLinea( finContenido );
+                    posicion = finLinea + 1;
+                }
+            }
+            catch( ProblemaLinea e )
+            {
+                problema = e.getMessage( );
+                columnaProblema = posicion - inicioLinea + 1;
+                return;
+            }
+            finally
+            {
+                contenido = null;
+            }
+            ordenar( );
+        }
+
+        /**
+         * Busca el final de la línea que empieza en la posición actual
+         * @param limite La cantidad de bytes proyectados
+         * @param finArchivo Indica si los bytes proyectados llegan hasta el final del archivo
+         * @return La posición del salto de línea, o del final del archivo si la última línea no tiene salto de línea
+         * @throws ProblemaLinea Si la línea es más larga que LINEA_MAXIMA
+         */
+        private int buscarFinLinea( int limite, boolean finArchivo ) throws ProblemaLinea
+        {
+            int p = posicion;
+            while( p < limite && contenido.get( p ) != '\n' )
+            {
+                p++;
+            }
+            if( p == limite && !finArchivo )
+                throw new ProblemaLinea( "la línea tiene más de " + LINEA_MAXIMA + " bytes" );
+            return p;
+        }
+
+        /**
+         * Lee una línea con una venta
+         * @param finLinea La posición donde termina el contenido de la línea
+         * @throws ProblemaLinea Si la línea no tiene el formato esperado
+         */
+        private void leerLinea( int finLinea ) throws ProblemaLinea
+        {
+            if( cantidad == surtidores.length )
+                crecer( );
+
+            int surtidor = ( int )leerEntero( finLinea, cantidadSurtidores - 1 );
+            esperarComa( finLinea );
+            int tipo = leerTipo( finLinea );
+            esperarComa( finLinea );
+            long galones = posicion < finLinea && contenido.get( posicion ) != ',' ? leerMicrogalones( finLinea ) : -1;
+            esperarComa( finLinea );
+            long valor = posicion < finLinea && contenido.get( posicion ) != ',' ? leerEntero( finLinea, Integer.MAX_VALUE ) : -1;
+            if( ( galones == -1 ) == ( valor == -1 ) )
+                throw new ProblemaLinea( "la venta debe tener galones o valor, pero no los dos" );
+            if( galones == 0 || valor == 0 )
+                throw new ProblemaLinea( "la cantidad vendida debe ser positiva" );
+            esperarComa( finLinea );
+            long fecha = leerFecha( finLinea );
+
+            surtidores[ cantidad ] = surtidor;
+            tipos[ cantidad ] = tipo;
+            porPrecio[ cantidad ] = valor != -1;
+            cantidades[ cantidad ] = valor != -1 ? valor : galones;
+            fechas[ cantidad ] = fecha;
+            cantidad++;
+        }
+
+        /**
+         * Duplica la capacidad de los arreglos de ventas
+         */
+        private void crecer( )
+        {
+            int capacidad = surtidores.length * 2;
+            surtidores = Arrays.copyOf( surtidores, capacidad );
+            tipos = Arrays.copyOf( tipos, capacidad );
+            cantidades = Arrays.copyOf( cantidades, capacidad );
+            porPrecio = Arrays.copyOf( porPrecio, capacidad );
+            fechas = Arrays.copyOf( fechas, capacidad );
+        }
+
+        /**
+         * Revisa que el siguiente byte sea una coma y lo salta
+         * @param finLinea El final de la línea
+         * @throws ProblemaLinea Si el siguiente byte no es una coma
+         */
+        private void esperarComa( int finLinea ) throws ProblemaLinea
+        {
+            if( posicion >= finLinea || contenido.get( posicion ) != ',' )
+                throw new ProblemaLinea( "se esperaba ','" );
+            posicion++;
+        }
+
+        /**
+         * Busca dónde termina el campo que empieza en la posición actual
+         * @param finLinea El final de la línea
+         * @return La posición de la siguiente coma, o el final de la línea
+         */
+        private int buscarFinCampo( int finLinea )
+        {
+            int p = posicion;
+            while( p < finLinea && contenido.get( p ) != ',' )
+            {
+                p++;
+            }
+            return p;
+        }
+
+        /**
+         * Lee un número entero positivo
+         * @param finLinea El final de la línea
+         * @param maximo El mayor valor que puede tener el número
+         * @return El número
+         * @throws ProblemaLinea Si el campo no es un número entero o es mayor que el máximo
+         */
+        private long leerEntero( int finLinea, long maximo ) throws ProblemaLinea
+        {
+            int finCampo = buscarFinCampo( finLinea );
+            if( posicion == finCampo )
+                throw new ProblemaLinea( "se esperaba un número entero" );
+            long valor = 0;
+            for( ; posicion < finCampo; posicion++ )
+            {
+                int digito = contenido.get( posicion ) - '0';
+                if( digito < 0 || digito > 9 )
+                    throw new ProblemaLinea( "se esperaba un número entero" );
+                valor = valor * 10 + digito;
+                if( valor > maximo )
+                    throw new ProblemaLinea( "el número es demasiado grande" );
+            }
+            return valor;
+        }
+
+        /**
+         * Lee una cantidad positiva de galones, con parte decimal opcional
+         * @param finLinea El final de la línea
+         * @return La cantidad en millonésimas de galón, redondeada a la más cercana
+         * @throws ProblemaLinea Si el campo no es una cantidad
+         */
+        private long leerMicrogalones( int finLinea ) throws ProblemaLinea
+        {
+            int finCampo = buscarFinCampo( finLinea );
+            long enteros = 0;
+            boolean hayDigitos = false;
+            for( ; posicion < finCampo && esDigito( contenido.get( posicion ) ); posicion++ )
+            {
+                hayDigitos = true;
+                enteros = enteros * 10 + ( contenido.get( posicion ) - '0' );
+                if( enteros > Long.MAX_VALUE / TipoGasolina.MICROGALONES_POR_GALON / 10 )
+                    throw new ProblemaLinea( "la cantidad es demasiado grande" );
+            }
+            long fraccion = 0;
+            long escala = TipoGasolina.MICROGALONES_POR_GALON;
+            boolean redondearArriba = false;
+            if( posicion < finCampo && contenido.get( posicion ) == '.' )
+            {
+                for( posicion++; posicion < finCampo && esDigito( contenido.get( posicion ) ); posicion++ )
+                {
+                    hayDigitos = true;
+                    int digito = contenido.get( posicion ) - '0';
+                    if( escala > 1 )
+                    {
+                        escala /= 10;
+                        fraccion += digito * escala;
+                    }
+                    else if( escala == 1 )
+                    {
+                        // El primer dígito después de las millonésimas decide el redondeo
+                        redondearArriba = digito >= 5;
+                        escala = 0;
+                    }
+                }
+            }
+            if( !hayDigitos || posicion != finCampo )
+                throw new ProblemaLinea( "se esperaba una cantidad de galones" );
+            return enteros * TipoGasolina.MICROGALONES_POR_GALON + fraccion + ( redondearArriba ? 1 : 0 );
+        }
+
+        /**
+         * Lee el nombre de un tipo de gasolina, comparando los bytes con los nombres de los tipos que vende la gasolinera
+         * @param finLinea El final de la línea
+         * @return El identificador del tipo
+         * @throws ProblemaLinea Si la gasolinera no vende ese tipo
+         */
+        private int leerTipo( int finLinea ) throws ProblemaLinea
+        {
+            int finCampo = buscarFinCampo( finLinea );
+            int longitud = finCampo - posicion;
+            for( int t = 0; t < nombresTipos.length; t++ )
+            {
+                byte[] nombre = nombresTipos[ t ];
+                if( nombre.length == longitud )
+                {
+                    int i = 0;
+                    while( i < longitud && nombre[ i ] == contenido.get( posicion + i ) )
+                    {
+                        i++;
+                    }
+                    if( i == longitud )
+                    {
+                        posicion = finCampo;
+                        return t;
+                    }
+                }
+            }
+            throw new ProblemaLinea( "la gasolinera no vende ese tipo de gasolina" );
+        }
+
+        /**
+         * Lee una fecha, que puede ser un número de milisegundos o una fecha como 2024-02-10T08:15:30.250. La fecha no tiene zona horaria: sólo se usa para ordenar
+         * @param finLinea El final de la línea
+         * @return La fecha en milisegundos
+         * @throws ProblemaLinea Si el campo no es una fecha
+         */
+        private long leerFecha( int finLinea ) throws ProblemaLinea
+        {
+            int finCampo = buscarFinCampo( finLinea );
+            if( finCampo != finLinea )
+                throw new ProblemaLinea( "la línea tiene más de cinco campos" );
+            int p = posicion;
+            while( p < finCampo && esDigito( contenido.get( p ) ) )
+            {
+                p++;
+            }
+            if( p == finCampo )
+                return leerEntero( finLinea, Long.MAX_VALUE / 100 );
+
+            long anio = leerDigitos( 4, '-' );
+            long mes = leerDigitos( 2, '-' );
+            long dia = leerDigitos( 2, ( char )0 );
+            if( posicion >= finCampo || ( contenido.get( posicion ) != 'T' && contenido.get( posicion ) != ' ' ) )
+                throw new ProblemaLinea( "se esperaba una fecha como 2024-02-10T08:15:30" );
+            posicion++;
+            long hora = leerDigitos( 2, ':' );
+            long minuto = leerDigitos( 2, ( char )0 );
+            long segundo = 0;
+            long milisegundos = 0;
+            if( posicion < finCampo && contenido.get( posicion ) == ':' )
+            {
+                posicion++;
+                segundo = leerDigitos( 2, ( char )0 );
+                if( posicion < finCampo && contenido.get( posicion ) == '.' )
+                {
+                    posicion++;
+                    int digitos = 0;
+                    for( ; posicion < finCampo && esDigito( contenido.get( posicion ) ); posicion++, digitos++ )
+                    {
+                        if( digitos < 3 )
+                            milisegundos = milisegundos * 10 + ( contenido.get( posicion ) - '0' );
+                    }
+                    for( ; digitos < 3; digitos++ )
+                    {
+                        milisegundos *= 10;
+                    }
+                }
+            }
+            if( posicion < finCampo && contenido.get( posicion ) == 'Z' )
+                posicion++;
+            if( posicion != finCampo || mes < 1 || mes > 12 || dia < 1 || dia > 31 || hora > 23 || minuto > 59 || segundo > 60 )
+                throw new ProblemaLinea( "se esperaba una fecha como 2024-02-10T08:15:30" );
+            long segundos = ( ( calcularDias( anio, mes, dia ) * 24 + hora ) * 60 + minuto ) * 60 + segundo;
+            return segundos * 1000 + milisegundos;
+        }
+
+        /**
+         * Lee una cantidad fija de dígitos y, si se pide, el separador que los sigue
+         * @param digitos La cantidad de dígitos
+         * @param separador El separador que sigue, o 0 si no hay separador
+         * @return El número formado por los dígitos
+         * @throws ProblemaLinea Si no están los dígitos o el separador
+         */
+        private long leerDigitos( int digitos, char separador ) throws ProblemaLinea
+        {
+            long valor = 0;
+            for( int i = 0; i < digitos; i++, posicion++ )
+            {
+                if( posicion >= contenido.limit( ) || !esDigito( contenido.get( posicion ) ) )
+                    throw new ProblemaLinea( "se esperaba una fecha como 2024-02-10T08:15:30" );
+                valor = valor * 10 + ( contenido.get( posicion ) - '0' );
+            }
+            if( separador != 0 )
+            {
+                if( posicion >= contenido.limit( ) || contenido.get( posicion ) != separador )
+                    throw new ProblemaLinea( "se esperaba una fecha como 2024-02-10T08:15:30" );
+                posicion++;
+            }
+            return valor;
+        }
+
+        /**
+         * Calcula los días desde el 1 de enero de 1970 hasta una fecha del calendario gregoriano
+         * @param anio El año
+         * @param mes El mes, de 1 a 12
+         * @param dia El día del mes
+         * @return La cantidad de días
+         */
+        private static long calcularDias( long anio, long mes, long dia )
+        {
+            // Los años se cuentan desde marzo, para que el día bisiesto quede al final
+            long anioMarzo = mes <= 2 ? anio - 1 : anio;
+            long era = Math.floorDiv( anioMarzo, 400 );
+            long anioEra = anioMarzo - era * 400;
+            long diaAnio = ( 153 * ( mes > 2 ? mes - 3 : mes + 9 ) + 2 ) / 5 + dia - 1;
+            long diaEra = anioEra * 365 + anioEra / 4 - anioEra / 100 + diaAnio;
+            return era * 146097 + diaEra - 719468;
+        }
+
+        /**
+         * Deja las ventas del fragmento en orden de fecha, sin cambiar el orden de las que tienen la misma fecha. Si ya estaban en orden no hace nada
+         */
+        private void ordenar( )
+        {
+            boolean enOrden = true;
+            for( int i = 1; i < cantidad && enOrden; i++ )
+            {
+                enOrden = fechas[ i - 1 ] <= fechas[ i ];
+            }
+            if( enOrden )
+                return;
+
+            orden = new int[cantidad];
+            for( int i = 0; i < cantidad; i++ )
+            {
+                orden[ i ] = i;
+            }
+            int[] auxiliar = new int[cantidad];
+            for( int ancho = 1; ancho < cantidad; ancho *= 2 )
+            {
+                for( int izquierda = 0; izquierda < cantidad - ancho; izquierda += 2 * ancho )
+                {
+                    int mitad = izquierda + ancho;
+                    int derecha = Math.min( izquierda + 2 * ancho, cantidad );
+                    int i = izquierda;
+                    int j = mitad;
+                    int k = izquierda;
+                    while( i < mitad && j < derecha )
+                    {
+                        auxiliar[ k++ ] = fechas[ orden[ j ] ] < fechas[ orden[ i ] ] ? orden[ j++ ] : orden[ i++ ];
+                    }
+                    while( i < mitad )
+                    {
+                        auxiliar[ k++ ] = orden[ i++ ];
+                    }
+                    while( j < derecha )
+                    {
+                        auxiliar[ k++ ] = orden[ j++ ];
+                    }
+                    System.arraycopy( auxiliar, izquierda, orden, izquierda, derecha - izquierda );
+                }
+            }
+        }
+
+        private static boolean esDigito( byte b )
+        {
+            return b >= '0' && b <= '9';
+        }
+    }
+}
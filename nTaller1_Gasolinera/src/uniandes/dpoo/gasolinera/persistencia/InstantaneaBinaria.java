@@ -0,0 +1,335 @@
+package uniandes.dpoo.gasolinera.persistencia;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import uniandes.dpoo.gasolinera.logica.Empleado;
+import uniandes.dpoo.gasolinera.logica.EstadoGasolinera;
+import uniandes.dpoo.gasolinera.logica.Gasolinera;
+import uniandes.dpoo.gasolinera.logica.RegistroTiposGasolina;
+import uniandes.dpoo.gasolinera.logica.TablaSurtidores;
+import uniandes.dpoo.gasolinera.logica.TipoGasolina;
+
+/**
+ * Esta clase guarda y carga el estado completo de una gasolinera en un archivo binario.
+ *
+ * El archivo empieza con un encabezado: el número mágico, la versión, la cantidad de tipos de gasolina, la cantidad de empleados y la cantidad de surtidores.
+ * Después viene la tabla de nombres (primero los tipos de gasolina y luego los empleados, cada uno con su longitud y sus bytes en UTF-8), el precio, el número de la
+ * versión del precio, el momento en el que se publicó esa versión y la cantidad disponible de cada tipo, el dinero de cada empleado y, al final, un registro por
+ * surtidor. Todos los registros de surtidores
+ * tienen el mismo tamaño: la posición del empleado asignado dentro de la tabla de nombres y los galones vendidos de cada tipo, en millonésimas de galón.
+ *
+ * La versión 1 del formato no tiene el número de la versión del precio; esos archivos se siguen pudiendo cargar y su precio queda como la versión 1. Las versiones 1
+ * y 2 no tienen el momento de la versión del precio, que se toma del momento en el que se cargan.
+ *
+ * Para cargar el archivo no hay que convertir texto en números: el archivo se mapea en memoria y los valores se leen directamente de ahí.
+ */
+public class InstantaneaBinaria
+{
+    /**
+     * El número con el que empiezan todos los archivos binarios de gasolineras ("GASI")
+     */
+    public static final int NUMERO_MAGICO = 0x47415349;
+
+    /**
+     * La versión del formato del archivo
+     */
+    public static final int VERSION = 3;
+
+    /**
+     * El tamaño en bytes del encabezado: número mágico, versión y las cantidades de tipos, empleados y surtidores
+     */
+    private static final int TAMANO_ENCABEZADO = 4 * 5;
+
+    /**
+     * El tamaño del bloque de memoria que se llena antes de escribirlo en el archivo
+     */
+    private static final int TAMANO_BLOQUE = 64 * 1024;
+
+    /**
+     * Retorna el tamaño en bytes del registro de cada surtidor
+     * @param cantidadTipos La cantidad de tipos de gasolina de la gasolinera
+     * @return El tamaño de la posición del empleado (int) más un long por cada tipo de gasolina
+     */
+    public static int calcularTamanoSurtidor( int cantidadTipos )
+    {
+        return 4 + 8 * cantidadTipos;
+    }
+
+    /**
+     * Revisa si un archivo tiene el estado de una gasolinera en formato binario, a partir de su número mágico
+     * @param archivo El archivo que se revisa
+     * @return Retorna true si el archivo empieza con el número mágico de este formato
+     * @throws IOException Se lanza esta excepción si el archivo no se puede leer
+     */
+    public static boolean esInstantaneaBinaria( File archivo ) throws IOException
+    {
+        if( archivo.length( ) < TAMANO_ENCABEZADO )
+        {
+            return false;
+        }
+        DataInputStream entrada = new DataInputStream( new FileInputStream( archivo ) );
+        try
+        {
+            return entrada.readInt( ) == NUMERO_MAGICO;
+        }
+        finally
+        {
+            entrada.close( );
+        }
+    }
+
+    /**
+     * Guarda en un archivo binario el estado capturado de una gasolinera. Si el archivo ya existe, se sobreescribe
+     * @param estado El estado de la gasolinera (ver Gasolinera.capturarEstado)
+     * @param archivo El archivo donde se guardará la información
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo en el archivo
+     */
+    public static void guardar( EstadoGasolinera estado, File archivo ) throws IOException
+    {
+        int cantidadTipos = estado.getCantidadTipos( );
+        int cantidadEmpleados = estado.getCantidadEmpleados( );
+        int cantidadSurtidores = estado.getCantidadSurtidores( );
+
+        FileChannel canal = FileChannel.open( archivo.toPath( ), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING );
+        try
+        {
+            ByteBuffer bloque = ByteBuffer.allocate( TAMANO_BLOQUE );
+            bloque.putInt( NUMERO_MAGICO );
+            bloque.putInt( VERSION );
+            bloque.putInt( cantidadTipos );
+            bloque.putInt( cantidadEmpleados );
+            bloque.putInt( cantidadSurtidores );
+
+            // Tabla de nombres
+            for( int idTipo = 0; idTipo < cantidadTipos; idTipo++ )
+            {
+                bloque = escribirNombre( canal, bloque, estado.getNombreTipo( idTipo ) );
+            }
+            for( int i = 0; i < cantidadEmpleados; i++ )
+            {
+                bloque = escribirNombre( canal, bloque, estado.getNombreEmpleado( i ) );
+            }
+
+            // Tipos de gasolina
+            for( int idTipo = 0; idTipo < cantidadTipos; idTipo++ )
+            {
+                bloque = asegurarEspacio( canal, bloque, 4 + 4 + 8 + 8 );
+                bloque.putInt( estado.getPrecioPorGalon( idTipo ) );
+                bloque.putInt( estado.getVersionPrecio( idTipo ) );
+                bloque.putLong( estado.getDesdeVersionPrecio( idTipo ) );
+                bloque.putLong( estado.getMicrogalonesDisponibles( idTipo ) );
+            }
+
+            // Empleados
+            for( int i = 0; i < cantidadEmpleados; i++ )
+            {
+                bloque = asegurarEspacio( canal, bloque, 8 );
+                bloque.putLong( estado.getCantidadDinero( i ) );
+            }
+
+            // Surtidores
+            int tamanoSurtidor = calcularTamanoSurtidor( cantidadTipos );
+            for( int i = 0; i < cantidadSurtidores; i++ )
+            {
+                if( estado.getEmpleadoSurtidor( i ) == -1 )
+                {
+                    throw new IOException( "El empleado del surtidor " + i + " no trabaja en la gasolinera" );
+                }
+                bloque = asegurarEspacio( canal, bloque, tamanoSurtidor );
+                bloque.putInt( estado.getEmpleadoSurtidor( i ) );
+                for( int idTipo = 0; idTipo < cantidadTipos; idTipo++ )
+                {
+                    bloque.putLong( estado.getMicrogalonesVendidos( i, idTipo ) );
+                }
+            }
+
+            escribirBloque( canal, bloque );
+            canal.force( false );
+        }
+        finally
+        {
+            canal.close( );
+        }
+    }
+
+    /**
+     * Carga una gasolinera a partir de un archivo binario escrito con el método guardar
+     * @param archivo El archivo que contiene la información que se va a cargar
+     * @return Una nueva gasolinera con su estado inicializado con la información del archivo
+     * @throws IOException Se lanza esta excepción si el archivo no se puede leer, no tiene el formato binario o está incompleto
+     */
+    public static Gasolinera cargar( File archivo ) throws IOException
+    {
+        FileChannel canal = FileChannel.open( archivo.toPath( ), StandardOpenOption.READ );
+        try
+        {
+            MappedByteBuffer datos = canal.map( FileChannel.MapMode.READ_ONLY, 0, canal.size( ) );
+            if( datos.remaining( ) < TAMANO_ENCABEZADO || datos.getInt( ) != NUMERO_MAGICO )
+            {
+                throw new IOException( "El archivo " + archivo + " no tiene el estado de una gasolinera en formato binario" );
+            }
+            int version = datos.getInt( );
+            if( version < 1 || version > VERSION )
+            {
+                throw new IOException( "El archivo " + archivo + " tiene la versión " + version + " del formato, que no se puede leer" );
+            }
+            int cantidadTipos = datos.getInt( );
+            int cantidadEmpleados = datos.getInt( );
+            int cantidadSurtidores = datos.getInt( );
+            if( cantidadTipos < 0 || cantidadEmpleados < 0 || cantidadSurtidores < 0 )
+            {
+                throw new IOException( "El encabezado del archivo " + archivo + " está dañado" );
+            }
+
+            // Tabla de nombres
+            String[] nombresTipos = new String[cantidadTipos];
+            for( int i = 0; i < cantidadTipos; i++ )
+            {
+                nombresTipos[ i ] = leerNombre( datos );
+            }
+            Empleado[] empleados = new Empleado[cantidadEmpleados];
+            for( int i = 0; i < cantidadEmpleados; i++ )
+            {
+                empleados[ i ] = new Empleado( leerNombre( datos ) );
+            }
+
+            // Tipos de gasolina
+            List<TipoGasolina> tipos = new ArrayList<TipoGasolina>( cantidadTipos );
+            for( int i = 0; i < cantidadTipos; i++ )
+            {
+                int precio = datos.getInt( );
+                int numeroVersion = version >= 2 ? datos.getInt( ) : 1;
+                long desde = version >= 3 ? datos.getLong( ) : System.currentTimeMillis( );
+                long microgalones = datos.getLong( );
+                tipos.add( new TipoGasolina( nombresTipos[ i ], precio, TipoGasolina.aGalones( microgalones ), numeroVersion, desde ) );
+            }
+
+            // Empleados
+            for( Empleado empleado : empleados )
+            {
+                empleado.agregarDinero( datos.getLong( ) );
+            }
+
+            // Surtidores
+            if( datos.remaining( ) != ( long )cantidadSurtidores * calcularTamanoSurtidor( cantidadTipos ) )
+            {
+                throw new IOException( "El archivo " + archivo + " no tiene los " + cantidadSurtidores + " surtidores que indica su encabezado" );
+            }
+            TablaSurtidores surtidores = new TablaSurtidores( new RegistroTiposGasolina( tipos ), Math.max( cantidadSurtidores, 1 ) );
+            for( int i = 0; i < cantidadSurtidores; i++ )
+            {
+                int posicionEmpleado = datos.getInt( );
+                if( posicionEmpleado < 0 || posicionEmpleado >= cantidadEmpleados )
+                {
+                    throw new IOException( "El surtidor " + i + " del archivo " + archivo + " tiene un empleado que no existe" );
+                }
+                int numeroSurtidor = surtidores.agregarSurtidor( empleados[ posicionEmpleado ] );
+                for( int idTipo = 0; idTipo < cantidadTipos; idTipo++ )
+                {
+                    long microgalones = datos.getLong( );
+                    if( microgalones != 0 )
+                    {
+                        surtidores.agregarGalonesVendidos( numeroSurtidor, idTipo, microgalones );
+                    }
+                }
+            }
+
+            List<Empleado> listaEmpleados = new ArrayList<Empleado>( cantidadEmpleados );
+            for( Empleado empleado : empleados )
+            {
+                listaEmpleados.add( empleado );
+            }
+            return new Gasolinera( surtidores, listaEmpleados );
+        }
+        catch( BufferUnderflowException e )
+        {
+            throw new IOException( "El archivo " + archivo + " está incompleto" );
+        }
+        finally
+        {
+            canal.close( );
+        }
+    }
+
+    /**
+     * Escribe un nombre en el bloque: su longitud en bytes (como short) seguida de sus bytes en UTF-8
+     * @param canal El canal del archivo, por si hay que escribir el bloque para hacer espacio
+     * @param bloque El bloque donde se escribe el nombre
+     * @param nombre El nombre que se escribe
+     * @return El bloque donde se puede seguir escribiendo
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo en el archivo, o si el nombre es demasiado largo
+     */
+    private static ByteBuffer escribirNombre( FileChannel canal, ByteBuffer bloque, String nombre ) throws IOException
+    {
+        byte[] bytes = nombre.getBytes( StandardCharsets.UTF_8 );
+        if( bytes.length > 0xFFFF )
+        {
+            throw new IOException( "El nombre " + nombre.substring( 0, 20 ) + "... es demasiado largo" );
+        }
+        bloque = asegurarEspacio( canal, bloque, 2 + bytes.length );
+        bloque.putShort( ( short )bytes.length );
+        bloque.put( bytes );
+        return bloque;
+    }
+
+    /**
+     * Lee un nombre escrito con escribirNombre
+     * @param datos Los datos de donde se lee el nombre
+     * @return El nombre
+     */
+    private static String leerNombre( ByteBuffer datos )
+    {
+        int longitud = datos.getShort( ) & 0xFFFF;
+        byte[] bytes = new byte[longitud];
+        datos.get( bytes );
+        return new String( bytes, StandardCharsets.UTF_8 );
+    }
+
+    /**
+     * Revisa que en el bloque quepa cierta cantidad de bytes y, si no caben, escribe el bloque en el archivo para desocuparlo
+     * @param canal El canal del archivo
+     * @param bloque El bloque que se revisa
+     * @param bytes La cantidad de bytes que se quieren agregar al bloque
+     * @return El bloque donde se deben agregar los bytes. Si los bytes no caben en un bloque normal, es un bloque nuevo más grande
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo en el archivo
+     */
+    private static ByteBuffer asegurarEspacio( FileChannel canal, ByteBuffer bloque, int bytes ) throws IOException
+    {
+        if( bloque.remaining( ) < bytes )
+        {
+            escribirBloque( canal, bloque );
+            if( bloque.capacity( ) < bytes )
+            {
+                return ByteBuffer.allocate( bytes );
+            }
+        }
+        return bloque;
+    }
+
+    /**
+     * Escribe en el archivo todo lo que hay en el bloque y lo deja vacío
+     * @param canal El canal del archivo
+     * @param bloque El bloque que se escribe
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo en el archivo
+     */
+    private static void escribirBloque( FileChannel canal, ByteBuffer bloque ) throws IOException
+    {
+        bloque.flip( );
+        while( bloque.hasRemaining( ) )
+        {
+            canal.write( bloque );
+        }
+        bloque.clear( );
+    }
+}
@@ -0,0 +1,701 @@
+package uniandes.dpoo.gasolinera.persistencia;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import uniandes.dpoo.gasolinera.exceptions.FormatoArchivoException;
+import uniandes.dpoo.gasolinera.logica.Empleado;
+import uniandes.dpoo.gasolinera.logica.Gasolinera;
+import uniandes.dpoo.gasolinera.logica.RegistroTiposGasolina;
+import uniandes.dpoo.gasolinera.logica.TablaSurtidores;
+import uniandes.dpoo.gasolinera.logica.TipoGasolina;
+
+/**
+ * Esta clase lee el archivo de texto con la información de una gasolinera (el que se escribe con Gasolinera.guardarEstado).
+ *
+ * El archivo se lee carácter por carácter directamente sobre un arreglo que se llena con el Reader: las líneas no se parten en arreglos de cadenas y los números se
+ * calculan a partir de los caracteres, sin construir cadenas intermedias. Los nombres de los tipos de gasolina y de los empleados se buscan en una tabla propia, así que
+ * sólo se construye una cadena la primera vez que aparece cada nombre y todas sus apariciones comparten la misma cadena.
+ *
+ * Las cantidades de galones se leen directamente en millonésimas de galón (redondeando a la millonésima más cercana), que es como se guardan en la gasolinera.
+ *
+ * Las líneas que no empiezan con "tipo", "surtidor" o "empleado" se ignoran, igual que los tipos de gasolina de un surtidor que no estén registrados. Cualquier otro
+ * problema se reporta con una FormatoArchivoException que indica la línea y la columna donde está el problema.
+ */
+public class LectorGasolinera
+{
+    // ************************************************************************
+    // Constantes
+    // ************************************************************************
+
+    /**
+     * El tamaño inicial del arreglo donde se leen los caracteres. Si una línea no cabe, el arreglo crece
+     */
+    private static final int TAMANO_INICIAL = 64 * 1024;
+
+    /**
+     * La mayor mantisa con la que todavía se puede agregar un dígito sin que se desborde un long
+     */
+    private static final long MAXIMA_MANTISA = 100000000000000000L;
+
+    /**
+     * Las potencias de 10 que se pueden representar en un long
+     */
+    private static final long[] POTENCIAS_DIEZ = new long[19];
+
+    static
+    {
+        POTENCIAS_DIEZ[ 0 ] = 1;
+        for( int i = 1; i < POTENCIAS_DIEZ.length; i++ )
+        {
+            POTENCIAS_DIEZ[ i ] = POTENCIAS_DIEZ[ i - 1 ] * 10;
+        }
+    }
+
+    // ************************************************************************
+    // Atributos
+    // ************************************************************************
+
+    /**
+     * De donde se leen los caracteres
+     */
+    private Reader lector;
+
+    /**
+     * El nombre del archivo, que se usa en los mensajes de error
+     */
+    private String nombreArchivo;
+
+    /**
+     * El arreglo donde se leen los caracteres
+     */
+    private char[] buffer;
+
+    /**
+     * La cantidad de caracteres válidos en el arreglo
+     */
+    private int cantidad;
+
+    /**
+     * Indica si ya se leyeron todos los caracteres del Reader
+     */
+    private boolean finArchivo;
+
+    /**
+     * La posición en el arreglo donde empieza la línea actual
+     */
+    private int inicioLinea;
+
+    /**
+     * La posición en el arreglo donde termina la línea actual, sin incluir el fin de línea
+     */
+    private int finLinea;
+
+    /**
+     * La posición en el arreglo donde empieza la siguiente línea
+     */
+    private int siguienteLinea;
+
+    /**
+     * El número de la línea actual, empezando en 1
+     */
+    private int numeroLinea;
+
+    /**
+     * La posición en el arreglo del siguiente carácter que se va a leer de la línea actual
+     */
+    private int posicion;
+
+    /**
+     * Los empleados encontrados en el archivo, por nombre
+     */
+    private TablaNombres<Empleado> empleados;
+
+    /**
+     * Los empleados encontrados en el archivo, en el orden en el que aparecen
+     */
+    private List<Empleado> listaEmpleados;
+
+    /**
+     * Los tipos de gasolina encontrados en el archivo, en el orden en el que aparecen
+     */
+    private List<TipoGasolina> tipos;
+
+    /**
+     * El identificador de cada tipo de gasolina, por nombre. Se construye junto con la tabla de surtidores
+     */
+    private TablaNombres<Integer> identificadoresTipos;
+
+    /**
+     * La tabla con los surtidores. Es null hasta que aparece el primer surtidor
+     */
+    private TablaSurtidores surtidores;
+
+    // ************************************************************************
+    // Constructores
+    // ************************************************************************
+
+    /**
+     * Prepara un lector para la información de una gasolinera
+     * @param lector De donde se leen los caracteres. El lector no necesita tener su propio buffer
+     * @param nombreArchivo El nombre del archivo, que se usa en los mensajes de error
+     */
+    public LectorGasolinera( Reader lector, String nombreArchivo )
+    {
+        this.lector = lector;
+        this.nombreArchivo = nombreArchivo;
+        this.buffer = new char[TAMANO_INICIAL];
+        this.empleados = new TablaNombres<Empleado>( );
+        this.listaEmpleados = new ArrayList<Empleado>( );
+        this.tipos = new ArrayList<TipoGasolina>( );
+    }
+
+    // ************************************************************************
+    // Métodos
+    // ************************************************************************
+
+    /**
+     * Lee toda la información de la gasolinera y cierra el lector
+     * @return Una nueva gasolinera con su estado inicializado con la información leída
+     * @throws FormatoArchivoException Se lanza esta excepción si el archivo no tiene el formato esperado
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo el archivo
+     */
+    public Gasolinera leer( ) throws FormatoArchivoException, IOException
+    {
+        try
+        {
+            while( avanzarLinea( ) )
+            {
+                int finCampo = buscarFinCampo( );
+                if( esPalabra( "tipo", finCampo ) )
+                {
+                    posicion = finCampo;
+                    leerTipo( );
+                }
+                else if( esPalabra( "surtidor", finCampo ) )
+                {
+                    posicion = finCampo;
+                    leerSurtidor( );
+                }
+                else if( esPalabra( "empleado", finCampo ) )
+                {
+                    posicion = finCampo;
+                    leerEmpleado( );
+                }
+            }
+        }
+        finally
+        {
+            lector.close( );
+        }
+
+        if( surtidores == null )
+        {
+            surtidores = new TablaSurtidores( new RegistroTiposGasolina( tipos ), 0 );
+        }
+        return new Gasolinera( surtidores, listaEmpleados );
+    }
+
+    /**
+     * Lee una línea con la información de un tipo de gasolina: nombre, precio, cantidad disponible y, opcionalmente, el número de la versión del precio y el momento
+     * en el que se publicó. Los archivos anteriores a las versiones del precio no tienen esos campos, y su precio queda como la versión 1; los que no tienen el
+     * momento lo toman del momento en el que se cargan
+     * @throws FormatoArchivoException Se lanza esta excepción si la línea no tiene el formato esperado
+     */
+    private void leerTipo( ) throws FormatoArchivoException
+    {
+        if( surtidores != null )
+        {
+            throw error( "los tipos de gasolina deben estar antes de los surtidores" );
+        }
+        esperarSeparador( );
+        int finCampo = buscarFinCampo( );
+        String nombre = new String( buffer, posicion, finCampo - posicion );
+        posicion = finCampo;
+        esperarSeparador( );
+        int precio = leerEntero( );
+        esperarSeparador( );
+        long microgalones = leerMicrogalones( );
+        int numeroVersion = 1;
+        long desde = System.currentTimeMillis( );
+        if( posicion < finLinea )
+        {
+            esperarSeparador( );
+            numeroVersion = leerEntero( );
+            if( numeroVersion < 1 )
+            {
+                throw error( "el número de la versión del precio debe ser positivo" );
+            }
+        }
+        if( posicion < finLinea )
+        {
+            esperarSeparador( );
+            desde = leerEntero( Long.MAX_VALUE );
+        }
+        tipos.add( new TipoGasolina( nombre, precio, TipoGasolina.aGalones( microgalones ), numeroVersion, desde ) );
+    }
+
+    /**
+     * Lee una línea con la información de un surtidor: el empleado asignado y, para cada tipo de gasolina, su nombre y los galones vendidos
+     * @throws FormatoArchivoException Se lanza esta excepción si la línea no tiene el formato esperado
+     */
+    private void leerSurtidor( ) throws FormatoArchivoException
+    {
+        // Los tipos de gasolina están al comienzo del archivo, así que se registran cuando aparece el primer surtidor
+        if( surtidores == null )
+        {
+            RegistroTiposGasolina registro = new RegistroTiposGasolina( tipos );
+            identificadoresTipos = new TablaNombres<Integer>( );
+            for( TipoGasolina tipo : registro.getTipos( ) )
+            {
+                identificadoresTipos.agregar( tipo.getNombre( ), registro.getIdentificador( tipo.getNombre( ) ) );
+            }
+            surtidores = new TablaSurtidores( registro, 16 );
+        }
+
+        esperarSeparador( );
+        int numeroSurtidor = surtidores.agregarSurtidor( buscarEmpleado( ) );
+        while( posicion < finLinea )
+        {
+            esperarSeparador( );
+            if( posicion == finLinea )
+            {
+                // Un separador al final de la línea no tiene nada después
+                break;
+            }
+            int finCampo = buscarFinCampo( );
+            Integer idTipo = identificadoresTipos.buscar( buffer, posicion, finCampo );
+            posicion = finCampo;
+            esperarSeparador( );
+            long microgalones = leerMicrogalones( );
+            if( idTipo != null )
+            {
+                surtidores.cambiarMicrogalonesVendidos( numeroSurtidor, idTipo, microgalones );
+            }
+        }
+    }
+
+    /**
+     * Lee una línea con la información de un empleado: nombre y dinero. Si el empleado ya apareció en otra línea, el dinero se suma al que ya tenía
+     * @throws FormatoArchivoException Se lanza esta excepción si la línea no tiene el formato esperado
+     */
+    private void leerEmpleado( ) throws FormatoArchivoException
+    {
+        esperarSeparador( );
+        Empleado empleado = buscarEmpleado( );
+        esperarSeparador( );
+        empleado.agregarDinero( leerEntero( Long.MAX_VALUE ) );
+    }
+
+    /**
+     * Lee el nombre de un empleado y retorna el empleado con ese nombre. Si es la primera vez que aparece, se crea el empleado
+     * @return El empleado con el nombre leído
+     */
+    private Empleado buscarEmpleado( )
+    {
+        int finCampo = buscarFinCampo( );
+        Empleado empleado = empleados.buscar( buffer, posicion, finCampo );
+        if( empleado == null )
+        {
+            empleado = new Empleado( new String( buffer, posicion, finCampo - posicion ) );
+            empleados.agregar( empleado.getNombre( ), empleado );
+            listaEmpleados.add( empleado );
+        }
+        posicion = finCampo;
+        return empleado;
+    }
+
+    /**
+     * Lee un número entero de tipo int, que termina en un separador o al final de la línea
+     * @return El número leído
+     * @throws FormatoArchivoException Se lanza esta excepción si el campo no es un número entero que quepa en un int
+     */
+    private int leerEntero( ) throws FormatoArchivoException
+    {
+        return ( int )leerEntero( Integer.MAX_VALUE );
+    }
+
+    /**
+     * Lee un número entero, que termina en un separador o al final de la línea
+     * @param maximo El mayor valor absoluto que puede tener el número
+     * @return El número leído
+     * @throws FormatoArchivoException Se lanza esta excepción si el campo no es un número entero o si su valor absoluto es mayor que el máximo
+     */
+    private long leerEntero( long maximo ) throws FormatoArchivoException
+    {
+        int finCampo = buscarFinCampo( );
+        int p = posicion;
+        boolean negativo = p < finCampo && buffer[ p ] == '-';
+        if( negativo || ( p < finCampo && buffer[ p ] == '+' ) )
+        {
+            p++;
+        }
+        if( p == finCampo )
+        {
+            throw error( "se esperaba un número entero" );
+        }
+
+        long valor = 0;
+        for( ; p < finCampo; p++ )
+        {
+            int digito = buffer[ p ] - '0';
+            if( digito < 0 || digito > 9 )
+            {
+                throw error( "se esperaba un número entero" );
+            }
+            if( valor > ( maximo - digito ) / 10 )
+            {
+                throw error( "el número es demasiado grande" );
+            }
+            valor = valor * 10 + digito;
+        }
+        posicion = finCampo;
+        return negativo ? -valor : valor;
+    }
+
+    /**
+     * Lee una cantidad de galones, que termina en un separador o al final de la línea. La cantidad puede tener parte decimal y exponente (como 1.5E-4)
+     * @return La cantidad leída, en millonésimas de galón
+     * @throws FormatoArchivoException Se lanza esta excepción si el campo no es un número o si la cantidad no cabe en un long
+     */
+    private long leerMicrogalones( ) throws FormatoArchivoException
+    {
+        int finCampo = buscarFinCampo( );
+        int p = posicion;
+        boolean negativo = p < finCampo && buffer[ p ] == '-';
+        if( negativo || ( p < finCampo && buffer[ p ] == '+' ) )
+        {
+            p++;
+        }
+
+        // El número es mantisa * 10^exponente. Los dígitos que no caben en la mantisa sólo cambian el exponente
+        long mantisa = 0;
+        int exponente = 0;
+        boolean hayDigitos = false;
+        for( ; p < finCampo && buffer[ p ] >= '0' && buffer[ p ] <= '9'; p++ )
+        {
+            hayDigitos = true;
+            if( mantisa < MAXIMA_MANTISA )
+                mantisa = mantisa * 10 + ( buffer[ p ] - '0' );
+            else
+                exponente++;
+        }
+        if( p < finCampo && buffer[ p ] == '.' )
+        {
+            for( p++; p < finCampo && buffer[ p ] >= '0' && buffer[ p ] <= '9'; p++ )
+            {
+                hayDigitos = true;
+                if( mantisa < MAXIMA_MANTISA )
+                {
+                    mantisa = mantisa * 10 + ( buffer[ p ] - '0' );
+                    exponente--;
+                }
+            }
+        }
+        if( !hayDigitos )
+        {
+            throw error( "se esperaba un número" );
+        }
+        if( p < finCampo && ( buffer[ p ] == 'e' || buffer[ p ] == 'E' ) )
+        {
+            p++;
+            boolean exponenteNegativo = p < finCampo && buffer[ p ] == '-';
+            if( exponenteNegativo || ( p < finCampo && buffer[ p ] == '+' ) )
+            {
+                p++;
+            }
+            if( p == finCampo )
+            {
+                throw error( "se esperaba un número" );
+            }
+            int exponenteEscrito = 0;
+            for( ; p < finCampo && buffer[ p ] >= '0' && buffer[ p ] <= '9'; p++ )
+            {
+                if( exponenteEscrito < 1000 )
+                    exponenteEscrito = exponenteEscrito * 10 + ( buffer[ p ] - '0' );
+            }
+            exponente += exponenteNegativo ? -exponenteEscrito : exponenteEscrito;
+        }
+        if( p != finCampo )
+        {
+            throw error( "se esperaba un número" );
+        }
+
+        // Pasar de galones a millonésimas de galón
+        long microgalones;
+        int escala = exponente + 6;
+        if( mantisa == 0 )
+        {
+            microgalones = 0;
+        }
+        else if( escala >= 0 )
+        {
+            if( escala >= POTENCIAS_DIEZ.length || mantisa > Long.MAX_VALUE / POTENCIAS_DIEZ[ escala ] )
+            {
+                throw error( "la cantidad es demasiado grande" );
+            }
+            microgalones = mantisa * POTENCIAS_DIEZ[ escala ];
+        }
+        else if( -escala >= POTENCIAS_DIEZ.length )
+        {
+            microgalones = 0;
+        }
+        else
+        {
+            long divisor = POTENCIAS_DIEZ[ -escala ];
+            microgalones = mantisa / divisor;
+            if( ( mantisa % divisor ) * 2 >= divisor )
+            {
+                microgalones++;
+            }
+        }
+        posicion = finCampo;
+        return negativo ? -microgalones : microgalones;
+    }
+
+    /**
+     * Revisa que el siguiente carácter de la línea sea un separador (':') y lo salta
+     * @throws FormatoArchivoException Se lanza esta excepción si el siguiente carácter no es un separador
+     */
+    private void esperarSeparador( ) throws FormatoArchivoException
+    {
+        if( posicion >= finLinea || buffer[ posicion ] != ':' )
+        {
+            throw error( "se esperaba ':'" );
+        }
+        posicion++;
+    }
+
+    /**
+     * Busca dónde termina el campo que empieza en la posición actual
+     * @return La posición del siguiente separador, o el final de la línea si no hay más separadores
+     */
+    private int buscarFinCampo( )
+    {
+        int p = posicion;
+        while( p < finLinea && buffer[ p ] != ':' )
+        {
+            p++;
+        }
+        return p;
+    }
+
+    /**
+     * Revisa si el campo que empieza en la posición actual es una palabra dada
+     * @param palabra La palabra
+     * @param finCampo La posición donde termina el campo
+     * @return Retorna true si el campo tiene exactamente los caracteres de la palabra
+     */
+    private boolean esPalabra( String palabra, int finCampo )
+    {
+        if( finCampo - posicion != palabra.length( ) )
+        {
+            return false;
+        }
+        for( int i = 0; i < palabra.length( ); i++ )
+        {
+            if( buffer[ posicion + i ] != palabra.charAt( i ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Avanza a la siguiente línea del archivo. Si la línea no está completa en el arreglo, se mueve al comienzo del arreglo y se leen más caracteres (si la línea no
+     * cabe en el arreglo, el arreglo crece)
+     * @return Retorna true si hay una línea más, o false si ya se leyó todo el archivo
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo el archivo
+     */
+    private boolean avanzarLinea( ) throws IOException
+    {
+        int busqueda = siguienteLinea;
+        while( true )
+        {
+            for( int p = busqueda; p < cantidad; p++ )
+            {
+                if( buffer[ p ] == '\n' )
+                {
+                    iniciarLinea( p, p + 1 );
+                    return true;
+                }
+            }
+            if( finArchivo )
+            {
+                if( siguienteLinea < cantidad )
+                {
+                    iniciarLinea( cantidad, cantidad );
+                    return true;
+                }
+                return false;
+            }
+
+            // Mover lo que queda de la línea al comienzo del arreglo y seguir leyendo
+            int pendientes = cantidad - siguienteLinea;
+            System.arraycopy( buffer, siguienteLinea, buffer, 0, pendientes );
+            cantidad = pendientes;
+            siguienteLinea = 0;
+            busqueda = pendientes;
+            if( cantidad == buffer.length )
+            {
+                buffer = Arrays.copyOf( buffer, buffer.length * 2 );
+            }
+            int leidos = lector.read( buffer, cantidad, buffer.length - cantidad );
+            if( leidos == -1 )
+                finArchivo = true;
+            else
+                cantidad += leidos;
+        }
+    }
+
+    /**
+     * Marca como línea actual la que empieza en la siguiente línea y termina en una posición dada
+     * @param fin La posición donde termina la línea (la del fin de línea, si lo hay)
+     * @param siguiente La posición donde empieza la línea que sigue
+     */
+    private void iniciarLinea( int fin, int siguiente )
+    {
+        inicioLinea = siguienteLinea;
+        finLinea = fin > inicioLinea && buffer[ fin - 1 ] == '\r' ? fin - 1 : fin;
+        siguienteLinea = siguiente;
+        posicion = inicioLinea;
+        numeroLinea++;
+    }
+
+    /**
+     * Construye la excepción para un problema encontrado en la posición actual
+     * @param problema La descripción del problema
+     * @return La excepción, con la línea y la columna actuales
+     */
+    private FormatoArchivoException error( String problema )
+    {
+        return new FormatoArchivoException( nombreArchivo, numeroLinea, posicion - inicioLinea + 1, problema );
+    }
+
+    // ************************************************************************
+    // Clases auxiliares
+    // ************************************************************************
+
+    /**
+     * Una tabla de nombres que se pueden buscar a partir de un rango de caracteres de un arreglo, sin construir una cadena para buscarlos.
+     *
+     * La tabla usa direccionamiento abierto: los nombres se guardan en un arreglo y cada uno va en la primera posición libre a partir de la que le corresponde por su
+     * hash.
+     * @param <V> El tipo de los valores asociados a los nombres
+     */
+    private static class TablaNombres<V>
+    {
+        private String[] nombres = new String[16];
+
+        private Object[] valores = new Object[16];
+
+        private int cantidadNombres;
+
+        /**
+         * Busca el valor asociado a un nombre
+         * @param caracteres El arreglo donde está el nombre
+         * @param inicio La posición donde empieza el nombre
+         * @param fin La posición donde termina el nombre (sin incluirla)
+         * @return El valor asociado al nombre, o null si el nombre no está en la tabla
+         */
+        @SuppressWarnings("unchecked")
+        V buscar( char[] caracteres, int inicio, int fin )
+        {
+            int hash = 0;
+            for( int p = inicio; p < fin; p++ )
+            {
+                hash = 31 * hash + caracteres[ p ];
+            }
+
+            int mascara = nombres.length - 1;
+            for( int i = dispersar( hash ) & mascara; nombres[ i ] != null; i = ( i + 1 ) & mascara )
+            {
+                String nombre = nombres[ i ];
+                if( nombre.length( ) == fin - inicio && sonIguales( nombre, caracteres, inicio ) )
+                {
+                    return ( V )valores[ i ];
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Agrega un nombre a la tabla. Si el nombre ya estaba, se reemplaza su valor
+         * @param nombre El nombre
+         * @param valor El valor asociado al nombre
+         */
+        void agregar( String nombre, V valor )
+        {
+            if( ( cantidadNombres + 1 ) * 2 > nombres.length )
+            {
+                String[] anterioresNombres = nombres;
+                Object[] anterioresValores = valores;
+                nombres = new String[anterioresNombres.length * 2];
+                valores = new Object[anterioresNombres.length * 2];
+                cantidadNombres = 0;
+                for( int i = 0; i < anterioresNombres.length; i++ )
+                {
+                    if( anterioresNombres[ i ] != null )
+                    {
+                        ubicar( anterioresNombres[ i ], anterioresValores[ i ] );
+                    }
+                }
+            }
+            ubicar( nombre, valor );
+        }
+
+        /**
+         * Pone un nombre y su valor en la posición que les corresponde, sabiendo que hay espacio
+         * @param nombre El nombre
+         * @param valor El valor asociado al nombre
+         */
+        private void ubicar( String nombre, Object valor )
+        {
+            int mascara = nombres.length - 1;
+            int i = dispersar( nombre.hashCode( ) ) & mascara;
+            while( nombres[ i ] != null && !nombres[ i ].equals( nombre ) )
+            {
+                i = ( i + 1 ) & mascara;
+            }
+            if( nombres[ i ] == null )
+            {
+                cantidadNombres++;
+            }
+            nombres[ i ] = nombre;
+            valores[ i ] = valor;
+        }
+
+        /**
+         * Mezcla los bits altos del hash con los bajos, porque la posición sólo usa los bits bajos
+         * @param hash El hash del nombre (el mismo de String.hashCode)
+         * @return El hash mezclado
+         */
+        private static int dispersar( int hash )
+        {
+            return hash ^ ( hash >>> 16 );
+        }
+
+        /**
+         * Compara un nombre con los caracteres de un arreglo
+         * @param nombre El nombre
+         * @param caracteres El arreglo
+         * @param inicio La posición del arreglo donde empieza la comparación
+         * @return Retorna true si todos los caracteres del nombre coinciden con los del arreglo
+         */
+        private static boolean sonIguales( String nombre, char[] caracteres, int inicio )
+        {
+            for( int i = 0; i < nombre.length( ); i++ )
+            {
+                if( nombre.charAt( i ) != caracteres[ inicio + i ] )
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,491 @@
+package uniandes.dpoo.gasolinera.persistencia;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import uniandes.dpoo.gasolinera.logica.Empleado;
+import uniandes.dpoo.gasolinera.logica.Gasolinera;
+import uniandes.dpoo.gasolinera.logica.TablaSurtidores;
+import uniandes.dpoo.gasolinera.logica.TipoGasolina;
+import uniandes.dpoo.gasolinera.logica.VersionPrecio;
+
+/**
+ * Esta clase reproduce un diario de ventas sobre una gasolinera en paralelo, para recuperar rápido el estado de una gasolinera grande después de una falla.
+ *
+ * El diario se lee completo a memoria, en arreglos de números, y sus registros se reparten de dos formas:
+ * <ul>
+ * <li>Por tipo de gasolina: una tarea por tipo recorre los registros de ese tipo en el orden del diario, vuelve a publicar sus cambios de precio, suma cada venta a
+ * su versión del precio y al final descuenta del inventario el total vendido con un solo despacho.</li>
+ * <li>Por surtidor: los surtidores se parten en rangos con más o menos la misma cantidad de ventas, y una tarea por rango suma los galones de cada surtidor y tipo
+ * y los registra en la tabla una sola vez. Cada tarea acumula además el dinero de cada empleado en su propio arreglo.</li>
+ * </ul>
+ * Todas las tareas corren en un ForkJoinPool. Cuando terminan, los totales de los empleados de todos los rangos se suman y se le agregan a cada empleado de una vez,
+ * y las reasignaciones de los surtidores se vuelven a hacer en el orden del diario.
+ *
+ * El resultado es el mismo que el de DiarioVentas.reproducir, que aplica las ventas una por una: las sumas de los surtidores y de los empleados no dependen del orden;
+ * despachar el total de un tipo deja el mismo inventario que despachar sus ventas una por una, incluso si no alcanza la gasolina; y los cambios de precio de un tipo
+ * se aplican en el mismo orden, intercalados con sus ventas, así que cada venta encuentra las mismas versiones del precio.
+ *
+ * Las ventas no pasan por la puerta de ventas de la gasolinera, así que no se debe vender ni guardar la gasolinera mientras se reproduce el diario.
+ */
+public class RecuperacionParalela
+{
+    // ************************************************************************
+    // Constantes
+    // ************************************************************************
+
+    /**
+     * La cantidad de ventas a partir de la cual una tarea de surtidores se parte en dos
+     */
+    private static final int VENTAS_POR_TAREA = 32 * 1024;
+
+    // ************************************************************************
+    // Atributos
+    // ************************************************************************
+
+    /**
+     * La gasolinera sobre la que se reproduce el diario
+     */
+    private Gasolinera gasolinera;
+
+    /**
+     * Los empleados de la gasolinera, según su posición en el encabezado del diario
+     */
+    private Empleado[] empleados;
+
+    /**
+     * La cantidad de registros del diario
+     */
+    private int cantidadRegistros;
+
+    /**
+     * El número de surtidor de cada registro, o DiarioVentas.CAMBIO_PRECIO si el registro es un cambio de precio, o DiarioVentas.ASIGNACION si es una
+     * reasignación. En las reasignaciones, el número del surtidor reasignado está en precios
+     */
+    private int[] surtidores;
+
+    /**
+     * El identificador en la gasolinera del tipo de gasolina de cada registro, o -1 si el registro es una reasignación
+     */
+    private int[] tipos;
+
+    /**
+     * La posición en el encabezado del empleado de cada registro
+     */
+    private int[] posicionesEmpleados;
+
+    /**
+     * La cantidad vendida en cada registro, en millonésimas de galón
+     */
+    private long[] microgalones;
+
+    /**
+     * El precio de cada registro
+     */
+    private int[] precios;
+
+    /**
+     * El momento de cada registro
+     */
+    private long[] momentos;
+
+    /**
+     * El número de la versión del precio de cada registro, o 0 si el diario no lo tiene
+     */
+    private int[] versionesPrecio;
+
+    /**
+     * Las posiciones de los registros ordenadas por tipo de gasolina, y en el orden del diario dentro de cada tipo. Los registros del tipo t están desde
+     * inicioTipos[ t ] hasta inicioTipos[ t + 1 ]
+     */
+    private int[] registrosPorTipo;
+
+    private int[] inicioTipos;
+
+    /**
+     * Las posiciones de las ventas ordenadas por surtidor. Las ventas del surtidor s están desde inicioSurtidores[ s ] hasta inicioSurtidores[ s + 1 ]
+     */
+    private int[] ventasPorSurtidor;
+
+    private int[] inicioSurtidores;
+
+    // ************************************************************************
+    // Constructores
+    // ************************************************************************
+
+    private RecuperacionParalela( Gasolinera gasolinera )
+    {
+        this.gasolinera = gasolinera;
+    }
+
+    // ************************************************************************
+    // Métodos
+    // ************************************************************************
+
+    /**
+     * Reproduce un diario de ventas sobre una gasolinera en paralelo, usando el ForkJoinPool común
+     * @param archivo El archivo del diario
+     * @param gasolinera La gasolinera sobre la que se reproducen las ventas. Normalmente es la que se cargó del último archivo guardado
+     * @return La cantidad de ventas que se reprodujeron
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo el archivo, o si el diario tiene tipos de gasolina, empleados o surtidores que no están
+     *         en la gasolinera
+     */
+    public static long reproducir( File archivo, Gasolinera gasolinera ) throws IOException
+    {
+        return reproducir( archivo, gasolinera, ForkJoinPool.commonPool( ) );
+    }
+
+    /**
+     * Reproduce un diario de ventas sobre una gasolinera en paralelo. El resultado es el mismo que el de DiarioVentas.reproducir
+     * @param archivo El archivo del diario
+     * @param gasolinera La gasolinera sobre la que se reproducen las ventas. Normalmente es la que se cargó del último archivo guardado
+     * @param grupoHilos Los hilos donde se reproducen las ventas
+     * @return La cantidad de ventas que se reprodujeron
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo el archivo, o si el diario tiene tipos de gasolina, empleados o surtidores que no están
+     *         en la gasolinera
+     */
+    public static long reproducir( File archivo, Gasolinera gasolinera, ForkJoinPool grupoHilos ) throws IOException
+    {
+        RecuperacionParalela recuperacion = new RecuperacionParalela( gasolinera );
+        recuperacion.leer( archivo );
+        return grupoHilos.invoke( recuperacion.new TareaRecuperacion( ) );
+    }
+
+    /**
+     * Lee todos los registros completos del diario y los ordena por tipo de gasolina y por surtidor
+     * @param archivo El archivo del diario
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo el archivo o si el diario no corresponde a la gasolinera
+     */
+    private void leer( File archivo ) throws IOException
+    {
+        FileChannel canal = FileChannel.open( archivo.toPath( ), StandardOpenOption.READ );
+        try
+        {
+            DiarioVentas.Encabezado encabezado = DiarioVentas.leerEncabezado( canal );
+            int[] idsTipos = DiarioVentas.traducirTipos( encabezado, gasolinera, archivo );
+            empleados = DiarioVentas.traducirEmpleados( encabezado, gasolinera, archivo );
+            int tamanoRegistro = encabezado.getTamanoRegistro( );
+            long cantidad = ( canal.size( ) - encabezado.tamano ) / tamanoRegistro;
+            if( cantidad > Integer.MAX_VALUE )
+            {
+                throw new IOException( "El diario " + archivo + " tiene demasiados registros para reproducirlo en memoria" );
+            }
+
+            cantidadRegistros = ( int )cantidad;
+            surtidores = new int[cantidadRegistros];
+            tipos = new int[cantidadRegistros];
+            posicionesEmpleados = new int[cantidadRegistros];
+            microgalones = new long[cantidadRegistros];
+            precios = new int[cantidadRegistros];
+            momentos = new long[cantidadRegistros];
+            versionesPrecio = new int[cantidadRegistros];
+
+            int cantidadSurtidores = gasolinera.getCantidadSurtidores( );
+            ByteBuffer buffer = ByteBuffer.allocate( 1024 * tamanoRegistro );
+            canal.position( encabezado.tamano );
+            int registro = 0;
+            while( registro < cantidadRegistros && canal.read( buffer ) != -1 )
+            {
+                buffer.flip( );
+                while( registro < cantidadRegistros && buffer.remaining( ) >= tamanoRegistro )
+                {
+                    int numeroSurtidor = buffer.getInt( );
+                    int posicionTipo = buffer.getInt( );
+                    int posicionEmpleado = buffer.getInt( );
+                    surtidores[ registro ] = numeroSurtidor;
+                    posicionesEmpleados[ registro ] = posicionEmpleado;
+                    microgalones[ registro ] = buffer.getLong( );
+                    precios[ registro ] = buffer.getInt( );
+                    momentos[ registro ] = buffer.getLong( );
+                    versionesPrecio[ registro ] = encabezado.version == 1 ? 0 : buffer.getInt( );
+
+                    boolean esAsignacion = numeroSurtidor == DiarioVentas.ASIGNACION;
+                    boolean conEmpleado = esAsignacion || numeroSurtidor != DiarioVentas.CAMBIO_PRECIO;
+                    int surtidorAfectado = esAsignacion ? precios[ registro ] : numeroSurtidor;
+                    if( conEmpleado && ( surtidorAfectado < 0 || surtidorAfectado >= cantidadSurtidores ) )
+                    {
+                        throw new IOException( "El diario " + archivo + " tiene un registro del surtidor " + surtidorAfectado + ", que no está en la gasolinera" );
+                    }
+                    if( ( !esAsignacion && ( posicionTipo < 0 || posicionTipo >= idsTipos.length ) )
+                            || ( conEmpleado && ( posicionEmpleado < 0 || posicionEmpleado >= empleados.length ) ) )
+                    {
+                        throw new IOException( "El registro " + registro + " del diario " + archivo + " está dañado" );
+                    }
+                    tipos[ registro ] = esAsignacion ? -1 : idsTipos[ posicionTipo ];
+                    registro++;
+                }
+                buffer.compact( );
+            }
+            cantidadRegistros = registro;
+        }
+        finally
+        {
+            canal.close( );
+        }
+
+        ordenarPorTipo( );
+        ordenarPorSurtidor( );
+    }
+
+    /**
+     * Llena registrosPorTipo e inicioTipos, contando los registros de cada tipo y ubicándolos después en el orden del diario. Las reasignaciones no tienen tipo
+     */
+    private void ordenarPorTipo( )
+    {
+        int cantidadTipos = gasolinera.getRegistroTiposGasolina( ).getCantidadTipos( );
+        inicioTipos = new int[cantidadTipos + 1];
+        for( int registro = 0; registro < cantidadRegistros; registro++ )
+        {
+            if( tipos[ registro ] != -1 )
+            {
+                inicioTipos[ tipos[ registro ] + 1 ]++;
+            }
+        }
+        for( int t = 0; t < cantidadTipos; t++ )
+        {
+            inicioTipos[ t + 1 ] += inicioTipos[ t ];
+        }
+
+        registrosPorTipo = new int[inicioTipos[ cantidadTipos ]];
+        int[] siguientes = new int[cantidadTipos];
+        System.arraycopy( inicioTipos, 0, siguientes, 0, cantidadTipos );
+        for( int registro = 0; registro < cantidadRegistros; registro++ )
+        {
+            if( tipos[ registro ] != -1 )
+            {
+                registrosPorTipo[ siguientes[ tipos[ registro ] ]++ ] = registro;
+            }
+        }
+    }
+
+    /**
+     * Llena ventasPorSurtidor e inicioSurtidores, igual que ordenarPorTipo pero sólo con las ventas
+     */
+    private void ordenarPorSurtidor( )
+    {
+        int cantidadSurtidores = gasolinera.getCantidadSurtidores( );
+        inicioSurtidores = new int[cantidadSurtidores + 1];
+        for( int registro = 0; registro < cantidadRegistros; registro++ )
+        {
+            if( surtidores[ registro ] >= 0 )
+            {
+                inicioSurtidores[ surtidores[ registro ] + 1 ]++;
+            }
+        }
+        for( int s = 0; s < cantidadSurtidores; s++ )
+        {
+            inicioSurtidores[ s + 1 ] += inicioSurtidores[ s ];
+        }
+
+        ventasPorSurtidor = new int[inicioSurtidores[ cantidadSurtidores ]];
+        int[] siguientes = new int[cantidadSurtidores];
+        System.arraycopy( inicioSurtidores, 0, siguientes, 0, cantidadSurtidores );
+        for( int registro = 0; registro < cantidadRegistros; registro++ )
+        {
+            if( surtidores[ registro ] >= 0 )
+            {
+                ventasPorSurtidor[ siguientes[ surtidores[ registro ] ]++ ] = registro;
+            }
+        }
+    }
+
+    /**
+     * La tarea principal: lanza las tareas de los tipos y de los surtidores, y al final le agrega a cada empleado el dinero de sus ventas y vuelve a hacer las
+     * reasignaciones de los surtidores
+     */
+    private class TareaRecuperacion extends RecursiveTask<Long>
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected Long compute( )
+        {
+            List<ForkJoinTask<?>> tareasTipos = new ArrayList<ForkJoinTask<?>>( );
+            for( int idTipo = 0; idTipo < inicioTipos.length - 1; idTipo++ )
+            {
+                if( inicioTipos[ idTipo + 1 ] > inicioTipos[ idTipo ] )
+                {
+                    tareasTipos.add( new TareaTipo( idTipo ).fork( ) );
+                }
+            }
+            TotalesEmpleados totales = new TareaSurtidores( 0, inicioSurtidores.length - 1 ).compute( );
+            for( ForkJoinTask<?> tarea : tareasTipos )
+            {
+                tarea.join( );
+            }
+
+            for( int e = 0; e < empleados.length; e++ )
+            {
+                if( totales.ventas[ e ] > 0 )
+                {
+                    empleados[ e ].agregarDinero( totales.dinero[ e ] );
+                }
+            }
+
+            // Cada venta trae a su empleado, así que de las reasignaciones sólo importa el empleado con el que queda cada surtidor
+            TablaSurtidores tabla = gasolinera.getTablaSurtidores( );
+            for( int registro = 0; registro < cantidadRegistros; registro++ )
+            {
+                if( surtidores[ registro ] == DiarioVentas.ASIGNACION )
+                {
+                    tabla.reasignar( precios[ registro ], empleados[ posicionesEmpleados[ registro ] ] );
+                }
+            }
+            return ( long )ventasPorSurtidor.length;
+        }
+    }
+
+    /**
+     * La tarea que reproduce los registros de un tipo de gasolina: sus cambios de precio, las ventas de cada versión del precio y el despacho del inventario
+     */
+    private class TareaTipo extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int idTipo;
+
+        private TareaTipo( int idTipo )
+        {
+            this.idTipo = idTipo;
+        }
+
+        @Override
+        protected void compute( )
+        {
+            TipoGasolina tipo = gasolinera.getRegistroTiposGasolina( ).getTipo( idTipo );
+            long totalMicrogalones = 0;
+            int numeroVersion = 0;
+            VersionPrecio version = null;
+            for( int i = inicioTipos[ idTipo ]; i < inicioTipos[ idTipo + 1 ]; i++ )
+            {
+                int registro = registrosPorTipo[ i ];
+                if( surtidores[ registro ] == DiarioVentas.CAMBIO_PRECIO )
+                {
+                    tipo.restaurarPrecio( versionesPrecio[ registro ], precios[ registro ], momentos[ registro ] );
+
+                    // La versión buscada puede existir ahora
+                    numeroVersion = 0;
+                    version = null;
+                }
+                else
+                {
+                    totalMicrogalones += microgalones[ registro ];
+                    if( versionesPrecio[ registro ] > 0 )
+                    {
+                        if( versionesPrecio[ registro ] != numeroVersion )
+                        {
+                            numeroVersion = versionesPrecio[ registro ];
+                            version = tipo.buscarVersionPrecio( numeroVersion );
+                        }
+                        if( version != null )
+                        {
+                            version.registrarVenta( microgalones[ registro ], precios[ registro ] );
+                        }
+                    }
+                }
+            }
+            tipo.despacharMicrogalonesHasta( totalMicrogalones );
+        }
+    }
+
+    /**
+     * La tarea que reproduce las ventas de un rango de surtidores. Si el rango tiene muchas ventas, se parte en dos mitades que se reproducen en paralelo
+     */
+    private class TareaSurtidores extends RecursiveTask<TotalesEmpleados>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int desde;
+
+        private final int hasta;
+
+        /**
+         * @param desde El primer surtidor del rango
+         * @param hasta El surtidor siguiente al último del rango
+         */
+        private TareaSurtidores( int desde, int hasta )
+        {
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+
+        @Override
+        protected TotalesEmpleados compute( )
+        {
+            if( hasta - desde > 1 && inicioSurtidores[ hasta ] - inicioSurtidores[ desde ] > VENTAS_POR_TAREA )
+            {
+                int mitad = ( desde + hasta ) >>> 1;
+                TareaSurtidores izquierda = new TareaSurtidores( desde, mitad );
+                izquierda.fork( );
+                TotalesEmpleados totales = new TareaSurtidores( mitad, hasta ).compute( );
+                totales.sumar( izquierda.join( ) );
+                return totales;
+            }
+
+            TablaSurtidores tabla = gasolinera.getTablaSurtidores( );
+            int cantidadTipos = inicioTipos.length - 1;
+            long[] microgalonesPorTipo = new long[cantidadTipos];
+            boolean[] vendidos = new boolean[cantidadTipos];
+            TotalesEmpleados totales = new TotalesEmpleados( empleados.length );
+            for( int s = desde; s < hasta; s++ )
+            {
+                for( int i = inicioSurtidores[ s ]; i < inicioSurtidores[ s + 1 ]; i++ )
+                {
+                    int registro = ventasPorSurtidor[ i ];
+                    microgalonesPorTipo[ tipos[ registro ] ] += microgalones[ registro ];
+                    vendidos[ tipos[ registro ] ] = true;
+                    totales.dinero[ posicionesEmpleados[ registro ] ] += precios[ registro ];
+                    totales.ventas[ posicionesEmpleados[ registro ] ]++;
+                }
+                for( int t = 0; t < cantidadTipos; t++ )
+                {
+                    if( vendidos[ t ] )
+                    {
+                        tabla.agregarGalonesVendidos( s, t, microgalonesPorTipo[ t ] );
+                        microgalonesPorTipo[ t ] = 0;
+                        vendidos[ t ] = false;
+                    }
+                }
+            }
+            return totales;
+        }
+    }
+
+    /**
+     * El dinero y la cantidad de ventas de cada empleado en una parte del diario
+     */
+    private static class TotalesEmpleados
+    {
+        private final long[] dinero;
+
+        private final long[] ventas;
+
+        private TotalesEmpleados( int cantidadEmpleados )
+        {
+            this.dinero = new long[cantidadEmpleados];
+            this.ventas = new long[cantidadEmpleados];
+        }
+
+        /**
+         * Suma a estos totales los de otra parte del diario
+         * @param otros Los otros totales
+         */
+        private void sumar( TotalesEmpleados otros )
+        {
+            for( int e = 0; e < dinero.length; e++ )
+            {
+                dinero[ e ] += otros.dinero[ e ];
+                ventas[ e ] += otros.ventas[ e ];
+            }
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package uniandes.dpoo.gasolinera.servidor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import uniandes.dpoo.gasolinera.logica.Empleado;
+import uniandes.dpoo.gasolinera.logica.Gasolinera;
+import uniandes.dpoo.gasolinera.logica.TipoGasolina;
+import uniandes.dpoo.gasolinera.utils.HilosVirtuales;
+import uniandes.dpoo.gasolinera.utils.HistogramaLatencias;
+
+/**
+ * Esta clase es una prueba de carga de un ServidorVentas por la interfaz local: varios clientes le envían ventas al servidor, cada uno esperando la respuesta de
+ * una antes de enviar la siguiente, y se mide cuántas ventas por segundo atiende el servidor y cuánto tarda cada una.
+ *
+ * Cada cliente usa su propia conexión HTTP, que se reutiliza entre peticiones (keep-alive), y escoge al azar el surtidor, el tipo de gasolina y si la venta es por
+ * cantidad o por valor. La latencia se mide desde que el cliente envía la petición hasta que termina de leer la respuesta.
+ */
+public class PruebaCargaServidor
+{
+    // ************************************************************************
+    // Atributos
+    // ************************************************************************
+
+    /**
+     * La dirección del servicio de ventas del servidor
+     */
+    private URL direccionVenta;
+
+    /**
+     * Los surtidores y los tipos de gasolina que puede escoger cada cliente
+     */
+    private int cantidadSurtidores;
+    private String[] tiposGasolina;
+
+    /**
+     * La cantidad de clientes que envían ventas al mismo tiempo
+     */
+    private int clientes;
+
+    /**
+     * Cuánto dura la prueba, en nanosegundos
+     */
+    private long duracion;
+
+    /**
+     * La cantidad de ventas respondidas por el servidor
+     */
+    private AtomicLong ventas;
+
+    /**
+     * La cantidad de peticiones que fallaron o que el servidor rechazó
+     */
+    private AtomicLong errores;
+
+    /**
+     * El dinero que el servidor respondió haber cobrado
+     */
+    private AtomicLong dinero;
+
+    /**
+     * Las latencias de las ventas
+     */
+    private HistogramaLatencias latencias;
+
+    /**
+     * El tiempo que duró la prueba, en nanosegundos
+     */
+    private long tiempoTranscurrido;
+
+    // ************************************************************************
+    // Constructores
+    // ************************************************************************
+
+    /**
+     * Prepara una prueba de carga de 4 clientes durante 10 segundos
+     * @param servidor El servidor, que ya debe estar iniciado
+     * @throws IOException Se lanza esta excepción si no se puede construir la dirección del servidor
+     */
+    public PruebaCargaServidor( ServidorVentas servidor ) throws IOException
+    {
+        this.direccionVenta = new URL( "http", InetAddress.getLoopbackAddress( ).getHostAddress( ), servidor.getPuerto( ), "/venta" );
+        this.cantidadSurtidores = servidor.getGasolinera( ).getCantidadSurtidores( );
+        this.tiposGasolina = servidor.getGasolinera( ).getRegistroTiposGasolina( ).getNombres( );
+        this.clientes = 4;
+        this.duracion = TimeUnit.SECONDS.toNanos( 10 );
+        this.ventas = new AtomicLong( );
+        this.errores = new AtomicLong( );
+        this.dinero = new AtomicLong( );
+        this.latencias = new HistogramaLatencias( );
+    }
+
+    // ************************************************************************
+    // Configuración y resultados
+    // ************************************************************************
+
+    /**
+     * Cambia la cantidad de clientes que envían ventas al mismo tiempo
+     * @param clientes La cantidad de clientes
+     */
+    public void cambiarClientes( int clientes )
+    {
+        if( clientes < 1 )
+            throw new IllegalArgumentException( "Se necesita al menos un cliente" );
+        this.clientes = clientes;
+    }
+
+    /**
+     * Cambia cuánto dura la prueba
+     * @param duracion La duración
+     * @param unidad La unidad de la duración
+     */
+    public void cambiarDuracion( long duracion, TimeUnit unidad )
+    {
+        this.duracion = unidad.toNanos( duracion );
+    }
+
+    /**
+     * Retorna la cantidad de ventas que respondió el servidor
+     * @return La cantidad de ventas
+     */
+    public long getVentas( )
+    {
+        return ventas.get( );
+    }
+
+    /**
+     * Retorna la cantidad de peticiones que fallaron
+     * @return La cantidad de errores
+     */
+    public long getErrores( )
+    {
+        return errores.get( );
+    }
+
+    /**
+     * Retorna el dinero que el servidor respondió haber cobrado en todas las ventas
+     * @return El dinero cobrado
+     */
+    public long getDinero( )
+    {
+        return dinero.get( );
+    }
+
+    /**
+     * Retorna las latencias de las ventas
+     * @return El histograma de latencias
+     */
+    public HistogramaLatencias getLatencias( )
+    {
+        return latencias;
+    }
+
+    /**
+     * Muestra cuántas ventas por segundo se atendieron y las latencias
+     * @param salida Donde se muestra el reporte
+     */
+    public void imprimirReporte( PrintStream salida )
+    {
+        double segundos = tiempoTranscurrido / 1e9;
+        salida.println( "Clientes: " + clientes + ", durante " + String.format( "%.2f", segundos ) + " s" );
+        salida.println( "Ventas: " + ventas.get( ) + " (" + errores.get( ) + " errores), por " + dinero.get( ) + " pesos" );
+        salida.printf( "Ventas por segundo: %.0f%n", ventas.get( ) / segundos );
+        salida.printf( "Latencia (us): p50 %.1f, p99 %.1f, p999 %.1f, máxima %.1f%n", latencias.calcularPercentil( 50 ) / 1e3, latencias.calcularPercentil( 99 ) / 1e3,
+                latencias.calcularPercentil( 99.9 ) / 1e3, latencias.getMaximo( ) / 1e3 );
+    }
+
+    // ************************************************************************
+    // Ejecución
+    // ************************************************************************
+
+    /**
+     * Ejecuta la prueba: inicia los clientes y espera a que se cumpla la duración
+     * @throws InterruptedException Se lanza esta excepción si el hilo se interrumpe mientras espera a los clientes
+     */
+    public void ejecutar( ) throws InterruptedException
+    {
+        long inicio = System.nanoTime( );
+        long fin = inicio + duracion;
+        List<Thread> hilos = new ArrayList<Thread>( );
+        for( int c = 0; c < clientes; c++ )
+        {
+            long semilla = c;
+            Thread hilo = new Thread( ( ) -> ejecutarCliente( new Random( semilla ), fin ), "cliente-ventas-" + c );
+            hilo.setDaemon( true );
+            hilos.add( hilo );
+            hilo.start( );
+        }
+        for( Thread hilo : hilos )
+        {
+            hilo.join( );
+        }
+        tiempoTranscurrido = System.nanoTime( ) - inicio;
+    }
+
+    /**
+     * Envía ventas, una tras otra, hasta que se cumpla la duración de la prueba
+     * @param azar El generador de números al azar del cliente
+     * @param fin El momento en el que termina la prueba, en nanosegundos
+     */
+    private void ejecutarCliente( Random azar, long fin )
+    {
+        byte[] buffer = new byte[256];
+        ByteArrayOutputStream respuesta = new ByteArrayOutputStream( );
+        while( System.nanoTime( ) < fin )
+        {
+            String tipo = tiposGasolina[ azar.nextInt( tiposGasolina.length ) ];
+            String cuerpo = "surtidor=" + azar.nextInt( cantidadSurtidores ) + "&tipo=" + tipo
+                    + ( azar.nextBoolean( ) ? "&galones=" + ( 1 + azar.nextInt( 20 ) ) : "&valor=" + ( 5000 + azar.nextInt( 95000 ) ) );
+            byte[] bytesCuerpo = cuerpo.getBytes( StandardCharsets.UTF_8 );
+
+            long inicio = System.nanoTime( );
+            try
+            {
+                HttpURLConnection conexion = ( HttpURLConnection )direccionVenta.openConnection( );
+                conexion.setRequestMethod( "POST" );
+                conexion.setDoOutput( true );
+                conexion.setFixedLengthStreamingMode( bytesCuerpo.length );
+                conexion.setRequestProperty( "Content-Type", "application/x-www-form-urlencoded" );
+                try( OutputStream salida = conexion.getOutputStream( ) )
+                {
+                    salida.write( bytesCuerpo );
+                }
+                int codigo = conexion.getResponseCode( );
+
+                // Leer toda la respuesta para que la conexión se pueda reutilizar
+                respuesta.reset( );
+                try( InputStream entrada = codigo == 200 ? conexion.getInputStream( ) : conexion.getErrorStream( ) )
+                {
+                    int leidos;
+                    while( entrada != null && ( leidos = entrada.read( buffer ) ) != -1 )
+                    {
+                        respuesta.write( buffer, 0, leidos );
+                    }
+                }
+                latencias.registrar( System.nanoTime( ) - inicio );
+                if( codigo == 200 )
+                {
+                    ventas.incrementAndGet( );
+                    dinero.addAndGet( leerPrecio( respuesta.toString( "UTF-8" ) ) );
+                }
+                else
+                {
+                    errores.incrementAndGet( );
+                }
+            }
+            catch( IOException e )
+            {
+                errores.incrementAndGet( );
+            }
+        }
+    }
+
+    /**
+     * Lee el precio de la respuesta de una venta, que empieza con {"precio":
+     * @param respuesta La respuesta
+     * @return El precio
+     */
+    private static long leerPrecio( String respuesta )
+    {
+        int inicio = respuesta.indexOf( ':' ) + 1;
+        int fin = respuesta.indexOf( ',', inicio );
+        return Long.parseLong( respuesta.substring( inicio, fin ) );
+    }
+
+    // ************************************************************************
+    // Programa
+    // ************************************************************************
+
+    /**
+     * Imprime las opciones del programa
+     */
+    private static void imprimirUso( )
+    {
+        System.out.println( "Uso: PruebaCargaServidor [opciones]" );
+        System.out.println( "  --archivo <archivo>     Carga la gasolinera de un archivo. Si no se indica, se construye una con 8 surtidores" );
+        System.out.println( "  --hilos <n>             Hilos del servidor, o 0 para un hilo virtual por petición (uno por procesador)" );
+        System.out.println( "  --clientes <n>          Clientes que envían ventas al mismo tiempo (4)" );
+        System.out.println( "  --duracion <segundos>   Duración de la prueba (10)" );
+    }
+
+    /**
+     * Inicia un servidor en un puerto libre de la interfaz local, le aplica la prueba de carga y muestra el reporte
+     * @param args Las opciones de la prueba (ver imprimirUso)
+     */
+    public static void main( String[] args )
+    {
+        Map<String, String> opciones = new LinkedHashMap<String, String>( );
+        for( int i = 0; i < args.length; i += 2 )
+        {
+            if( !args[ i ].startsWith( "--" ) || i + 1 == args.length )
+            {
+                imprimirUso( );
+                System.exit( 1 );
+            }
+            opciones.put( args[ i ].substring( 2 ), args[ i + 1 ] );
+        }
+
+        ServidorVentas servidor = null;
+        try
+        {
+            Gasolinera gasolinera;
+            String archivo = opciones.remove( "archivo" );
+            if( archivo != null )
+            {
+                gasolinera = Gasolinera.cargarEstado( new File( archivo ) );
+            }
+            else
+            {
+                List<TipoGasolina> tipos = new ArrayList<TipoGasolina>( );
+                tipos.add( new TipoGasolina( "corriente", 14500, 1e9 ) );
+                tipos.add( new TipoGasolina( "extra", 21090, 1e9 ) );
+                tipos.add( new TipoGasolina( "diesel", 11800, 1e9 ) );
+                gasolinera = new Gasolinera( 8, tipos, new String[]{ "empleado0", "empleado1", "empleado2", "empleado3" } );
+            }
+            String hilos = opciones.remove( "hilos" );
+            servidor = new ServidorVentas( gasolinera, 0, hilos != null ? Integer.parseInt( hilos ) : Runtime.getRuntime( ).availableProcessors( ) );
+            PruebaCargaServidor prueba = new PruebaCargaServidor( servidor );
+            String clientes = opciones.remove( "clientes" );
+            if( clientes != null )
+                prueba.cambiarClientes( Integer.parseInt( clientes ) );
+            String duracion = opciones.remove( "duracion" );
+            if( duracion != null )
+                prueba.cambiarDuracion( Long.parseLong( duracion ), TimeUnit.SECONDS );
+            if( !opciones.isEmpty( ) )
+                throw new IllegalArgumentException( "Opciones desconocidas: " + opciones.keySet( ) );
+
+            servidor.iniciar( );
+            System.out.println( "Probando el servidor en el puerto " + servidor.getPuerto( ) + " con hilos "
+                    + ( "0".equals( hilos ) && HilosVirtuales.hayHilosVirtuales( ) ? "virtuales" : "normales" ) + " ..." );
+            prueba.ejecutar( );
+            prueba.imprimirReporte( System.out );
+
+            long dineroEmpleados = 0;
+            for( Empleado empleado : gasolinera.getEmpleados( ) )
+            {
+                dineroEmpleados += empleado.getCantidadDinero( );
+            }
+            System.out.println( "Dinero de los empleados: " + dineroEmpleados );
+        }
+        catch( IOException e )
+        {
+            System.out.println( "No se pudo iniciar la prueba: " + e.getMessage( ) );
+            System.exit( 1 );
+        }
+        catch( IllegalArgumentException e )
+        {
+            System.out.println( e.getMessage( ) );
+            imprimirUso( );
+            System.exit( 1 );
+        }
+        catch( InterruptedException e )
+        {
+            System.out.println( "La prueba fue interrumpida" );
+        }
+        finally
+        {
+            if( servidor != null )
+                servidor.detener( );
+        }
+    }
+}
@@ -0,0 +1,544 @@
+package uniandes.dpoo.gasolinera.servidor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import uniandes.dpoo.gasolinera.logica.Empleado;
+import uniandes.dpoo.gasolinera.logica.Gasolinera;
+import uniandes.dpoo.gasolinera.logica.ResultadoVenta;
+import uniandes.dpoo.gasolinera.logica.TipoGasolina;
+import uniandes.dpoo.gasolinera.utils.HilosVirtuales;
+
+/**
+ * Esta clase es un servidor HTTP local por el que los controladores de los surtidores le venden gasolina a una gasolinera que está funcionando.
+ *
+ * El servidor usa el servidor HTTP del JDK y sólo escucha en la interfaz local (loopback). Tiene tres servicios, que responden en JSON:
+ * <ul>
+ * <li>POST /venta con los parámetros surtidor, tipo y galones o valor (en la URL o en el cuerpo, como un formulario): vende la gasolina y responde el precio cobrado,
+ * el precio que se habría cobrado si alcanzaba la gasolina y si la venta quedó completa.</li>
+ * <li>GET /inventario: responde el precio y la cantidad disponible de cada tipo de gasolina.</li>
+ * <li>GET /estado: responde cuántos surtidores hay, cuántas peticiones se han atendido y el dinero de cada empleado.</li>
+ * </ul>
+ *
+ * Las peticiones se atienden con un grupo fijo de hilos, o con un hilo virtual por petición si se pide así y la máquina virtual los tiene (ver HilosVirtuales). En
+ * los dos casos las ventas se hacen con los métodos de la gasolinera, que pueden llamarse desde varios hilos al mismo tiempo.
+ */
+public class ServidorVentas
+{
+    // ************************************************************************
+    // Atributos
+    // ************************************************************************
+
+    /**
+     * El tipo de contenido de las respuestas
+     */
+    private static final String TIPO_JSON = "application/json; charset=UTF-8";
+
+    /**
+     * La gasolinera que atiende las peticiones
+     */
+    private Gasolinera gasolinera;
+
+    /**
+     * El servidor HTTP
+     */
+    private HttpServer servidor;
+
+    /**
+     * El grupo de hilos que atiende las peticiones, o null si se usa un hilo por petición
+     */
+    private ExecutorService grupoHilos;
+
+    /**
+     * Indica si las peticiones se atienden con un hilo por petición
+     */
+    private boolean hiloPorPeticion;
+
+    /**
+     * La cantidad de ventas hechas por el servidor
+     */
+    private AtomicLong ventas;
+
+    /**
+     * La cantidad de peticiones que no se pudieron atender porque estaban mal formadas
+     */
+    private AtomicLong errores;
+
+    /**
+     * El momento en el que se inició el servidor, en nanosegundos
+     */
+    private long inicio;
+
+    static
+    {
+        // Cada respuesta se escribe en dos partes (encabezados y cuerpo): con el algoritmo de Nagle, la segunda espera el ACK retardado del cliente, unos 40 ms por
+        // petición. El servidor del JDK lee esta propiedad la primera vez que se construye un servidor, así que sólo se cambia si nadie la definió
+        if( System.getProperty( "sun.net.httpserver.nodelay" ) == null )
+            System.setProperty( "sun.net.httpserver.nodelay", "true" );
+    }
+
+    // ************************************************************************
+    // Constructores
+    // ************************************************************************
+
+    /**
+     * Construye un servidor que escucha en la interfaz local. El servidor no atiende peticiones hasta que se llame iniciar
+     * @param gasolinera La gasolinera que atiende las peticiones
+     * @param puerto El puerto donde escucha el servidor, o 0 para usar cualquier puerto libre (ver getPuerto)
+     * @param hilos La cantidad de hilos que atienden las peticiones, o 0 para atender cada petición en un hilo virtual nuevo
+     * @throws IOException Se lanza esta excepción si no se pudo abrir el puerto
+     */
+    public ServidorVentas( Gasolinera gasolinera, int puerto, int hilos ) throws IOException
+    {
+        if( hilos < 0 )
+            throw new IllegalArgumentException( "La cantidad de hilos no puede ser negativa" );
+        this.gasolinera = gasolinera;
+        this.ventas = new AtomicLong( );
+        this.errores = new AtomicLong( );
+        this.servidor = HttpServer.create( new InetSocketAddress( InetAddress.getLoopbackAddress( ), puerto ), 0 );
+        this.hiloPorPeticion = hilos == 0;
+
+        Executor ejecutor;
+        if( hiloPorPeticion )
+        {
+            ThreadFactory fabrica = HilosVirtuales.crearFabrica( "servidor-ventas" );
+            ejecutor = tarea -> fabrica.newThread( tarea ).start( );
+        }
+        else
+        {
+            AtomicLong numeroHilo = new AtomicLong( );
+            grupoHilos = Executors.newFixedThreadPool( hilos, r -> {
+                Thread hilo = new Thread( r, "servidor-ventas-" + numeroHilo.getAndIncrement( ) );
+                hilo.setDaemon( true );
+                return hilo;
+            } );
+            ejecutor = grupoHilos;
+        }
+        servidor.setExecutor( ejecutor );
+        servidor.createContext( "/venta", new Servicio( "POST" )
+        {
+            @Override
+            protected String atender( Map<String, String> parametros )
+            {
+                return vender( parametros );
+            }
+        } );
+        servidor.createContext( "/inventario", new Servicio( "GET" )
+        {
+            @Override
+            protected String atender( Map<String, String> parametros )
+            {
+                return describirInventario( );
+            }
+        } );
+        servidor.createContext( "/estado", new Servicio( "GET" )
+        {
+            @Override
+            protected String atender( Map<String, String> parametros )
+            {
+                return describirEstado( );
+            }
+        } );
+    }
+
+    // ************************************************************************
+    // Métodos
+    // ************************************************************************
+
+    /**
+     * Empieza a atender peticiones
+     */
+    public void iniciar( )
+    {
+        inicio = System.nanoTime( );
+        servidor.start( );
+    }
+
+    /**
+     * Deja de atender peticiones. Las peticiones que se estén atendiendo tienen hasta un segundo para terminar
+     */
+    public void detener( )
+    {
+        servidor.stop( 1 );
+        if( grupoHilos != null )
+        {
+            grupoHilos.shutdown( );
+            try
+            {
+                grupoHilos.awaitTermination( 1, TimeUnit.SECONDS );
+            }
+            catch( InterruptedException e )
+            {
+                Thread.currentThread( ).interrupt( );
+            }
+        }
+    }
+
+    /**
+     * Retorna el puerto donde escucha el servidor
+     * @return El puerto
+     */
+    public int getPuerto( )
+    {
+        return servidor.getAddress( ).getPort( );
+    }
+
+    /**
+     * Retorna la gasolinera que atiende las peticiones
+     * @return La gasolinera
+     */
+    public Gasolinera getGasolinera( )
+    {
+        return gasolinera;
+    }
+
+    /**
+     * Retorna la cantidad de ventas hechas por el servidor
+     * @return La cantidad de ventas
+     */
+    public long getVentas( )
+    {
+        return ventas.get( );
+    }
+
+    /**
+     * Retorna la cantidad de peticiones mal formadas que recibió el servidor
+     * @return La cantidad de peticiones con errores
+     */
+    public long getErrores( )
+    {
+        return errores.get( );
+    }
+
+    /**
+     * Vende gasolina con los parámetros de una petición
+     * @param parametros Los parámetros: surtidor, tipo y galones o valor
+     * @return La respuesta en JSON
+     * @throws IllegalArgumentException Si faltan parámetros o no son válidos
+     */
+    private String vender( Map<String, String> parametros )
+    {
+        int surtidor = leerEntero( parametros, "surtidor" );
+        if( surtidor < 0 || surtidor >= gasolinera.getCantidadSurtidores( ) )
+            throw new IllegalArgumentException( "No existe el surtidor " + surtidor );
+        String nombreTipo = parametros.get( "tipo" );
+        int idTipo = nombreTipo == null ? -1 : gasolinera.getIdentificadorTipoGasolina( nombreTipo );
+        if( idTipo == -1 )
+            throw new IllegalArgumentException( "La gasolinera no vende el tipo de gasolina " + nombreTipo );
+        ResultadoVenta venta;
+        if( parametros.containsKey( "galones" ) == parametros.containsKey( "valor" ) )
+        {
+            throw new IllegalArgumentException( "La venta debe tener galones o valor, pero no los dos" );
+        }
+        else if( parametros.containsKey( "galones" ) )
+        {
+            venta = gasolinera.venderPorCantidad( idTipo, leerPositivo( parametros, "galones" ), surtidor );
+        }
+        else
+        {
+            int valor = leerEntero( parametros, "valor" );
+            if( valor <= 0 )
+                throw new IllegalArgumentException( "El valor debe ser positivo" );
+            venta = gasolinera.venderPorPrecio( idTipo, valor, surtidor );
+        }
+        ventas.incrementAndGet( );
+        return "{\"precio\":" + venta.getPrecio( ) + ",\"esperado\":" + venta.calcularPrecioSolicitado( ) + ",\"completa\":" + venta.esCompleta( ) + "}";
+    }
+
+    /**
+     * Describe el inventario de la gasolinera
+     * @return La respuesta en JSON
+     */
+    private String describirInventario( )
+    {
+        StringBuilder respuesta = new StringBuilder( "{\"tipos\":[" );
+        boolean primero = true;
+        for( TipoGasolina tipo : gasolinera.getTiposGasolina( ) )
+        {
+            if( !primero )
+                respuesta.append( ',' );
+            primero = false;
+            respuesta.append( "{\"nombre\":" ).append( escribirCadena( tipo.getNombre( ) ) );
+            respuesta.append( ",\"precioPorGalon\":" ).append( tipo.getPrecioPorGalon( ) );
+            respuesta.append( ",\"disponible\":" ).append( tipo.getCantidadDisponible( ) ).append( '}' );
+        }
+        return respuesta.append( "]}" ).toString( );
+    }
+
+    /**
+     * Describe el estado del servidor y de la gasolinera
+     * @return La respuesta en JSON
+     */
+    private String describirEstado( )
+    {
+        StringBuilder respuesta = new StringBuilder( "{" );
+        respuesta.append( "\"surtidores\":" ).append( gasolinera.getCantidadSurtidores( ) );
+        respuesta.append( ",\"ventas\":" ).append( ventas.get( ) );
+        respuesta.append( ",\"errores\":" ).append( errores.get( ) );
+        respuesta.append( ",\"segundosActivo\":" ).append( ( System.nanoTime( ) - inicio ) / 1000000000L );
+        respuesta.append( ",\"hilos\":" ).append( escribirCadena( hiloPorPeticion && HilosVirtuales.hayHilosVirtuales( ) ? "virtuales" : "normales" ) );
+        respuesta.append( ",\"empleados\":[" );
+        boolean primero = true;
+        for( Empleado empleado : gasolinera.getEmpleados( ) )
+        {
+            if( !primero )
+                respuesta.append( ',' );
+            primero = false;
+            respuesta.append( "{\"nombre\":" ).append( escribirCadena( empleado.getNombre( ) ) );
+            respuesta.append( ",\"dinero\":" ).append( empleado.getCantidadDinero( ) ).append( '}' );
+        }
+        return respuesta.append( "]}" ).toString( );
+    }
+
+    /**
+     * Lee un parámetro entero
+     * @param parametros Los parámetros de la petición
+     * @param nombre El nombre del parámetro
+     * @return El valor del parámetro
+     * @throws IllegalArgumentException Si el parámetro no está o no es un entero
+     */
+    private static int leerEntero( Map<String, String> parametros, String nombre )
+    {
+        String valor = parametros.get( nombre );
+        if( valor == null )
+            throw new IllegalArgumentException( "Falta el parámetro " + nombre );
+        try
+        {
+            return Integer.parseInt( valor );
+        }
+        catch( NumberFormatException e )
+        {
+            throw new IllegalArgumentException( "El parámetro " + nombre + " debe ser un número entero" );
+        }
+    }
+
+    /**
+     * Lee un parámetro que es un número estrictamente positivo
+     * @param parametros Los parámetros de la petición
+     * @param nombre El nombre del parámetro
+     * @return El valor del parámetro
+     * @throws IllegalArgumentException Si el parámetro no está o no es un número positivo
+     */
+    private static double leerPositivo( Map<String, String> parametros, String nombre )
+    {
+        double valor;
+        try
+        {
+            valor = Double.parseDouble( parametros.get( nombre ) );
+        }
+        catch( NumberFormatException e )
+        {
+            throw new IllegalArgumentException( "El parámetro " + nombre + " debe ser un número" );
+        }
+        if( !( valor > 0 ) || Double.isInfinite( valor ) )
+            throw new IllegalArgumentException( "El parámetro " + nombre + " debe ser positivo" );
+        return valor;
+    }
+
+    /**
+     * Escribe una cadena en JSON, entre comillas y con los caracteres especiales escapados
+     * @param cadena La cadena
+     * @return La cadena en JSON
+     */
+    private static String escribirCadena( String cadena )
+    {
+        StringBuilder json = new StringBuilder( cadena.length( ) + 2 ).append( '"' );
+        for( int i = 0; i < cadena.length( ); i++ )
+        {
+            char c = cadena.charAt( i );
+            if( c == '"' || c == '\\' )
+                json.append( '\\' ).append( c );
+            else if( c < ' ' )
+                json.append( String.format( "\\u%04x", ( int )c ) );
+            else
+                json.append( c );
+        }
+        return json.append( '"' ).toString( );
+    }
+
+    /**
+     * Lee los parámetros de una petición: los de la URL y, si la petición tiene cuerpo, los del cuerpo como un formulario
+     * @param intercambio La petición
+     * @return Los parámetros
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo el cuerpo
+     */
+    private static Map<String, String> leerParametros( HttpExchange intercambio ) throws IOException
+    {
+        Map<String, String> parametros = new HashMap<String, String>( );
+        agregarParametros( intercambio.getRequestURI( ).getRawQuery( ), parametros );
+        ByteArrayOutputStream cuerpo = new ByteArrayOutputStream( );
+        try( InputStream entrada = intercambio.getRequestBody( ) )
+        {
+            byte[] buffer = new byte[1024];
+            int leidos;
+            while( ( leidos = entrada.read( buffer ) ) != -1 )
+            {
+                cuerpo.write( buffer, 0, leidos );
+            }
+        }
+        if( cuerpo.size( ) > 0 )
+            agregarParametros( new String( cuerpo.toByteArray( ), StandardCharsets.UTF_8 ), parametros );
+        return parametros;
+    }
+
+    /**
+     * Agrega a un mapa los parámetros de un texto como a=1&amp;b=2
+     * @param texto El texto, o null si no hay parámetros
+     * @param parametros El mapa de parámetros
+     * @throws UnsupportedEncodingException Nunca se lanza, porque UTF-8 siempre existe
+     */
+    private static void agregarParametros( String texto, Map<String, String> parametros ) throws UnsupportedEncodingException
+    {
+        if( texto == null || texto.isEmpty( ) )
+            return;
+        for( String parametro : texto.split( "&" ) )
+        {
+            int igual = parametro.indexOf( '=' );
+            if( igual > 0 )
+                parametros.put( URLDecoder.decode( parametro.substring( 0, igual ), "UTF-8" ), URLDecoder.decode( parametro.substring( igual + 1 ), "UTF-8" ) );
+        }
+    }
+
+    /**
+     * Envía una respuesta
+     * @param intercambio La petición
+     * @param codigo El código HTTP de la respuesta
+     * @param json El cuerpo de la respuesta
+     * @throws IOException Se lanza esta excepción si hay problemas enviando la respuesta
+     */
+    private static void responder( HttpExchange intercambio, int codigo, String json ) throws IOException
+    {
+        byte[] cuerpo = json.getBytes( StandardCharsets.UTF_8 );
+        intercambio.getResponseHeaders( ).set( "Content-Type", TIPO_JSON );
+        intercambio.sendResponseHeaders( codigo, cuerpo.length );
+        try( OutputStream salida = intercambio.getResponseBody( ) )
+        {
+            salida.write( cuerpo );
+        }
+    }
+
+    // ************************************************************************
+    // Clases auxiliares
+    // ************************************************************************
+
+    /**
+     * Un servicio del servidor: revisa el método de la petición, lee los parámetros y convierte los errores en respuestas
+     */
+    private abstract class Servicio implements HttpHandler
+    {
+        /**
+         * El método HTTP que acepta el servicio
+         */
+        private String metodo;
+
+        private Servicio( String metodo )
+        {
+            this.metodo = metodo;
+        }
+
+        /**
+         * Atiende una petición
+         * @param parametros Los parámetros de la petición
+         * @return La respuesta en JSON
+         * @throws IllegalArgumentException Si los parámetros no son válidos
+         */
+        protected abstract String atender( Map<String, String> parametros );
+
+        @Override
+        public void handle( HttpExchange intercambio ) throws IOException
+        {
+            try
+            {
+                if( !intercambio.getRequestURI( ).getPath( ).equals( intercambio.getHttpContext( ).getPath( ) ) )
+                {
+                    errores.incrementAndGet( );
+                    responder( intercambio, 404, "{\"error\":\"No existe el servicio\"}" );
+                }
+                else if( !intercambio.getRequestMethod( ).equals( metodo ) )
+                {
+                    errores.incrementAndGet( );
+                    intercambio.getResponseHeaders( ).set( "Allow", metodo );
+                    responder( intercambio, 405, "{\"error\":" + escribirCadena( "El servicio sólo acepta " + metodo ) + "}" );
+                }
+                else
+                {
+                    String respuesta;
+                    try
+                    {
+                        respuesta = atender( leerParametros( intercambio ) );
+                    }
+                    catch( IllegalArgumentException e )
+                    {
+                        errores.incrementAndGet( );
+                        responder( intercambio, 400, "{\"error\":" + escribirCadena( e.getMessage( ) ) + "}" );
+                        return;
+                    }
+                    responder( intercambio, 200, respuesta );
+                }
+            }
+            finally
+            {
+                intercambio.close( );
+            }
+        }
+    }
+
+    // ************************************************************************
+    // Programa
+    // ************************************************************************
+
+    /**
+     * Inicia un servidor para una gasolinera guardada en un archivo, y lo deja funcionando hasta que se detenga la aplicación.
+     *
+     * Los argumentos son el archivo de la gasolinera, el puerto (8080 si no se indica) y la cantidad de hilos (uno por procesador si no se indica, o 0 para un hilo
+     * virtual por petición).
+     * @param args Los argumentos de la aplicación
+     */
+    public static void main( String[] args )
+    {
+        if( args.length < 1 || args.length > 3 )
+        {
+            System.out.println( "Uso: ServidorVentas <archivo> [puerto] [hilos]" );
+            System.exit( 1 );
+        }
+        try
+        {
+            Gasolinera gasolinera = Gasolinera.cargarEstado( new File( args[ 0 ] ) );
+            int puerto = args.length > 1 ? Integer.parseInt( args[ 1 ] ) : 8080;
+            int hilos = args.length > 2 ? Integer.parseInt( args[ 2 ] ) : Runtime.getRuntime( ).availableProcessors( );
+            ServidorVentas servidor = new ServidorVentas( gasolinera, puerto, hilos );
+            servidor.iniciar( );
+            System.out.println( "Atendiendo ventas en http://" + InetAddress.getLoopbackAddress( ).getHostAddress( ) + ":" + servidor.getPuerto( ) + "/" );
+        }
+        catch( IOException e )
+        {
+            System.out.println( "No se pudo iniciar el servidor: " + e.getMessage( ) );
+            System.exit( 1 );
+        }
+        catch( IllegalArgumentException e )
+        {
+            System.out.println( e.getMessage( ) );
+            System.exit( 1 );
+        }
+    }
+}
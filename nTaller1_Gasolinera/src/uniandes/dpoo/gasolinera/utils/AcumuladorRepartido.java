@@ -0,0 +1,80 @@
+package uniandes.dpoo.gasolinera.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Esta clase es un total de tipo long al que muchos hilos pueden sumar al mismo tiempo sin estorbarse.
+ *
+ * El total está repartido en varias franjas, separadas en memoria para que queden en líneas de caché distintas, y cada hilo suma siempre en la franja que le
+ * corresponde. Así, hilos distintos casi nunca modifican el mismo contador. El total es la suma de todas las franjas.
+ *
+ * A diferencia de LongAdder, este acumulador se puede leer y reiniciar sin perder ninguna suma: cada franja se toma y se deja en 0 en un solo paso atómico, así
+ * que una suma que ocurra mientras tanto queda en el total que se tomó o en el siguiente, pero nunca se pierde ni se cuenta dos veces.
+ */
+public class AcumuladorRepartido
+{
+    /**
+     * La distancia entre los contadores de dos franjas, en cantidad de long. Así cada contador queda en una línea de caché distinta
+     */
+    private static final int SEPARACION = 8;
+
+    /**
+     * La cantidad de franjas menos 1. La cantidad de franjas es una potencia de 2
+     */
+    private final int mascara;
+
+    /**
+     * Los contadores de las franjas. El de la franja i está en la posición i * SEPARACION
+     */
+    private final AtomicLongArray franjas;
+
+    /**
+     * Construye un acumulador en 0, con una franja por procesador
+     */
+    public AcumuladorRepartido( )
+    {
+        int cantidadFranjas = Integer.highestOneBit( Math.max( 1, Runtime.getRuntime( ).availableProcessors( ) ) * 2 - 1 );
+        this.mascara = cantidadFranjas - 1;
+        this.franjas = new AtomicLongArray( cantidadFranjas * SEPARACION );
+    }
+
+    /**
+     * Suma un valor al total
+     * @param valor El valor que se suma. Puede ser negativo
+     */
+    public void agregar( long valor )
+    {
+        long id = Thread.currentThread( ).getId( );
+        int franja = ( int )( ( id * 0x9E3779B97F4A7C15L ) >>> 40 ) & mascara;
+        franjas.addAndGet( franja * SEPARACION, valor );
+    }
+
+    /**
+     * Retorna el total actual. Si otros hilos están sumando al mismo tiempo, el total incluye algunas de esas sumas
+     * @return La suma de todas las franjas
+     */
+    public long sumar( )
+    {
+        long total = 0;
+        for( int franja = 0; franja <= mascara; franja++ )
+        {
+            total += franjas.get( franja * SEPARACION );
+        }
+        return total;
+    }
+
+    /**
+     * Retorna el total actual y deja el acumulador en 0. Cada suma que hagan otros hilos al mismo tiempo queda en el total retornado o en el acumulador, pero no en
+     * los dos
+     * @return El total que tenía el acumulador
+     */
+    public long tomarYReiniciar( )
+    {
+        long total = 0;
+        for( int franja = 0; franja <= mascara; franja++ )
+        {
+            total += franjas.getAndSet( franja * SEPARACION, 0 );
+        }
+        return total;
+    }
+}
@@ -0,0 +1,127 @@
+package uniandes.dpoo.gasolinera.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Esta clase es un grupo de contadores que sólo recuerdan lo que se les sumó en los últimos periodos de tiempo, por ejemplo en los últimos 60 minutos.
+ *
+ * Cada contador tiene un anillo de ranuras, una por periodo: lo que se suma en el periodo p queda en la ranura p % cantidadRanuras. Los periodos se cuentan desde
+ * el 1 de enero de 1970, así que coinciden con los minutos o las horas del reloj. Cada ranura es un solo long que guarda el número del periodo en los bits altos y
+ * el valor en los BITS_VALOR bits bajos. Así, sumar es un solo compareAndSet: si la ranura todavía tiene un periodo anterior, el mismo compareAndSet la deja con
+ * el periodo nuevo y el valor sumado, y no hace falta limpiar las ranuras viejas por aparte.
+ *
+ * Sumar no depende de cuántas sumas o periodos haya habido antes, y consultar un contador recorre a lo sumo cantidadRanuras ranuras. Los valores sumados deben ser
+ * positivos; si el valor de una ranura no cabe en BITS_VALOR bits, se queda en el máximo.
+ */
+public class ContadoresPorPeriodo
+{
+    /**
+     * La cantidad de bits de cada ranura donde está el valor. Los demás bits tienen el número del periodo más 1, para que una ranura en 0 no sea de ningún periodo
+     */
+    public static final int BITS_VALOR = 36;
+
+    /**
+     * El máximo valor que puede tener una ranura
+     */
+    public static final long MAXIMO_VALOR = ( 1L << BITS_VALOR ) - 1;
+
+    /**
+     * La cantidad de ranuras del anillo de cada contador
+     */
+    private final int cantidadRanuras;
+
+    /**
+     * La duración de cada periodo, en milisegundos
+     */
+    private final long milisegundosPorPeriodo;
+
+    /**
+     * Las ranuras de todos los contadores. La ranura r del contador c está en la posición c * cantidadRanuras + r
+     */
+    private final AtomicLongArray ranuras;
+
+    /**
+     * Construye un grupo de contadores en 0
+     * @param cantidadContadores La cantidad de contadores
+     * @param cantidadRanuras La cantidad de periodos que recuerda cada contador, contando el periodo actual
+     * @param milisegundosPorPeriodo La duración de cada periodo, en milisegundos
+     */
+    public ContadoresPorPeriodo( int cantidadContadores, int cantidadRanuras, long milisegundosPorPeriodo )
+    {
+        if( cantidadRanuras < 1 || milisegundosPorPeriodo < 1 )
+        {
+            throw new IllegalArgumentException( "Los contadores deben tener al menos una ranura y los periodos deben durar al menos un milisegundo" );
+        }
+        this.cantidadRanuras = cantidadRanuras;
+        this.milisegundosPorPeriodo = milisegundosPorPeriodo;
+        this.ranuras = new AtomicLongArray( cantidadContadores * cantidadRanuras );
+    }
+
+    public int getCantidadRanuras( )
+    {
+        return cantidadRanuras;
+    }
+
+    public long getMilisegundosPorPeriodo( )
+    {
+        return milisegundosPorPeriodo;
+    }
+
+    /**
+     * Suma un valor a un contador en el periodo de un momento dado. Si la ranura de ese periodo ya pasó a un periodo posterior (porque el momento tiene más de
+     * cantidadRanuras periodos de antigüedad), el valor no se suma
+     * @param contador La posición del contador
+     * @param valor El valor que se suma. Debe ser mayor o igual a 0
+     * @param milisegundos El momento de la suma, según System.currentTimeMillis
+     */
+    public void agregar( int contador, long valor, long milisegundos )
+    {
+        long periodo = milisegundos / milisegundosPorPeriodo;
+        int posicion = contador * cantidadRanuras + ( int )( periodo % cantidadRanuras );
+        long marca = ( periodo + 1 ) << BITS_VALOR;
+
+        long anterior;
+        long nuevo;
+        do
+        {
+            anterior = ranuras.get( posicion );
+            long periodoAnterior = ( anterior >>> BITS_VALOR ) - 1;
+            if( periodoAnterior == periodo )
+            {
+                nuevo = marca | Math.min( ( anterior & MAXIMO_VALOR ) + valor, MAXIMO_VALOR );
+            }
+            else if( periodoAnterior < periodo )
+            {
+                nuevo = marca | Math.min( valor, MAXIMO_VALOR );
+            }
+            else
+            {
+                return;
+            }
+        } while( !ranuras.compareAndSet( posicion, anterior, nuevo ) );
+    }
+
+    /**
+     * Suma lo que se le sumó a un contador en los últimos periodos antes de un momento dado, contando el periodo de ese momento
+     * @param contador La posición del contador
+     * @param cantidadPeriodos La cantidad de periodos que se suman. Si es mayor a la cantidad de ranuras, sólo se suman las ranuras que hay
+     * @param milisegundos El momento de la consulta, según System.currentTimeMillis
+     * @return La suma
+     */
+    public long sumar( int contador, int cantidadPeriodos, long milisegundos )
+    {
+        long periodoActual = milisegundos / milisegundosPorPeriodo;
+        int base = contador * cantidadRanuras;
+        long total = 0;
+        for( int i = 0; i < Math.min( cantidadPeriodos, cantidadRanuras ); i++ )
+        {
+            long periodo = periodoActual - i;
+            long ranura = ranuras.get( base + ( int )( periodo % cantidadRanuras ) );
+            if( ( ranura >>> BITS_VALOR ) - 1 == periodo )
+            {
+                total += ranura & MAXIMO_VALOR;
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,19 @@
+package uniandes.dpoo.gasolinera.utils;
+
+/**
+ * Una forma de repartir puestos (por ejemplo, surtidores) entre varias opciones (por ejemplo, empleados). Las estrategias disponibles se construyen con los métodos
+ * de Sorteo.
+ *
+ * Una estrategia puede tener estado, como un generador de números aleatorios, así que no debe usarse desde varios hilos al mismo tiempo.
+ */
+public interface EstrategiaAsignacion
+{
+    /**
+     * Le asigna una opción a cada puesto
+     * @param cantidadPuestos La cantidad de puestos que se asignan
+     * @param cargas La cantidad de puestos que ya tiene cada opción. Su tamaño es la cantidad de opciones, que debe ser al menos 1. Se actualiza con los puestos
+     *        asignados
+     * @return Un arreglo nuevo donde la posición i tiene la posición (dentro de cargas) de la opción asignada al puesto i
+     */
+    int[] asignar( int cantidadPuestos, int[] cargas );
+}
@@ -0,0 +1,74 @@
+package uniandes.dpoo.gasolinera.utils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Esta clase construye hilos virtuales cuando la máquina virtual los tiene (Java 21 o posterior), y hilos normales cuando no.
+ *
+ * El proyecto compila para Java 8, así que los hilos virtuales no se pueden pedir directamente: se buscan con reflexión la primera vez que se necesitan. Si no
+ * existen, las fábricas construyen hilos normales marcados como daemon, para que la aplicación funcione igual aunque con menos hilos al mismo tiempo.
+ */
+public class HilosVirtuales
+{
+    /**
+     * El método Thread.ofVirtual, o null si la máquina virtual no tiene hilos virtuales
+     */
+    private static final Method OF_VIRTUAL = buscarOfVirtual( );
+
+    /**
+     * Busca el método Thread.ofVirtual
+     * @return El método, o null si no existe
+     */
+    private static Method buscarOfVirtual( )
+    {
+        try
+        {
+            return Thread.class.getMethod( "ofVirtual" );
+        }
+        catch( NoSuchMethodException e )
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Indica si la máquina virtual tiene hilos virtuales
+     * @return Retorna true si las fábricas de esta clase construyen hilos virtuales
+     */
+    public static boolean hayHilosVirtuales( )
+    {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * Construye una fábrica de hilos virtuales, o de hilos normales daemon si la máquina virtual no tiene hilos virtuales. Los hilos se llaman prefijo-0,
+     * prefijo-1, ...
+     * @param prefijo El prefijo del nombre de los hilos
+     * @return La fábrica de hilos
+     */
+    public static ThreadFactory crearFabrica( String prefijo )
+    {
+        if( OF_VIRTUAL != null )
+        {
+            try
+            {
+                Object constructor = OF_VIRTUAL.invoke( null );
+                Class<?> claseConstructor = Class.forName( "java.lang.Thread$Builder" );
+                constructor = claseConstructor.getMethod( "name", String.class, long.class ).invoke( constructor, prefijo + "-", 0L );
+                return ( ThreadFactory )claseConstructor.getMethod( "factory" ).invoke( constructor );
+            }
+            catch( ReflectiveOperationException e )
+            {
+                // Si algo falla se usan hilos normales
+            }
+        }
+        AtomicLong contador = new AtomicLong( );
+        return r -> {
+            Thread hilo = new Thread( r, prefijo + "-" + contador.getAndIncrement( ) );
+            hilo.setDaemon( true );
+            return hilo;
+        };
+    }
+}
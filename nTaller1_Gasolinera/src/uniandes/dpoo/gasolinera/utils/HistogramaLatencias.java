@@ -0,0 +1,141 @@
+package uniandes.dpoo.gasolinera.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Esta clase cuenta cuántas veces se ha registrado cada latencia, para calcular después percentiles como la mediana o el percentil 99.
+ *
+ * Las latencias no se guardan una por una: se cuentan en cubetas cuyo ancho crece con el valor, como en un histograma logarítmico. Entre cada potencia de 2 y la
+ * siguiente hay 64 cubetas, así que un percentil calculado con el histograma se aleja del valor real en menos de 1/64 (cerca del 1.5%). Con eso el histograma ocupa
+ * siempre el mismo espacio, sin importar cuántas latencias se registren, y muchos hilos pueden registrar al mismo tiempo sin candados.
+ */
+public class HistogramaLatencias
+{
+    /**
+     * La cantidad de bits que definen la cubeta dentro de cada potencia de 2
+     */
+    private static final int BITS_SUBCUBETA = 6;
+
+    /**
+     * La cantidad de cubetas entre una potencia de 2 y la siguiente
+     */
+    private static final int SUBCUBETAS = 1 << BITS_SUBCUBETA;
+
+    /**
+     * La cantidad total de cubetas, suficiente para cualquier long positivo
+     */
+    private static final int CANTIDAD_CUBETAS = ( 64 - BITS_SUBCUBETA ) * SUBCUBETAS;
+
+    /**
+     * La cantidad de latencias registradas en cada cubeta
+     */
+    private final AtomicLongArray cubetas = new AtomicLongArray( CANTIDAD_CUBETAS );
+
+    /**
+     * Registra una latencia
+     * @param nanosegundos La latencia en nanosegundos. Si es negativa se registra como 0
+     */
+    public void registrar( long nanosegundos )
+    {
+        cubetas.incrementAndGet( calcularCubeta( Math.max( 0, nanosegundos ) ) );
+    }
+
+    /**
+     * Agrega a este histograma todas las latencias registradas en otro
+     * @param otro El otro histograma
+     */
+    public void agregar( HistogramaLatencias otro )
+    {
+        for( int i = 0; i < CANTIDAD_CUBETAS; i++ )
+        {
+            long enCubeta = otro.cubetas.get( i );
+            if( enCubeta > 0 )
+                cubetas.addAndGet( i, enCubeta );
+        }
+    }
+
+    /**
+     * Retorna la cantidad de latencias registradas
+     * @return La cantidad de latencias registradas
+     */
+    public long getCantidad( )
+    {
+        long cantidad = 0;
+        for( int i = 0; i < CANTIDAD_CUBETAS; i++ )
+        {
+            cantidad += cubetas.get( i );
+        }
+        return cantidad;
+    }
+
+    /**
+     * Calcula un percentil de las latencias registradas
+     * @param percentil El percentil, entre 0 y 100. Por ejemplo, 99.9 es la latencia que no superan el 99.9% de las latencias registradas
+     * @return La latencia del percentil en nanosegundos, o 0 si no se ha registrado ninguna
+     */
+    public long calcularPercentil( double percentil )
+    {
+        long cantidad = getCantidad( );
+        if( cantidad == 0 )
+            return 0;
+        long posicion = Math.max( 1, ( long )Math.ceil( cantidad * percentil / 100 ) );
+        long acumulado = 0;
+        int ultima = 0;
+        for( int i = 0; i < CANTIDAD_CUBETAS; i++ )
+        {
+            long enCubeta = cubetas.get( i );
+            if( enCubeta > 0 )
+            {
+                acumulado += enCubeta;
+                ultima = i;
+                if( acumulado >= posicion )
+                    return calcularValor( i );
+            }
+        }
+        // Sólo se llega aquí si se registraron latencias mientras se calculaba el percentil
+        return calcularValor( ultima );
+    }
+
+    /**
+     * Retorna la mayor latencia registrada, con la misma precisión que los percentiles
+     * @return La mayor latencia en nanosegundos, o 0 si no se ha registrado ninguna
+     */
+    public long getMaximo( )
+    {
+        for( int i = CANTIDAD_CUBETAS - 1; i >= 0; i-- )
+        {
+            if( cubetas.get( i ) > 0 )
+                return calcularValor( i );
+        }
+        return 0;
+    }
+
+    /**
+     * Calcula la cubeta donde se cuenta un valor. Los valores menores que SUBCUBETAS tienen una cubeta cada uno; los demás se agrupan según su bit más alto y los
+     * BITS_SUBCUBETA bits que le siguen
+     * @param valor El valor, que no puede ser negativo
+     * @return La posición de la cubeta
+     */
+    private static int calcularCubeta( long valor )
+    {
+        if( valor < SUBCUBETAS )
+            return ( int )valor;
+        int desplazamiento = 63 - Long.numberOfLeadingZeros( valor ) - BITS_SUBCUBETA;
+        int subcubeta = ( int )( valor >>> desplazamiento ) & ( SUBCUBETAS - 1 );
+        return ( desplazamiento + 1 ) * SUBCUBETAS + subcubeta;
+    }
+
+    /**
+     * Calcula el valor que representa a una cubeta: la mitad del rango de valores que se cuentan en ella
+     * @param cubeta La posición de la cubeta
+     * @return El valor que representa a la cubeta
+     */
+    private static long calcularValor( int cubeta )
+    {
+        if( cubeta < SUBCUBETAS )
+            return cubeta;
+        int desplazamiento = cubeta / SUBCUBETAS - 1;
+        long inicio = ( long )( SUBCUBETAS + cubeta % SUBCUBETAS ) << desplazamiento;
+        return inicio + ( ( 1L << desplazamiento ) >> 1 );
+    }
+}
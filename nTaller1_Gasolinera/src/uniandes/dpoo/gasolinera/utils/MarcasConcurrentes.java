@@ -0,0 +1,121 @@
+package uniandes.dpoo.gasolinera.utils;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Esta clase es un conjunto de marcas, una por posición, que varios hilos pueden poner al mismo tiempo sin usar candados.
+ * 
+ * Las marcas se guardan como bits dentro de un arreglo de long. Poner una marca que ya estaba puesta sólo hace una lectura, así que marcar repetidamente la misma
+ * posición es muy barato.
+ */
+public class MarcasConcurrentes
+{
+    /**
+     * Los bits de las marcas: la marca de la posición i es el bit i % 64 del elemento i / 64
+     */
+    private AtomicLongArray bits;
+
+    /**
+     * Construye un conjunto sin marcas
+     * @param capacidad La cantidad de posiciones que se pueden marcar
+     */
+    public MarcasConcurrentes( int capacidad )
+    {
+        this.bits = new AtomicLongArray( ( capacidad + 63 ) / 64 );
+    }
+
+    /**
+     * Construye un conjunto con las mismas marcas de otro conjunto, pero con otra capacidad. Las marcas que no quepan se pierden.
+     * 
+     * Este constructor no debe usarse mientras otros hilos estén marcando posiciones en el otro conjunto.
+     * @param otro El conjunto del que se copian las marcas
+     * @param capacidad La cantidad de posiciones que se pueden marcar
+     */
+    public MarcasConcurrentes( MarcasConcurrentes otro, int capacidad )
+    {
+        this( capacidad );
+        for( int i = 0; i < Math.min( bits.length( ), otro.bits.length( ) ); i++ )
+        {
+            bits.set( i, otro.bits.get( i ) );
+        }
+    }
+
+    /**
+     * Marca una posición
+     * @param posicion La posición que se va a marcar
+     */
+    public void marcar( int posicion )
+    {
+        int elemento = posicion >>> 6;
+        long mascara = 1L << posicion;
+        if( ( bits.get( elemento ) & mascara ) == 0 )
+        {
+            long anterior;
+            do
+            {
+                anterior = bits.get( elemento );
+            } while( ( anterior & mascara ) == 0 && !bits.compareAndSet( elemento, anterior, anterior | mascara ) );
+        }
+    }
+
+    /**
+     * Indica si una posición está marcada
+     * @param posicion La posición
+     * @return true si la posición está marcada
+     */
+    public boolean estaMarcada( int posicion )
+    {
+        return ( bits.get( posicion >>> 6 ) & ( 1L << posicion ) ) != 0;
+    }
+
+    /**
+     * Quita todas las marcas y retorna las posiciones que estaban marcadas.
+     * 
+     * Cada grupo de 64 marcas se toma y se borra en un solo paso atómico, así que una marca que se ponga mientras se ejecuta este método queda en el resultado o queda
+     * puesta en el conjunto, pero nunca se pierde.
+     * @param limite Sólo se retornan las posiciones menores a este límite
+     * @return Un arreglo con las posiciones que estaban marcadas, en orden ascendente
+     */
+    public int[] tomarMarcas( int limite )
+    {
+        long[] tomados = new long[bits.length( )];
+        int cantidad = 0;
+        for( int i = 0; i < tomados.length; i++ )
+        {
+            if( bits.get( i ) != 0 )
+            {
+                tomados[ i ] = bits.getAndSet( i, 0 );
+                cantidad += Long.bitCount( tomados[ i ] );
+            }
+        }
+
+        int[] posiciones = new int[cantidad];
+        int siguiente = 0;
+        for( int i = 0; i < tomados.length; i++ )
+        {
+            long restantes = tomados[ i ];
+            while( restantes != 0 )
+            {
+                int posicion = i * 64 + Long.numberOfTrailingZeros( restantes );
+                if( posicion < limite )
+                {
+                    posiciones[ siguiente++ ] = posicion;
+                }
+                restantes &= restantes - 1;
+            }
+        }
+        return siguiente == posiciones.length ? posiciones : Arrays.copyOf( posiciones, siguiente );
+    }
+
+    /**
+     * Quita todas las marcas
+     */
+    public void limpiar( )
+    {
+        for( int i = 0; i < bits.length( ); i++ )
+        {
+            bits.set( i, 0 );
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package uniandes.dpoo.gasolinera.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Esta clase es una puerta por la que pasan muchos hilos al mismo tiempo (por ejemplo, los que hacen ventas) y que un hilo puede cerrar por un momento para ver
+ * todo el estado sin que nadie lo esté modificando (por ejemplo, para capturar el estado de la gasolinera).
+ *
+ * Los hilos que entran no usan candados: cada uno incrementa un contador de los que están adentro, y los contadores están repartidos en varias franjas separadas en
+ * memoria para que hilos distintos casi nunca modifiquen el mismo contador. Cerrar la puerta es más costoso: hay que esperar a que salgan todos los que estaban
+ * adentro, así que sólo debe hacerse de vez en cuando y por poco tiempo.
+ *
+ * Un hilo que ya está adentro no debe volver a entrar ni cerrar la puerta, porque si la puerta se cierra mientras tanto, el hilo se queda esperando a que él mismo
+ * salga.
+ */
+public class PuertaConcurrente
+{
+    /**
+     * La distancia entre los contadores de dos franjas, en cantidad de long. Así cada contador queda en una línea de caché distinta
+     */
+    private static final int SEPARACION = 16;
+
+    /**
+     * La cantidad de franjas menos 1. La cantidad de franjas es una potencia de 2
+     */
+    private final int mascara;
+
+    /**
+     * La cantidad de hilos que están adentro, por franja. El contador de la franja i está en la posición i * SEPARACION
+     */
+    private final AtomicLongArray adentro;
+
+    /**
+     * Indica si la puerta está cerrada
+     */
+    private volatile boolean cerrada;
+
+    /**
+     * El candado que tiene quien cerró la puerta, para que sólo un hilo la cierre a la vez
+     */
+    private final ReentrantLock cierre = new ReentrantLock( );
+
+    /**
+     * Construye una puerta abierta, con una cantidad de franjas que depende de la cantidad de procesadores
+     */
+    public PuertaConcurrente( )
+    {
+        int franjas = Integer.highestOneBit( Math.max( 1, Runtime.getRuntime( ).availableProcessors( ) ) * 2 - 1 ) * 2;
+        this.mascara = franjas - 1;
+        this.adentro = new AtomicLongArray( franjas * SEPARACION );
+    }
+
+    /**
+     * Entra por la puerta. Si la puerta está cerrada, espera a que se abra
+     * @return La franja por la que se entró, que se debe entregar al salir
+     */
+    public int entrar( )
+    {
+        int franja = franjaDelHilo( );
+        while( true )
+        {
+            while( cerrada )
+            {
+                Thread.yield( );
+            }
+            adentro.incrementAndGet( franja * SEPARACION );
+
+            // Si la puerta se cerró justo antes de entrar, quien la cerró puede estar esperando a que este contador vuelva a 0
+            if( !cerrada )
+            {
+                return franja;
+            }
+            adentro.decrementAndGet( franja * SEPARACION );
+        }
+    }
+
+    /**
+     * Sale por la puerta
+     * @param franja La franja que retornó entrar
+     */
+    public void salir( int franja )
+    {
+        adentro.decrementAndGet( franja * SEPARACION );
+    }
+
+    /**
+     * Cierra la puerta y espera a que salgan todos los que estaban adentro. Mientras la puerta esté cerrada, nadie puede entrar. El mismo hilo debe volver a abrir la
+     * puerta llamando abrir
+     */
+    public void cerrar( )
+    {
+        cierre.lock( );
+        cerrada = true;
+        for( int franja = 0; franja <= mascara; franja++ )
+        {
+            while( adentro.get( franja * SEPARACION ) != 0 )
+            {
+                Thread.yield( );
+            }
+        }
+    }
+
+    /**
+     * Abre la puerta que se había cerrado con cerrar
+     */
+    public void abrir( )
+    {
+        cerrada = false;
+        cierre.unlock( );
+    }
+
+    /**
+     * Escoge la franja del hilo actual a partir de su identificador
+     * @return La franja del hilo
+     */
+    private int franjaDelHilo( )
+    {
+        long id = Thread.currentThread( ).getId( );
+        return ( int )( ( id * 0x9E3779B97F4A7C15L ) >>> 40 ) & mascara;
+    }
+}
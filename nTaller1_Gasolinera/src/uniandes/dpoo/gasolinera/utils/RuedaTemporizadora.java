@@ -0,0 +1,202 @@
+package uniandes.dpoo.gasolinera.utils;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Esta clase ejecuta tareas cuando vence su plazo, usando una rueda de tiempo: un arreglo circular de casillas donde cada casilla corresponde a un intervalo de tiempo
+ * (un "tic"). Un solo hilo avanza la rueda una casilla por tic y ejecuta las tareas de esa casilla que ya vencieron.
+ *
+ * Programar o cancelar una tarea cuesta O(1) y no usa candados: la tarea se agrega a una cola concurrente, y el hilo de la rueda la pasa a su casilla en el siguiente
+ * tic. Así, cientos de plazos pendientes no necesitan un hilo cada uno ni compiten por un candado. Las tareas con un plazo más largo que una vuelta completa de la rueda
+ * se quedan en su casilla hasta la vuelta en la que vencen.
+ *
+ * Las tareas se ejecutan en el hilo de la rueda, así que deben ser cortas. Una tarea nunca se ejecuta antes de su plazo, y se ejecuta como máximo un tic después.
+ */
+public class RuedaTemporizadora
+{
+    /**
+     * La duración de cada tic, en nanosegundos
+     */
+    private final long nanosPorTic;
+
+    /**
+     * La cantidad de casillas menos 1. La cantidad de casillas es una potencia de 2
+     */
+    private final int mascara;
+
+    /**
+     * Las tareas de cada casilla. Sólo el hilo de la rueda usa las casillas
+     */
+    private final ArrayDeque<Tarea>[] casillas;
+
+    /**
+     * Las tareas programadas que el hilo de la rueda todavía no ha pasado a su casilla
+     */
+    private final ConcurrentLinkedQueue<Tarea> nuevas = new ConcurrentLinkedQueue<Tarea>( );
+
+    /**
+     * El momento en el que empezó la rueda, según System.nanoTime. El tic n empieza en inicio + n * nanosPorTic, y se procesa cuando ya empezó
+     */
+    private final long inicio;
+
+    /**
+     * El último tic que procesó el hilo de la rueda. Sólo lo usa el hilo de la rueda
+     */
+    private long ticProcesado = -1;
+
+    /**
+     * El hilo que avanza la rueda
+     */
+    private final ScheduledExecutorService hilo;
+
+    /**
+     * Construye una rueda y empieza a avanzarla
+     * @param duracionTic La duración de cada tic. Es la precisión con la que se ejecutan las tareas
+     * @param unidad La unidad de la duración del tic
+     * @param cantidadCasillas La cantidad de casillas de la rueda. Se redondea a la siguiente potencia de 2
+     * @param nombre El nombre del hilo de la rueda
+     */
+    public RuedaTemporizadora( long duracionTic, TimeUnit unidad, int cantidadCasillas, String nombre )
+    {
+        this.nanosPorTic = Math.max( unidad.toNanos( duracionTic ), 1 );
+        int casillasRedondeadas = Integer.highestOneBit( Math.max( cantidadCasillas, 2 ) * 2 - 1 );
+        this.mascara = casillasRedondeadas - 1;
+        // Java no permite crear arreglos de un tipo genérico: se crea el arreglo sin tipo y se llena sólo con casillas de tareas
+        @SuppressWarnings( "unchecked" )
+        ArrayDeque<Tarea>[] lasCasillas = ( ArrayDeque<Tarea>[] )new ArrayDeque<?>[casillasRedondeadas];
+        for( int i = 0; i < casillasRedondeadas; i++ )
+        {
+            lasCasillas[ i ] = new ArrayDeque<Tarea>( );
+        }
+        this.casillas = lasCasillas;
+        this.inicio = System.nanoTime( );
+        this.hilo = Executors.newSingleThreadScheduledExecutor( r -> {
+            Thread elHilo = new Thread( r, nombre );
+            elHilo.setDaemon( true );
+            return elHilo;
+        } );
+        hilo.scheduleAtFixedRate( this::avanzar, nanosPorTic, nanosPorTic, TimeUnit.NANOSECONDS );
+    }
+
+    /**
+     * Programa una tarea para que se ejecute cuando pase un plazo
+     * @param accion Lo que se ejecuta cuando vence el plazo
+     * @param plazo El plazo
+     * @param unidad La unidad del plazo
+     * @return La tarea programada, que se puede cancelar
+     */
+    public Tarea programar( Runnable accion, long plazo, TimeUnit unidad )
+    {
+        long transcurrido = System.nanoTime( ) - inicio + unidad.toNanos( Math.max( plazo, 0 ) );
+        Tarea tarea = new Tarea( accion, ( transcurrido + nanosPorTic - 1 ) / nanosPorTic );
+        nuevas.add( tarea );
+        return tarea;
+    }
+
+    /**
+     * Detiene la rueda. Las tareas pendientes ya no se ejecutan
+     */
+    public void detener( )
+    {
+        hilo.shutdownNow( );
+    }
+
+    /**
+     * Avanza la rueda hasta el tic actual, procesando cada tic que haya pasado desde la última vez. Sólo lo llama el hilo de la rueda
+     */
+    private void avanzar( )
+    {
+        long ticActual = ( System.nanoTime( ) - inicio ) / nanosPorTic;
+        for( long tic = ticProcesado + 1; tic <= ticActual; tic++ )
+        {
+            // Pasar las tareas nuevas a sus casillas, o ejecutarlas si ya vencieron
+            Tarea tarea = nuevas.poll( );
+            while( tarea != null )
+            {
+                if( !tarea.cancelada )
+                {
+                    if( tarea.vencimiento <= tic )
+                    {
+                        tarea.ejecutar( );
+                    }
+                    else
+                    {
+                        casillas[ ( int )( tarea.vencimiento & mascara ) ].add( tarea );
+                    }
+                }
+                tarea = nuevas.poll( );
+            }
+
+            // Ejecutar las tareas de la casilla que ya vencieron. Las que vencen en una vuelta posterior se quedan
+            Iterator<Tarea> iterador = casillas[ ( int )( tic & mascara ) ].iterator( );
+            while( iterador.hasNext( ) )
+            {
+                tarea = iterador.next( );
+                if( tarea.cancelada || tarea.vencimiento <= tic )
+                {
+                    iterador.remove( );
+                    if( !tarea.cancelada )
+                    {
+                        tarea.ejecutar( );
+                    }
+                }
+            }
+            ticProcesado = tic;
+        }
+    }
+
+    /**
+     * Una tarea programada en la rueda
+     */
+    public static class Tarea
+    {
+        /**
+         * Lo que se ejecuta cuando vence el plazo
+         */
+        private final Runnable accion;
+
+        /**
+         * El tic en el que vence la tarea
+         */
+        private final long vencimiento;
+
+        /**
+         * Indica si la tarea se canceló antes de vencer
+         */
+        private volatile boolean cancelada;
+
+        private Tarea( Runnable accion, long vencimiento )
+        {
+            this.accion = accion;
+            this.vencimiento = vencimiento;
+        }
+
+        /**
+         * Cancela la tarea. Si todavía no ha vencido, ya no se ejecutará; la rueda la descarta la próxima vez que pase por su casilla
+         */
+        public void cancelar( )
+        {
+            cancelada = true;
+        }
+
+        /**
+         * Ejecuta la acción de la tarea. Si falla, el error no detiene la rueda
+         */
+        private void ejecutar( )
+        {
+            try
+            {
+                accion.run( );
+            }
+            catch( RuntimeException e )
+            {
+                // Una tarea que falla no debe impedir que se ejecuten las demás
+            }
+        }
+    }
+}
@@ -1,13 +1,179 @@
 package uniandes.dpoo.gasolinera.utils;
 
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Esta clase selecciona opciones al azar y construye las estrategias para repartir puestos entre opciones (ver EstrategiaAsignacion):
+ * <ul>
+ * <li>alAzar: cada puesto recibe una opción al azar, con un SplittableRandom. Con una semilla, el reparto siempre es el mismo.</li>
+ * <li>rotando: los puestos se reparten en orden, uno para cada opción, y se vuelve a empezar.</li>
+ * <li>menosCargado: cada puesto se le asigna a la opción con menos puestos, teniendo en cuenta los que ya tenía. Las opciones se mantienen en un montículo
+ * ordenado por carga, así que cada puesto cuesta O(log opciones).</li>
+ * </ul>
+ * Ninguna estrategia crea objetos por puesto: sólo el arreglo con el resultado.
+ */
 public class Sorteo<E>
 {
     public static <E> E seleccionarAlAzar( E[] opciones )
     {
         E seleccionado = null;
-        double cantidad = opciones.length;
-        int posicion = ( int ) ( Math.random( ) * cantidad );
+        int posicion = ThreadLocalRandom.current( ).nextInt( opciones.length );
         seleccionado = opciones[ posicion ];
         return seleccionado;
     }
+
+    /**
+     * Construye una estrategia que asigna opciones al azar, con una semilla distinta cada vez
+     * @return La estrategia
+     */
+    public static EstrategiaAsignacion alAzar( )
+    {
+        return new AsignacionAlAzar( new SplittableRandom( ) );
+    }
+
+    /**
+     * Construye una estrategia que asigna opciones al azar a partir de una semilla. Dos estrategias con la misma semilla hacen el mismo reparto
+     * @param semilla La semilla de los números aleatorios
+     * @return La estrategia
+     */
+    public static EstrategiaAsignacion alAzar( long semilla )
+    {
+        return new AsignacionAlAzar( new SplittableRandom( semilla ) );
+    }
+
+    /**
+     * Construye una estrategia que reparte los puestos en orden entre las opciones
+     * @return La estrategia
+     */
+    public static EstrategiaAsignacion rotando( )
+    {
+        return new AsignacionRotando( );
+    }
+
+    /**
+     * Construye una estrategia que le asigna cada puesto a la opción con menos puestos. Si hay un empate, gana la opción de menor posición
+     * @return La estrategia
+     */
+    public static EstrategiaAsignacion menosCargado( )
+    {
+        return new AsignacionMenosCargado( );
+    }
+
+    /**
+     * Asigna cada puesto a una opción al azar
+     */
+    private static class AsignacionAlAzar implements EstrategiaAsignacion
+    {
+        private final SplittableRandom aleatorio;
+
+        private AsignacionAlAzar( SplittableRandom aleatorio )
+        {
+            this.aleatorio = aleatorio;
+        }
+
+        @Override
+        public int[] asignar( int cantidadPuestos, int[] cargas )
+        {
+            int[] asignaciones = new int[cantidadPuestos];
+            for( int i = 0; i < cantidadPuestos; i++ )
+            {
+                asignaciones[ i ] = aleatorio.nextInt( cargas.length );
+                cargas[ asignaciones[ i ] ]++;
+            }
+            return asignaciones;
+        }
+    }
+
+    /**
+     * Asigna los puestos en orden. La rotación sigue donde quedó la vez anterior
+     */
+    private static class AsignacionRotando implements EstrategiaAsignacion
+    {
+        private int siguiente;
+
+        @Override
+        public int[] asignar( int cantidadPuestos, int[] cargas )
+        {
+            int[] asignaciones = new int[cantidadPuestos];
+            for( int i = 0; i < cantidadPuestos; i++ )
+            {
+                if( siguiente >= cargas.length )
+                {
+                    siguiente = 0;
+                }
+                asignaciones[ i ] = siguiente;
+                cargas[ siguiente ]++;
+                siguiente++;
+            }
+            return asignaciones;
+        }
+    }
+
+    /**
+     * Asigna cada puesto a la opción menos cargada, usando un montículo binario de posiciones de opciones ordenado por carga y luego por posición
+     */
+    private static class AsignacionMenosCargado implements EstrategiaAsignacion
+    {
+        @Override
+        public int[] asignar( int cantidadPuestos, int[] cargas )
+        {
+            int cantidadOpciones = cargas.length;
+            int[] monticulo = new int[cantidadOpciones];
+            for( int i = 0; i < cantidadOpciones; i++ )
+            {
+                monticulo[ i ] = i;
+            }
+            for( int i = cantidadOpciones / 2 - 1; i >= 0; i-- )
+            {
+                hundir( monticulo, cargas, i );
+            }
+
+            // La opción menos cargada siempre está en la raíz: se le asigna el puesto y se hunde con su nueva carga
+            int[] asignaciones = new int[cantidadPuestos];
+            for( int i = 0; i < cantidadPuestos; i++ )
+            {
+                int opcion = monticulo[ 0 ];
+                asignaciones[ i ] = opcion;
+                cargas[ opcion ]++;
+                hundir( monticulo, cargas, 0 );
+            }
+            return asignaciones;
+        }
+
+        /**
+         * Baja una opción del montículo hasta que quede por encima de sus hijos
+         * @param monticulo Las posiciones de las opciones
+         * @param cargas Las cargas de las opciones
+         * @param posicion La posición en el montículo de la opción que se baja
+         */
+        private static void hundir( int[] monticulo, int[] cargas, int posicion )
+        {
+            int opcion = monticulo[ posicion ];
+            int hijo = 2 * posicion + 1;
+            while( hijo < monticulo.length )
+            {
+                if( hijo + 1 < monticulo.length && menor( monticulo[ hijo + 1 ], monticulo[ hijo ], cargas ) )
+                {
+                    hijo++;
+                }
+                if( !menor( monticulo[ hijo ], opcion, cargas ) )
+                {
+                    break;
+                }
+                monticulo[ posicion ] = monticulo[ hijo ];
+                posicion = hijo;
+                hijo = 2 * posicion + 1;
+            }
+            monticulo[ posicion ] = opcion;
+        }
+
+        /**
+         * Indica si una opción va antes que otra en el montículo: si tiene menos carga o, con la misma carga, si su posición es menor
+         */
+        private static boolean menor( int opcion, int otra, int[] cargas )
+        {
+            return cargas[ opcion ] < cargas[ otra ] || ( cargas[ opcion ] == cargas[ otra ] && opcion < otra );
+        }
+    }
 }
@@ -0,0 +1,177 @@
+package uniandes.dpoo.gasolinera.rendimiento;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import uniandes.dpoo.gasolinera.logica.Empleado;
+import uniandes.dpoo.gasolinera.logica.Gasolinera;
+import uniandes.dpoo.gasolinera.logica.RegistroTiposGasolina;
+import uniandes.dpoo.gasolinera.logica.TablaSurtidores;
+import uniandes.dpoo.gasolinera.logica.TipoGasolina;
+import uniandes.dpoo.gasolinera.persistencia.InstantaneaBinaria;
+import uniandes.dpoo.gasolinera.persistencia.LectorGasolinera;
+
+/**
+ * Este programa compara el tiempo que toma cargar una gasolinera grande de tres formas:
+ *
+ * 1. Como se cargaba antes: partiendo cada línea con split y convirtiendo cada campo con Integer.parseInt y Double.parseDouble.
+ *
+ * 2. Con LectorGasolinera, que lee los caracteres directamente sin partir las líneas.
+ *
+ * 3. Desde el archivo binario de InstantaneaBinaria, como referencia.
+ *
+ * El programa genera los archivos en una carpeta temporal y los borra al terminar. Cada forma se repite varias veces y se reporta el mejor tiempo, para no medir el
+ * calentamiento de la máquina virtual. Conviene ejecutarlo con suficiente memoria, por ejemplo -Xmx2g. El primer argumento, si lo hay, es la cantidad de surtidores.
+ */
+public class ComparacionCargaGasolinera
+{
+    private static final int CANTIDAD_SURTIDORES = 1000000;
+
+    private static final int CANTIDAD_TIPOS = 5;
+
+    private static final int CANTIDAD_EMPLEADOS = 50;
+
+    private static final int REPETICIONES = 5;
+
+    /**
+     * Reproduce la forma en la que Gasolinera.cargarEstado leía el archivo de texto antes de LectorGasolinera
+     */
+    private static Gasolinera cargarConSplit( File archivo ) throws IOException
+    {
+        Map<String, TipoGasolina> tipos = new LinkedHashMap<String, TipoGasolina>( );
+        Map<String, Empleado> empleados = new HashMap<String, Empleado>( );
+        TablaSurtidores surtidores = null;
+
+        BufferedReader br = new BufferedReader( new FileReader( archivo ) );
+        String line = br.readLine( );
+        while( line != null )
+        {
+            String[] partes = line.split( ":" );
+            if( partes[ 0 ].equals( "tipo" ) )
+            {
+                String nombre = partes[ 1 ];
+                tipos.put( nombre, new TipoGasolina( nombre, Integer.parseInt( partes[ 2 ] ), Double.parseDouble( partes[ 3 ] ) ) );
+            }
+            else if( partes[ 0 ].equals( "surtidor" ) )
+            {
+                String nombreEmpleado = partes[ 1 ];
+                if( !empleados.containsKey( nombreEmpleado ) )
+                {
+                    empleados.put( nombreEmpleado, new Empleado( nombreEmpleado ) );
+                }
+                if( surtidores == null )
+                {
+                    surtidores = new TablaSurtidores( new RegistroTiposGasolina( tipos.values( ) ), 16 );
+                }
+                int numeroSurtidor = surtidores.agregarSurtidor( empleados.get( nombreEmpleado ) );
+                for( int pos = 2; pos < partes.length; pos += 2 )
+                {
+                    int idTipo = surtidores.getTiposGasolina( ).getIdentificador( partes[ pos ] );
+                    double cantidad = Double.parseDouble( partes[ pos + 1 ] );
+                    if( idTipo != -1 )
+                    {
+                        surtidores.cambiarGalonesVendidos( numeroSurtidor, idTipo, cantidad );
+                    }
+                }
+            }
+            else if( partes[ 0 ].equals( "empleado" ) )
+            {
+                String nombreEmpleado = partes[ 1 ];
+                if( !empleados.containsKey( nombreEmpleado ) )
+                {
+                    empleados.put( nombreEmpleado, new Empleado( nombreEmpleado ) );
+                }
+                empleados.get( nombreEmpleado ).agregarDinero( Integer.parseInt( partes[ 2 ] ) );
+            }
+            line = br.readLine( );
+        }
+        br.close( );
+        return new Gasolinera( surtidores, empleados.values( ) );
+    }
+
+    /**
+     * Escribe el archivo de texto de una gasolinera grande, con galones vendidos aleatorios
+     */
+    private static void generarArchivo( File archivo, int cantidadSurtidores ) throws IOException
+    {
+        Random aleatorio = new Random( 42 );
+        PrintWriter writer = new PrintWriter( archivo );
+        for( int i = 0; i < CANTIDAD_TIPOS; i++ )
+        {
+            writer.println( "tipo:tipo" + i + ":" + ( 10000 + i ) + ":" + 1000000.0 );
+        }
+        for( int i = 0; i < cantidadSurtidores; i++ )
+        {
+            writer.print( "surtidor:empleado" + aleatorio.nextInt( CANTIDAD_EMPLEADOS ) );
+            for( int t = 0; t < CANTIDAD_TIPOS; t++ )
+            {
+                writer.print( ":tipo" + t + ":" + TipoGasolina.aGalones( aleatorio.nextInt( 500000000 ) ) );
+            }
+            writer.println( );
+        }
+        for( int i = 0; i < CANTIDAD_EMPLEADOS; i++ )
+        {
+            writer.println( "empleado:empleado" + i + ":" + aleatorio.nextInt( 1000000 ) );
+        }
+        writer.close( );
+    }
+
+    /**
+     * Una forma de cargar la gasolinera
+     */
+    private interface Carga
+    {
+        Gasolinera cargar( File archivo ) throws IOException;
+    }
+
+    /**
+     * Carga la gasolinera varias veces y reporta el mejor tiempo
+     */
+    private static void medir( String nombre, Carga carga, File archivo, int cantidadSurtidores ) throws IOException
+    {
+        long mejor = Long.MAX_VALUE;
+        for( int i = 0; i < REPETICIONES; i++ )
+        {
+            long inicio = System.nanoTime( );
+            Gasolinera g = carga.cargar( archivo );
+            long tiempo = System.nanoTime( ) - inicio;
+            if( g.getCantidadSurtidores( ) != cantidadSurtidores )
+            {
+                throw new IllegalStateException( nombre + " cargó " + g.getCantidadSurtidores( ) + " surtidores" );
+            }
+            mejor = Math.min( mejor, tiempo );
+        }
+        System.out.printf( "%-28s %8.1f ms (%6.0f ns por surtidor)%n", nombre, mejor / 1e6, ( double )mejor / cantidadSurtidores );
+    }
+
+    public static void main( String[] args ) throws IOException
+    {
+        int cantidadSurtidores = args.length > 0 ? Integer.parseInt( args[ 0 ] ) : CANTIDAD_SURTIDORES;
+
+        File texto = File.createTempFile( "gasolinera", ".gas" );
+        File binario = File.createTempFile( "gasolinera", ".gasb" );
+        try
+        {
+            generarArchivo( texto, cantidadSurtidores );
+            Gasolinera original = cargarConSplit( texto );
+            original.guardarEstadoBinario( binario );
+            System.out.println( cantidadSurtidores + " surtidores: texto de " + texto.length( ) / 1024 + " KB, binario de " + binario.length( ) / 1024 + " KB" );
+
+            medir( "Con split", ComparacionCargaGasolinera::cargarConSplit, texto, cantidadSurtidores );
+            medir( "Con LectorGasolinera", archivo -> new LectorGasolinera( new FileReader( archivo ), archivo.getPath( ) ).leer( ), texto, cantidadSurtidores );
+            medir( "Con InstantaneaBinaria", InstantaneaBinaria::cargar, binario, cantidadSurtidores );
+        }
+        finally
+        {
+            texto.delete( );
+            binario.delete( );
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package uniandes.dpoo.gasolinera.rendimiento;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import uniandes.dpoo.gasolinera.logica.Empleado;
+import uniandes.dpoo.gasolinera.logica.RegistroTiposGasolina;
+import uniandes.dpoo.gasolinera.logica.TablaSurtidores;
+import uniandes.dpoo.gasolinera.logica.TipoGasolina;
+
+/**
+ * Este programa compara la memoria que ocupan los surtidores de una gasolinera grande guardados de dos formas:
+ * 
+ * 1. Como se guardaban antes: un objeto por surtidor, cada uno con su propio HashMap de nombres de tipo a galones en Double.
+ * 
+ * 2. En una TablaSurtidores, con todos los galones en un solo arreglo de long.
+ * 
+ * La memoria se mide como la diferencia en el heap usado antes y después de construir los surtidores, así que el resultado es aproximado. Para resultados más
+ * estables conviene ejecutarlo con un heap fijo, por ejemplo -Xms1g -Xmx1g.
+ */
+public class ComparacionMemoriaSurtidores
+{
+    private static final int CANTIDAD_SURTIDORES = 100000;
+
+    private static final int CANTIDAD_TIPOS = 10;
+
+    private static final int CANTIDAD_EMPLEADOS = 50;
+
+    /**
+     * Reproduce la forma en la que un Surtidor guardaba su información antes de la TablaSurtidores
+     */
+    private static class SurtidorConMapa
+    {
+        private Map<String, Double> galonesVendidos;
+
+        private Map<String, TipoGasolina> tiposGasolina;
+
+        private Empleado empleadoAsignado;
+
+        SurtidorConMapa( Map<String, TipoGasolina> tiposGasolina, Empleado empleado )
+        {
+            this.tiposGasolina = tiposGasolina;
+            this.empleadoAsignado = empleado;
+            this.galonesVendidos = new HashMap<String, Double>( );
+            for( String nombreTipo : tiposGasolina.keySet( ) )
+            {
+                // Después de las ventas cada surtidor tiene su propio Double por tipo
+                galonesVendidos.put( nombreTipo, Double.valueOf( Math.random( ) ) );
+            }
+        }
+    }
+
+    public static void main( String[] args )
+    {
+        List<TipoGasolina> tipos = new ArrayList<TipoGasolina>( );
+        Map<String, TipoGasolina> mapaTipos = new HashMap<String, TipoGasolina>( );
+        for( int i = 0; i < CANTIDAD_TIPOS; i++ )
+        {
+            TipoGasolina tipo = new TipoGasolina( "tipo" + i, 10000 + i, 1000000 );
+            tipos.add( tipo );
+            mapaTipos.put( tipo.getNombre( ), tipo );
+        }
+        Empleado[] empleados = new Empleado[CANTIDAD_EMPLEADOS];
+        for( int i = 0; i < empleados.length; i++ )
+        {
+            empleados[ i ] = new Empleado( "empleado" + i );
+        }
+
+        long antes = memoriaUsada( );
+        SurtidorConMapa[] conMapas = new SurtidorConMapa[CANTIDAD_SURTIDORES];
+        for( int i = 0; i < CANTIDAD_SURTIDORES; i++ )
+        {
+            conMapas[ i ] = new SurtidorConMapa( mapaTipos, empleados[ i % empleados.length ] );
+        }
+        long memoriaMapas = memoriaUsada( ) - antes;
+        System.out.println( "Surtidores con un HashMap cada uno: " + memoriaMapas / 1024 + " KB (" + memoriaMapas / CANTIDAD_SURTIDORES + " bytes por surtidor)" );
+
+        // Usar los surtidores después de medir para que no se recojan antes de tiempo, y luego liberarlos
+        System.out.println( "(" + conMapas.length + " surtidores, " + conMapas[ 0 ].galonesVendidos.size( ) + " tipos de gasolina)" );
+        conMapas = null;
+
+        antes = memoriaUsada( );
+        TablaSurtidores tabla = new TablaSurtidores( new RegistroTiposGasolina( tipos ), CANTIDAD_SURTIDORES );
+        for( int i = 0; i < CANTIDAD_SURTIDORES; i++ )
+        {
+            int numero = tabla.agregarSurtidor( empleados[ i % empleados.length ] );
+            for( int t = 0; t < CANTIDAD_TIPOS; t++ )
+            {
+                tabla.cambiarGalonesVendidos( numero, t, Math.random( ) );
+            }
+        }
+        long memoriaTabla = memoriaUsada( ) - antes;
+        System.out.println( "TablaSurtidores: " + memoriaTabla / 1024 + " KB (" + memoriaTabla / CANTIDAD_SURTIDORES + " bytes por surtidor)" );
+
+        System.out.println( "(" + tabla.getCantidadSurtidores( ) + " surtidores, " + CANTIDAD_TIPOS + " tipos de gasolina)" );
+    }
+
+    /**
+     * Calcula la memoria usada en el heap después de pedirle a la máquina virtual que recoja la basura
+     * @return La cantidad de bytes usados
+     */
+    private static long memoriaUsada( )
+    {
+        Runtime runtime = Runtime.getRuntime( );
+        for( int i = 0; i < 3; i++ )
+        {
+            System.gc( );
+            try
+            {
+                Thread.sleep( 100 );
+            }
+            catch( InterruptedException e )
+            {
+                Thread.currentThread( ).interrupt( );
+            }
+        }
+        return runtime.totalMemory( ) - runtime.freeMemory( );
+    }
+}
@@ -0,0 +1,139 @@
+package uniandes.dpoo.gasolinera.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import uniandes.dpoo.gasolinera.eventos.BusVentas;
+import uniandes.dpoo.gasolinera.eventos.ConsumidorVentas;
+import uniandes.dpoo.gasolinera.eventos.Contrapresion;
+
+class BusVentasTest
+{
+    @Test
+    public void testCapacidad( )
+    {
+        assertEquals( 16, new BusVentas( 10, true ).getCapacidad( ), "La capacidad debería redondearse a una potencia de 2" );
+        assertEquals( 16, new BusVentas( 16, true ).getCapacidad( ), "Una potencia de 2 no debería cambiar" );
+    }
+
+    @Test
+    public void testBloquearRecibeTodo( ) throws Exception
+    {
+        final BusVentas bus = new BusVentas( 16, false );
+        final AtomicLong recibidos = new AtomicLong( );
+        final AtomicLong suma = new AtomicLong( );
+        final AtomicLong desordenados = new AtomicLong( );
+        final long[] anterior = new long[]{ -1 };
+        ConsumidorVentas consumidor = bus.agregarConsumidor( evento -> {
+            if( evento.getSecuencia( ) != anterior[ 0 ] + 1 )
+                desordenados.incrementAndGet( );
+            anterior[ 0 ] = evento.getSecuencia( );
+            recibidos.incrementAndGet( );
+            suma.addAndGet( evento.getPrecio( ) + evento.getMicrogalones( ) );
+        }, Contrapresion.BLOQUEAR );
+
+        // Varios hilos publican muchos más eventos de los que caben en el anillo
+        final int hilos = 4;
+        final int porHilo = 5000;
+        List<Thread> productores = new ArrayList<Thread>( );
+        for( int h = 0; h < hilos; h++ )
+        {
+            Thread productor = new Thread( ( ) -> {
+                for( int i = 1; i <= porHilo; i++ )
+                {
+                    bus.publicar( 0, 0, 0, 1, i, i );
+                }
+            } );
+            productores.add( productor );
+            productor.start( );
+        }
+        for( Thread productor : productores )
+        {
+            productor.join( );
+        }
+        bus.detener( );
+
+        long esperada = hilos * 2L * porHilo * ( porHilo + 1 ) / 2;
+        assertEquals( hilos * porHilo, recibidos.get( ), "Un consumidor que bloquea debería recibir todos los eventos" );
+        assertEquals( esperada, suma.get( ), "Los eventos no deberían llegar mezclados" );
+        assertEquals( 0, desordenados.get( ), "Los eventos deberían llegar en orden" );
+        assertEquals( 0, consumidor.getDescartados( ), "Un consumidor que bloquea no debería perder eventos" );
+    }
+
+    @Test
+    public void testDescartarNoBloquea( ) throws Exception
+    {
+        BusVentas bus = new BusVentas( 8, true );
+        final CountDownLatch primero = new CountDownLatch( 1 );
+        final CountDownLatch continuar = new CountDownLatch( 1 );
+        ConsumidorVentas consumidor = bus.agregarConsumidor( evento -> {
+            if( evento.getSecuencia( ) == 0 )
+            {
+                primero.countDown( );
+                try
+                {
+                    continuar.await( );
+                }
+                catch( InterruptedException e )
+                {
+                    Thread.currentThread( ).interrupt( );
+                }
+            }
+        }, Contrapresion.DESCARTAR );
+
+        // El consumidor se queda procesando el primer evento mientras se publican los demás, que no caben en el anillo
+        bus.publicar( 0, 0, 0, 1, 1, 1 );
+        assertTrue( primero.await( 5, TimeUnit.SECONDS ), "El consumidor debería recibir el primer evento" );
+        for( int i = 1; i < 100; i++ )
+        {
+            bus.publicar( 0, 0, 0, 1, 1, 1 );
+        }
+        continuar.countDown( );
+        bus.detener( );
+
+        assertTrue( consumidor.getDescartados( ) > 0, "El consumidor lento debería perder eventos" );
+        assertEquals( 100, consumidor.getProcesados( ) + consumidor.getDescartados( ), "Cada evento debería procesarse o contarse como perdido" );
+    }
+
+    @Test
+    public void testMuestrear( ) throws Exception
+    {
+        BusVentas bus = new BusVentas( 256, true );
+        final AtomicLong recibidos = new AtomicLong( );
+        ConsumidorVentas consumidor = bus.agregarConsumidor( evento -> recibidos.incrementAndGet( ), Contrapresion.MUESTREAR, 10 );
+        for( int i = 0; i < 100; i++ )
+        {
+            bus.publicar( 0, 0, 0, 1, 1, 1 );
+        }
+        bus.detener( );
+
+        assertEquals( 10, recibidos.get( ), "El consumidor debería recibir uno de cada 10 eventos" );
+        assertEquals( 90, consumidor.getOmitidos( ), "Los demás eventos deberían contarse como omitidos" );
+    }
+
+    @Test
+    public void testOyenteQueFalla( ) throws Exception
+    {
+        BusVentas bus = new BusVentas( 16, true );
+        ConsumidorVentas consumidor = bus.agregarConsumidor( evento -> {
+            if( evento.getSecuencia( ) % 2 == 0 )
+                throw new IllegalStateException( "Falla a propósito" );
+        }, Contrapresion.BLOQUEAR );
+        for( int i = 0; i < 40; i++ )
+        {
+            bus.publicar( 0, 0, 0, 1, 1, 1 );
+        }
+        bus.detener( );
+
+        assertEquals( 40, consumidor.getProcesados( ), "Un oyente que falla no debería detener al consumidor" );
+        assertEquals( 20, consumidor.getErrores( ), "Las fallas del oyente deberían contarse" );
+    }
+}
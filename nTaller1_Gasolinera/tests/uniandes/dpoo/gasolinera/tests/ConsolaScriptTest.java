@@ -0,0 +1,144 @@
+package uniandes.dpoo.gasolinera.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import uniandes.dpoo.gasolinera.consola.ConsolaScript;
+import uniandes.dpoo.gasolinera.logica.Empleado;
+import uniandes.dpoo.gasolinera.logica.Gasolinera;
+import uniandes.dpoo.gasolinera.logica.TipoGasolina;
+
+class ConsolaScriptTest
+{
+    private static final String CORRIENTE = "corriente";
+    private static final String EXTRA = "extra";
+
+    @TempDir
+    File carpeta;
+
+    private File archivo;
+
+    private ByteArrayOutputStream salida;
+
+    private ByteArrayOutputStream salidaErrores;
+
+    @BeforeEach
+    void setUp( ) throws Exception
+    {
+        List<TipoGasolina> tipos = new LinkedList<TipoGasolina>( );
+        tipos.add( new TipoGasolina( CORRIENTE, 14500, 100 ) );
+        tipos.add( new TipoGasolina( EXTRA, 21090, 5 ) );
+        Gasolinera gasolinera = new Gasolinera( 3, tipos, new String[]{ "Alice", "Bob" } );
+        archivo = new File( carpeta, "inicial.gas" );
+        gasolinera.guardarEstado( archivo );
+        salida = new ByteArrayOutputStream( );
+        salidaErrores = new ByteArrayOutputStream( );
+    }
+
+    /**
+     * Ejecuta un script y retorna la consola que lo ejecutó
+     */
+    private ConsolaScript ejecutar( String script ) throws Exception
+    {
+        ConsolaScript consola = new ConsolaScript( new BufferedReader( new StringReader( script ) ), new PrintStream( salida, true, "UTF-8" ),
+                new PrintStream( salidaErrores, true, "UTF-8" ) );
+        consola.ejecutar( );
+        return consola;
+    }
+
+    /**
+     * Suma el dinero de todos los empleados de una gasolinera
+     */
+    private long sumarDineroEmpleados( Gasolinera gasolinera )
+    {
+        long dinero = 0;
+        for( Empleado empleado : gasolinera.getEmpleados( ) )
+        {
+            dinero += empleado.getCantidadDinero( );
+        }
+        return dinero;
+    }
+
+    @Test
+    public void testVentas( ) throws Exception
+    {
+        String script = "# Un script de prueba\n" + "load " + archivo.getPath( ) + "\n\n" + "sell-volume 0 corriente 2\n" + "sell-price 1 corriente 14500\n"
+                + "   sell-volume  2  extra  10  \n" + "report\n";
+        ConsolaScript consola = ejecutar( script );
+        Gasolinera gasolinera = consola.getGasolinera( );
+
+        assertEquals( 0, consola.getErrores( ), "El script no debería tener errores" );
+        assertEquals( 5, consola.getComandos( ), "No deberían contarse los comentarios ni las líneas vacías" );
+        assertEquals( 97, gasolinera.getTipoGasolina( CORRIENTE ).getCantidadDisponible( ), 0.0001, "La cantidad de corriente no es correcta" );
+        assertEquals( 0, gasolinera.getTipoGasolina( EXTRA ).getCantidadDisponible( ), 0.0001, "La cantidad de extra no es correcta" );
+        assertEquals( 14500 * 3 + 21090 * 5, sumarDineroEmpleados( gasolinera ), "El dinero de los empleados no es correcto" );
+
+        String reporte = salida.toString( "UTF-8" );
+        assertTrue( reporte.contains( "Ventas: 3 (1 incompletas)" ), "El reporte debería contar las ventas: " + reporte );
+        assertTrue( reporte.contains( "Surtidores: 3" ), "El reporte debería mostrar los surtidores: " + reporte );
+    }
+
+    @Test
+    public void testCambiarPrecio( ) throws Exception
+    {
+        String script = "load " + archivo.getPath( ) + "\n" + "sell-volume 0 corriente 2\n" + "price corriente 15000\n" + "sell-volume 1 corriente 1\n"
+                + "price corriente 0\n" + "report\n";
+        ConsolaScript consola = ejecutar( script );
+
+        assertEquals( 1, consola.getErrores( ), "El precio 0 debería rechazarse" );
+        assertEquals( 14500 * 2 + 15000, sumarDineroEmpleados( consola.getGasolinera( ) ), "Cada venta debería cobrarse con su precio" );
+        String reporte = salida.toString( "UTF-8" );
+        assertTrue( reporte.contains( "precio v1 (14500): 2.00 galones vendidos por 29000 pesos" ), "El reporte debería mostrar la primera versión: " + reporte );
+        assertTrue( reporte.contains( "precio v2 (15000): 1.00 galones vendidos por 15000 pesos" ), "El reporte debería mostrar la segunda versión: " + reporte );
+    }
+
+    @Test
+    public void testErrores( ) throws Exception
+    {
+        String script = "sell-volume 0 corriente 1\n" + "load " + archivo.getPath( ) + "\n" + "sell-volume 7 corriente 1\n" + "sell-volume 0 diesel 1\n"
+                + "sell-volume 0 corriente -1\n" + "sell-price 0 corriente 10.5\n" + "sell-volume 0 corriente 1 sobra\n" + "fill 0\n" + "sell-volume 0 corriente 1\n";
+        ConsolaScript consola = ejecutar( script );
+
+        assertEquals( 7, consola.getErrores( ), "Deberían contarse todas las líneas con errores" );
+        assertEquals( 99, consola.getGasolinera( ).getTipoGasolina( CORRIENTE ).getCantidadDisponible( ), 0.0001, "Sólo la última venta debería haberse hecho" );
+        String errores = salidaErrores.toString( "UTF-8" );
+        assertEquals( 0, salida.size( ), "Los errores no deberían escribirse en la salida normal" );
+        assertTrue( errores.contains( "Línea 1:" ), "Debería reportarse la venta sin gasolinera" );
+        assertTrue( errores.contains( "Línea 3:" ), "Debería reportarse el surtidor que no existe" );
+        assertTrue( errores.contains( "Línea 8: El comando fill no existe" ), "Debería reportarse el comando que no existe" );
+    }
+
+    @Test
+    public void testGuardar( ) throws Exception
+    {
+        File texto = new File( carpeta, "final.gas" );
+        File binario = new File( carpeta, "final.gasb" );
+        String script = "load " + archivo.getPath( ) + "\n" + "sell-volume 1 corriente 10\n" + "save " + texto.getPath( ) + "\n" + "save " + binario.getPath( ) + "\n";
+        ConsolaScript consola = ejecutar( script );
+
+        assertEquals( 0, consola.getErrores( ), "El script no debería tener errores" );
+        assertEquals( 90, Gasolinera.cargarEstado( texto ).getTipoGasolina( CORRIENTE ).getCantidadDisponible( ), 0.0001, "El archivo de texto no es correcto" );
+        assertEquals( 90, Gasolinera.cargarEstado( binario ).getTipoGasolina( CORRIENTE ).getCantidadDisponible( ), 0.0001, "El archivo binario no es correcto" );
+    }
+
+    @Test
+    public void testSinGasolinera( ) throws Exception
+    {
+        ConsolaScript consola = ejecutar( "report\n" );
+        assertNull( consola.getGasolinera( ), "No debería haber una gasolinera cargada" );
+        assertEquals( 1, consola.getErrores( ), "El reporte sin gasolinera debería ser un error" );
+    }
+}
@@ -0,0 +1,407 @@
+package uniandes.dpoo.gasolinera.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import uniandes.dpoo.gasolinera.logica.Empleado;
+import uniandes.dpoo.gasolinera.logica.Gasolinera;
+import uniandes.dpoo.gasolinera.logica.TipoGasolina;
+import uniandes.dpoo.gasolinera.logica.VersionPrecio;
+import uniandes.dpoo.gasolinera.persistencia.DiarioVentas;
+
+class DiarioVentasTest
+{
+    private static final String CORRIENTE = "corriente";
+    private static final String PLUS = "plus";
+    private static final String EXTRA = "extra";
+
+    @TempDir
+    File carpeta;
+
+    private File archivoEstado;
+
+    private File archivoDiario;
+
+    private Gasolinera gasolinera;
+
+    @BeforeEach
+    void setUp( ) throws Exception
+    {
+        List<TipoGasolina> tipos = new LinkedList<TipoGasolina>( );
+        tipos.add( new TipoGasolina( CORRIENTE, 14500, 100 ) );
+        tipos.add( new TipoGasolina( PLUS, 16251, 80 ) );
+        tipos.add( new TipoGasolina( EXTRA, 21090, 50 ) );
+        gasolinera = new Gasolinera( 4, tipos, new String[]{ "Alice", "Bob", "Charly" } );
+
+        archivoEstado = new File( carpeta, "estado.gas" );
+        archivoDiario = new File( carpeta, "estado.diario" );
+        gasolinera.guardarEstado( archivoEstado );
+    }
+
+    /**
+     * Un canal que escribe en otro canal hasta una cantidad de bytes, y luego falla como si el disco se hubiera llenado. La escritura en la que falla alcanza a
+     * escribir parte de los datos, así que deja un registro a medias en el archivo
+     */
+    private static class CanalQueFalla extends FileChannel
+    {
+        private final FileChannel canal;
+
+        private long bytesDisponibles;
+
+        CanalQueFalla( FileChannel canal, long bytesDisponibles )
+        {
+            this.canal = canal;
+            this.bytesDisponibles = bytesDisponibles;
+        }
+
+        @Override
+        public int write( ByteBuffer origen ) throws IOException
+        {
+            if( bytesDisponibles == 0 )
+            {
+                throw new IOException( "No queda espacio en el disco" );
+            }
+            ByteBuffer parte = origen.duplicate( );
+            parte.limit( parte.position( ) + ( int )Math.min( parte.remaining( ), bytesDisponibles ) );
+            int escritos = canal.write( parte );
+            origen.position( origen.position( ) + escritos );
+            bytesDisponibles -= escritos;
+            return escritos;
+        }
+
+        @Override
+        public long write( ByteBuffer[] origenes, int inicio, int cantidad ) throws IOException
+        {
+            throw new IOException( "No queda espacio en el disco" );
+        }
+
+        @Override
+        public int write( ByteBuffer origen, long posicion ) throws IOException
+        {
+            throw new IOException( "No queda espacio en el disco" );
+        }
+
+        @Override
+        public int read( ByteBuffer destino ) throws IOException
+        {
+            return canal.read( destino );
+        }
+
+        @Override
+        public long read( ByteBuffer[] destinos, int inicio, int cantidad ) throws IOException
+        {
+            return canal.read( destinos, inicio, cantidad );
+        }
+
+        @Override
+        public int read( ByteBuffer destino, long posicion ) throws IOException
+        {
+            return canal.read( destino, posicion );
+        }
+
+        @Override
+        public long position( ) throws IOException
+        {
+            return canal.position( );
+        }
+
+        @Override
+        public FileChannel position( long posicion ) throws IOException
+        {
+            canal.position( posicion );
+            return this;
+        }
+
+        @Override
+        public long size( ) throws IOException
+        {
+            return canal.size( );
+        }
+
+        @Override
+        public FileChannel truncate( long tamano ) throws IOException
+        {
+            canal.truncate( tamano );
+            return this;
+        }
+
+        @Override
+        public void force( boolean metadatos ) throws IOException
+        {
+            canal.force( metadatos );
+        }
+
+        @Override
+        public long transferTo( long posicion, long cantidad, WritableByteChannel destino ) throws IOException
+        {
+            return canal.transferTo( posicion, cantidad, destino );
+        }
+
+        @Override
+        public long transferFrom( ReadableByteChannel origen, long posicion, long cantidad ) throws IOException
+        {
+            throw new IOException( "No queda espacio en el disco" );
+        }
+
+        @Override
+        public MappedByteBuffer map( MapMode modo, long posicion, long tamano ) throws IOException
+        {
+            return canal.map( modo, posicion, tamano );
+        }
+
+        @Override
+        public FileLock lock( long posicion, long tamano, boolean compartido ) throws IOException
+        {
+            return canal.lock( posicion, tamano, compartido );
+        }
+
+        @Override
+        public FileLock tryLock( long posicion, long tamano, boolean compartido ) throws IOException
+        {
+            return canal.tryLock( posicion, tamano, compartido );
+        }
+
+        @Override
+        protected void implCloseChannel( ) throws IOException
+        {
+            canal.close( );
+        }
+    }
+
+    /**
+     * Hace varias ventas en la gasolinera, incluyendo algunas en las que no alcanza la gasolina
+     * @param cantidad La cantidad de ventas
+     */
+    private void vender( int cantidad )
+    {
+        String[] nombresTipos = new String[]{ CORRIENTE, PLUS, EXTRA };
+        for( int i = 0; i < cantidad; i++ )
+        {
+            if( i % 2 == 0 )
+                gasolinera.venderGasolinaPorCantidad( nombresTipos[ i % 3 ], 3.25 + i, i % 4 );
+            else
+                gasolinera.venderGasolinaPorPrecio( nombresTipos[ i % 3 ], 51000 + i, i % 4 );
+        }
+    }
+
+    /**
+     * Verifica que una gasolinera tenga el mismo estado que la gasolinera de la prueba
+     * @param recuperada La gasolinera que se compara
+     */
+    private void verificarIgual( Gasolinera recuperada )
+    {
+        for( TipoGasolina tipo : gasolinera.getTiposGasolina( ) )
+        {
+            assertEquals( tipo.getCantidadDisponible( ), recuperada.getTipoGasolina( tipo.getNombre( ) ).getCantidadDisponible( ), "El inventario recuperado no es correcto" );
+            for( int i = 0; i < gasolinera.getCantidadSurtidores( ); i++ )
+            {
+                assertEquals( gasolinera.getSurtidor( i ).getGalonesVendidos( tipo.getNombre( ) ), recuperada.getSurtidor( i ).getGalonesVendidos( tipo.getNombre( ) ),
+                        "Los galones recuperados del surtidor " + i + " no son correctos" );
+            }
+        }
+        for( Empleado empleado : gasolinera.getEmpleados( ) )
+        {
+            assertEquals( empleado.getCantidadDinero( ), recuperada.getEmpleado( empleado.getNombre( ) ).getCantidadDinero( ), "El dinero recuperado no es correcto" );
+        }
+    }
+
+    @Test
+    void testReproducirDiario( ) throws Exception
+    {
+        gasolinera.activarDiario( archivoDiario, 8, 0 );
+        vender( 30 );
+        gasolinera.desactivarDiario( );
+
+        Gasolinera recuperada = Gasolinera.cargarEstado( archivoEstado, archivoDiario );
+        verificarIgual( recuperada );
+    }
+
+    @Test
+    void testAgregarADiarioExistente( ) throws Exception
+    {
+        gasolinera.activarDiario( archivoDiario, 8, 0 );
+        vender( 5 );
+        gasolinera.desactivarDiario( );
+
+        gasolinera.activarDiario( archivoDiario, 8, 0 );
+        vender( 7 );
+        gasolinera.desactivarDiario( );
+
+        assertEquals( 12, DiarioVentas.reproducir( archivoDiario, Gasolinera.cargarEstado( archivoEstado ) ), "El diario debería tener las ventas de las dos sesiones" );
+        verificarIgual( Gasolinera.cargarEstado( archivoEstado, archivoDiario ) );
+    }
+
+    @Test
+    void testEncabezadoLargo( ) throws Exception
+    {
+        // Con estos nombres el encabezado ocupa más de 64 KB
+        char[] letras = new char[30000];
+        Arrays.fill( letras, 'a' );
+        String nombreLargo = new String( letras );
+        List<TipoGasolina> tipos = new LinkedList<TipoGasolina>( );
+        tipos.add( new TipoGasolina( CORRIENTE, 14500, 100 ) );
+        gasolinera = new Gasolinera( 3, tipos, new String[]{ nombreLargo + "1", nombreLargo + "2", nombreLargo + "3" } );
+        gasolinera.guardarEstado( archivoEstado );
+
+        gasolinera.activarDiario( archivoDiario, 1, 0 );
+        gasolinera.venderGasolinaPorCantidad( CORRIENTE, 2, 1 );
+        gasolinera.desactivarDiario( );
+        assertTrue( archivoDiario.length( ) > 64 * 1024, "El encabezado debería ocupar más de 64 KB" );
+
+        gasolinera.activarDiario( archivoDiario, 1, 0 );
+        gasolinera.venderGasolinaPorCantidad( CORRIENTE, 3, 2 );
+        gasolinera.desactivarDiario( );
+        verificarIgual( Gasolinera.cargarEstado( archivoEstado, archivoDiario ) );
+    }
+
+    @Test
+    void testEscrituraPorGrupos( ) throws Exception
+    {
+        gasolinera.activarDiario( archivoDiario, 4, 0 );
+        long tamanoInicial = archivoDiario.length( );
+
+        vender( 3 );
+        assertEquals( tamanoInicial, archivoDiario.length( ), "Las ventas no deberían escribirse antes de completar el grupo" );
+
+        vender( 1 );
+        assertEquals( tamanoInicial + 4 * DiarioVentas.TAMANO_REGISTRO, archivoDiario.length( ), "El grupo completo debería haberse escrito" );
+
+        gasolinera.desactivarDiario( );
+    }
+
+    @Test
+    void testEscrituraPorTiempo( ) throws Exception
+    {
+        gasolinera.activarDiario( archivoDiario, 1000, 20 );
+        long tamanoInicial = archivoDiario.length( );
+        vender( 3 );
+
+        long limite = System.currentTimeMillis( ) + 5000;
+        while( archivoDiario.length( ) == tamanoInicial && System.currentTimeMillis( ) < limite )
+        {
+            Thread.sleep( 10 );
+        }
+        assertEquals( tamanoInicial + 3 * DiarioVentas.TAMANO_REGISTRO, archivoDiario.length( ), "Las ventas pendientes deberían escribirse al pasar el tiempo máximo" );
+
+        gasolinera.desactivarDiario( );
+    }
+
+    @Test
+    void testReiniciarAlGuardar( ) throws Exception
+    {
+        gasolinera.activarDiario( archivoDiario, 1, 0 );
+        vender( 10 );
+        gasolinera.guardarEstado( archivoEstado );
+        vender( 6 );
+        gasolinera.desactivarDiario( );
+
+        assertTrue( archivoDiario.length( ) > 0, "El diario debería existir" );
+        assertEquals( 6, DiarioVentas.reproducir( archivoDiario, Gasolinera.cargarEstado( archivoEstado ) ), "El diario sólo debería tener las ventas posteriores al guardado" );
+        verificarIgual( Gasolinera.cargarEstado( archivoEstado, archivoDiario ) );
+    }
+
+    @Test
+    void testReproducirCambiosPrecio( ) throws Exception
+    {
+        gasolinera.activarDiario( archivoDiario, 4, 0 );
+        vender( 6 );
+        gasolinera.cambiarPrecio( PLUS, 17000 );
+        vender( 9 );
+        gasolinera.cambiarPrecio( PLUS, 18000 );
+        gasolinera.venderGasolinaPorCantidad( PLUS, 1, 0 );
+        gasolinera.desactivarDiario( );
+
+        Gasolinera recuperada = Gasolinera.cargarEstado( archivoEstado, archivoDiario );
+        verificarIgual( recuperada );
+        TipoGasolina plus = recuperada.getTipoGasolina( PLUS );
+        assertEquals( 18000, plus.getPrecioPorGalon( ), "El precio debería quedar como el último cambio del diario" );
+        assertEquals( 3, plus.getVersionPrecio( ).getNumero( ), "La versión del precio no es correcta" );
+        for( VersionPrecio version : gasolinera.getTipoGasolina( PLUS ).getHistorialPrecios( ) )
+        {
+            VersionPrecio versionRecuperada = plus.buscarVersionPrecio( version.getNumero( ) );
+            assertEquals( version.getPrecioPorGalon( ), versionRecuperada.getPrecioPorGalon( ), "El precio de la versión " + version.getNumero( ) + " no es correcto" );
+            assertEquals( version.getDineroCobrado( ), versionRecuperada.getDineroCobrado( ),
+                    "El dinero de la versión " + version.getNumero( ) + " debería recuperarse del diario" );
+        }
+
+        // Al guardar el estado, la versión del precio queda en el archivo
+        File otroEstado = new File( carpeta, "otro.gas" );
+        recuperada.guardarEstado( otroEstado );
+        assertEquals( 3, Gasolinera.cargarEstado( otroEstado ).getTipoGasolina( PLUS ).getVersionPrecio( ).getNumero( ), "El archivo debería tener la versión" );
+        File otroBinario = new File( carpeta, "otro.gasb" );
+        recuperada.guardarEstadoBinario( otroBinario );
+        assertEquals( 3, Gasolinera.cargarEstado( otroBinario ).getTipoGasolina( PLUS ).getVersionPrecio( ).getNumero( ), "El archivo debería tener la versión" );
+    }
+
+    @Test
+    void testReproducirAsignaciones( ) throws Exception
+    {
+        gasolinera.activarDiario( archivoDiario, 4, 0 );
+        vender( 5 );
+        gasolinera.reasignarSurtidor( 1, "Charly" );
+        vender( 3 );
+        gasolinera.cambiarTurno( new String[]{ "Bob", null, "Bob", "Alice" } );
+        gasolinera.reasignarSurtidor( 2, "Charly" );
+        vender( 4 );
+        gasolinera.desactivarDiario( );
+
+        assertEquals( 12, DiarioVentas.reproducir( archivoDiario, Gasolinera.cargarEstado( archivoEstado ) ), "Las reasignaciones no deberían contarse como ventas" );
+        Gasolinera secuencial = Gasolinera.cargarEstado( archivoEstado );
+        DiarioVentas.reproducir( archivoDiario, secuencial );
+        Gasolinera paralela = Gasolinera.cargarEstado( archivoEstado, archivoDiario );
+        verificarIgual( secuencial );
+        verificarIgual( paralela );
+        for( int i = 0; i < gasolinera.getCantidadSurtidores( ); i++ )
+        {
+            String esperado = gasolinera.getSurtidor( i ).getEmpleadoAsignado( ).getNombre( );
+            assertEquals( esperado, secuencial.getSurtidor( i ).getEmpleadoAsignado( ).getNombre( ), "El empleado del surtidor " + i + " debería recuperarse del diario" );
+            assertEquals( esperado, paralela.getSurtidor( i ).getEmpleadoAsignado( ).getNombre( ), "El empleado del surtidor " + i + " debería recuperarse del diario" );
+        }
+    }
+
+    @Test
+    void testFallaAlEscribir( ) throws Exception
+    {
+        DiarioVentas diario = new DiarioVentas( archivoDiario, gasolinera.getRegistroTiposGasolina( ), new ArrayList<Empleado>( gasolinera.getEmpleados( ) ), 2, 0 );
+        int idCorriente = gasolinera.getIdentificadorTipoGasolina( CORRIENTE );
+        int version = gasolinera.getTipoGasolina( CORRIENTE ).getVersionPrecio( ).getNumero( );
+        Empleado alice = gasolinera.getEmpleado( "Alice" );
+        diario.registrar( 0, idCorriente, alice, 1000000, 14500, version );
+        diario.registrar( 1, idCorriente, alice, 2000000, 29000, version );
+        long tamanoEscrito = archivoDiario.length( );
+
+        // El siguiente grupo alcanza a escribir sólo una parte del primer registro
+        Field campoCanal = DiarioVentas.class.getDeclaredField( "canal" );
+        campoCanal.setAccessible( true );
+        campoCanal.set( diario, new CanalQueFalla( ( FileChannel )campoCanal.get( diario ), DiarioVentas.TAMANO_REGISTRO / 2 ) );
+        diario.registrar( 2, idCorriente, alice, 3000000, 43500, version );
+        assertThrows( UncheckedIOException.class, ( ) -> diario.registrar( 3, idCorriente, alice, 4000000, 58000, version ) );
+
+        assertTrue( diario.haFallado( ), "El diario debería quedar fallido" );
+        assertEquals( tamanoEscrito, archivoDiario.length( ), "El registro a medias debería quitarse del archivo" );
+        assertThrows( UncheckedIOException.class, ( ) -> diario.registrar( 0, idCorriente, alice, 1000000, 14500, version ),
+                "Un diario fallido no debería aceptar más ventas" );
+        assertThrows( IOException.class, ( ) -> diario.cerrar( ), "Cerrar un diario fallido debería lanzar la falla" );
+        assertEquals( 2, DiarioVentas.reproducir( archivoDiario, Gasolinera.cargarEstado( archivoEstado ) ), "El diario debería tener sólo las ventas escritas" );
+    }
+}
@@ -40,4 +40,52 @@ public class EmpleadoTest
         assertEquals( 200, e1.getCantidadDinero( ), "El nuevo empleado debería tener más dinero ahora" );
     }
 
+    @Test
+    void testDineroMayorQueInt( )
+    {
+        for( int i = 0; i < 3; i++ )
+        {
+            e1.agregarDinero( Integer.MAX_VALUE );
+        }
+        assertEquals( 3L * Integer.MAX_VALUE, e1.getCantidadDinero( ), "El dinero no debería desbordarse" );
+    }
+
+    @Test
+    void testCerrarTurnoConcurrente( ) throws Exception
+    {
+        int cantidadHilos = 4;
+        int ventasPorHilo = 100000;
+        Thread[] hilos = new Thread[cantidadHilos];
+        for( int h = 0; h < cantidadHilos; h++ )
+        {
+            hilos[ h ] = new Thread( ( ) -> {
+                for( int i = 0; i < ventasPorHilo; i++ )
+                {
+                    e1.agregarDinero( 1 );
+                }
+            } );
+            hilos[ h ].start( );
+        }
+
+        // Cerrar turnos mientras los otros hilos agregan dinero: ninguna venta se debería perder ni contar dos veces
+        long cerrado = 0;
+        boolean vivos = true;
+        while( vivos )
+        {
+            cerrado += e1.cerrarTurno( );
+            vivos = false;
+            for( Thread hilo : hilos )
+            {
+                vivos |= hilo.isAlive( );
+            }
+        }
+        for( Thread hilo : hilos )
+        {
+            hilo.join( );
+        }
+        cerrado += e1.cerrarTurno( );
+
+        assertEquals( ( long )cantidadHilos * ventasPorHilo, cerrado, "La suma de los turnos cerrados no es correcta" );
+        assertEquals( 0, e1.getCantidadDinero( ), "Después de cerrar el turno el empleado no debería tener dinero" );
+    }
 }
@@ -5,22 +5,40 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import uniandes.dpoo.gasolinera.eventos.BusVentas;
+import uniandes.dpoo.gasolinera.eventos.ConsumidorVentas;
+import uniandes.dpoo.gasolinera.eventos.Contrapresion;
 import uniandes.dpoo.gasolinera.logica.Empleado;
+import uniandes.dpoo.gasolinera.logica.EstadoGasolinera;
 import uniandes.dpoo.gasolinera.logica.Gasolinera;
+import uniandes.dpoo.gasolinera.logica.Reserva;
+import uniandes.dpoo.gasolinera.logica.ResultadoLote;
+import uniandes.dpoo.gasolinera.logica.ResultadoVenta;
+import uniandes.dpoo.gasolinera.logica.SolicitudVenta;
 import uniandes.dpoo.gasolinera.logica.Surtidor;
 import uniandes.dpoo.gasolinera.logica.TipoGasolina;
+import uniandes.dpoo.gasolinera.logica.VersionPrecio;
+import uniandes.dpoo.gasolinera.utils.Sorteo;
 
 public class GasolineraTest
 {
@@ -43,6 +61,9 @@ public class GasolineraTest
     private Gasolinera g1;
     private Gasolinera g2;
 
+    @TempDir
+    File carpeta;
+
     @BeforeEach
     void setUp( ) throws Exception
     {
@@ -50,6 +71,13 @@ public class GasolineraTest
         crearGasolinera2( );
     }
 
+    @AfterEach
+    void tearDown( ) throws Exception
+    {
+        g1.cerrar( );
+        g2.cerrar( );
+    }
+
     private void crearGasolinera1( )
     {
         int cantidadSurtidores = 1;
@@ -332,4 +360,576 @@ public class GasolineraTest
         assertEquals( 0, galonesDisponibles, 0.01, "El inventario del tipo de gasolina no se actualizó correctamente" );
     }
 
+    @Test
+    public void testVenderGasolinaConcurrente( ) throws Exception
+    {
+        final String[] nombresTipos = new String[]{ CORRIENTE, PLUS, EXTRA };
+        final int cantidadHilos = 8;
+        final int ventasPorHilo = 300;
+        final double cantidadPorVenta = 0.1;
+
+        final CountDownLatch inicio = new CountDownLatch( 1 );
+        final AtomicLong dineroCobrado = new AtomicLong( );
+        Thread[] hilos = new Thread[cantidadHilos];
+        for( int h = 0; h < cantidadHilos; h++ )
+        {
+            final int numeroHilo = h;
+            hilos[ h ] = new Thread( ( ) -> {
+                try
+                {
+                    inicio.await( );
+                }
+                catch( InterruptedException e )
+                {
+                    return;
+                }
+                for( int i = 0; i < ventasPorHilo; i++ )
+                {
+                    String tipo = nombresTipos[ ( numeroHilo + i ) % nombresTipos.length ];
+                    int surtidor = ( numeroHilo + i ) % g2.getCantidadSurtidores( );
+                    dineroCobrado.addAndGet( g2.venderGasolinaPorCantidad( tipo, cantidadPorVenta, surtidor ) );
+                }
+            } );
+            hilos[ h ].start( );
+        }
+        inicio.countDown( );
+        for( Thread hilo : hilos )
+        {
+            hilo.join( );
+        }
+
+        // Para cada tipo, lo entregado en todos los surtidores más lo que queda debe ser igual al inventario inicial
+        double[] cantidadesIniciales = new double[]{ CANTIDAD_CORRIENTE, CANTIDAD_PLUS, CANTIDAD_EXTRA };
+        for( int t = 0; t < nombresTipos.length; t++ )
+        {
+            double entregado = 0;
+            for( int i = 0; i < g2.getCantidadSurtidores( ); i++ )
+            {
+                entregado += g2.getSurtidor( i ).getGalonesVendidos( nombresTipos[ t ] );
+            }
+            double restante = g2.getTipoGasolina( nombresTipos[ t ] ).getCantidadDisponible( );
+            assertTrue( restante >= 0, "El inventario no puede quedar negativo" );
+            assertEquals( cantidadesIniciales[ t ], entregado + restante, 0.0001, "Lo entregado más lo que queda debe ser igual al inventario inicial de " + nombresTipos[ t ] );
+        }
+        assertEquals( 0, g2.getTipoGasolina( EXTRA ).getCantidadDisponible( ), 0.0001, "La gasolina extra debería haberse agotado" );
+
+        // El dinero de los empleados debe ser igual a lo cobrado en todas las ventas
+        long dineroEmpleados = 0;
+        for( Empleado empleado : g2.getEmpleados( ) )
+        {
+            dineroEmpleados += empleado.getCantidadDinero( );
+        }
+        assertEquals( dineroCobrado.get( ), dineroEmpleados, "El dinero de los empleados no corresponde a lo cobrado en las ventas" );
+    }
+
+    @Test
+    public void testCerrarTurnos( )
+    {
+        long cobrado = g2.venderGasolinaPorCantidad( CORRIENTE, 2, 0 );
+        cobrado += g2.venderGasolinaPorCantidad( EXTRA, 1, 1 );
+
+        Map<String, Long> recaudos = g2.cerrarTurnos( );
+        long total = 0;
+        for( Empleado empleado : g2.getEmpleados( ) )
+        {
+            total += recaudos.get( empleado.getNombre( ) );
+            assertEquals( 0, empleado.getCantidadDinero( ), "Después de cerrar el turno el empleado no debería tener dinero" );
+        }
+        assertEquals( cobrado, total, "Los turnos cerrados deberían tener todo lo cobrado" );
+    }
+
+    @Test
+    public void testVenderGasolinaPorIdentificador( )
+    {
+        int idCorriente = g2.getIdentificadorTipoGasolina( CORRIENTE );
+        int idExtra = g2.getIdentificadorTipoGasolina( EXTRA );
+        assertEquals( -1, g2.getIdentificadorTipoGasolina( "INEXISTENTE" ), "Un tipo inexistente no debería tener identificador" );
+        assertSame( g2.getTipoGasolina( CORRIENTE ), g2.getRegistroTiposGasolina( ).getTipo( idCorriente ), "El identificador no corresponde al tipo de gasolina" );
+
+        int precioCantidad = g2.venderGasolinaPorCantidad( idCorriente, 10, 2 );
+        assertEquals( VALOR_CORRIENTE * 10, precioCantidad, "El precio pagado no es correcto" );
+
+        int precioPrecio = g2.venderGasolinaPorPrecio( idExtra, 30000, 2 );
+        assertEquals( 30000, precioPrecio, "El precio pagado no es correcto" );
+
+        Surtidor surtidor = g2.getSurtidor( 2 );
+        assertEquals( 10, surtidor.getGalonesVendidos( idCorriente ), 0.0001, "La cantidad de galones vendidos en el surtidor no es correcta" );
+        assertEquals( surtidor.getGalonesVendidos( EXTRA ), surtidor.getGalonesVendidos( idExtra ), 0.0001, "Los galones por nombre y por identificador deberían coincidir" );
+        assertEquals( CANTIDAD_EXTRA - 30000 / ( double )VALOR_EXTRA, g2.getTipoGasolina( EXTRA ).getCantidadDisponible( ), 0.0001, "El inventario no se actualizó correctamente" );
+    }
+
+    @Test
+    public void testResultadoVenta( )
+    {
+        int idExtra = g2.getIdentificadorTipoGasolina( EXTRA );
+        ResultadoVenta porPrecio = g2.venderPorPrecio( idExtra, 30001, 0 );
+        assertTrue( porPrecio.esCompleta( ), "La venta por precio debería estar completa" );
+        assertEquals( 30001, porPrecio.getPrecio( ), "El precio de la venta por precio no es correcto" );
+        assertEquals( 30001 / ( double )VALOR_EXTRA, porPrecio.getCantidadEntregada( ), 0.000001, "La cantidad entregada no es correcta" );
+
+        // Después de un cambio de precio, la venta trae el precio con el que se cobró
+        g2.cambiarPrecio( EXTRA, VALOR_EXTRA + 1000 );
+        ResultadoVenta porCantidad = g2.venderPorCantidad( idExtra, 10, 1 );
+        assertTrue( porCantidad.esCompleta( ), "La venta por cantidad debería estar completa" );
+        assertEquals( VALOR_EXTRA + 1000, porCantidad.getPrecioPorGalon( ), "La venta debería tener el precio con el que se cobró" );
+        assertEquals( porCantidad.getPrecio( ), porCantidad.calcularPrecioSolicitado( ), "Una venta completa cobra lo solicitado" );
+
+        // Quedan menos de 40 galones de extra
+        double disponible = g2.getTipoGasolina( EXTRA ).getCantidadDisponible( );
+        ResultadoVenta incompleta = g2.venderPorCantidad( idExtra, 40, 2 );
+        assertFalse( incompleta.esCompleta( ), "La venta no debería estar completa" );
+        assertEquals( 40, incompleta.getCantidadSolicitada( ), 0.000001, "La cantidad solicitada no es correcta" );
+        assertEquals( disponible, incompleta.getCantidadEntregada( ), 0.000001, "Debería entregarse lo que quedaba" );
+        assertEquals( ( VALOR_EXTRA + 1000 ) * 40, incompleta.calcularPrecioSolicitado( ), "El precio solicitado no es correcto" );
+        assertTrue( incompleta.getPrecio( ) < incompleta.calcularPrecioSolicitado( ), "La venta incompleta debería cobrar menos de lo solicitado" );
+    }
+
+    @Test
+    public void testVenderLote( )
+    {
+        List<SolicitudVenta> lote = new ArrayList<SolicitudVenta>( );
+        lote.add( SolicitudVenta.porCantidad( EXTRA, 30, 0 ) );
+        lote.add( SolicitudVenta.porPrecio( CORRIENTE, 29000, 1 ) );
+        lote.add( SolicitudVenta.porCantidad( EXTRA, 30, 2 ) );
+        lote.add( SolicitudVenta.porCantidad( CORRIENTE, 10, 3 ) );
+        lote.add( SolicitudVenta.porCantidad( EXTRA, 5, 1 ) );
+
+        ResultadoLote resultado = g2.venderLote( lote );
+        int[] precios = resultado.getPrecios( );
+
+        // Las solicitudes de corriente alcanzan completas
+        assertEquals( 29000, precios[ 1 ], "El precio de la venta por precio no es correcto" );
+        assertEquals( VALOR_CORRIENTE * 10, precios[ 3 ], "El precio de la venta por cantidad no es correcto" );
+        assertEquals( CANTIDAD_CORRIENTE - 12, g2.getTipoGasolina( CORRIENTE ).getCantidadDisponible( ), 0.0001, "El inventario de corriente no es correcto" );
+
+        // De extra sólo hay 50 galones: la primera solicitud recibe todo, la segunda lo que queda y la tercera nada
+        assertEquals( VALOR_EXTRA * 30, precios[ 0 ], "La primera venta de extra debería ser completa" );
+        assertEquals( VALOR_EXTRA * 20, precios[ 2 ], "La segunda venta de extra debería recibir lo que quedaba" );
+        assertEquals( 0, precios[ 4 ], "La tercera venta de extra no debería recibir nada" );
+        assertEquals( 0, g2.getTipoGasolina( EXTRA ).getCantidadDisponible( ), 0.0001, "No debería quedar gasolina extra" );
+
+        List<ResultadoLote.VentaParcial> parciales = resultado.getVentasParciales( );
+        assertEquals( 2, parciales.size( ), "Debería haber dos ventas parciales" );
+        assertEquals( 2, parciales.get( 0 ).getPosicion( ), "Las ventas parciales deberían estar en el orden del lote" );
+        assertEquals( 30, parciales.get( 0 ).getCantidadSolicitada( ), 0.0001, "La cantidad solicitada no es correcta" );
+        assertEquals( 20, parciales.get( 0 ).getCantidadEntregada( ), 0.0001, "La cantidad entregada no es correcta" );
+        assertEquals( 4, parciales.get( 1 ).getPosicion( ), "Las ventas parciales deberían estar en el orden del lote" );
+        assertEquals( 0, parciales.get( 1 ).getCantidadEntregada( ), 0.0001, "La cantidad entregada no es correcta" );
+
+        // Cada venta debe quedar registrada en su surtidor
+        assertEquals( 20, g2.getSurtidor( 2 ).getGalonesVendidos( EXTRA ), 0.0001, "La venta no quedó registrada en el surtidor" );
+        assertEquals( 2, g2.getSurtidor( 1 ).getGalonesVendidos( CORRIENTE ), 0.0001, "La venta no quedó registrada en el surtidor" );
+    }
+
+    @Test
+    public void testVenderLoteInvalido( )
+    {
+        List<SolicitudVenta> lote = new ArrayList<SolicitudVenta>( );
+        lote.add( SolicitudVenta.porCantidad( CORRIENTE, 10, 0 ) );
+        lote.add( SolicitudVenta.porCantidad( "diesel", 10, 0 ) );
+
+        assertThrows( IllegalArgumentException.class, ( ) -> g2.venderLote( lote ), "Un lote con un tipo inexistente debería rechazarse" );
+        assertEquals( CANTIDAD_CORRIENTE, g2.getTipoGasolina( CORRIENTE ).getCantidadDisponible( ), "Si el lote se rechaza no debería venderse ninguna solicitud" );
+    }
+
+    @Test
+    public void testCambiarPrecio( )
+    {
+        int precioAntes = g2.venderGasolinaPorCantidad( CORRIENTE, 2, 0 );
+        VersionPrecio nueva = g2.cambiarPrecio( CORRIENTE, 15000 );
+        int precioDespues = g2.venderGasolinaPorCantidad( CORRIENTE, 2, 0 );
+
+        assertEquals( 2, nueva.getNumero( ), "El primer cambio debería publicar la versión 2" );
+        assertEquals( 2 * VALOR_CORRIENTE, precioAntes, "La venta anterior al cambio debería usar el precio anterior" );
+        assertEquals( 30000, precioDespues, "La venta posterior al cambio debería usar el precio nuevo" );
+        List<VersionPrecio> historial = g2.getTipoGasolina( CORRIENTE ).getHistorialPrecios( );
+        assertEquals( 2, historial.size( ), "El historial debería tener las dos versiones" );
+        assertEquals( precioAntes, historial.get( 0 ).getDineroCobrado( ), "El dinero de la primera versión no es correcto" );
+        assertEquals( precioDespues, historial.get( 1 ).getDineroCobrado( ), "El dinero de la segunda versión no es correcto" );
+        assertEquals( 2, historial.get( 1 ).getGalonesVendidos( ), 0.0001, "Los galones de la segunda versión no son correctos" );
+        assertThrows( IllegalArgumentException.class, ( ) -> g2.cambiarPrecio( "diesel", 100 ), "El tipo de gasolina no existe" );
+    }
+
+    @Test
+    public void testCambiarPrecioMientrasSeVende( ) throws Exception
+    {
+        final int cantidadHilos = 4;
+        final int ventasPorHilo = 500;
+        final int valorPorVenta = 1000;
+        g2.getTipoGasolina( CORRIENTE ).cambiarCantidadDisponible( 1000000 );
+
+        final CountDownLatch inicio = new CountDownLatch( 1 );
+        final AtomicLong dineroCobrado = new AtomicLong( );
+        final AtomicLong ventasConOtroValor = new AtomicLong( );
+        Thread[] hilos = new Thread[cantidadHilos];
+        for( int h = 0; h < cantidadHilos; h++ )
+        {
+            hilos[ h ] = new Thread( ( ) -> {
+                try
+                {
+                    inicio.await( );
+                }
+                catch( InterruptedException e )
+                {
+                    return;
+                }
+                for( int i = 0; i < ventasPorHilo; i++ )
+                {
+                    // Si la cantidad y el precio se calcularan con versiones distintas, el precio cobrado no sería el valor pedido
+                    int precio = g2.venderGasolinaPorPrecio( CORRIENTE, valorPorVenta, i % g2.getCantidadSurtidores( ) );
+                    dineroCobrado.addAndGet( precio );
+                    if( precio != valorPorVenta )
+                        ventasConOtroValor.incrementAndGet( );
+                }
+            } );
+            hilos[ h ].start( );
+        }
+        inicio.countDown( );
+        for( int i = 0; i < 200; i++ )
+        {
+            g2.cambiarPrecio( CORRIENTE, i % 2 == 0 ? 7000 : 21000 );
+        }
+        for( Thread hilo : hilos )
+        {
+            hilo.join( );
+        }
+
+        assertEquals( 0, ventasConOtroValor.get( ), "Cada venta debería cobrarse con una sola versión del precio" );
+        long dineroVersiones = 0;
+        for( VersionPrecio version : g2.getTipoGasolina( CORRIENTE ).getHistorialPrecios( ) )
+        {
+            dineroVersiones += version.getDineroCobrado( );
+        }
+        assertEquals( 201, g2.getTipoGasolina( CORRIENTE ).getVersionPrecio( ).getNumero( ), "Deberían haberse publicado todas las versiones" );
+        assertEquals( dineroCobrado.get( ), dineroVersiones, "El dinero de todas las versiones debería ser lo cobrado en las ventas" );
+    }
+
+    @Test
+    public void testReservar( )
+    {
+        Reserva reserva = g2.reservar( EXTRA, 30, 0, 1, TimeUnit.HOURS );
+        assertEquals( 30, reserva.getGalonesReservados( ), 0.0001, "Debería reservarse todo lo solicitado" );
+        assertEquals( CANTIDAD_EXTRA - 30, g2.getTipoGasolina( EXTRA ).getCantidadDisponible( ), 0.0001, "Lo reservado no debería estar disponible" );
+
+        // Otro surtidor que empieza al mismo tiempo sólo puede reservar lo que queda
+        Reserva otra = g2.reservar( EXTRA, 30, 1, 1, TimeUnit.HOURS );
+        assertEquals( CANTIDAD_EXTRA - 30, otra.getGalonesReservados( ), 0.0001, "La segunda reserva sólo debería recibir lo que queda" );
+        assertFalse( otra.estaCompleta( ), "La segunda reserva no debería estar completa" );
+        assertEquals( 0, g2.venderGasolinaPorCantidad( EXTRA, 1, 2 ), "No debería poderse vender gasolina reservada" );
+
+        int precio = g2.confirmarReserva( reserva, 25.5 );
+        assertEquals( Math.round( 25.5 * VALOR_EXTRA ), precio, "El precio no es correcto" );
+        assertEquals( Reserva.Estado.CONFIRMADA, reserva.getEstado( ), "La reserva debería quedar confirmada" );
+        assertEquals( 25.5, g2.getSurtidor( 0 ).getGalonesVendidos( EXTRA ), 0.0001, "La venta debería quedar en el surtidor" );
+        assertEquals( precio, g2.getSurtidor( 0 ).getEmpleadoAsignado( ).getCantidadDinero( ), "El dinero debería quedar en el empleado del surtidor" );
+        assertEquals( 4.5, g2.getTipoGasolina( EXTRA ).getCantidadDisponible( ), 0.0001, "Lo que no se despachó debería volver al inventario" );
+
+        assertTrue( g2.liberarReserva( otra ), "La segunda reserva estaba pendiente" );
+        assertFalse( g2.liberarReserva( otra ), "Una reserva no se puede liberar dos veces" );
+        assertEquals( CANTIDAD_EXTRA - 25.5, g2.getTipoGasolina( EXTRA ).getCantidadDisponible( ), 0.0001, "La reserva liberada debería volver al inventario" );
+        assertEquals( 0, g2.getTipoGasolina( EXTRA ).getMicrogalonesReservados( ), "No debería quedar nada reservado" );
+        assertThrows( IllegalStateException.class, ( ) -> g2.confirmarReserva( otra, 1 ), "Una reserva liberada no se puede confirmar" );
+    }
+
+    @Test
+    public void testReservaInvalida( )
+    {
+        Reserva reserva = g2.reservar( CORRIENTE, 10, 1, 1, TimeUnit.HOURS );
+        assertThrows( IllegalArgumentException.class, ( ) -> g2.confirmarReserva( reserva, 11 ), "No se puede despachar más de lo reservado" );
+        assertEquals( Reserva.Estado.PENDIENTE, reserva.getEstado( ), "Una confirmación inválida no debería terminar la reserva" );
+        assertThrows( IllegalArgumentException.class, ( ) -> g2.reservar( CORRIENTE, 1, 9, 1, TimeUnit.HOURS ), "El surtidor no existe" );
+        assertThrows( IllegalArgumentException.class, ( ) -> g2.reservar( "diesel", 1, 0, 1, TimeUnit.HOURS ), "El tipo no existe" );
+
+        // El estado guardado cuenta la gasolina reservada como parte del tanque
+        EstadoGasolinera estado = g2.capturarEstado( );
+        int idCorriente = g2.getIdentificadorTipoGasolina( CORRIENTE );
+        assertEquals( TipoGasolina.aMicrogalones( CANTIDAD_CORRIENTE ), estado.getMicrogalonesDisponibles( idCorriente ), "La reserva no debería perderse al guardar" );
+    }
+
+    @Test
+    public void testReservaVencida( ) throws Exception
+    {
+        Reserva reserva = g2.reservar( PLUS, 20, 3, 30, TimeUnit.MILLISECONDS );
+        long limite = System.currentTimeMillis( ) + 5000;
+        while( reserva.getEstado( ) == Reserva.Estado.PENDIENTE && System.currentTimeMillis( ) < limite )
+        {
+            Thread.sleep( 5 );
+        }
+
+        assertEquals( Reserva.Estado.VENCIDA, reserva.getEstado( ), "La reserva debería vencerse" );
+        assertEquals( CANTIDAD_PLUS, g2.getTipoGasolina( PLUS ).getCantidadDisponible( ), 0.0001, "La gasolina de la reserva vencida debería volver al inventario" );
+        assertThrows( IllegalStateException.class, ( ) -> g2.confirmarReserva( reserva, 5 ), "Una reserva vencida no se puede confirmar" );
+    }
+
+    /**
+     * Cuenta los hilos vivos de las ruedas que vencen las reservas
+     * @return La cantidad de hilos
+     */
+    private int contarHilosReservas( )
+    {
+        int cantidad = 0;
+        for( Thread hilo : Thread.getAllStackTraces( ).keySet( ) )
+        {
+            if( hilo.isAlive( ) && "reservas-gasolinera".equals( hilo.getName( ) ) )
+                cantidad++;
+        }
+        return cantidad;
+    }
+
+    @Test
+    public void testCerrar( ) throws Exception
+    {
+        int hilosAntes = contarHilosReservas( );
+        Reserva reserva = g2.reservar( PLUS, 20, 3, 50, TimeUnit.MILLISECONDS );
+        assertEquals( hilosAntes + 1, contarHilosReservas( ), "La primera reserva debería crear el hilo de la rueda" );
+
+        g2.cerrar( );
+        long limite = System.currentTimeMillis( ) + 5000;
+        while( contarHilosReservas( ) > hilosAntes && System.currentTimeMillis( ) < limite )
+        {
+            Thread.sleep( 5 );
+        }
+        assertEquals( hilosAntes, contarHilosReservas( ), "Al cerrar la gasolinera debería detenerse el hilo de la rueda" );
+
+        // La reserva pendiente ya no vence, pero se puede confirmar
+        Thread.sleep( 100 );
+        assertEquals( Reserva.Estado.PENDIENTE, reserva.getEstado( ), "Después de cerrar, la reserva no debería vencerse" );
+        g2.confirmarReserva( reserva, 10 );
+        assertEquals( 10, g2.getSurtidor( 3 ).getGalonesVendidos( PLUS ), 0.0001, "La reserva debería poderse confirmar después de cerrar" );
+    }
+
+    @Test
+    public void testReservasConcurrentes( ) throws Exception
+    {
+        final int cantidadHilos = 4;
+        final int reservasPorHilo = 400;
+        final CountDownLatch inicio = new CountDownLatch( 1 );
+        final AtomicLong despachado = new AtomicLong( );
+        final AtomicLong rechazosSinVencer = new AtomicLong( );
+        Thread[] hilos = new Thread[cantidadHilos];
+        for( int h = 0; h < cantidadHilos; h++ )
+        {
+            final int numeroHilo = h;
+            hilos[ h ] = new Thread( ( ) -> {
+                try
+                {
+                    inicio.await( );
+                }
+                catch( InterruptedException e )
+                {
+                    return;
+                }
+                for( int i = 0; i < reservasPorHilo; i++ )
+                {
+                    // Algunas reservas vencen mientras se intenta confirmarlas
+                    Reserva reserva = g2.reservar( CORRIENTE, 0.2, numeroHilo, i % 3 == 0 ? 0 : 10, TimeUnit.MILLISECONDS );
+                    try
+                    {
+                        g2.confirmarReserva( reserva, reserva.getGalonesReservados( ) / 2 );
+                        despachado.addAndGet( TipoGasolina.aMicrogalones( reserva.getGalonesReservados( ) / 2 ) );
+                    }
+                    catch( IllegalStateException e )
+                    {
+                        if( reserva.getEstado( ) != Reserva.Estado.VENCIDA )
+                            rechazosSinVencer.incrementAndGet( );
+                    }
+                }
+            } );
+            hilos[ h ].start( );
+        }
+        inicio.countDown( );
+        for( Thread hilo : hilos )
+        {
+            hilo.join( );
+        }
+
+        // Esperar a que venzan las reservas que no alcanzaron a confirmarse
+        TipoGasolina corriente = g2.getTipoGasolina( CORRIENTE );
+        long limite = System.currentTimeMillis( ) + 5000;
+        while( corriente.getMicrogalonesReservados( ) != 0 && System.currentTimeMillis( ) < limite )
+        {
+            Thread.sleep( 5 );
+        }
+        double vendido = 0;
+        for( int i = 0; i < g2.getCantidadSurtidores( ); i++ )
+        {
+            vendido += g2.getSurtidor( i ).getGalonesVendidos( CORRIENTE );
+        }
+        assertEquals( 0, rechazosSinVencer.get( ), "Sólo una reserva vencida puede rechazar la confirmación" );
+        assertEquals( 0, corriente.getMicrogalonesReservados( ), "Todas las reservas deberían haber terminado" );
+        assertEquals( TipoGasolina.aGalones( despachado.get( ) ), vendido, 0.0001, "Lo vendido debería ser lo confirmado" );
+        assertEquals( CANTIDAD_CORRIENTE, vendido + corriente.getCantidadDisponible( ), 0.0001, "No debería perderse ni crearse gasolina" );
+    }
+
+    @Test
+    public void testEventosVentas( ) throws Exception
+    {
+        BusVentas bus = g2.activarEventos( 64, false );
+        assertSame( bus, g2.activarEventos( 64, false ), "Si los eventos ya estaban activos, debería seguirse usando el mismo bus" );
+        final AtomicLong dineroEventos = new AtomicLong( );
+        final AtomicLong microgalonesExtra = new AtomicLong( );
+        final int idExtra = g2.getIdentificadorTipoGasolina( EXTRA );
+        ConsumidorVentas consumidor = bus.agregarConsumidor( evento -> {
+            dineroEventos.addAndGet( evento.getPrecio( ) );
+            if( evento.getIdTipoGasolina( ) == idExtra )
+                microgalonesExtra.addAndGet( evento.getMicrogalones( ) );
+        }, Contrapresion.BLOQUEAR );
+
+        // Ventas desde la gasolinera, desde un surtidor y con reservas
+        for( int i = 0; i < 200; i++ )
+        {
+            g2.venderGasolinaPorCantidad( i % 2 == 0 ? CORRIENTE : EXTRA, 0.1, i % 4 );
+        }
+        g2.getSurtidor( 1 ).venderGasolina( PLUS, 2 );
+        Reserva reserva = g2.reservar( EXTRA, 3, 2, 1, TimeUnit.HOURS );
+        g2.confirmarReserva( reserva, 2 );
+        g2.desactivarEventos( );
+        assertNull( g2.getEventos( ), "Los eventos deberían quedar apagados" );
+
+        long dineroEmpleados = 0;
+        for( Empleado empleado : g2.getEmpleados( ) )
+        {
+            dineroEmpleados += empleado.getCantidadDinero( );
+        }
+        assertEquals( 202, consumidor.getProcesados( ), "Cada venta debería publicarse una vez" );
+        assertEquals( dineroEmpleados, dineroEventos.get( ), "El dinero de los eventos debería ser el que recibieron los empleados" );
+        assertEquals( TipoGasolina.aMicrogalones( 12 ), microgalonesExtra.get( ), "Los galones de los eventos no son correctos" );
+
+        g2.venderGasolinaPorCantidad( CORRIENTE, 1, 0 );
+        assertEquals( 202, bus.getPublicados( ), "Con los eventos apagados no deberían publicarse más ventas" );
+    }
+
+    @Test
+    public void testOyenteQueGuardaEstado( ) throws Exception
+    {
+        // Un consumidor que bloquea y guarda el estado en cada venta, con un anillo pequeño para que las ventas lo tengan que esperar
+        BusVentas bus = g2.activarEventos( 4, false );
+        final File archivo = new File( carpeta, "oyente.gas" );
+        final AtomicLong fallas = new AtomicLong( );
+        ConsumidorVentas consumidor = bus.agregarConsumidor( evento -> {
+            try
+            {
+                g2.guardarEstado( archivo );
+            }
+            catch( Exception e )
+            {
+                fallas.incrementAndGet( );
+            }
+        }, Contrapresion.BLOQUEAR );
+
+        Thread vendedor = new Thread( ( ) -> {
+            for( int i = 0; i < 100; i++ )
+            {
+                g2.venderGasolinaPorCantidad( CORRIENTE, 0.1, i % 4 );
+            }
+        } );
+        vendedor.start( );
+        vendedor.join( 30000 );
+        assertFalse( vendedor.isAlive( ), "Las ventas no deberían quedar esperando al oyente que guarda el estado" );
+        g2.desactivarEventos( );
+
+        assertEquals( 100, consumidor.getProcesados( ), "El oyente debería recibir todas las ventas" );
+        assertEquals( 0, fallas.get( ), "Todos los guardados deberían funcionar" );
+        assertEquals( g2.getTipoGasolina( CORRIENTE ).getCantidadDisponible( ), Gasolinera.cargarEstado( archivo ).getTipoGasolina( CORRIENTE ).getCantidadDisponible( ),
+                0.0001, "El último guardado debería tener todas las ventas" );
+    }
+
+    @Test
+    public void testEstrategiaAsignacion( )
+    {
+        List<TipoGasolina> tipos = new LinkedList<TipoGasolina>( );
+        tipos.add( new TipoGasolina( CORRIENTE, VALOR_CORRIENTE, CANTIDAD_CORRIENTE ) );
+        Gasolinera rotando = new Gasolinera( 4, tipos, new String[]{ ALICE, BOB, CHARLY }, Sorteo.rotando( ) );
+        String[] esperados = new String[]{ ALICE, BOB, CHARLY, ALICE };
+        for( int i = 0; i < esperados.length; i++ )
+        {
+            assertEquals( esperados[ i ], rotando.getSurtidor( i ).getEmpleadoAsignado( ).getNombre( ), "El empleado del surtidor " + i + " no es correcto" );
+        }
+
+        // Con la misma semilla, dos gasolineras quedan con los mismos empleados en cada surtidor
+        Gasolinera primera = new Gasolinera( 50, tipos, new String[]{ ALICE, BOB, CHARLY }, Sorteo.alAzar( 7 ) );
+        Gasolinera segunda = new Gasolinera( 50, tipos, new String[]{ ALICE, BOB, CHARLY }, Sorteo.alAzar( 7 ) );
+        for( int i = 0; i < 50; i++ )
+        {
+            assertEquals( primera.getSurtidor( i ).getEmpleadoAsignado( ).getNombre( ), segunda.getSurtidor( i ).getEmpleadoAsignado( ).getNombre( ),
+                    "La asignación con semilla debería poder repetirse" );
+        }
+    }
+
+    @Test
+    public void testCambiarTurnoMientrasSeVende( ) throws Exception
+    {
+        final File archivoEstado = new File( carpeta, "estado.gas" );
+        final File archivoDiario = new File( carpeta, "estado.diario" );
+        g2.guardarEstado( archivoEstado );
+        g2.activarDiario( archivoDiario, 64, 0 );
+
+        final int cantidadHilos = 4;
+        final CountDownLatch inicio = new CountDownLatch( 1 );
+        final AtomicLong dineroCobrado = new AtomicLong( );
+        final AtomicLong ventasEnCurso = new AtomicLong( cantidadHilos );
+        Thread[] hilos = new Thread[cantidadHilos];
+        for( int h = 0; h < cantidadHilos; h++ )
+        {
+            final int numeroHilo = h;
+            hilos[ h ] = new Thread( ( ) -> {
+                try
+                {
+                    inicio.await( );
+                }
+                catch( InterruptedException e )
+                {
+                    return;
+                }
+                for( int i = 0; i < 2000; i++ )
+                {
+                    dineroCobrado.addAndGet( g2.venderGasolinaPorCantidad( CORRIENTE, 0.01, ( numeroHilo + i ) % g2.getCantidadSurtidores( ) ) );
+                }
+                ventasEnCurso.decrementAndGet( );
+            } );
+            hilos[ h ].start( );
+        }
+
+        // Cambiar el turno una y otra vez mientras los hilos venden
+        String[][] turnos = new String[][]{ { ALICE, ALICE, ALICE, ALICE }, { BOB, CHARLY, BOB, CHARLY }, { CHARLY, null, ALICE, null } };
+        inicio.countDown( );
+        int cambios = 0;
+        while( ventasEnCurso.get( ) > 0 )
+        {
+            g2.cambiarTurno( turnos[ cambios % turnos.length ] );
+            g2.reasignarSurtidor( cambios % g2.getCantidadSurtidores( ), BOB );
+            cambios++;
+        }
+        for( Thread hilo : hilos )
+        {
+            hilo.join( );
+        }
+        g2.desactivarDiario( );
+
+        // Cada venta debe quedar a nombre de un solo empleado, y el diario debe tener al mismo empleado que recibió el dinero
+        long dineroEmpleados = 0;
+        Gasolinera recuperada = Gasolinera.cargarEstado( archivoEstado, archivoDiario );
+        for( Empleado empleado : g2.getEmpleados( ) )
+        {
+            dineroEmpleados += empleado.getCantidadDinero( );
+            assertEquals( empleado.getCantidadDinero( ), recuperada.getEmpleado( empleado.getNombre( ) ).getCantidadDinero( ),
+                    "El diario no tiene las ventas de " + empleado.getNombre( ) );
+        }
+        assertEquals( dineroCobrado.get( ), dineroEmpleados, "El dinero de los empleados no corresponde a lo cobrado en las ventas" );
+
+        assertThrows( IllegalArgumentException.class, ( ) -> g2.reasignarSurtidor( 0, "Zoe" ), "No debería poder asignarse un empleado que no existe" );
+        assertThrows( IllegalArgumentException.class, ( ) -> g2.cambiarTurno( new String[]{ ALICE } ), "El turno debería tener un empleado por surtidor" );
+    }
+
+    @Test
+    public void testCambiarTurnoConEstrategia( )
+    {
+        g2.cambiarTurno( new String[]{ CHARLY, BOB }, Sorteo.rotando( ) );
+        String[] esperados = new String[]{ CHARLY, BOB, CHARLY, BOB };
+        for( int i = 0; i < esperados.length; i++ )
+        {
+            assertEquals( esperados[ i ], g2.getSurtidor( i ).getEmpleadoAsignado( ).getNombre( ), "El empleado del surtidor " + i + " no es correcto" );
+        }
+        assertThrows( IllegalArgumentException.class, ( ) -> g2.cambiarTurno( new String[ 0 ], Sorteo.rotando( ) ), "El turno debería tener empleados" );
+    }
 }
@@ -0,0 +1,105 @@
+package uniandes.dpoo.gasolinera.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import uniandes.dpoo.gasolinera.consola.GeneradorCarga;
+import uniandes.dpoo.gasolinera.logica.Empleado;
+import uniandes.dpoo.gasolinera.logica.Gasolinera;
+import uniandes.dpoo.gasolinera.logica.TipoGasolina;
+
+class GeneradorCargaTest
+{
+    private static final String CORRIENTE = "corriente";
+    private static final String EXTRA = "extra";
+
+    private Gasolinera gasolinera;
+
+    @BeforeEach
+    void setUp( ) throws Exception
+    {
+        List<TipoGasolina> tipos = new LinkedList<TipoGasolina>( );
+        tipos.add( new TipoGasolina( CORRIENTE, 14500, 2000 ) );
+        tipos.add( new TipoGasolina( EXTRA, 21090, 1000 ) );
+        gasolinera = new Gasolinera( 16, tipos, new String[]{ "Alice", "Bob", "Charly" } );
+    }
+
+    /**
+     * Suma el dinero de todos los empleados de la gasolinera
+     */
+    private long sumarDineroEmpleados( )
+    {
+        long dinero = 0;
+        for( Empleado empleado : gasolinera.getEmpleados( ) )
+        {
+            dinero += empleado.getCantidadDinero( );
+        }
+        return dinero;
+    }
+
+    @Test
+    public void testTerminaAlAgotarseLaGasolina( ) throws Exception
+    {
+        GeneradorCarga generador = new GeneradorCarga( gasolinera );
+        generador.cambiarDuracion( 60, TimeUnit.SECONDS );
+        generador.ejecutar( );
+
+        assertEquals( GeneradorCarga.FIN_GASOLINA_AGOTADA, generador.getRazonFin( ), "La generación debería terminar porque se acabó la gasolina" );
+        assertTrue( generador.getTiempoTranscurrido( ) < TimeUnit.SECONDS.toNanos( 60 ), "La generación no debería esperar a que se cumpla la duración" );
+        assertEquals( 0, gasolinera.getTipoGasolina( CORRIENTE ).getCantidadDisponible( ), 0.0001, "No debería quedar gasolina corriente" );
+        assertEquals( 0, gasolinera.getTipoGasolina( EXTRA ).getCantidadDisponible( ), 0.0001, "No debería quedar gasolina extra" );
+        assertEquals( sumarDineroEmpleados( ), generador.getDinero( ), "El dinero cobrado debería ser el que recibieron los empleados" );
+        assertEquals( generador.getVentas( ), generador.getLatencias( ).getCantidad( ), "Debería haber una latencia por venta" );
+    }
+
+    @Test
+    public void testTerminaAlCumplirseLaDuracion( ) throws Exception
+    {
+        Map<String, Double> mezcla = new HashMap<String, Double>( );
+        mezcla.put( EXTRA, 1.0 );
+        GeneradorCarga generador = new GeneradorCarga( gasolinera );
+        generador.cambiarMezcla( mezcla );
+        generador.cambiarTasaLlegadas( 20 );
+        generador.cambiarTamanoVentas( 0.01, 100 );
+        generador.cambiarDuracion( 300, TimeUnit.MILLISECONDS );
+        generador.ejecutar( );
+
+        assertEquals( GeneradorCarga.FIN_DURACION, generador.getRazonFin( ), "La generación debería terminar porque se cumplió la duración" );
+        assertTrue( generador.getVentas( ) > 0, "Debería haberse hecho alguna venta" );
+        assertEquals( 2000, gasolinera.getTipoGasolina( CORRIENTE ).getCantidadDisponible( ), 0.0001, "No debería venderse gasolina que no está en la mezcla" );
+        assertEquals( sumarDineroEmpleados( ), generador.getDinero( ), "El dinero cobrado debería ser el que recibieron los empleados" );
+    }
+
+    @Test
+    public void testHiloPorCarro( ) throws Exception
+    {
+        GeneradorCarga generador = new GeneradorCarga( gasolinera );
+        generador.cambiarHiloPorCarro( true );
+        generador.cambiarTasaLlegadas( 2000 );
+        generador.cambiarTamanoVentas( 0.01, 100 );
+        generador.cambiarDuracion( 300, TimeUnit.MILLISECONDS );
+        generador.ejecutar( );
+
+        assertTrue( generador.getVentas( ) > 0, "Debería haberse hecho alguna venta" );
+        assertEquals( sumarDineroEmpleados( ), generador.getDinero( ), "Al terminar, todos los carros deberían haber sido atendidos" );
+    }
+
+    @Test
+    public void testMezclaInvalida( )
+    {
+        GeneradorCarga generador = new GeneradorCarga( gasolinera );
+        Map<String, Double> mezcla = new HashMap<String, Double>( );
+        mezcla.put( "diesel", 1.0 );
+        assertThrows( IllegalArgumentException.class, ( ) -> generador.cambiarMezcla( mezcla ), "No debería aceptarse un tipo que la gasolinera no vende" );
+    }
+}
@@ -0,0 +1,252 @@
+package uniandes.dpoo.gasolinera.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import uniandes.dpoo.gasolinera.logica.Empleado;
+import uniandes.dpoo.gasolinera.logica.EstadoGasolinera;
+import uniandes.dpoo.gasolinera.logica.Gasolinera;
+import uniandes.dpoo.gasolinera.logica.TipoGasolina;
+import uniandes.dpoo.gasolinera.persistencia.GuardadoEnSegundoPlano;
+
+class GuardadoEnSegundoPlanoTest
+{
+    private static final String CORRIENTE = "corriente";
+    private static final String EXTRA = "extra";
+
+    private static final int CANTIDAD_HILOS = 4;
+
+    @TempDir
+    File carpeta;
+
+    private Gasolinera gasolinera;
+
+    @BeforeEach
+    void setUp( ) throws Exception
+    {
+        List<TipoGasolina> tipos = new LinkedList<TipoGasolina>( );
+        tipos.add( new TipoGasolina( CORRIENTE, 14500, 1000000 ) );
+        tipos.add( new TipoGasolina( EXTRA, 21090, 1000000 ) );
+        gasolinera = new Gasolinera( 8, tipos, new String[]{ "Alice", "Bob", "Charly" } );
+    }
+
+    /**
+     * Verifica que un estado capturado no tenga ventas a medias: la gasolina que falta en el inventario es la que se vendió en los surtidores, y el dinero de los
+     * empleados es el precio de esa gasolina. Las ventas de la prueba son siempre de galones completos, así que los precios no se redondean
+     * @param estado El estado capturado
+     */
+    private void verificarConsistente( EstadoGasolinera estado )
+    {
+        long dineroEsperado = 0;
+        for( int idTipo = 0; idTipo < estado.getCantidadTipos( ); idTipo++ )
+        {
+            long vendidos = 0;
+            for( int i = 0; i < estado.getCantidadSurtidores( ); i++ )
+            {
+                vendidos += estado.getMicrogalonesVendidos( i, idTipo );
+            }
+            assertEquals( TipoGasolina.aMicrogalones( 1000000 ), estado.getMicrogalonesDisponibles( idTipo ) + vendidos,
+                    "El inventario y los galones vendidos no corresponden al mismo momento" );
+            dineroEsperado += vendidos / TipoGasolina.MICROGALONES_POR_GALON * estado.getPrecioPorGalon( idTipo );
+        }
+        long dinero = 0;
+        for( int i = 0; i < estado.getCantidadEmpleados( ); i++ )
+        {
+            dinero += estado.getCantidadDinero( i );
+        }
+        assertEquals( dineroEsperado, dinero, "El dinero de los empleados no corresponde a los galones vendidos" );
+    }
+
+    @Test
+    void testCapturarMientrasSeVende( ) throws Exception
+    {
+        AtomicBoolean vender = new AtomicBoolean( true );
+        Thread[] hilos = new Thread[CANTIDAD_HILOS];
+        for( int h = 0; h < CANTIDAD_HILOS; h++ )
+        {
+            int numeroHilo = h;
+            hilos[ h ] = new Thread( ( ) -> {
+                int i = 0;
+                while( vender.get( ) )
+                {
+                    gasolinera.venderGasolinaPorCantidad( i % 2 == 0 ? CORRIENTE : EXTRA, 1, ( numeroHilo + i ) % 8 );
+                    i++;
+                }
+            } );
+            hilos[ h ].start( );
+        }
+
+        try
+        {
+            for( int i = 0; i < 200; i++ )
+            {
+                verificarConsistente( gasolinera.capturarEstado( ) );
+            }
+        }
+        finally
+        {
+            vender.set( false );
+            for( Thread hilo : hilos )
+            {
+                hilo.join( );
+            }
+        }
+        verificarConsistente( gasolinera.capturarEstado( ) );
+    }
+
+    @Test
+    void testGuardarEnSegundoPlano( ) throws Exception
+    {
+        gasolinera.venderGasolinaPorCantidad( CORRIENTE, 5, 1 );
+        GuardadoEnSegundoPlano guardado = new GuardadoEnSegundoPlano( gasolinera );
+        File archivo = new File( carpeta, "estado.gasb" );
+        CompletableFuture<File> resultado = guardado.guardar( archivo, true );
+
+        // Lo que se venda después de capturar el estado no queda en el archivo
+        gasolinera.venderGasolinaPorCantidad( CORRIENTE, 7, 2 );
+
+        assertEquals( archivo, resultado.get( 10, TimeUnit.SECONDS ), "El guardado debería completarse con el archivo" );
+        Gasolinera cargada = Gasolinera.cargarEstado( archivo );
+        assertEquals( 5, cargada.getSurtidor( 1 ).getGalonesVendidos( CORRIENTE ), "El archivo debería tener las ventas anteriores a la captura" );
+        assertEquals( 0, cargada.getSurtidor( 2 ).getGalonesVendidos( CORRIENTE ), "El archivo no debería tener las ventas posteriores a la captura" );
+        assertTrue( guardado.cerrar( 10, TimeUnit.SECONDS ), "No deberían quedar guardados pendientes" );
+    }
+
+    @Test
+    void testGuardadoPeriodico( ) throws Exception
+    {
+        GuardadoEnSegundoPlano guardado = new GuardadoEnSegundoPlano( gasolinera );
+        File archivo = new File( carpeta, "estado.gas" );
+        guardado.programar( archivo, false, 10, TimeUnit.MILLISECONDS );
+
+        gasolinera.venderGasolinaPorCantidad( EXTRA, 3, 0 );
+        long limite = System.currentTimeMillis( ) + 10000;
+        while( !archivo.exists( ) && System.currentTimeMillis( ) < limite )
+        {
+            Thread.sleep( 10 );
+        }
+        assertTrue( archivo.exists( ), "El guardado programado debería haber creado el archivo" );
+        assertTrue( guardado.cerrar( 10, TimeUnit.SECONDS ), "No deberían quedar guardados pendientes" );
+        guardado.getUltimoGuardado( ).get( );
+        assertEquals( 3, Gasolinera.cargarEstado( archivo ).getSurtidor( 0 ).getGalonesVendidos( EXTRA ), "El archivo debería tener la venta" );
+    }
+
+    @Test
+    void testDiarioConservaVentasPosteriores( ) throws Exception
+    {
+        File archivo = new File( carpeta, "estado.gas" );
+        File archivoDiario = new File( carpeta, "estado.diario" );
+        gasolinera.activarDiario( archivoDiario, 1, 0 );
+        gasolinera.venderGasolinaPorCantidad( CORRIENTE, 2, 3 );
+
+        EstadoGasolinera estado = gasolinera.capturarEstado( );
+        gasolinera.venderGasolinaPorPrecio( EXTRA, 42180, 4 );
+        estado.guardarTexto( archivo );
+        gasolinera.confirmarGuardado( estado );
+        gasolinera.venderGasolinaPorCantidad( CORRIENTE, 1, 5 );
+        gasolinera.desactivarDiario( );
+
+        Gasolinera recuperada = Gasolinera.cargarEstado( archivo, archivoDiario );
+        for( int i = 0; i < gasolinera.getCantidadSurtidores( ); i++ )
+        {
+            for( TipoGasolina tipo : gasolinera.getTiposGasolina( ) )
+            {
+                assertEquals( gasolinera.getSurtidor( i ).getGalonesVendidos( tipo.getNombre( ) ), recuperada.getSurtidor( i ).getGalonesVendidos( tipo.getNombre( ) ),
+                        "Los galones recuperados del surtidor " + i + " no son correctos" );
+            }
+        }
+        for( Empleado empleado : gasolinera.getEmpleados( ) )
+        {
+            assertEquals( empleado.getCantidadDinero( ), recuperada.getEmpleado( empleado.getNombre( ) ).getCantidadDinero( ), "El dinero recuperado no es correcto" );
+        }
+    }
+
+    /**
+     * Captura dos estados con ventas antes, entre y después de las capturas, confirma los dos guardados en el orden indicado y verifica que el segundo archivo más
+     * el diario tengan todas las ventas
+     * @param enOrden Indica si el primer estado capturado se confirma primero
+     */
+    private void verificarGuardadosSuperpuestos( boolean enOrden ) throws Exception
+    {
+        File archivoPrimero = new File( carpeta, "primero.gas" );
+        File archivoSegundo = new File( carpeta, "segundo.gas" );
+        File archivoDiario = new File( carpeta, "estado.diario" );
+        gasolinera.activarDiario( archivoDiario, 4, 0 );
+
+        for( int i = 0; i < 10; i++ )
+            gasolinera.venderGasolinaPorCantidad( CORRIENTE, 1, i % 8 );
+        EstadoGasolinera primero = gasolinera.capturarEstado( );
+        for( int i = 0; i < 10; i++ )
+            gasolinera.venderGasolinaPorCantidad( CORRIENTE, 1, i % 8 );
+        EstadoGasolinera segundo = gasolinera.capturarEstado( );
+        for( int i = 0; i < 5; i++ )
+            gasolinera.venderGasolinaPorCantidad( CORRIENTE, 1, i % 8 );
+
+        primero.guardarTexto( archivoPrimero );
+        segundo.guardarTexto( archivoSegundo );
+        gasolinera.confirmarGuardado( enOrden ? primero : segundo );
+        gasolinera.confirmarGuardado( enOrden ? segundo : primero );
+        gasolinera.desactivarDiario( );
+
+        Gasolinera recuperada = Gasolinera.cargarEstado( archivoSegundo, archivoDiario );
+        double vendidos = 0;
+        for( int i = 0; i < recuperada.getCantidadSurtidores( ); i++ )
+        {
+            vendidos += recuperada.getSurtidor( i ).getGalonesVendidos( CORRIENTE );
+        }
+        assertEquals( 25, vendidos, 0.000001, "El segundo archivo más el diario deberían tener todas las ventas" );
+    }
+
+    @Test
+    void testGuardadosSuperpuestosEnOrden( ) throws Exception
+    {
+        verificarGuardadosSuperpuestos( true );
+    }
+
+    @Test
+    void testGuardadosSuperpuestosEnDesorden( ) throws Exception
+    {
+        verificarGuardadosSuperpuestos( false );
+    }
+
+    @Test
+    void testGuardadoFallidoConservaCambios( ) throws Exception
+    {
+        File archivo = new File( carpeta, "estado.gas" );
+        File archivoCambios = new File( carpeta, "estado.cambios" );
+        gasolinera.guardarEstado( archivo );
+        gasolinera.venderGasolinaPorCantidad( CORRIENTE, 2, 3 );
+        gasolinera.reasignarSurtidor( 5, "Bob" );
+
+        // El guardado falla porque la carpeta del archivo no existe
+        GuardadoEnSegundoPlano guardado = new GuardadoEnSegundoPlano( gasolinera );
+        CompletableFuture<File> resultado = guardado.guardar( new File( carpeta, "no-existe/estado.gas" ), false );
+        assertThrows( ExecutionException.class, ( ) -> resultado.get( ), "El guardado debería fallar" );
+        assertTrue( guardado.cerrar( 10, TimeUnit.SECONDS ), "No deberían quedar guardados pendientes" );
+
+        gasolinera.guardarCambios( archivoCambios );
+        Gasolinera recuperada = Gasolinera.cargarEstado( archivo, Arrays.asList( archivoCambios ) );
+        assertEquals( 2, recuperada.getSurtidor( 3 ).getGalonesVendidos( CORRIENTE ), 0.000001, "El archivo de cambios debería tener la venta" );
+        assertEquals( gasolinera.getTipoGasolina( CORRIENTE ).getCantidadDisponible( ), recuperada.getTipoGasolina( CORRIENTE ).getCantidadDisponible( ),
+                "El archivo de cambios debería tener el inventario" );
+        assertEquals( "Bob", recuperada.getSurtidor( 5 ).getEmpleadoAsignado( ).getNombre( ), "El archivo de cambios debería tener la reasignación" );
+        for( Empleado empleado : gasolinera.getEmpleados( ) )
+        {
+            assertEquals( empleado.getCantidadDinero( ), recuperada.getEmpleado( empleado.getNombre( ) ).getCantidadDinero( ), "El dinero recuperado no es correcto" );
+        }
+    }
+}
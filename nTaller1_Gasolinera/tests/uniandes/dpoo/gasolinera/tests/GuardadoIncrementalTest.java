@@ -0,0 +1,252 @@
+package uniandes.dpoo.gasolinera.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import uniandes.dpoo.gasolinera.logica.Empleado;
+import uniandes.dpoo.gasolinera.logica.Gasolinera;
+import uniandes.dpoo.gasolinera.logica.TipoGasolina;
+import uniandes.dpoo.gasolinera.logica.VersionPrecio;
+import uniandes.dpoo.gasolinera.persistencia.DiarioVentas;
+import uniandes.dpoo.gasolinera.persistencia.GuardadoIncremental;
+
+class GuardadoIncrementalTest
+{
+    private static final String CORRIENTE = "corriente";
+    private static final String PLUS = "plus";
+    private static final String EXTRA = "extra";
+
+    @TempDir
+    File carpeta;
+
+    private GuardadoIncremental guardado;
+
+    private Gasolinera gasolinera;
+
+    @BeforeEach
+    void setUp( ) throws Exception
+    {
+        List<TipoGasolina> tipos = new LinkedList<TipoGasolina>( );
+        tipos.add( new TipoGasolina( CORRIENTE, 14500, 100 ) );
+        tipos.add( new TipoGasolina( PLUS, 16251, 80 ) );
+        tipos.add( new TipoGasolina( EXTRA, 21090, 50 ) );
+        gasolinera = new Gasolinera( 6, tipos, new String[]{ "Alice", "Bob", "Charly" } );
+
+        guardado = new GuardadoIncremental( new File( carpeta, "estado.gas" ) );
+        guardado.guardarEstado( gasolinera );
+    }
+
+    /**
+     * Cuenta las líneas de un archivo que empiezan de cierta forma
+     * @param archivo El archivo que se revisa
+     * @param inicio El inicio de las líneas que se cuentan
+     * @return La cantidad de líneas que empiezan con el inicio
+     */
+    private int contarLineas( File archivo, String inicio ) throws Exception
+    {
+        int cantidad = 0;
+        BufferedReader br = new BufferedReader( new FileReader( archivo ) );
+        String linea = br.readLine( );
+        while( linea != null )
+        {
+            if( linea.startsWith( inicio ) )
+                cantidad++;
+            linea = br.readLine( );
+        }
+        br.close( );
+        return cantidad;
+    }
+
+    /**
+     * Verifica que una gasolinera tenga el mismo estado que la gasolinera de la prueba
+     * @param recuperada La gasolinera que se compara
+     */
+    private void verificarIgual( Gasolinera recuperada )
+    {
+        for( TipoGasolina tipo : gasolinera.getTiposGasolina( ) )
+        {
+            assertEquals( tipo.getCantidadDisponible( ), recuperada.getTipoGasolina( tipo.getNombre( ) ).getCantidadDisponible( ), "El inventario recuperado no es correcto" );
+            for( int i = 0; i < gasolinera.getCantidadSurtidores( ); i++ )
+            {
+                assertEquals( gasolinera.getSurtidor( i ).getGalonesVendidos( tipo.getNombre( ) ), recuperada.getSurtidor( i ).getGalonesVendidos( tipo.getNombre( ) ),
+                        "Los galones recuperados del surtidor " + i + " no son correctos" );
+            }
+        }
+        for( Empleado empleado : gasolinera.getEmpleados( ) )
+        {
+            assertEquals( empleado.getCantidadDinero( ), recuperada.getEmpleado( empleado.getNombre( ) ).getCantidadDinero( ),
+                    "El dinero recuperado de " + empleado.getNombre( ) + " no es correcto" );
+        }
+    }
+
+    @Test
+    void testGuardarSoloCambios( ) throws Exception
+    {
+        gasolinera.venderGasolinaPorCantidad( PLUS, 2.5, 4 );
+        File cambios = guardado.guardarCambios( gasolinera );
+
+        assertEquals( 1, contarLineas( cambios, "tipo:" ), "Sólo cambió un tipo de gasolina" );
+        assertEquals( 1, contarLineas( cambios, "surtidor:4:" ), "Sólo cambió el surtidor 4" );
+        assertEquals( 1, contarLineas( cambios, "surtidor:" ), "Sólo cambió un surtidor" );
+        assertEquals( 1, contarLineas( cambios, "empleado:" ), "Sólo cambió un empleado" );
+
+        File sinCambios = guardado.guardarCambios( gasolinera );
+        assertEquals( 0, contarLineas( sinCambios, "tipo:" ) + contarLineas( sinCambios, "surtidor:" ) + contarLineas( sinCambios, "empleado:" ),
+                "No debería haber cambios después de guardar" );
+    }
+
+    @Test
+    void testCargarConCambios( ) throws Exception
+    {
+        gasolinera.venderGasolinaPorCantidad( CORRIENTE, 3.5, 0 );
+        gasolinera.venderGasolinaPorPrecio( EXTRA, 40000, 2 );
+        guardado.guardarCambios( gasolinera );
+        gasolinera.venderGasolinaPorCantidad( CORRIENTE, 1.25, 5 );
+        gasolinera.venderGasolinaPorCantidad( EXTRA, 100, 1 );
+        guardado.guardarCambios( gasolinera );
+
+        assertEquals( 2, guardado.getArchivosCambios( ).size( ), "Deberían haber dos archivos de cambios" );
+        verificarIgual( new GuardadoIncremental( guardado.getArchivoBase( ) ).cargar( ) );
+    }
+
+    @Test
+    void testCambiosNoGuardadosSeConservan( ) throws Exception
+    {
+        File archivoDiario = new File( carpeta, "estado.diario" );
+        gasolinera.activarDiario( archivoDiario, 1, 0 );
+        gasolinera.venderGasolinaPorCantidad( CORRIENTE, 3.5, 0 );
+        gasolinera.reasignarSurtidor( 2, "Charly" );
+
+        // El archivo de cambios no se puede escribir porque su carpeta no existe
+        assertThrows( IOException.class, ( ) -> gasolinera.guardarCambios( new File( carpeta, "no-existe/estado.cambios" ) ) );
+        gasolinera.venderGasolinaPorPrecio( EXTRA, 40000, 2 );
+        gasolinera.desactivarDiario( );
+        verificarIgual( new GuardadoIncremental( guardado.getArchivoBase( ) ).cargar( archivoDiario ) );
+
+        File cambios = guardado.guardarCambios( gasolinera );
+        assertEquals( 1, contarLineas( cambios, "surtidor:0:" ), "Los cambios del archivo que falló deberían quedar en el siguiente" );
+        assertEquals( 1, contarLineas( cambios, "asignacion:2:Charly" ), "La reasignación debería quedar en el siguiente archivo" );
+        verificarIgual( new GuardadoIncremental( guardado.getArchivoBase( ) ).cargar( ) );
+    }
+
+    @Test
+    void testBaseNoInstaladaConservaDiario( ) throws Exception
+    {
+        File archivoDiario = new File( carpeta, "estado.diario" );
+        gasolinera.activarDiario( archivoDiario, 1, 0 );
+        for( int i = 0; i < 3; i++ )
+            gasolinera.venderGasolinaPorCantidad( CORRIENTE, 1, i );
+
+        // El archivo temporal se alcanza a escribir, pero no puede reemplazar a una carpeta que no está vacía
+        File ocupado = new File( carpeta, "ocupado" );
+        assertTrue( new File( ocupado, "otro" ).mkdirs( ) );
+        assertThrows( IOException.class, ( ) -> new GuardadoIncremental( ocupado ).guardarEstado( gasolinera ) );
+        gasolinera.desactivarDiario( );
+
+        assertEquals( 3, DiarioVentas.reproducir( archivoDiario, Gasolinera.cargarEstado( guardado.getArchivoBase( ) ) ),
+                "El diario debería conservar las ventas que no quedaron en ningún archivo base" );
+    }
+
+    @Test
+    void testCargarCambioPrecio( ) throws Exception
+    {
+        VersionPrecio nueva = gasolinera.cambiarPrecio( PLUS, 17000 );
+        guardado.guardarCambios( gasolinera );
+        Thread.sleep( 20 );
+
+        VersionPrecio recuperada = guardado.cargar( ).getTipoGasolina( PLUS ).getVersionPrecio( );
+        assertEquals( nueva.getNumero( ), recuperada.getNumero( ), "La versión del precio no es correcta" );
+        assertEquals( 17000, recuperada.getPrecioPorGalon( ), "El precio no es correcto" );
+        assertEquals( nueva.getDesde( ), recuperada.getDesde( ), "El momento en el que se publicó el precio debería recuperarse" );
+
+        // Los archivos completos también guardan el momento de la versión del precio
+        guardado.guardarEstado( gasolinera );
+        assertEquals( nueva.getDesde( ), guardado.cargar( ).getTipoGasolina( PLUS ).getVersionPrecio( ).getDesde( ), "El archivo de texto debería tener el momento" );
+        File binario = new File( carpeta, "estado.gasb" );
+        gasolinera.guardarEstadoBinario( binario );
+        assertEquals( nueva.getDesde( ), Gasolinera.cargarEstado( binario ).getTipoGasolina( PLUS ).getVersionPrecio( ).getDesde( ),
+                "El archivo binario debería tener el momento" );
+
+        // Los archivos de cambios anteriores no tienen el momento de la versión del precio
+        File anterior = new File( carpeta, "anterior.cambios" );
+        PrintWriter writer = new PrintWriter( anterior );
+        writer.println( "cambios" );
+        writer.println( "tipo:plus:18000:80.0:5" );
+        writer.close( );
+        VersionPrecio sinMomento = Gasolinera.cargarEstado( guardado.getArchivoBase( ), Arrays.asList( anterior ) ).getTipoGasolina( PLUS ).getVersionPrecio( );
+        assertEquals( 5, sinMomento.getNumero( ), "La versión del precio no es correcta" );
+        assertEquals( 18000, sinMomento.getPrecioPorGalon( ), "El precio no es correcto" );
+    }
+
+    @Test
+    void testCargarConReasignaciones( ) throws Exception
+    {
+        gasolinera.cambiarTurno( new String[]{ "Alice", "Alice", "Bob", "Bob", "Charly", "Charly" } );
+        gasolinera.reasignarSurtidor( 5, "Alice" );
+        gasolinera.venderGasolinaPorCantidad( PLUS, 2.5, 5 );
+        File cambios = guardado.guardarCambios( gasolinera );
+        assertEquals( 1, contarLineas( cambios, "asignacion:5:Alice" ), "El surtidor 5 debería quedar con Alice" );
+
+        Gasolinera recuperada = new GuardadoIncremental( guardado.getArchivoBase( ) ).cargar( );
+        verificarIgual( recuperada );
+        for( int i = 0; i < gasolinera.getCantidadSurtidores( ); i++ )
+        {
+            assertEquals( gasolinera.getSurtidor( i ).getEmpleadoAsignado( ).getNombre( ), recuperada.getSurtidor( i ).getEmpleadoAsignado( ).getNombre( ),
+                    "El empleado recuperado del surtidor " + i + " no es correcto" );
+        }
+    }
+
+    @Test
+    void testRecuperarEntreCambiosConDiario( ) throws Exception
+    {
+        File archivoDiario = new File( carpeta, "ventas.diario" );
+        gasolinera.activarDiario( archivoDiario, 1, 0 );
+        gasolinera.venderGasolinaPorCantidad( CORRIENTE, 3.5, 0 );
+        gasolinera.venderGasolinaPorPrecio( EXTRA, 40000, 2 );
+        guardado.guardarCambios( gasolinera );
+
+        // La gasolinera se detiene después de unas ventas, antes de guardar el siguiente archivo de cambios
+        gasolinera.venderGasolinaPorCantidad( CORRIENTE, 1.25, 5 );
+        gasolinera.venderGasolinaPorCantidad( PLUS, 2, 0 );
+        gasolinera.desactivarDiario( );
+        verificarIgual( new GuardadoIncremental( guardado.getArchivoBase( ) ).cargar( archivoDiario ) );
+
+        // Después de recuperarse, las ventas del diario van en el siguiente archivo de cambios y no se cuentan dos veces
+        gasolinera.activarDiario( archivoDiario, 1, 0 );
+        guardado.guardarCambios( gasolinera );
+        gasolinera.venderGasolinaPorCantidad( EXTRA, 100, 1 );
+        gasolinera.desactivarDiario( );
+        verificarIgual( new GuardadoIncremental( guardado.getArchivoBase( ) ).cargar( archivoDiario ) );
+    }
+
+    @Test
+    void testCompactar( ) throws Exception
+    {
+        for( int i = 0; i < 5; i++ )
+        {
+            gasolinera.venderGasolinaPorCantidad( PLUS, 1.75, i );
+            guardado.guardarCambios( gasolinera );
+        }
+
+        Gasolinera compactada = guardado.compactar( );
+        verificarIgual( compactada );
+        assertTrue( guardado.getArchivosCambios( ).isEmpty( ), "No deberían quedar archivos de cambios" );
+        assertFalse( guardado.getArchivoCambios( 1 ).exists( ), "Los archivos de cambios deberían haberse borrado" );
+        verificarIgual( Gasolinera.cargarEstado( guardado.getArchivoBase( ) ) );
+    }
+}
@@ -0,0 +1,56 @@
+package uniandes.dpoo.gasolinera.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import uniandes.dpoo.gasolinera.utils.HistogramaLatencias;
+
+class HistogramaLatenciasTest
+{
+    @Test
+    public void testVacio( )
+    {
+        HistogramaLatencias histograma = new HistogramaLatencias( );
+        assertEquals( 0, histograma.getCantidad( ), "El histograma debería estar vacío" );
+        assertEquals( 0, histograma.calcularPercentil( 50 ), "La mediana de un histograma vacío debería ser 0" );
+        assertEquals( 0, histograma.getMaximo( ), "El máximo de un histograma vacío debería ser 0" );
+    }
+
+    @Test
+    public void testValoresPequenosExactos( )
+    {
+        HistogramaLatencias histograma = new HistogramaLatencias( );
+        for( int i = 1; i <= 50; i++ )
+        {
+            histograma.registrar( i );
+        }
+        assertEquals( 50, histograma.getCantidad( ), "La cantidad registrada no es correcta" );
+        assertEquals( 25, histograma.calcularPercentil( 50 ), "Los valores pequeños deberían tener una cubeta cada uno" );
+        assertEquals( 50, histograma.getMaximo( ), "El máximo no es correcto" );
+    }
+
+    @Test
+    public void testPercentiles( )
+    {
+        HistogramaLatencias histograma = new HistogramaLatencias( );
+        for( int i = 1; i <= 100000; i++ )
+        {
+            histograma.registrar( i * 1000L );
+        }
+        assertEquals( 50000000, histograma.calcularPercentil( 50 ), 50000000 / 64.0, "La mediana no es correcta" );
+        assertEquals( 99000000, histograma.calcularPercentil( 99 ), 99000000 / 64.0, "El percentil 99 no es correcto" );
+        assertEquals( 99900000, histograma.calcularPercentil( 99.9 ), 99900000 / 64.0, "El percentil 99.9 no es correcto" );
+        assertEquals( 100000000, histograma.getMaximo( ), 100000000 / 64.0, "El máximo no es correcto" );
+    }
+
+    @Test
+    public void testValoresExtremos( )
+    {
+        HistogramaLatencias histograma = new HistogramaLatencias( );
+        histograma.registrar( -5 );
+        histograma.registrar( Long.MAX_VALUE );
+        assertEquals( 0, histograma.calcularPercentil( 50 ), "Los valores negativos deberían registrarse como 0" );
+        assertEquals( Long.MAX_VALUE, histograma.getMaximo( ), Long.MAX_VALUE / 64.0, "El valor más grande debería quedar en la última cubeta" );
+    }
+}
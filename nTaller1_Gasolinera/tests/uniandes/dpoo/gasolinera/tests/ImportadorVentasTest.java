@@ -0,0 +1,180 @@
+package uniandes.dpoo.gasolinera.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import uniandes.dpoo.gasolinera.exceptions.FormatoArchivoException;
+import uniandes.dpoo.gasolinera.logica.Empleado;
+import uniandes.dpoo.gasolinera.logica.Gasolinera;
+import uniandes.dpoo.gasolinera.logica.TipoGasolina;
+import uniandes.dpoo.gasolinera.persistencia.ImportadorVentas;
+
+class ImportadorVentasTest
+{
+    private static final String CORRIENTE = "corriente";
+    private static final String EXTRA = "extra";
+
+    @TempDir
+    File carpeta;
+
+    private Gasolinera crearGasolinera( double corriente, double extra )
+    {
+        List<TipoGasolina> tipos = new LinkedList<TipoGasolina>( );
+        tipos.add( new TipoGasolina( CORRIENTE, 14500, corriente ) );
+        tipos.add( new TipoGasolina( EXTRA, 21090, extra ) );
+        return new Gasolinera( 4, tipos, new String[]{ "Alice", "Bob", "Charly" } );
+    }
+
+    private File escribir( String contenido ) throws Exception
+    {
+        File archivo = new File( carpeta, "ventas.csv" );
+        try( PrintWriter escritor = new PrintWriter( archivo, "UTF-8" ) )
+        {
+            escritor.print( contenido );
+        }
+        return archivo;
+    }
+
+    @Test
+    public void testOrdenPorFecha( ) throws Exception
+    {
+        Gasolinera gasolinera = crearGasolinera( 100, 5 );
+        File archivo = escribir( "surtidor,tipo,galones,valor,fecha\n" + "0,extra,4,,2024-02-10T08:30:00\n" + "1,corriente,,29000,2024-02-10T08:00\n"
+                + "1,extra,3,,2024-02-10 08:15:30.5\r\n" + "\n" + "2,corriente,1.25,,2024-02-10T09:00:00Z" );
+        ImportadorVentas importador = new ImportadorVentas( gasolinera, 4 );
+        importador.cambiarTamanoFragmento( 32 );
+
+        assertEquals( 4, importador.importar( archivo ), "Deberían aplicarse todas las ventas" );
+        assertTrue( importador.getFragmentos( ) > 1, "El archivo debería haberse partido en varios fragmentos" );
+        assertTrue( importador.estabaDesordenado( ), "Las ventas no estaban en orden de fecha" );
+        assertEquals( 3, gasolinera.getSurtidor( 1 ).getGalonesVendidos( EXTRA ), 0.0001, "La venta más temprana de extra debería estar completa" );
+        assertEquals( 2, gasolinera.getSurtidor( 0 ).getGalonesVendidos( EXTRA ), 0.0001, "La venta más tardía de extra debería recibir lo que quedaba" );
+        assertEquals( 2, gasolinera.getSurtidor( 1 ).getGalonesVendidos( CORRIENTE ), 0.0001, "La venta por valor no es correcta" );
+        assertEquals( 1.25, gasolinera.getSurtidor( 2 ).getGalonesVendidos( CORRIENTE ), 0.0001, "La venta de la última línea no es correcta" );
+        assertEquals( 1, importador.getVentasParciales( ), "Sólo una venta debería estar incompleta" );
+        assertEquals( 21090 * 2, importador.getPesosSinVender( ), "El dinero sin vender no es correcto" );
+
+        ByteArrayOutputStream salida = new ByteArrayOutputStream( );
+        importador.imprimirResumen( new PrintStream( salida, true, "UTF-8" ) );
+        String resumen = salida.toString( "UTF-8" );
+        assertTrue( resumen.contains( "filas/s" ), "El resumen debería mostrar la velocidad: " + resumen );
+        assertTrue( resumen.contains( "Ventas parciales: 1" ), "El resumen debería mostrar las ventas parciales: " + resumen );
+    }
+
+    @Test
+    public void testIgualQueVentasEnOrden( ) throws Exception
+    {
+        // Generar ventas con fechas al azar, con muchas fechas repetidas, y más gasolina pedida de la que hay
+        Random azar = new Random( 17 );
+        StringBuilder contenido = new StringBuilder( );
+        List<long[]> ventas = new ArrayList<long[]>( );
+        for( int i = 0; i < 5000; i++ )
+        {
+            int surtidor = azar.nextInt( 4 );
+            int tipo = azar.nextInt( 2 );
+            long fecha = 1700000000000L + azar.nextInt( 500 ) * 1000L;
+            boolean porPrecio = azar.nextBoolean( );
+            int cantidad = porPrecio ? 1000 + azar.nextInt( 50000 ) : 1 + azar.nextInt( 20 );
+            contenido.append( surtidor ).append( ',' ).append( tipo == 0 ? CORRIENTE : EXTRA ).append( ',' );
+            contenido.append( porPrecio ? "," + cantidad : cantidad + "," ).append( ',' ).append( fecha ).append( '\n' );
+            ventas.add( new long[]{ fecha, surtidor, tipo, porPrecio ? 1 : 0, cantidad } );
+        }
+        File archivo = escribir( contenido.toString( ) );
+
+        Gasolinera importada = crearGasolinera( 20000, 8000 );
+        ImportadorVentas importador = new ImportadorVentas( importada, 4 );
+        importador.cambiarTamanoFragmento( 4096 );
+        importador.importar( archivo );
+
+        // Vender lo mismo, una venta a la vez, ordenando de forma estable por fecha
+        Gasolinera esperada = crearGasolinera( 20000, 8000 );
+        ventas.sort( ( a, b ) -> Long.compare( a[ 0 ], b[ 0 ] ) );
+        long parciales = 0;
+        for( long[] venta : ventas )
+        {
+            int tipo = ( int )venta[ 2 ];
+            if( venta[ 3 ] == 1 )
+            {
+                parciales += esperada.venderGasolinaPorPrecio( tipo, ( int )venta[ 4 ], ( int )venta[ 1 ] ) < venta[ 4 ] ? 1 : 0;
+            }
+            else
+            {
+                int precioCompleto = esperada.getRegistroTiposGasolina( ).getTipo( tipo ).getPrecioPorGalon( ) * ( int )venta[ 4 ];
+                parciales += esperada.venderGasolinaPorCantidad( tipo, venta[ 4 ], ( int )venta[ 1 ] ) < precioCompleto ? 1 : 0;
+            }
+        }
+
+        assertTrue( parciales > 0, "La prueba debería tener ventas incompletas" );
+        assertEquals( parciales, importador.getVentasParciales( ), "La cantidad de ventas incompletas no es correcta" );
+        for( int n = 0; n < 4; n++ )
+        {
+            for( String tipo : new String[]{ CORRIENTE, EXTRA } )
+            {
+                assertEquals( esperada.getSurtidor( n ).getGalonesVendidos( tipo ), importada.getSurtidor( n ).getGalonesVendidos( tipo ), 1e-6,
+                        "Los galones vendidos de " + tipo + " en el surtidor " + n + " no son correctos" );
+            }
+        }
+        // Los empleados se asignan al azar a los surtidores, así que sólo se compara el dinero de todos
+        assertEquals( sumarDineroEmpleados( esperada ), sumarDineroEmpleados( importada ), "El dinero de los empleados no es correcto" );
+        assertEquals( sumarDineroEmpleados( importada ), importador.getDineroCobrado( ), "El dinero cobrado debería ser el que recibieron los empleados" );
+    }
+
+    /**
+     * Suma el dinero de todos los empleados de una gasolinera
+     */
+    private long sumarDineroEmpleados( Gasolinera gasolinera )
+    {
+        long dinero = 0;
+        for( Empleado empleado : gasolinera.getEmpleados( ) )
+        {
+            dinero += empleado.getCantidadDinero( );
+        }
+        return dinero;
+    }
+
+    @Test
+    public void testEnOrden( ) throws Exception
+    {
+        Gasolinera gasolinera = crearGasolinera( 100, 100 );
+        File archivo = escribir( "0,corriente,1,,1000\n1,extra,1,,1000\n2,corriente,1,,2000\n3,extra,1,,3000\n" );
+        ImportadorVentas importador = new ImportadorVentas( gasolinera, 2 );
+        importador.cambiarTamanoFragmento( 20 );
+        importador.importar( archivo );
+        assertFalse( importador.estabaDesordenado( ), "Las ventas ya estaban en orden de fecha" );
+        assertEquals( 96, gasolinera.getTipoGasolina( CORRIENTE ).getCantidadDisponible( ) + gasolinera.getTipoGasolina( EXTRA ).getCantidadDisponible( ) - 100, 0.0001,
+                "Deberían haberse vendido 4 galones" );
+    }
+
+    @Test
+    public void testErrores( ) throws Exception
+    {
+        Gasolinera gasolinera = crearGasolinera( 100, 100 );
+        ImportadorVentas importador = new ImportadorVentas( gasolinera, 4 );
+        importador.cambiarTamanoFragmento( 16 );
+
+        File archivo = escribir( "0,corriente,1,,1000\n1,corriente,1,,1001\n2,corriente,1,,1002\n2,diesel,1,,1003\n3,extra,1,,1004\n" );
+        FormatoArchivoException e = assertThrows( FormatoArchivoException.class, ( ) -> importador.importar( archivo ), "El tipo diesel no existe" );
+        assertEquals( 4, e.getLinea( ), "La línea del error no es correcta" );
+        assertEquals( 3, e.getColumna( ), "La columna del error no es correcta" );
+        assertEquals( 100, gasolinera.getTipoGasolina( CORRIENTE ).getCantidadDisponible( ), 0.0001, "Si hay un error no debería aplicarse ninguna venta" );
+
+        assertThrows( FormatoArchivoException.class, ( ) -> importador.importar( escribir( "4,corriente,1,,1000\n" ) ), "El surtidor 4 no existe" );
+        assertThrows( FormatoArchivoException.class, ( ) -> importador.importar( escribir( "0,corriente,1,1000,1000\n" ) ), "No puede tener galones y valor" );
+        assertThrows( FormatoArchivoException.class, ( ) -> importador.importar( escribir( "0,corriente,,,1000\n" ) ), "Debe tener galones o valor" );
+        assertThrows( FormatoArchivoException.class, ( ) -> importador.importar( escribir( "0,corriente,1,,2024-13-01T00:00\n" ) ), "El mes 13 no existe" );
+    }
+}
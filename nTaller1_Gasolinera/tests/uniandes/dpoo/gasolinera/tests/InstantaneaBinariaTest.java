@@ -0,0 +1,107 @@
+package uniandes.dpoo.gasolinera.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import uniandes.dpoo.gasolinera.logica.Empleado;
+import uniandes.dpoo.gasolinera.logica.Gasolinera;
+import uniandes.dpoo.gasolinera.logica.TipoGasolina;
+import uniandes.dpoo.gasolinera.persistencia.InstantaneaBinaria;
+
+class InstantaneaBinariaTest
+{
+    @TempDir
+    File carpeta;
+
+    private File archivoTexto;
+
+    private Gasolinera gasolinera;
+
+    @BeforeEach
+    void setUp( ) throws Exception
+    {
+        archivoTexto = new File( "./datostest/prueba.gas" );
+        gasolinera = Gasolinera.cargarEstado( archivoTexto );
+        gasolinera.venderGasolinaPorCantidad( "corriente", 3.125, 1 );
+        gasolinera.venderGasolinaPorPrecio( "extra", 41000, 3 );
+    }
+
+    /**
+     * Verifica que una gasolinera tenga el mismo estado que la gasolinera de la prueba
+     * @param recuperada La gasolinera que se compara
+     */
+    private void verificarIgual( Gasolinera recuperada )
+    {
+        assertEquals( gasolinera.getCantidadSurtidores( ), recuperada.getCantidadSurtidores( ), "La cantidad de surtidores no es correcta" );
+        for( TipoGasolina tipo : gasolinera.getTiposGasolina( ) )
+        {
+            TipoGasolina tipoRecuperado = recuperada.getTipoGasolina( tipo.getNombre( ) );
+            assertEquals( tipo.getPrecioPorGalon( ), tipoRecuperado.getPrecioPorGalon( ), "El precio recuperado no es correcto" );
+            assertEquals( tipo.getCantidadDisponible( ), tipoRecuperado.getCantidadDisponible( ), "El inventario recuperado no es correcto" );
+            for( int i = 0; i < gasolinera.getCantidadSurtidores( ); i++ )
+            {
+                assertEquals( gasolinera.getSurtidor( i ).getGalonesVendidos( tipo.getNombre( ) ), recuperada.getSurtidor( i ).getGalonesVendidos( tipo.getNombre( ) ),
+                        "Los galones recuperados del surtidor " + i + " no son correctos" );
+            }
+        }
+        for( int i = 0; i < gasolinera.getCantidadSurtidores( ); i++ )
+        {
+            assertEquals( gasolinera.getSurtidor( i ).getEmpleadoAsignado( ).getNombre( ), recuperada.getSurtidor( i ).getEmpleadoAsignado( ).getNombre( ),
+                    "El empleado del surtidor " + i + " no es correcto" );
+        }
+        assertEquals( gasolinera.getEmpleados( ).size( ), recuperada.getEmpleados( ).size( ), "La cantidad de empleados no es correcta" );
+        for( Empleado empleado : gasolinera.getEmpleados( ) )
+        {
+            assertEquals( empleado.getCantidadDinero( ), recuperada.getEmpleado( empleado.getNombre( ) ).getCantidadDinero( ),
+                    "El dinero recuperado de " + empleado.getNombre( ) + " no es correcto" );
+        }
+    }
+
+    @Test
+    void testGuardarYCargar( ) throws Exception
+    {
+        File archivo = new File( carpeta, "estado.gasb" );
+        gasolinera.guardarEstadoBinario( archivo );
+
+        assertTrue( InstantaneaBinaria.esInstantaneaBinaria( archivo ), "El archivo debería reconocerse como binario" );
+        verificarIgual( InstantaneaBinaria.cargar( archivo ) );
+    }
+
+    @Test
+    void testReconocerFormato( ) throws Exception
+    {
+        assertFalse( InstantaneaBinaria.esInstantaneaBinaria( archivoTexto ), "Un archivo de texto no debería reconocerse como binario" );
+
+        // cargarEstado debería cargar los dos formatos, sin importar el nombre del archivo
+        File archivoBinario = new File( carpeta, "estado.gas" );
+        gasolinera.guardarEstadoBinario( archivoBinario );
+        verificarIgual( Gasolinera.cargarEstado( archivoBinario ) );
+
+        File archivoTextoNuevo = new File( carpeta, "estado.txt" );
+        gasolinera.guardarEstado( archivoTextoNuevo );
+        verificarIgual( Gasolinera.cargarEstado( archivoTextoNuevo ) );
+    }
+
+    @Test
+    void testArchivoIncompleto( ) throws Exception
+    {
+        File archivo = new File( carpeta, "estado.gasb" );
+        gasolinera.guardarEstadoBinario( archivo );
+
+        RandomAccessFile acceso = new RandomAccessFile( archivo, "rw" );
+        acceso.setLength( acceso.length( ) - 3 );
+        acceso.close( );
+
+        assertThrows( IOException.class, ( ) -> Gasolinera.cargarEstado( archivo ), "Un archivo incompleto no debería cargarse" );
+    }
+}
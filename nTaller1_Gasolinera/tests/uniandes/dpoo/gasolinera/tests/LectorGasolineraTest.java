@@ -0,0 +1,90 @@
+package uniandes.dpoo.gasolinera.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.StringReader;
+
+import org.junit.jupiter.api.Test;
+
+import uniandes.dpoo.gasolinera.exceptions.FormatoArchivoException;
+import uniandes.dpoo.gasolinera.logica.Gasolinera;
+import uniandes.dpoo.gasolinera.persistencia.LectorGasolinera;
+
+class LectorGasolineraTest
+{
+    /**
+     * Lee una gasolinera a partir de un texto
+     * @param texto El contenido del archivo
+     * @return La gasolinera leída
+     */
+    private Gasolinera leer( String texto ) throws Exception
+    {
+        return new LectorGasolinera( new StringReader( texto ), "prueba" ).leer( );
+    }
+
+    @Test
+    void testLeerNumeros( ) throws Exception
+    {
+        Gasolinera g = leer( "tipo:corriente:14500:100.5\r\ntipo:extra:21090:1.0E-6\r\nsurtidor:Alice:corriente:2.25:extra:1.5E2:\r\nempleado:Alice:-300\r\nempleado:Alice:1000" );
+
+        assertEquals( 100.5, g.getTipoGasolina( "corriente" ).getCantidadDisponible( ), "La cantidad disponible no es correcta" );
+        assertEquals( 1, g.getTipoGasolina( "extra" ).getMicrogalonesDisponibles( ), "Un número con exponente no se leyó correctamente" );
+        assertEquals( 2.25, g.getSurtidor( 0 ).getGalonesVendidos( "corriente" ), "Los galones vendidos no son correctos" );
+        assertEquals( 150, g.getSurtidor( 0 ).getGalonesVendidos( "extra" ), "Un número con exponente no se leyó correctamente" );
+        assertEquals( 700, g.getEmpleado( "Alice" ).getCantidadDinero( ), "El dinero de un empleado que aparece dos veces debería sumarse" );
+    }
+
+    @Test
+    void testNombresCompartidos( ) throws Exception
+    {
+        Gasolinera g = leer( "tipo:corriente:14500:100\nsurtidor:Alice:corriente:1\nsurtidor:Bob:corriente:2\nsurtidor:Alice:corriente:3\nlinea ignorada\n\n" );
+
+        assertEquals( 3, g.getCantidadSurtidores( ), "La cantidad de surtidores no es correcta" );
+        assertSame( g.getSurtidor( 0 ).getEmpleadoAsignado( ), g.getSurtidor( 2 ).getEmpleadoAsignado( ), "Los surtidores deberían compartir el empleado" );
+        assertEquals( 2, g.getEmpleados( ).size( ), "La cantidad de empleados no es correcta" );
+    }
+
+    @Test
+    void testLineasLargas( ) throws Exception
+    {
+        // La primera línea es más larga que el arreglo donde se leen los caracteres, y los surtidores no caben en una sola lectura
+        StringBuilder texto = new StringBuilder( );
+        StringBuilder nombre = new StringBuilder( );
+        for( int i = 0; i < 70000; i++ )
+        {
+            nombre.append( ( char )( 'a' + i % 26 ) );
+        }
+        texto.append( "tipo:" ).append( nombre ).append( ":100:10\n" );
+        texto.append( "tipo:corriente:14500:100\n" );
+        for( int i = 0; i < 20000; i++ )
+        {
+            texto.append( "surtidor:Empleado" ).append( i % 7 ).append( ":corriente:" ).append( i ).append( ".5\n" );
+        }
+        Gasolinera g = leer( texto.toString( ) );
+
+        assertEquals( 10, g.getTipoGasolina( nombre.toString( ) ).getCantidadDisponible( ), "El tipo con el nombre largo no se leyó correctamente" );
+        assertEquals( 20000, g.getCantidadSurtidores( ), "La cantidad de surtidores no es correcta" );
+        assertEquals( 7, g.getEmpleados( ).size( ), "La cantidad de empleados no es correcta" );
+        assertEquals( 19999.5, g.getSurtidor( 19999 ).getGalonesVendidos( "corriente" ), "Los galones vendidos no son correctos" );
+    }
+
+    @Test
+    void testErrores( )
+    {
+        FormatoArchivoException e = assertThrows( FormatoArchivoException.class, ( ) -> leer( "tipo:corriente:14500:100\ntipo:extra:21x90:50\n" ) );
+        assertEquals( 2, e.getLinea( ), "La línea del error no es correcta" );
+        assertEquals( 12, e.getColumna( ), "La columna del error no es correcta" );
+
+        e = assertThrows( FormatoArchivoException.class, ( ) -> leer( "tipo:corriente:14500:100\nsurtidor:Alice:corriente\n" ) );
+        assertEquals( 2, e.getLinea( ), "La línea del error no es correcta" );
+        assertEquals( 25, e.getColumna( ), "La columna del error no es correcta" );
+
+        e = assertThrows( FormatoArchivoException.class, ( ) -> leer( "tipo:corriente:99999999999:1\n" ) );
+        assertEquals( 16, e.getColumna( ), "La columna del error no es correcta" );
+
+        e = assertThrows( FormatoArchivoException.class, ( ) -> leer( "surtidor:Alice\ntipo:corriente:14500:100\n" ) );
+        assertEquals( 2, e.getLinea( ), "Los tipos de gasolina no deberían aparecer después de los surtidores" );
+    }
+}
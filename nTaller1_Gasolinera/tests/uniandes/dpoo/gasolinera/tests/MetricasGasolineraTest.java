@@ -0,0 +1,139 @@
+package uniandes.dpoo.gasolinera.tests;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import uniandes.dpoo.gasolinera.logica.Gasolinera;
+import uniandes.dpoo.gasolinera.logica.Reserva;
+import uniandes.dpoo.gasolinera.logica.TipoGasolina;
+import uniandes.dpoo.gasolinera.metricas.MetricasGasolinera;
+
+class MetricasGasolineraTest
+{
+    private static final String CORRIENTE = "corriente";
+    private static final String EXTRA = "extra";
+
+    @TempDir
+    File carpeta;
+
+    private Gasolinera gasolinera;
+
+    @BeforeEach
+    void setUp( ) throws Exception
+    {
+        List<TipoGasolina> tipos = new LinkedList<TipoGasolina>( );
+        tipos.add( new TipoGasolina( CORRIENTE, 14500, 100 ) );
+        tipos.add( new TipoGasolina( EXTRA, 21090, 5 ) );
+        gasolinera = new Gasolinera( 3, tipos, new String[]{ "Alice", "Bob" } );
+    }
+
+    @Test
+    public void testApagadasPorDefecto( )
+    {
+        assertNull( gasolinera.getMetricas( ), "Las métricas deberían estar apagadas" );
+        gasolinera.venderGasolinaPorCantidad( CORRIENTE, 1, 0 );
+        assertNull( gasolinera.getMetricas( ), "Vender no debería activar las métricas" );
+    }
+
+    @Test
+    public void testContarVentas( )
+    {
+        MetricasGasolinera metricas = gasolinera.activarMetricas( );
+        assertSame( metricas, gasolinera.activarMetricas( ), "Activar otra vez debería retornar las mismas métricas" );
+
+        int cobrado = gasolinera.venderGasolinaPorCantidad( CORRIENTE, 2, 0 );
+        cobrado += gasolinera.venderGasolinaPorPrecio( CORRIENTE, 14500, 1 );
+        cobrado += gasolinera.venderGasolinaPorCantidad( EXTRA, 10, 1 );
+        cobrado += gasolinera.venderGasolinaPorCantidad( EXTRA, 1, 2 );
+
+        assertEquals( 4, metricas.getVentas( ), "La cantidad de ventas no es correcta" );
+        assertEquals( 2, metricas.getVentasIncompletas( ), "Las ventas de extra no deberían estar completas" );
+        assertEquals( cobrado, metricas.getDinero( ), "El dinero no es correcto" );
+        assertArrayEquals( new String[]{ CORRIENTE, EXTRA }, metricas.getTiposGasolina( ), "Los tipos no son correctos" );
+        assertArrayEquals( new long[]{ 2, 2 }, metricas.getVentasPorTipo( ), "Las ventas por tipo no son correctas" );
+        assertArrayEquals( new long[]{ 0, 2 }, metricas.getVentasIncompletasPorTipo( ), "Las ventas incompletas por tipo no son correctas" );
+        assertArrayEquals( new long[]{ 1, 2, 1 }, metricas.getVentasPorSurtidor( ), "Las ventas por surtidor no son correctas" );
+        assertArrayEquals( new long[]{ 0, 1, 1 }, metricas.getVentasIncompletasPorSurtidor( ), "Las ventas incompletas por surtidor no son correctas" );
+        assertEquals( 1, metricas.consultarVentas( 1, EXTRA ), "Las ventas del surtidor 1 de extra no son correctas" );
+        assertEquals( -1, metricas.consultarVentas( 1, "diesel" ), "Un tipo que no existe no tiene ventas" );
+        assertTrue( metricas.getLatenciaMaxima( ) > 0, "Debería haberse medido la latencia" );
+        assertTrue( metricas.getLatenciaP50( ) <= metricas.getLatenciaP99( ), "La mediana no puede ser mayor que el percentil 99" );
+    }
+
+    @Test
+    public void testContarReservas( )
+    {
+        MetricasGasolinera metricas = gasolinera.activarMetricas( );
+        Reserva reserva = gasolinera.reservar( CORRIENTE, 3, 1, 1, TimeUnit.HOURS );
+        int cobrado = gasolinera.confirmarReserva( reserva, 2 );
+        gasolinera.cerrar( );
+
+        assertEquals( 1, metricas.getVentas( ), "La reserva confirmada debería contarse como venta" );
+        assertEquals( cobrado, metricas.getDinero( ), "El dinero no es correcto" );
+        assertTrue( metricas.getLatenciaMaxima( ) > 0, "Debería haberse medido la latencia de la confirmación" );
+    }
+
+    @Test
+    public void testDesactivar( ) throws Exception
+    {
+        MetricasGasolinera metricas = gasolinera.activarMetricas( );
+        gasolinera.venderGasolinaPorCantidad( CORRIENTE, 1, 0 );
+        gasolinera.desactivarMetricas( );
+        gasolinera.venderGasolinaPorCantidad( CORRIENTE, 1, 0 );
+        assertEquals( 1, metricas.getVentas( ), "Después de desactivarlas, las métricas no deberían contar ventas" );
+        assertEquals( 0, gasolinera.activarMetricas( ).getVentas( ), "Al volver a activarlas, las métricas deberían empezar en 0" );
+    }
+
+    @Test
+    public void testGuardarYCargar( ) throws Exception
+    {
+        MetricasGasolinera metricas = gasolinera.activarMetricas( );
+        File archivo = new File( carpeta, "estado.gas" );
+        gasolinera.guardarEstado( archivo );
+        gasolinera.guardarEstadoBinario( new File( carpeta, "estado.gasb" ) );
+        assertEquals( 2, metricas.getGuardados( ), "Deberían contarse los dos guardados" );
+
+        Gasolinera cargada = Gasolinera.cargarEstado( archivo );
+        assertTrue( cargada.getNanosegundosCarga( ) > 0, "Debería haberse medido el tiempo de carga" );
+        assertEquals( cargada.getNanosegundosCarga( ) / 1e6, cargada.activarMetricas( ).getTiempoCarga( ), 1e-9, "Las métricas deberían reportar el tiempo de carga" );
+    }
+
+    @Test
+    public void testPublicarEnJMX( ) throws Exception
+    {
+        MetricasGasolinera metricas = gasolinera.activarMetricas( "prueba" );
+        ObjectName nombre = metricas.getNombreJMX( );
+        MBeanServer servidor = ManagementFactory.getPlatformMBeanServer( );
+        try
+        {
+            assertTrue( servidor.isRegistered( nombre ), "Las métricas deberían estar publicadas" );
+            gasolinera.venderGasolinaPorCantidad( CORRIENTE, 1, 0 );
+            assertEquals( 1L, servidor.getAttribute( nombre, "Ventas" ), "La cantidad de ventas publicada no es correcta" );
+            assertArrayEquals( new long[]{ 1, 0 }, ( long[] )servidor.getAttribute( nombre, "VentasPorTipo" ), "Las ventas por tipo publicadas no son correctas" );
+            assertEquals( 1L, servidor.invoke( nombre, "consultarVentas", new Object[]{ 0, CORRIENTE }, new String[]{ "int", String.class.getName( ) } ),
+                    "La consulta de ventas publicada no es correcta" );
+        }
+        finally
+        {
+            gasolinera.desactivarMetricas( );
+        }
+        assertFalse( servidor.isRegistered( nombre ), "Al desactivar las métricas deberían retirarse de JMX" );
+    }
+}
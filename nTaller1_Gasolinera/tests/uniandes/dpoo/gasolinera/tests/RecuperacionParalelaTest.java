@@ -0,0 +1,153 @@
+package uniandes.dpoo.gasolinera.tests;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import uniandes.dpoo.gasolinera.logica.Gasolinera;
+import uniandes.dpoo.gasolinera.logica.TipoGasolina;
+import uniandes.dpoo.gasolinera.logica.VersionPrecio;
+import uniandes.dpoo.gasolinera.persistencia.DiarioVentas;
+import uniandes.dpoo.gasolinera.persistencia.RecuperacionParalela;
+
+class RecuperacionParalelaTest
+{
+    private static final String[] NOMBRES_TIPOS = new String[]{ "corriente", "plus", "extra" };
+
+    @TempDir
+    File carpeta;
+
+    private File archivoEstado;
+
+    private File archivoDiario;
+
+    private Gasolinera gasolinera;
+
+    private ForkJoinPool grupoHilos;
+
+    @BeforeEach
+    void setUp( ) throws Exception
+    {
+        // El extra se acaba durante las ventas, así que algunas ventas quedan incompletas
+        List<TipoGasolina> tipos = new LinkedList<TipoGasolina>( );
+        tipos.add( new TipoGasolina( NOMBRES_TIPOS[ 0 ], 14500, 1000000 ) );
+        tipos.add( new TipoGasolina( NOMBRES_TIPOS[ 1 ], 16251, 1000000 ) );
+        tipos.add( new TipoGasolina( NOMBRES_TIPOS[ 2 ], 21090, 5000 ) );
+        gasolinera = new Gasolinera( 300, tipos, new String[]{ "Alice", "Bob", "Charly", "Diana", "Ernesto" } );
+
+        archivoEstado = new File( carpeta, "estado.gas" );
+        archivoDiario = new File( carpeta, "estado.diario" );
+        gasolinera.guardarEstado( archivoEstado );
+        grupoHilos = new ForkJoinPool( 4 );
+    }
+
+    @AfterEach
+    void tearDown( )
+    {
+        grupoHilos.shutdown( );
+    }
+
+    /**
+     * Registra en el diario muchas ventas en todos los surtidores, con cambios de precio intercalados
+     * @param cantidad La cantidad de ventas
+     */
+    private void vender( int cantidad ) throws IOException
+    {
+        gasolinera.activarDiario( archivoDiario, 1024, 0 );
+        for( int i = 0; i < cantidad; i++ )
+        {
+            String tipo = NOMBRES_TIPOS[ i % 3 ];
+            int surtidor = ( int )( ( i * 7919L ) % gasolinera.getCantidadSurtidores( ) );
+            if( i % 2 == 0 )
+                gasolinera.venderGasolinaPorCantidad( tipo, 0.5 + ( i % 17 ) * 0.25, surtidor );
+            else
+                gasolinera.venderGasolinaPorPrecio( tipo, 20000 + ( i % 23 ) * 1000, surtidor );
+            if( i % 10000 == 5000 )
+                gasolinera.cambiarPrecio( tipo, gasolinera.getTipoGasolina( tipo ).getPrecioPorGalon( ) + 100 );
+        }
+        gasolinera.desactivarDiario( );
+    }
+
+    /**
+     * Verifica que dos gasolineras tengan exactamente el mismo estado, los mismos cambios pendientes por guardar y el mismo dinero en cada versión del precio
+     * @param secuencial La gasolinera donde se reprodujo el diario venta por venta
+     * @param paralela La gasolinera donde se reprodujo el diario en paralelo
+     */
+    private void verificarIgual( Gasolinera secuencial, Gasolinera paralela ) throws IOException
+    {
+        File cambiosSecuencial = new File( carpeta, "secuencial.cambios" );
+        File cambiosParalela = new File( carpeta, "paralela.cambios" );
+        secuencial.guardarCambios( cambiosSecuencial );
+        paralela.guardarCambios( cambiosParalela );
+        assertArrayEquals( Files.readAllBytes( cambiosSecuencial.toPath( ) ), Files.readAllBytes( cambiosParalela.toPath( ) ), "Los cambios pendientes no son iguales" );
+
+        File estadoSecuencial = new File( carpeta, "secuencial.gas" );
+        File estadoParalela = new File( carpeta, "paralela.gas" );
+        secuencial.guardarEstado( estadoSecuencial );
+        paralela.guardarEstado( estadoParalela );
+        assertArrayEquals( Files.readAllBytes( estadoSecuencial.toPath( ) ), Files.readAllBytes( estadoParalela.toPath( ) ), "El estado no es igual" );
+
+        for( String nombre : NOMBRES_TIPOS )
+        {
+            for( VersionPrecio version : secuencial.getTipoGasolina( nombre ).getHistorialPrecios( ) )
+            {
+                VersionPrecio otra = paralela.getTipoGasolina( nombre ).buscarVersionPrecio( version.getNumero( ) );
+                assertEquals( version.getDineroCobrado( ), otra.getDineroCobrado( ), "El dinero de la versión " + version + " de " + nombre + " no es igual" );
+                assertEquals( version.getGalonesVendidos( ), otra.getGalonesVendidos( ), 0.000001, "Los galones de la versión " + version + " no son iguales" );
+            }
+        }
+    }
+
+    @Test
+    void testIgualQueSecuencial( ) throws Exception
+    {
+        vender( 120000 );
+
+        Gasolinera secuencial = Gasolinera.cargarEstado( archivoEstado );
+        long ventasSecuencial = DiarioVentas.reproducir( archivoDiario, secuencial );
+        Gasolinera paralela = Gasolinera.cargarEstado( archivoEstado );
+        long ventasParalela = RecuperacionParalela.reproducir( archivoDiario, paralela, grupoHilos );
+
+        assertEquals( 120000, ventasSecuencial, "Deberían reproducirse todas las ventas" );
+        assertEquals( ventasSecuencial, ventasParalela, "Las dos formas deberían reproducir las mismas ventas" );
+        assertEquals( 0, paralela.getTipoGasolina( NOMBRES_TIPOS[ 2 ] ).getCantidadDisponible( ), 0.000001, "El extra debería haberse acabado" );
+        verificarIgual( secuencial, paralela );
+    }
+
+    @Test
+    void testDiarioPequeno( ) throws Exception
+    {
+        vender( 10 );
+
+        Gasolinera secuencial = Gasolinera.cargarEstado( archivoEstado );
+        DiarioVentas.reproducir( archivoDiario, secuencial );
+        verificarIgual( secuencial, Gasolinera.cargarEstado( archivoEstado, archivoDiario ) );
+    }
+
+    @Test
+    void testSurtidorInexistente( ) throws Exception
+    {
+        vender( 1000 );
+
+        // Una gasolinera con menos surtidores no corresponde al diario
+        List<TipoGasolina> tipos = new LinkedList<TipoGasolina>( );
+        for( String nombre : NOMBRES_TIPOS )
+        {
+            tipos.add( new TipoGasolina( nombre, 1, 1 ) );
+        }
+        Gasolinera pequena = new Gasolinera( 2, tipos, new String[]{ "Alice", "Bob", "Charly", "Diana", "Ernesto" } );
+        assertThrows( IOException.class, ( ) -> RecuperacionParalela.reproducir( archivoDiario, pequena, grupoHilos ), "El diario tiene surtidores que no existen" );
+    }
+}
@@ -0,0 +1,72 @@
+package uniandes.dpoo.gasolinera.tests;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import uniandes.dpoo.gasolinera.logica.RegistroTiposGasolina;
+import uniandes.dpoo.gasolinera.logica.TipoGasolina;
+
+class RegistroTiposGasolinaTest
+{
+    private static final String CORRIENTE = "corriente";
+    private static final String PLUS = "plus";
+    private static final String EXTRA = "extra";
+
+    private TipoGasolina corriente;
+    private TipoGasolina plus;
+    private TipoGasolina extra;
+
+    private RegistroTiposGasolina registro;
+
+    @BeforeEach
+    void setUp( ) throws Exception
+    {
+        corriente = new TipoGasolina( CORRIENTE, 14500, 100 );
+        plus = new TipoGasolina( PLUS, 16251, 80 );
+        extra = new TipoGasolina( EXTRA, 21090, 50 );
+
+        List<TipoGasolina> tipos = new LinkedList<TipoGasolina>( );
+        tipos.add( corriente );
+        tipos.add( plus );
+        tipos.add( extra );
+        registro = new RegistroTiposGasolina( tipos );
+    }
+
+    @Test
+    void testIdentificadoresDensos( )
+    {
+        assertEquals( 3, registro.getCantidadTipos( ), "La cantidad de tipos registrados no es correcta" );
+        assertEquals( 0, registro.getIdentificador( CORRIENTE ), "Los identificadores deberían seguir el orden de registro" );
+        assertEquals( 1, registro.getIdentificador( PLUS ), "Los identificadores deberían seguir el orden de registro" );
+        assertEquals( 2, registro.getIdentificador( EXTRA ), "Los identificadores deberían seguir el orden de registro" );
+        assertEquals( -1, registro.getIdentificador( "diesel" ), "Un tipo que no está registrado no debería tener identificador" );
+
+        assertSame( corriente, registro.getTipo( 0 ), "El tipo con el identificador 0 no es el correcto" );
+        assertSame( extra, registro.getTipo( EXTRA ), "El tipo buscado por nombre no es el correcto" );
+        assertNull( registro.getTipo( "diesel" ), "Si el tipo no está registrado debería retornar null" );
+        assertArrayEquals( new String[]{ CORRIENTE, PLUS, EXTRA }, registro.getNombres( ), "Los nombres deberían estar ordenados por identificador" );
+    }
+
+    @Test
+    void testNombreRepetido( )
+    {
+        TipoGasolina otroPlus = new TipoGasolina( PLUS, 17000, 10 );
+        List<TipoGasolina> tipos = new LinkedList<TipoGasolina>( );
+        tipos.add( plus );
+        tipos.add( corriente );
+        tipos.add( otroPlus );
+        RegistroTiposGasolina conRepetidos = new RegistroTiposGasolina( tipos );
+
+        assertEquals( 2, conRepetidos.getCantidadTipos( ), "Un nombre repetido no debería ocupar un nuevo identificador" );
+        assertEquals( 0, conRepetidos.getIdentificador( PLUS ), "El tipo repetido debería conservar el primer identificador" );
+        assertSame( otroPlus, conRepetidos.getTipo( PLUS ), "El último tipo con el nombre repetido debería reemplazar al primero" );
+    }
+}
@@ -0,0 +1,84 @@
+package uniandes.dpoo.gasolinera.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import uniandes.dpoo.gasolinera.utils.RuedaTemporizadora;
+
+class RuedaTemporizadoraTest
+{
+    private RuedaTemporizadora rueda;
+
+    @BeforeEach
+    void setUp( )
+    {
+        // Una rueda pequeña, para que algunos plazos den más de una vuelta
+        rueda = new RuedaTemporizadora( 5, TimeUnit.MILLISECONDS, 8, "rueda-prueba" );
+    }
+
+    @AfterEach
+    void tearDown( )
+    {
+        rueda.detener( );
+    }
+
+    @Test
+    public void testNuncaAntesDelPlazo( ) throws Exception
+    {
+        final int cantidad = 200;
+        final CountDownLatch ejecutadas = new CountDownLatch( cantidad );
+        final AtomicInteger tempranas = new AtomicInteger( );
+        for( int i = 0; i < cantidad; i++ )
+        {
+            final long plazo = ( i % 20 ) * 7;
+            final long programada = System.nanoTime( );
+            rueda.programar( ( ) -> {
+                if( System.nanoTime( ) - programada < TimeUnit.MILLISECONDS.toNanos( plazo ) )
+                    tempranas.incrementAndGet( );
+                ejecutadas.countDown( );
+            }, plazo, TimeUnit.MILLISECONDS );
+        }
+
+        assertTrue( ejecutadas.await( 5, TimeUnit.SECONDS ), "Todas las tareas deberían ejecutarse" );
+        assertEquals( 0, tempranas.get( ), "Ninguna tarea debería ejecutarse antes de su plazo" );
+    }
+
+    @Test
+    public void testCancelar( ) throws Exception
+    {
+        final AtomicBoolean ejecutada = new AtomicBoolean( );
+        final CountDownLatch testigo = new CountDownLatch( 1 );
+        RuedaTemporizadora.Tarea tarea = rueda.programar( ( ) -> ejecutada.set( true ), 20, TimeUnit.MILLISECONDS );
+        rueda.programar( testigo::countDown, 60, TimeUnit.MILLISECONDS );
+        tarea.cancelar( );
+
+        assertTrue( testigo.await( 5, TimeUnit.SECONDS ), "La tarea que no se canceló debería ejecutarse" );
+        assertFalse( ejecutada.get( ), "La tarea cancelada no debería ejecutarse" );
+    }
+
+    @Test
+    public void testTareaQueFalla( ) throws Exception
+    {
+        final AtomicLong ejecutadas = new AtomicLong( );
+        final CountDownLatch ultima = new CountDownLatch( 1 );
+        rueda.programar( ( ) -> {
+            throw new IllegalStateException( "Falla a propósito" );
+        }, 5, TimeUnit.MILLISECONDS );
+        rueda.programar( ejecutadas::incrementAndGet, 5, TimeUnit.MILLISECONDS );
+        rueda.programar( ultima::countDown, 30, TimeUnit.MILLISECONDS );
+
+        assertTrue( ultima.await( 5, TimeUnit.SECONDS ), "Una tarea que falla no debería detener la rueda" );
+        assertEquals( 1, ejecutadas.get( ), "Las demás tareas deberían ejecutarse" );
+    }
+}
@@ -0,0 +1,146 @@
+package uniandes.dpoo.gasolinera.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import uniandes.dpoo.gasolinera.logica.Empleado;
+import uniandes.dpoo.gasolinera.logica.Gasolinera;
+import uniandes.dpoo.gasolinera.logica.TipoGasolina;
+import uniandes.dpoo.gasolinera.servidor.PruebaCargaServidor;
+import uniandes.dpoo.gasolinera.servidor.ServidorVentas;
+
+class ServidorVentasTest
+{
+    private static final String CORRIENTE = "corriente";
+    private static final String EXTRA = "extra";
+
+    private Gasolinera gasolinera;
+
+    private ServidorVentas servidor;
+
+    @BeforeEach
+    void setUp( ) throws Exception
+    {
+        List<TipoGasolina> tipos = new LinkedList<TipoGasolina>( );
+        tipos.add( new TipoGasolina( CORRIENTE, 14500, 100000 ) );
+        tipos.add( new TipoGasolina( EXTRA, 21090, 5 ) );
+        gasolinera = new Gasolinera( 3, tipos, new String[]{ "Alice", "Bob" } );
+    }
+
+    @AfterEach
+    void tearDown( )
+    {
+        if( servidor != null )
+            servidor.detener( );
+    }
+
+    /**
+     * Envía una petición al servidor
+     * @return El código de la respuesta, seguido de un espacio y el cuerpo de la respuesta
+     */
+    private String enviar( String metodo, String ruta, String cuerpo ) throws Exception
+    {
+        URL direccion = new URL( "http", InetAddress.getLoopbackAddress( ).getHostAddress( ), servidor.getPuerto( ), ruta );
+        HttpURLConnection conexion = ( HttpURLConnection )direccion.openConnection( );
+        conexion.setRequestMethod( metodo );
+        if( cuerpo != null )
+        {
+            conexion.setDoOutput( true );
+            try( OutputStream salida = conexion.getOutputStream( ) )
+            {
+                salida.write( cuerpo.getBytes( StandardCharsets.UTF_8 ) );
+            }
+        }
+        int codigo = conexion.getResponseCode( );
+        ByteArrayOutputStream respuesta = new ByteArrayOutputStream( );
+        try( InputStream entrada = codigo == 200 ? conexion.getInputStream( ) : conexion.getErrorStream( ) )
+        {
+            byte[] buffer = new byte[256];
+            int leidos;
+            while( ( leidos = entrada.read( buffer ) ) != -1 )
+            {
+                respuesta.write( buffer, 0, leidos );
+            }
+        }
+        return codigo + " " + respuesta.toString( "UTF-8" );
+    }
+
+    @Test
+    public void testVender( ) throws Exception
+    {
+        servidor = new ServidorVentas( gasolinera, 0, 2 );
+        servidor.iniciar( );
+
+        assertEquals( "200 {\"precio\":29000,\"esperado\":29000,\"completa\":true}", enviar( "POST", "/venta", "surtidor=0&tipo=corriente&galones=2" ) );
+        assertEquals( "200 {\"precio\":14500,\"esperado\":14500,\"completa\":true}", enviar( "POST", "/venta?surtidor=1&tipo=corriente&valor=14500", null ) );
+        assertEquals( "200 {\"precio\":105450,\"esperado\":210900,\"completa\":false}", enviar( "POST", "/venta", "surtidor=2&tipo=extra&galones=10" ) );
+        assertEquals( 99997, gasolinera.getTipoGasolina( CORRIENTE ).getCantidadDisponible( ), 0.0001, "El inventario de corriente no es correcto" );
+
+        long dinero = 0;
+        for( Empleado empleado : gasolinera.getEmpleados( ) )
+        {
+            dinero += empleado.getCantidadDinero( );
+        }
+        assertEquals( 29000 + 14500 + 105450, dinero, "El dinero de los empleados no es correcto" );
+        assertEquals( 3, servidor.getVentas( ), "El servidor debería contar las ventas" );
+
+        String inventario = enviar( "GET", "/inventario", null );
+        assertTrue( inventario.startsWith( "200 " ), inventario );
+        assertTrue( inventario.contains( "{\"nombre\":\"extra\",\"precioPorGalon\":21090,\"disponible\":0.0}" ), inventario );
+        String estado = enviar( "GET", "/estado", null );
+        assertTrue( estado.contains( "\"surtidores\":3,\"ventas\":3,\"errores\":0" ), estado );
+    }
+
+    @Test
+    public void testErrores( ) throws Exception
+    {
+        servidor = new ServidorVentas( gasolinera, 0, 0 );
+        servidor.iniciar( );
+
+        assertTrue( enviar( "POST", "/venta", "surtidor=5&tipo=corriente&galones=2" ).startsWith( "400 " ), "El surtidor no existe" );
+        assertTrue( enviar( "POST", "/venta", "surtidor=0&tipo=diesel&galones=2" ).startsWith( "400 " ), "El tipo no existe" );
+        assertTrue( enviar( "POST", "/venta", "surtidor=0&tipo=corriente&galones=2&valor=100" ).startsWith( "400 " ), "No puede tener galones y valor" );
+        assertTrue( enviar( "POST", "/venta", "surtidor=0&tipo=corriente&galones=-1" ).startsWith( "400 " ), "Los galones deben ser positivos" );
+        assertTrue( enviar( "GET", "/venta", null ).startsWith( "405 " ), "Las ventas sólo se aceptan con POST" );
+        assertTrue( enviar( "GET", "/ventas/otra", null ).startsWith( "404 " ), "El servicio no existe" );
+        assertEquals( 6, servidor.getErrores( ), "El servidor debería contar los errores" );
+        assertEquals( 100000, gasolinera.getTipoGasolina( CORRIENTE ).getCantidadDisponible( ), 0.0001, "No debería haberse vendido nada" );
+    }
+
+    @Test
+    public void testPruebaCarga( ) throws Exception
+    {
+        servidor = new ServidorVentas( gasolinera, 0, 4 );
+        servidor.iniciar( );
+        PruebaCargaServidor prueba = new PruebaCargaServidor( servidor );
+        prueba.cambiarClientes( 4 );
+        prueba.cambiarDuracion( 300, TimeUnit.MILLISECONDS );
+        prueba.ejecutar( );
+
+        long dinero = 0;
+        for( Empleado empleado : gasolinera.getEmpleados( ) )
+        {
+            dinero += empleado.getCantidadDinero( );
+        }
+        assertTrue( prueba.getVentas( ) > 0, "Deberían haberse hecho ventas" );
+        assertEquals( 0, prueba.getErrores( ), "Ninguna venta debería fallar" );
+        assertEquals( prueba.getVentas( ), servidor.getVentas( ), "El servidor debería haber atendido todas las ventas" );
+        assertEquals( prueba.getVentas( ), prueba.getLatencias( ).getCantidad( ), "Debería haber una latencia por venta" );
+        assertEquals( dinero, prueba.getDinero( ), "El dinero respondido debería ser el que recibieron los empleados" );
+    }
+}
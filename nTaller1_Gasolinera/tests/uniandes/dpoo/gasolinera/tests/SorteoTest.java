@@ -1,5 +1,6 @@
 package uniandes.dpoo.gasolinera.tests;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -8,6 +9,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.RepeatedTest;
 import org.junit.jupiter.api.Test;
 
+import uniandes.dpoo.gasolinera.utils.EstrategiaAsignacion;
 import uniandes.dpoo.gasolinera.utils.Sorteo;
 
 class SorteoTest
@@ -103,4 +105,56 @@ class SorteoTest
 
         assertEquals( promedioEsperado, promedio, promedioEsperado * 0.15, "No debería haber más de un 15% de diferencia en la cantidad de veces que apareció cada valor" );
     }
+
+    @Test
+    public void testAlAzarConSemilla( )
+    {
+        int[] cargas = new int[7];
+        int[] primero = Sorteo.alAzar( 42 ).asignar( 1000, cargas );
+        int[] segundo = Sorteo.alAzar( 42 ).asignar( 1000, new int[7] );
+        assertArrayEquals( primero, segundo, "Con la misma semilla debería hacerse el mismo reparto" );
+
+        int total = 0;
+        for( int i = 0; i < cargas.length; i++ )
+        {
+            total += cargas[ i ];
+        }
+        assertEquals( 1000, total, "Las cargas deberían contar todos los puestos asignados" );
+    }
+
+    @Test
+    public void testRotando( )
+    {
+        EstrategiaAsignacion estrategia = Sorteo.rotando( );
+        int[] cargas = new int[3];
+        assertArrayEquals( new int[]{ 0, 1, 2, 0 }, estrategia.asignar( 4, cargas ), "Los puestos deberían repartirse en orden" );
+        assertArrayEquals( new int[]{ 1, 2 }, estrategia.asignar( 2, cargas ), "La rotación debería seguir donde quedó" );
+        assertArrayEquals( new int[]{ 2, 2, 2 }, cargas, "Todas las opciones deberían quedar con la misma carga" );
+    }
+
+    @Test
+    public void testMenosCargado( )
+    {
+        // La opción 1 ya tiene muchos puestos y la 3 ninguno
+        int[] cargas = new int[]{ 2, 9, 3, 0 };
+        int[] asignaciones = Sorteo.menosCargado( ).asignar( 10, cargas );
+
+        assertArrayEquals( new int[]{ 3, 3, 0, 3, 0, 2, 3, 0, 2, 3 }, asignaciones, "Cada puesto debería ir a la opción menos cargada" );
+        assertArrayEquals( new int[]{ 5, 9, 5, 5 }, cargas, "Las cargas deberían quedar parejas sin tocar la opción más cargada" );
+    }
+
+    @Test
+    public void testMenosCargadoBalanceado( )
+    {
+        int[] cargas = new int[37];
+        Sorteo.menosCargado( ).asignar( 10000, cargas );
+        int minimo = Integer.MAX_VALUE;
+        int maximo = 0;
+        for( int carga : cargas )
+        {
+            minimo = Math.min( minimo, carga );
+            maximo = Math.max( maximo, carga );
+        }
+        assertTrue( maximo - minimo <= 1, "Ninguna opción debería tener más de un puesto de diferencia con otra" );
+    }
 }
@@ -0,0 +1,109 @@
+package uniandes.dpoo.gasolinera.tests;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import uniandes.dpoo.gasolinera.logica.Empleado;
+import uniandes.dpoo.gasolinera.logica.RegistroTiposGasolina;
+import uniandes.dpoo.gasolinera.logica.TablaSurtidores;
+import uniandes.dpoo.gasolinera.logica.TipoGasolina;
+
+class TablaSurtidoresTest
+{
+    private static final int VALOR_CORRIENTE = 14500;
+    private static final int VALOR_EXTRA = 21090;
+
+    private Empleado alice;
+    private Empleado bob;
+
+    private TablaSurtidores tabla;
+
+    @BeforeEach
+    void setUp( ) throws Exception
+    {
+        List<TipoGasolina> tipos = new LinkedList<TipoGasolina>( );
+        tipos.add( new TipoGasolina( "corriente", VALOR_CORRIENTE, 1000 ) );
+        tipos.add( new TipoGasolina( "extra", VALOR_EXTRA, 1000 ) );
+
+        alice = new Empleado( "Alice" );
+        bob = new Empleado( "Bob" );
+
+        // La capacidad inicial es menor a la cantidad de surtidores para que la tabla tenga que crecer
+        tabla = new TablaSurtidores( new RegistroTiposGasolina( tipos ), 2 );
+        for( int i = 0; i < 5; i++ )
+        {
+            tabla.agregarSurtidor( i % 2 == 0 ? alice : bob );
+        }
+        tabla.cambiarGalonesVendidos( 0, 1, 3.5 );
+    }
+
+    @Test
+    void testAgregarSurtidores( )
+    {
+        assertEquals( 5, tabla.getCantidadSurtidores( ), "La cantidad de surtidores no es correcta" );
+        assertEquals( 2, tabla.getEmpleados( ).size( ), "Cada empleado debería aparecer una sola vez" );
+        assertSame( alice, tabla.getEmpleadoAsignado( 4 ), "El empleado asignado no es el correcto" );
+        assertSame( bob, tabla.getEmpleadoAsignado( 3 ), "El empleado asignado no es el correcto" );
+        assertEquals( 3.5, tabla.getGalonesVendidos( 0, 1 ), "Los galones vendidos deberían conservarse cuando la tabla crece" );
+        assertEquals( 0, tabla.getGalonesVendidos( 4, 1 ), "Un surtidor nuevo no debería tener galones vendidos" );
+    }
+
+    @Test
+    void testVenderGasolina( )
+    {
+        int precio = tabla.venderGasolina( 3, 0, 2 );
+        assertEquals( 2 * VALOR_CORRIENTE, precio, "El precio calculado no es el esperado" );
+        assertEquals( 2, tabla.getGalonesVendidos( 3, 0 ), "Los galones vendidos no se actualizaron" );
+        assertEquals( 0, tabla.getGalonesVendidos( 3, 1 ), "La venta no debería afectar a otros tipos de gasolina" );
+        assertEquals( 0, tabla.getGalonesVendidos( 2, 0 ), "La venta no debería afectar a otros surtidores" );
+        assertEquals( precio, bob.getCantidadDinero( ), "El dinero debería quedar con el empleado asignado al surtidor" );
+        assertEquals( 0, alice.getCantidadDinero( ), "Los demás empleados no deberían recibir dinero" );
+
+        assertThrows( IndexOutOfBoundsException.class, ( ) -> tabla.venderGasolina( 5, 0, 1 ), "No debería poder venderse en un surtidor que no existe" );
+    }
+
+    @Test
+    void testTomarSurtidoresModificados( )
+    {
+        assertArrayEquals( new int[]{ 0 }, tabla.tomarSurtidoresModificados( ), "Sólo el surtidor 0 ha cambiado" );
+        assertArrayEquals( new int[ 0 ], tabla.tomarSurtidoresModificados( ), "Las marcas deberían quitarse al tomarlas" );
+
+        tabla.venderGasolina( 4, 0, 1 );
+        tabla.agregarSurtidor( alice );
+        tabla.venderGasolina( 2, 1, 1 );
+        tabla.venderGasolina( 4, 1, 1 );
+        assertArrayEquals( new int[]{ 2, 4 }, tabla.tomarSurtidoresModificados( ), "Los surtidores modificados deberían estar en orden y sin repetir" );
+    }
+
+    @Test
+    void testReasignar( )
+    {
+        Empleado charly = new Empleado( "Charly" );
+        int precioBob = tabla.venderGasolina( 3, 0, 1 );
+        tabla.reasignar( 3, charly );
+        int precioCharly = tabla.venderGasolina( 3, 0, 2 );
+        assertSame( charly, tabla.getEmpleadoAsignado( 3 ), "El surtidor debería quedar con el nuevo empleado" );
+        assertEquals( 3, tabla.getEmpleados( ).size( ), "El nuevo empleado debería agregarse a la tabla" );
+        assertEquals( precioBob, bob.getCantidadDinero( ), "Las ventas anteriores deberían quedar con el empleado anterior" );
+        assertEquals( precioCharly, charly.getCantidadDinero( ), "Las ventas siguientes deberían quedar con el nuevo empleado" );
+        assertArrayEquals( new int[]{ 3 }, tabla.tomarAsignacionesModificadas( ), "Sólo se reasignó el surtidor 3" );
+
+        // Los surtidores con null o con el mismo empleado no quedan marcados
+        tabla.cambiarTurno( new Empleado[]{ bob, null, bob, charly, alice } );
+        assertSame( bob, tabla.getEmpleadoAsignado( 0 ), "El surtidor debería quedar con el empleado del nuevo turno" );
+        assertSame( bob, tabla.getEmpleadoAsignado( 1 ), "Un surtidor sin empleado en el nuevo turno debería conservar el suyo" );
+        assertArrayEquals( new int[]{ 0, 2 }, tabla.tomarAsignacionesModificadas( ), "Sólo cambiaron los surtidores 0 y 2" );
+        assertEquals( 3, tabla.getEmpleados( ).size( ), "Los empleados no deberían repetirse" );
+
+        assertThrows( IllegalArgumentException.class, ( ) -> tabla.cambiarTurno( new Empleado[]{ alice } ), "El turno debería tener un empleado por surtidor" );
+        assertThrows( IndexOutOfBoundsException.class, ( ) -> tabla.reasignar( 5, alice ), "No debería poder reasignarse un surtidor que no existe" );
+    }
+}
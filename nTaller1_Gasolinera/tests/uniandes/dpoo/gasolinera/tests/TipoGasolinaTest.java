@@ -1,13 +1,18 @@
 package uniandes.dpoo.gasolinera.tests;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.fail;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import uniandes.dpoo.gasolinera.exceptions.GasolinaInsuficienteException;
 import uniandes.dpoo.gasolinera.logica.TipoGasolina;
+import uniandes.dpoo.gasolinera.logica.VersionPrecio;
 
 class TipoGasolinaTest
 {
@@ -87,4 +92,80 @@ class TipoGasolinaTest
         assertEquals( CANTIDAD_CORRIENTE - ( 3 * CANTIDAD_VENTA ), tipoCorriente.getCantidadDisponible( ), "La venta fallida no debió actualizar el inventario de gasolina" );
     }
 
+    @Test
+    void testDespacharHasta( )
+    {
+        assertEquals( CANTIDAD_VENTA, tipoCorriente.despacharHasta( CANTIDAD_VENTA ), "Si hay suficiente gasolina debería despachar toda la cantidad solicitada" );
+        assertEquals( CANTIDAD_CORRIENTE - CANTIDAD_VENTA, tipoCorriente.getCantidadDisponible( ), "La cantidad actualizada no es correcta" );
+
+        double restante = CANTIDAD_CORRIENTE - CANTIDAD_VENTA;
+        assertEquals( restante, tipoCorriente.despacharHasta( CANTIDAD_CORRIENTE ), "Si no alcanza la gasolina debería despachar todo lo que queda" );
+        assertEquals( 0, tipoCorriente.getCantidadDisponible( ), "No debería quedar gasolina" );
+
+        assertEquals( 0, tipoCorriente.despacharHasta( CANTIDAD_VENTA ), "Si no hay gasolina no debería despachar nada" );
+    }
+
+    @Test
+    void testDespacharHastaConcurrente( ) throws Exception
+    {
+        final double cantidadPorDespacho = 0.003;
+        final AtomicLong despachosCompletos = new AtomicLong( );
+        final double[] entregadoPorHilo = new double[8];
+
+        Thread[] hilos = new Thread[entregadoPorHilo.length];
+        for( int h = 0; h < hilos.length; h++ )
+        {
+            final int numeroHilo = h;
+            hilos[ h ] = new Thread( ( ) -> {
+                double entregado = cantidadPorDespacho;
+                while( entregado > 0 )
+                {
+                    entregado = tipoCorriente.despacharHasta( cantidadPorDespacho );
+                    entregadoPorHilo[ numeroHilo ] += entregado;
+                    if( entregado == cantidadPorDespacho )
+                        despachosCompletos.incrementAndGet( );
+                }
+            } );
+            hilos[ h ].start( );
+        }
+
+        double total = 0;
+        for( int h = 0; h < hilos.length; h++ )
+        {
+            hilos[ h ].join( );
+            total += entregadoPorHilo[ h ];
+        }
+
+        assertEquals( 0, tipoCorriente.getCantidadDisponible( ), "Debería haberse despachado toda la gasolina" );
+        assertEquals( CANTIDAD_CORRIENTE, total, 0.000001, "Entre todos los hilos deberían haberse despachado exactamente los galones disponibles" );
+        assertEquals( ( long ) ( CANTIDAD_CORRIENTE / cantidadPorDespacho ), despachosCompletos.get( ), "La cantidad de despachos completos no es correcta" );
+    }
+
+    @Test
+    void testCambiarPrecio( )
+    {
+        VersionPrecio inicial = tipoCorriente.getVersionPrecio( );
+        assertEquals( 1, inicial.getNumero( ), "El precio inicial debería ser la versión 1" );
+
+        VersionPrecio nueva = tipoCorriente.cambiarPrecio( 12000 );
+        assertEquals( 2, nueva.getNumero( ), "El cambio debería publicar la versión 2" );
+        assertEquals( 12000, tipoCorriente.getPrecioPorGalon( ), "El precio vigente no es correcto" );
+        assertEquals( VALOR_CORRIENTE, inicial.getPrecioPorGalon( ), "La versión anterior no debería cambiar" );
+        assertSame( inicial, tipoCorriente.buscarVersionPrecio( 1 ), "La versión anterior debería estar en el historial" );
+        assertEquals( 2, tipoCorriente.getHistorialPrecios( ).size( ), "El historial no es correcto" );
+        assertThrows( IllegalArgumentException.class, ( ) -> tipoCorriente.cambiarPrecio( 0 ), "El precio debe ser positivo" );
+        assertEquals( 12000, tipoCorriente.getPrecioPorGalon( ), "Un cambio inválido no debería cambiar el precio" );
+    }
+
+    @Test
+    void testRestaurarPrecio( )
+    {
+        TipoGasolina cargado = new TipoGasolina( CORRIENTE, VALOR_CORRIENTE, CANTIDAD_CORRIENTE, 5 );
+        assertEquals( 5, cargado.getVersionPrecio( ).getNumero( ), "La versión cargada no es correcta" );
+        assertEquals( 6, cargado.cambiarPrecio( 11000 ).getNumero( ), "La numeración debería seguir desde la versión cargada" );
+
+        assertEquals( 6, cargado.restaurarPrecio( 4, 9000, 0 ).getNumero( ), "Una versión anterior no debería cambiar el precio vigente" );
+        assertEquals( 7, cargado.restaurarPrecio( 7, 13000, 0 ).getNumero( ), "Una versión más nueva debería quedar vigente" );
+        assertEquals( 13000, cargado.getPrecioPorGalon( ), "El precio restaurado no es correcto" );
+    }
 }
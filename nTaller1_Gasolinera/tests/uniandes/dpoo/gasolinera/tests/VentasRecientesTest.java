@@ -0,0 +1,170 @@
+package uniandes.dpoo.gasolinera.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import uniandes.dpoo.gasolinera.logica.Gasolinera;
+import uniandes.dpoo.gasolinera.logica.TipoGasolina;
+import uniandes.dpoo.gasolinera.metricas.VentasRecientes;
+
+class VentasRecientesTest
+{
+    private static final String CORRIENTE = "corriente";
+    private static final String EXTRA = "extra";
+
+    /**
+     * Un momento que empieza una hora exacta, para que las pruebas sepan en qué minuto y en qué hora cae cada venta
+     */
+    private static final long INICIO = 1700000000000L / TimeUnit.HOURS.toMillis( 1 ) * TimeUnit.HOURS.toMillis( 1 );
+
+    private Gasolinera gasolinera;
+
+    private VentasRecientes ventas;
+
+    @BeforeEach
+    void setUp( ) throws Exception
+    {
+        List<TipoGasolina> tipos = new LinkedList<TipoGasolina>( );
+        tipos.add( new TipoGasolina( CORRIENTE, 14500, 100 ) );
+        tipos.add( new TipoGasolina( EXTRA, 21090, 50 ) );
+        gasolinera = new Gasolinera( 3, tipos, new String[]{ "Alice", "Bob" } );
+        ventas = new VentasRecientes( gasolinera );
+    }
+
+    /**
+     * Retorna un momento contado desde INICIO
+     * @param minutos Los minutos después de INICIO
+     * @return El momento en milisegundos
+     */
+    private long minuto( int minutos )
+    {
+        return INICIO + TimeUnit.MINUTES.toMillis( minutos );
+    }
+
+    /**
+     * Registra una venta de un galón de extra en el surtidor 1, con el primer empleado de la tabla
+     * @param milisegundos El momento de la venta
+     */
+    private void venderGalon( long milisegundos )
+    {
+        ventas.registrarVenta( 1, 1, 0, TipoGasolina.aMicrogalones( 1 ), 1000, milisegundos );
+    }
+
+    @Test
+    public void testVentasEnGasolinera( )
+    {
+        assertNull( gasolinera.getVentasRecientes( ), "Las ventas recientes deberían estar apagadas" );
+        VentasRecientes recientes = gasolinera.activarVentasRecientes( );
+        assertSame( recientes, gasolinera.activarVentasRecientes( ), "Activar otra vez debería retornar las mismas ventas recientes" );
+
+        int idExtra = gasolinera.getIdentificadorTipoGasolina( EXTRA );
+        gasolinera.venderGasolinaPorCantidad( EXTRA, 2.5, 1 );
+        gasolinera.venderGasolinaPorCantidad( CORRIENTE, 1, 2 );
+        assertEquals( 2.5, recientes.getGalonesVendidos( 1, idExtra, 1, TimeUnit.HOURS ), 0.000001, "Los galones de la última hora no son correctos" );
+        assertEquals( 2.5, recientes.getGalonesVendidos( 1, idExtra, 5, TimeUnit.MINUTES ), 0.000001, "Los galones de los últimos minutos no son correctos" );
+        assertEquals( 0, recientes.getGalonesVendidos( 2, idExtra, 1, TimeUnit.HOURS ), "Las ventas de otro surtidor no deberían contarse" );
+
+        String empleado = gasolinera.getSurtidor( 1 ).getEmpleadoAsignado( ).getNombre( );
+        long dineroEmpleado = gasolinera.getEmpleado( empleado ).getCantidadDinero( );
+        assertEquals( dineroEmpleado, recientes.getDineroRecogido( empleado, 10, TimeUnit.MINUTES ), "El dinero del empleado no es correcto" );
+
+        gasolinera.desactivarVentasRecientes( );
+        assertNull( gasolinera.getVentasRecientes( ), "Las ventas recientes deberían quedar apagadas" );
+    }
+
+    @Test
+    public void testVentanasDeslizantes( )
+    {
+        venderGalon( minuto( 0 ) );
+        venderGalon( minuto( 5 ) );
+        venderGalon( minuto( 30 ) );
+
+        assertEquals( 1, ventas.getGalonesVendidos( 1, 1, 1, TimeUnit.MINUTES, minuto( 30 ) ), 0.000001, "El último minuto sólo tiene una venta" );
+        assertEquals( 2, ventas.getGalonesVendidos( 1, 1, 26, TimeUnit.MINUTES, minuto( 30 ) ), 0.000001, "Los últimos 26 minutos tienen dos ventas" );
+        assertEquals( 3, ventas.getGalonesVendidos( 1, 1, 31, TimeUnit.MINUTES, minuto( 30 ) ), 0.000001, "Los últimos 31 minutos tienen tres ventas" );
+        assertEquals( 0, ventas.getGalonesVendidos( 1, 0, 31, TimeUnit.MINUTES, minuto( 30 ) ), "Las ventas de extra no deberían contarse en corriente" );
+
+        // Una hora después, el minuto 0 ya salió de la ventana de 60 minutos pero sigue en las horas
+        assertEquals( 2, ventas.getGalonesVendidos( 1, 1, 60, TimeUnit.MINUTES, minuto( 61 ) ), 0.000001, "El minuto 0 ya no debería contarse" );
+        assertEquals( 3, ventas.getGalonesVendidos( 1, 1, 2, TimeUnit.HOURS, minuto( 61 ) ), 0.000001, "Las dos últimas horas tienen las tres ventas" );
+        assertEquals( 2, ventas.getGalonesVendidos( 1, 1, 1, TimeUnit.HOURS, minuto( 61 ) ), 0.000001, "Una hora debería responderse con los últimos 60 minutos" );
+        assertEquals( 3000, ventas.getDineroRecogido( gasolinera.getTablaSurtidores( ).getEmpleado( 0 ).getNombre( ), 90, TimeUnit.MINUTES, minuto( 61 ) ),
+                "El dinero de las últimas dos horas no es correcto" );
+
+        // Una venta en el minuto 60 reutiliza la ranura del minuto 0, y una venta vieja que llega tarde a esa ranura se descarta
+        venderGalon( minuto( 60 ) );
+        venderGalon( minuto( 0 ) );
+        assertEquals( 3, ventas.getGalonesVendidos( 1, 1, 60, TimeUnit.MINUTES, minuto( 60 ) ), 0.000001, "La ranura reutilizada sólo debería tener la venta nueva" );
+        assertEquals( 0, ventas.getGalonesVendidos( 1, 1, 60, TimeUnit.MINUTES, minuto( 200 ) ), "Después de más de una hora sin ventas no debería quedar nada" );
+    }
+
+    @Test
+    public void testVentanasDeHoras( )
+    {
+        venderGalon( minuto( 70 ) );
+
+        // A las 3 horas, 120 minutos empiezan en el minuto 61: la hora que empieza en el minuto 60 se cuenta completa
+        assertEquals( 1, ventas.getGalonesVendidos( 1, 1, 120, TimeUnit.MINUTES, minuto( 180 ) ), 0.000001, "La venta del minuto 70 está dentro de la ventana" );
+        assertEquals( 1, ventas.getGalonesVendidos( 1, 1, 2, TimeUnit.HOURS, minuto( 180 ) ), 0.000001, "La venta del minuto 70 está dentro de las dos horas" );
+
+        // 61 minutos empiezan en el minuto 120, así que la hora del minuto 70 ya no se cuenta
+        assertEquals( 0, ventas.getGalonesVendidos( 1, 1, 61, TimeUnit.MINUTES, minuto( 180 ) ), "La venta del minuto 70 está antes de la ventana" );
+
+        // Una ventana de 24 horas que no empieza en una hora exacta también alcanza la primera hora
+        assertEquals( 1, ventas.getGalonesVendidos( 1, 1, 24, TimeUnit.HOURS, minuto( 70 + 24 * 60 - 1 ) ), 0.000001, "La ventana de 24 horas empieza en el minuto 70" );
+        assertEquals( 0, ventas.getGalonesVendidos( 1, 1, 24, TimeUnit.HOURS, minuto( 120 + 24 * 60 ) ), "La venta ya tiene más de 24 horas" );
+    }
+
+    @Test
+    public void testVentasDirectasEnSurtidor( )
+    {
+        VentasRecientes recientes = gasolinera.activarVentasRecientes( );
+        int idCorriente = gasolinera.getIdentificadorTipoGasolina( CORRIENTE );
+        gasolinera.getSurtidor( 2 ).venderGasolina( CORRIENTE, 1.5 );
+        gasolinera.getTablaSurtidores( ).venderGasolina( 2, idCorriente, 2 );
+        assertEquals( 3.5, recientes.getGalonesVendidos( 2, idCorriente, 5, TimeUnit.MINUTES ), 0.000001, "Las ventas hechas fuera de la gasolinera también cuentan" );
+    }
+
+    @Test
+    public void testVentanasInvalidas( )
+    {
+        assertThrows( IllegalArgumentException.class, ( ) -> ventas.getGalonesVendidos( 0, 0, 30, TimeUnit.SECONDS ), "La ventana mínima es un minuto" );
+        assertThrows( IllegalArgumentException.class, ( ) -> ventas.getGalonesVendidos( 0, 0, 25, TimeUnit.HOURS ), "La ventana máxima es de 24 horas" );
+        assertThrows( IndexOutOfBoundsException.class, ( ) -> ventas.getGalonesVendidos( 3, 0, 1, TimeUnit.HOURS ), "El surtidor no existe" );
+        assertThrows( IllegalArgumentException.class, ( ) -> ventas.getDineroRecogido( "Zoe", 1, TimeUnit.HOURS ), "El empleado no existe" );
+    }
+
+    @Test
+    public void testVentasConcurrentes( ) throws Exception
+    {
+        final int cantidadHilos = 4;
+        final int ventasPorHilo = 10000;
+        Thread[] hilos = new Thread[cantidadHilos];
+        for( int h = 0; h < cantidadHilos; h++ )
+        {
+            final int numeroHilo = h;
+            hilos[ h ] = new Thread( ( ) -> {
+                for( int i = 0; i < ventasPorHilo; i++ )
+                {
+                    venderGalon( minuto( ( numeroHilo + i ) % 3 ) );
+                }
+            } );
+            hilos[ h ].start( );
+        }
+        for( Thread hilo : hilos )
+        {
+            hilo.join( );
+        }
+        assertEquals( cantidadHilos * ventasPorHilo, ventas.getGalonesVendidos( 1, 1, 3, TimeUnit.MINUTES, minuto( 2 ) ), 0.000001,
+                "Ninguna venta concurrente debería perderse" );
+    }
+}